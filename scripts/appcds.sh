@@ -0,0 +1,47 @@
+#!/bin/sh
+# Build the game with an AppCDS archive, so it starts without loading and
+# verifying its classes.
+#
+#   scripts/appcds.sh [build-dir]
+#
+# Then play with:
+#
+#   java -XX:SharedArchiveFile=build/starship.jsa -jar build/starship.jar
+#
+# The JVM only archives classes loaded from a jar, so the classes are
+# packed into one first. The archive is written at the end of a training
+# run that starts the game the same way it will be played, which also
+# archives the lambdas the rules compile to. Rebuild it whenever the code
+# changes: a stale archive is ignored with a warning, so the game still
+# starts, just slowly.
+#
+# A prebuilt world image (--image) is opt-in: StartupBenchmark currently
+# finds restoring one slower than building the ship in code, with or
+# without the archive. To try it anyway, set WITH_IMAGE=1. The script then
+# also writes build/world.img and trains the archive on a run that uses it,
+# and the game is played with "--image build/world.img" added.
+set -e
+
+cd "$(dirname "$0")/.."
+BUILD=${1:-build}
+
+rm -rf "$BUILD/classes"
+mkdir -p "$BUILD/classes"
+javac -d "$BUILD/classes" src/*.java
+jar --create --file "$BUILD/starship.jar" --main-class StarshipAdventure -C "$BUILD/classes" .
+
+set --
+if [ "${WITH_IMAGE:-0}" = 1 ]; then
+    java -jar "$BUILD/starship.jar" --build-image "$BUILD/world.img"
+    set -- --image "$BUILD/world.img"
+fi
+
+rm -f "$BUILD/starship.jsa"
+printf 'look\ni\nquit\n' | java -XX:ArchiveClassesAtExit="$BUILD/starship.jsa" \
+    -jar "$BUILD/starship.jar" "$@" > /dev/null
+
+if [ $# -gt 0 ]; then
+    echo "Wrote $BUILD/starship.jar, $BUILD/world.img and $BUILD/starship.jsa"
+else
+    echo "Wrote $BUILD/starship.jar and $BUILD/starship.jsa"
+fi
@@ -1,32 +1,60 @@
 /**
  * COMPONENT class for airlock state in the ECS pattern
  * 
- * This component tracks the state of the airlock, including how many turns
- * the player has been in the airlock without a suit (for calculating death)
- * and whether the airlock has been cycled.
+ * This component tracks the state of the airlock: which phase of its cycle
+ * it is in, how many ticks are left before a timed phase finishes, and
+ * which player is caught in it while it vents. Each player's own danger
+ * (turns unsuited in the airlock, whether they cycled it) is kept on their
+ * PlayerComponent, since several may use the airlock.
  */
 public class AirlockStateComponent implements Component {
-    public int turnsWithoutSuit;
-    public boolean cycled;
+    public static final int PRESSURIZE_TICKS = 2;
+    public static final int DEPRESSURIZED_TICKS = 3;
+    public static final int VENT_TICKS = 3;
+    
+    public Phase phase;
+    public int phaseTicks;
+    public String ventingPlayer;
     
     public AirlockStateComponent() {
-        this.turnsWithoutSuit = 0;
-        this.cycled = false;
+        this.phase = Phase.SEALED;
+        this.phaseTicks = 0;
+        this.ventingPlayer = null;
     }
     
-    public void incrementTurnsWithoutSuit() {
-        turnsWithoutSuit++;
+    public void setPhase(Phase phase, int ticks) {
+        this.phase = phase;
+        this.phaseTicks = ticks;
     }
     
-    public void resetTurnsWithoutSuit() {
-        turnsWithoutSuit = 0;
+    public void setVentingPlayer(String playerId) {
+        this.ventingPlayer = playerId;
     }
     
-    public void setCycled(boolean cycled) {
-        this.cycled = cycled;
+    @Override
+    public AirlockStateComponent copy() {
+        AirlockStateComponent copy = new AirlockStateComponent();
+        copy.phase = phase;
+        copy.phaseTicks = phaseTicks;
+        copy.ventingPlayer = ventingPlayer;
+        return copy;
     }
     
-    public boolean isDangerousState() {
-        return turnsWithoutSuit >= 2 && !cycled;
+    /**
+     * Airlock cycle phases
+     * 
+     * SEALED: both hatches closed, chamber pressurized
+     * DEPRESSURIZED: outer hatch open to vacuum, occupant is suited; closes
+     *   after DEPRESSURIZED_TICKS and starts pressurizing
+     * VENTING: outer hatch open with an unsuited occupant, waiting on their
+     *   next action; after VENT_TICKS without one they die
+     * PRESSURIZING: outer hatch closed again, air flooding back in, sealed
+     *   after PRESSURIZE_TICKS
+     */
+    public enum Phase {
+        SEALED,
+        PRESSURIZING,
+        DEPRESSURIZED,
+        VENTING
     }
 }
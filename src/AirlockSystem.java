@@ -1,64 +1,150 @@
 /**
  * System that handles airlock operations and safety checks
+ * 
+ * The airlock is a tick-driven state machine (see AirlockStateComponent.Phase).
+ * Nothing here reads input directly: when the airlock is venting with an
+ * unsuited player inside, that player's next command is delivered through
+ * onPlayerInput as an event, so no thread waits on a prompt. Every phase
+ * but SEALED is timed in ticks: an open outer hatch closes by itself, and a
+ * player who lets VENT_TICKS pass without acting dies as if they had done
+ * the wrong thing.
  */
 public class AirlockSystem implements Esystem {
     private ECS ecs;
-    private static final String PLAYER = "player";
     
     public AirlockSystem(ECS ecs) {
         this.ecs = ecs;
     }
     
-    public void cycleAirlock(java.util.Scanner scanner) {
-        Entity player = ecs.createEntity(PLAYER);
-        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
-        
-        if (!position.room.equals("Airlock")) {
-            System.out.println("You can only cycle the airlock from within it.");
-            return;
-        }
-        
+    public void cycleAirlock(Entity player) {
+
         DockingComponent docking = ecs.getComponent(ecs.createEntity("docking"), DockingComponent.class);
         EquipmentComponent equipment = ecs.getComponent(player, EquipmentComponent.class);
-        AirlockStateComponent airlockState = ecs.getComponent(ecs.createEntity("airlock"), AirlockStateComponent.class);
+        AirlockStateComponent airlockState = getAirlockState();
         
         // Check safety conditions
-        if (docking.inSpace && !equipment.isEquipped(EquipmentComponent.EquipmentSlot.VAC_SUIT)) {
-            handleAirlockDeath(scanner);
+        if (docking.inSpace && !equipment.hasEffect(WearableComponent.Effect.VACUUM_RATED)) {
+            startVenting(airlockState, player);
             return;
         }
         
         // Safe cycling
-        System.out.println("You cycle the airlock. The hatch opens smoothly.");
+        ecs.getOutput().println("You cycle the airlock. The hatch opens smoothly.");
         
         if (docking.inSpace) {
-            System.out.println("You float weightless, the stars endless around you.");
+            ecs.getOutput().println("You float weightless, the stars endless around you.");
+            airlockState.setPhase(AirlockStateComponent.Phase.DEPRESSURIZED, AirlockStateComponent.DEPRESSURIZED_TICKS);
         } else {
-            System.out.println("The starbase's gravity pulls you down as you step onto the pad.");
+            ecs.getOutput().println("The starbase's gravity pulls you down as you step onto the pad.");
+            airlockState.setPhase(AirlockStateComponent.Phase.SEALED, 0);
         }
         
-        airlockState.setCycled(true);
+        markCycled(player);
     }
     
-    private void handleAirlockDeath(java.util.Scanner scanner) {
-        System.out.println("The outer hatch opens to the void. Silence engulfs you as the air rushes out.");
-        System.out.println("Your vision blurs, ice crystals form on your skin, and your lungs burn.");
-        System.out.println("You float weightless, the stars spinning around you.");
-        System.out.println("You have one chance to survive. Cycle the airlock now, or perish.");
-        
-        System.out.print("> ");
-        String nextInput = scanner.nextLine().trim().toLowerCase();
+    /**
+     * Offer a player's next command to the airlock. Returns true if the
+     * airlock consumed it (that player was venting and this decided their fate).
+     */
+    public boolean onPlayerInput(Entity player, String input) {
+        AirlockStateComponent airlockState = getAirlockState();
+        if (airlockState == null || airlockState.phase != AirlockStateComponent.Phase.VENTING) {
+            return false;
+        }
+        // Everyone else aboard carries on as usual
+        if (airlockState.ventingPlayer != null && !airlockState.ventingPlayer.equals(player.getId())) {
+            return false;
+        }
         
-        if (nextInput.equals("cycle airlock")) {
-            System.out.println("You slam the controls. The hatch seals, and air floods back in.");
-            System.out.println("You collapse, gasping, but alive.");
+        airlockState.setVentingPlayer(null);
+        if (input.equals("cycle airlock")) {
+            ecs.getOutput().println("You slam the controls. The hatch seals, and air floods back in.");
+            ecs.getOutput().println("You collapse, gasping, but alive.");
             
-            // Update airlock state
-            AirlockStateComponent airlockState = ecs.getComponent(ecs.createEntity("airlock"), AirlockStateComponent.class);
-            airlockState.setCycled(true);
+            markCycled(player);
+            airlockState.setPhase(AirlockStateComponent.Phase.PRESSURIZING, AirlockStateComponent.PRESSURIZE_TICKS);
         } else {
-            System.out.println("The void claims you. Your body drifts among the stars.");
-            System.exit(0);
+            ventToDeath(airlockState, player);
         }
+        return true;
+    }
+    
+    @Override
+    public void update(double deltaTime) {
+        AirlockStateComponent airlockState = getAirlockState();
+        if (airlockState == null || airlockState.phase == AirlockStateComponent.Phase.SEALED) return;
+        
+        airlockState.phaseTicks--;
+        if (airlockState.phaseTicks > 0) return;
+        
+        switch (airlockState.phase) {
+            case PRESSURIZING:
+                airlockState.setPhase(AirlockStateComponent.Phase.SEALED, 0);
+                break;
+            case DEPRESSURIZED:
+                // The outer hatch closes behind whoever went out, and air comes back
+                airlockState.setPhase(AirlockStateComponent.Phase.PRESSURIZING, AirlockStateComponent.PRESSURIZE_TICKS);
+                break;
+            case VENTING: {
+                // Nobody acted in time
+                String caught = airlockState.ventingPlayer;
+                airlockState.setVentingPlayer(null);
+                if (caught != null) {
+                    ventToDeath(airlockState, ecs.createEntity(caught));
+                } else {
+                    airlockState.setPhase(AirlockStateComponent.Phase.DEPRESSURIZED, AirlockStateComponent.DEPRESSURIZED_TICKS);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Let go of a player who is leaving the ship, so the airlock is not left
+     * waiting on someone who can no longer act (nor takes someone else's
+     * next command in their place). Its outer hatch stays open for now.
+     */
+    public void forget(Entity player) {
+        AirlockStateComponent airlockState = getAirlockState();
+        if (airlockState != null && player.getId().equals(airlockState.ventingPlayer)) {
+            airlockState.setVentingPlayer(null);
+            airlockState.setPhase(AirlockStateComponent.Phase.DEPRESSURIZED, AirlockStateComponent.DEPRESSURIZED_TICKS);
+        }
+    }
+    
+    private void markCycled(Entity player) {
+        PlayerComponent state = ecs.getComponent(player, PlayerComponent.class);
+        if (state != null) {
+            state.airlockCycled = true;
+        }
+    }
+    
+    private void ventToDeath(AirlockStateComponent airlockState, Entity player) {
+        ecs.getOutput().println("The void claims you. Your body drifts among the stars.");
+        // The game only ends with the last player; otherwise the ship
+        // carries on without this one, its outer hatch still open
+        PlayerSystem players = ecs.getSystem(PlayerSystem.class);
+        if (players != null && players.getPlayerCount() > 1) {
+            airlockState.setPhase(AirlockStateComponent.Phase.DEPRESSURIZED, AirlockStateComponent.DEPRESSURIZED_TICKS);
+            players.leave(player);
+        } else {
+            ecs.stop();
+        }
+    }
+    
+    private void startVenting(AirlockStateComponent airlockState, Entity player) {
+        ecs.getOutput().println("The outer hatch opens to the void. Silence engulfs you as the air rushes out.");
+        ecs.getOutput().println("Your vision blurs, ice crystals form on your skin, and your lungs burn.");
+        ecs.getOutput().println("You float weightless, the stars spinning around you.");
+        ecs.getOutput().println("You have one chance to survive. Cycle the airlock now, or perish.");
+        
+        airlockState.setPhase(AirlockStateComponent.Phase.VENTING, AirlockStateComponent.VENT_TICKS);
+        airlockState.setVentingPlayer(player.getId());
+    }
+    
+    private AirlockStateComponent getAirlockState() {
+        return ecs.getComponent(ecs.createEntity("airlock"), AirlockStateComponent.class);
     }
 }
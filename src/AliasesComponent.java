@@ -0,0 +1,22 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * COMPONENT class for item name aliases in the ECS pattern
+ * 
+ * This component lists the other names the player may use for an item
+ * entity (e.g. "suit" for the vac-suit). Aliases are lowercase and may
+ * contain spaces.
+ */
+public class AliasesComponent implements Component {
+    private final List<String> aliases;
+    
+    public AliasesComponent(String... aliases) {
+        this.aliases = Collections.unmodifiableList(Arrays.asList(aliases));
+    }
+    
+    public List<String> getAliases() {
+        return aliases;
+    }
+}
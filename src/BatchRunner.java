@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many command scripts in parallel, one headless BatchSession each
+ * 
+ * Sessions share nothing, so scripts are simply spread over a thread pool.
+ * From the command line, each argument is a script file with one command
+ * per line; a summary line is printed per script. With -image, sessions
+ * start from a PrebuiltWorld file instead of running GameInitializer.
+ * 
+ * Usage: java BatchRunner [-threads N] [-image world.img] script1.txt script2.txt ...
+ */
+public class BatchRunner {
+    private final int threads;
+    private final byte[] image;
+    
+    public BatchRunner(int threads) {
+        this(threads, null);
+    }
+    
+    /**
+     * Start every session from a prebuilt world image (null to initialize normally)
+     */
+    public BatchRunner(int threads, byte[] image) {
+        this.threads = threads;
+        this.image = image;
+    }
+    
+    /**
+     * Run every script in its own fresh session and return the results in script order
+     */
+    public List<List<CommandResult>> runAll(List<List<String>> scripts) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<CommandResult>>> pending = new ArrayList<>();
+            for (List<String> script : scripts) {
+                pending.add(pool.submit(() -> new BatchSession(1.0, image).runAll(script)));
+            }
+            List<List<CommandResult>> results = new ArrayList<>();
+            for (Future<List<CommandResult>> future : pending) {
+                try {
+                    results.add(future.get());
+                } catch (Exception e) {
+                    throw new IllegalStateException("Script failed", e);
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        byte[] image = null;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-image") && i + 1 < args.length) {
+                image = Files.readAllBytes(Paths.get(args[++i]));
+            } else {
+                files.add(Paths.get(args[i]));
+            }
+        }
+        
+        List<List<String>> scripts = new ArrayList<>();
+        for (Path file : files) {
+            scripts.add(Files.readAllLines(file));
+        }
+        
+        long start = System.nanoTime();
+        List<List<CommandResult>> results = new BatchRunner(threads, image).runAll(scripts);
+        long elapsed = System.nanoTime() - start;
+        
+        long commands = 0;
+        for (int i = 0; i < results.size(); i++) {
+            List<CommandResult> script = results.get(i);
+            long nanos = 0;
+            int deltas = 0;
+            for (CommandResult result : script) {
+                nanos += result.elapsedNanos;
+                deltas += result.stateDeltas.size();
+            }
+            commands += script.size();
+            boolean ended = !script.isEmpty() && script.get(script.size() - 1).sessionEnded;
+            System.out.printf("%s: %d commands, %d state changes, %.2f ms%s%n",
+                files.get(i), script.size(), deltas, nanos / 1e6, ended ? ", session ended" : "");
+        }
+        System.out.printf("%d scripts, %d commands in %.2f ms on %d threads%n",
+            results.size(), commands, elapsed / 1e6, threads);
+    }
+}
@@ -0,0 +1,160 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A headless game session for scripted playthroughs
+ * 
+ * Builds its own world with the normal systems and content, sends all game
+ * text to an in-memory buffer instead of the console, and runs commands
+ * through CommandSystem.execute. Each command yields a CommandResult with
+ * its output, the state it changed and its timing. Every command is followed
+ * by one world update of a fixed simulated length, so runs are repeatable.
+ * 
+ * A session can start from a PrebuiltWorld image instead of running
+ * GameInitializer, which matters when many short sessions are started.
+ */
+public class BatchSession {
+    private static final String PLAYER = "player";
+    
+    private final ECS ecs;
+    private final CommandSystem commandSystem;
+    private final ByteArrayOutputStream buffer;
+    private final double secondsPerCommand;
+    private final String introduction;
+    private long sequence;
+    
+    public BatchSession(double secondsPerCommand) {
+        this(secondsPerCommand, null);
+    }
+    
+    /**
+     * Start from a prebuilt world image (the bytes of a PrebuiltWorld file),
+     * or initialize normally if image is null
+     */
+    public BatchSession(double secondsPerCommand, byte[] image) {
+        this.secondsPerCommand = secondsPerCommand;
+        this.buffer = new ByteArrayOutputStream();
+        this.ecs = ECS.createWorld();
+        ecs.setOutput(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        StarshipAdventure.registerSystems(ecs);
+        GameInitializer initializer = new GameInitializer(ecs);
+        if (image != null) {
+            try {
+                PrebuiltWorld.read(new ByteArrayInputStream(image), ecs);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not restore prebuilt world", e);
+            }
+        } else {
+            initializer.initializeWorld();
+        }
+        initializer.displayWelcomeMessage();
+        this.commandSystem = ecs.getSystem(CommandSystem.class);
+        this.introduction = drainOutput();
+    }
+    
+    public BatchSession() {
+        this(1.0);
+    }
+    
+    public ECS getWorld() {
+        return ecs;
+    }
+    
+    /**
+     * Text printed while the world was being set up (the welcome message)
+     */
+    public String getIntroduction() {
+        return introduction;
+    }
+    
+    public boolean isRunning() {
+        return ecs.isRunning();
+    }
+    
+    /**
+     * Run one command and report what it did
+     */
+    public CommandResult run(String command) {
+        Map<String, String> before = captureState();
+        long start = System.nanoTime();
+        commandSystem.execute(command);
+        ecs.update(secondsPerCommand + commandSystem.takeWaitedSeconds());
+        long elapsed = System.nanoTime() - start;
+        Map<String, String> after = captureState();
+        
+        List<String> deltas = new ArrayList<>();
+        for (Map.Entry<String, String> entry : after.entrySet()) {
+            String old = before.get(entry.getKey());
+            if (!entry.getValue().equals(old)) {
+                deltas.add(entry.getKey() + ": " + old + " -> " + entry.getValue());
+            }
+        }
+        return new CommandResult(sequence++, command, drainOutput(), deltas, elapsed, !ecs.isRunning());
+    }
+    
+    /**
+     * Run a whole script and collect every result. Stops early if the session ends.
+     */
+    public List<CommandResult> runAll(List<String> script) {
+        List<CommandResult> results = new ArrayList<>(script.size());
+        runStream(script.iterator(), results::add);
+        return results;
+    }
+    
+    /**
+     * Run commands as they arrive, handing each result to a consumer instead
+     * of keeping them, so arbitrarily long streams use constant memory
+     */
+    public long runStream(Iterator<String> commands, Consumer<CommandResult> sink) {
+        long count = 0;
+        while (commands.hasNext() && ecs.isRunning()) {
+            sink.accept(run(commands.next()));
+            count++;
+        }
+        return count;
+    }
+    
+    private String drainOutput() {
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        buffer.reset();
+        return text;
+    }
+    
+    // The state a command is most likely to change, as printable values
+    private Map<String, String> captureState() {
+        Map<String, String> state = new LinkedHashMap<>();
+        Entity player = ecs.createEntity(PLAYER);
+        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
+        InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
+        EquipmentComponent equipment = ecs.getComponent(player, EquipmentComponent.class);
+        DockingComponent docking = ecs.getComponent(ecs.createEntity("docking"), DockingComponent.class);
+        AirlockStateComponent airlock = ecs.getComponent(ecs.createEntity("airlock"), AirlockStateComponent.class);
+        
+        state.put("room", position != null ? position.room : "none");
+        state.put("inventory", inventory != null ? inventory.getItems().toString() : "[]");
+        if (equipment != null) {
+            for (EquipmentComponent.EquipmentSlot slot : EquipmentComponent.EquipmentSlot.values()) {
+                state.put("equipped." + slot, String.valueOf(equipment.getEquippedItem(slot)));
+            }
+        }
+        if (docking != null) {
+            state.put("docking.requested", String.valueOf(docking.requested));
+            state.put("docking.pad", String.valueOf(docking.pad));
+            state.put("docking.inSpace", String.valueOf(docking.inSpace));
+        }
+        if (airlock != null) {
+            state.put("airlock.phase", airlock.phase.toString());
+        }
+        return state;
+    }
+}
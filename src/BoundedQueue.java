@@ -0,0 +1,94 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue
+ *
+ * A ring of slots, each with a sequence number saying whose turn it is
+ * (Vyukov's bounded MPMC design). Producers claim a position with a CAS on
+ * the tail and publish by advancing the slot's sequence; consumers do the
+ * same on the head. Nobody ever blocks: offer() on a full queue and poll()
+ * on an empty one return at once, leaving the caller to decide whether to
+ * retry, wait or shed. Items from any one producer come out in the order
+ * that producer put them in.
+ *
+ * The capacity is rounded up to a power of two.
+ */
+public final class BoundedQueue<T> {
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+
+    public BoundedQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+    }
+
+    /**
+     * Add an item if there is room. Returns false if the queue is full.
+     */
+    public boolean offer(T item) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(slot, item);
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                return false;
+            }
+            // Another producer claimed this position; try the next one
+        }
+    }
+
+    /**
+     * Take the oldest item, or return null if the queue is empty
+     */
+    public T poll() {
+        while (true) {
+            long position = head.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position + 1) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T item = items.get(slot);
+                    items.set(slot, null);
+                    sequences.set(slot, position + mask + 1);
+                    return item;
+                }
+            } else if (sequence < position + 1) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Approximate number of items queued (exact when no one is adding or taking)
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0L, Math.min(size, mask + 1L));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.Arrays;
+
+/**
+ * Recorded structural changes to be applied to the world later
+ * 
+ * Systems that are iterating over component sets, or running on worker
+ * threads, record entity creation/destruction and component additions/removals
+ * here instead of touching the ComponentManager directly. The buffer is played
+ * back in one batch at a sync point in the tick, in the order it was recorded.
+ * 
+ * A buffer is not thread-safe; each thread (or each parallel partition, when
+ * playback order must be deterministic) should record into its own buffer.
+ * Storage is reused between ticks, so recording does not allocate once the
+ * buffer has grown to its working size.
+ */
+public class CommandBuffer {
+    private static final byte CREATE = 0;
+    private static final byte DESTROY = 1;
+    private static final byte ADD = 2;
+    private static final byte REMOVE = 3;
+    private static final byte ADD_IF_ABSENT = 4;
+    
+    private byte[] kinds;
+    private Entity[] entities;
+    private Object[] payloads;
+    private int size;
+    
+    public CommandBuffer() {
+        kinds = new byte[16];
+        entities = new Entity[16];
+        payloads = new Object[16];
+    }
+    
+    public void createEntity(Entity entity) {
+        record(CREATE, entity, null);
+    }
+    
+    public void destroyEntity(Entity entity) {
+        record(DESTROY, entity, null);
+    }
+    
+    public <T extends Component> void addComponent(Entity entity, T component) {
+        record(ADD, entity, component);
+    }
+    
+    /**
+     * Add a component unless the entity already has one of its type when the
+     * buffer is played back, for a thread that can't safely look at the world
+     */
+    public <T extends Component> void addComponentIfAbsent(Entity entity, T component) {
+        record(ADD_IF_ABSENT, entity, component);
+    }
+    
+    public <T extends Component> void removeComponent(Entity entity, Class<T> componentClass) {
+        record(REMOVE, entity, componentClass);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Apply every recorded operation to the world and clear the buffer. An
+     * operation the world refuses for its caps is skipped and the rest are
+     * still applied; the first refusal is rethrown once the buffer is clear.
+     */
+    public void playback(ECS ecs) {
+        WorldLimitException refused = null;
+        try {
+            for (int i = 0; i < size; i++) {
+                try {
+                    apply(ecs, i);
+                } catch (WorldLimitException e) {
+                    if (refused == null) {
+                        refused = e;
+                    }
+                }
+            }
+        } finally {
+            clear();
+        }
+        if (refused != null) {
+            throw refused;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void apply(ECS ecs, int i) {
+        switch (kinds[i]) {
+            case CREATE:
+                ecs.registerEntity(entities[i]);
+                break;
+            case DESTROY:
+                ecs.destroyEntity(entities[i]);
+                break;
+            case ADD:
+                ecs.addComponent(entities[i], (Component) payloads[i]);
+                break;
+            case REMOVE:
+                ecs.removeComponent(entities[i], (Class<? extends Component>) payloads[i]);
+                break;
+            case ADD_IF_ABSENT:
+                if (!ecs.hasComponent(entities[i], ((Component) payloads[i]).getClass())) {
+                    ecs.addComponent(entities[i], (Component) payloads[i]);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Drop all recorded operations without applying them
+     */
+    public void clear() {
+        Arrays.fill(entities, 0, size, null);
+        Arrays.fill(payloads, 0, size, null);
+        size = 0;
+    }
+    
+    private void record(byte kind, Entity entity, Object payload) {
+        if (size == kinds.length) {
+            int newLength = size * 2;
+            kinds = Arrays.copyOf(kinds, newLength);
+            entities = Arrays.copyOf(entities, newLength);
+            payloads = Arrays.copyOf(payloads, newLength);
+        }
+        kinds[size] = kind;
+        entities[size] = entity;
+        payloads[size] = payload;
+        size++;
+    }
+}
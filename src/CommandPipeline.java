@@ -0,0 +1,472 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Staged command processing for a world serving remote clients
+ *
+ * Commands flow through three stages joined by BoundedQueues:
+ *
+ *   decode   (I/O threads)   raw frame bytes -> text -> ParsedCommand
+ *   execute  (world thread)  tick() runs up to maxBatch queued commands,
+ *                            then advances the world once
+ *   encode   (I/O threads)   reply text -> length-prefixed UTF-8 frame,
+ *                            handed to the client's sink
+ *
+ * Each client is pinned to one I/O worker, so its commands are decoded and
+ * its replies encoded in the order they arrived. The world thread only
+ * ever sees parsed commands and only ever produces text; it never touches
+ * bytes or sockets.
+ *
+ * Every queue is bounded. When the world falls behind, decoders hold their
+ * next command until the execute queue has room, their inbound queues fill,
+ * and submit() refuses frames, so a flood backs up to the clients instead
+ * of growing memory. Output printed while the world updates (rather than in
+ * answer to a command) goes to every client.
+ *
+ * Output is never dropped. When a client's encoder queue is full, its text
+ * waits on the world thread and that client's commands are held, not run,
+ * until the text has gone out; other clients are unaffected. A client
+ * that lets more than MAX_UNSENT_CHARS or a queue's worth of commands pile
+ * up this way is disconnected (unregistered) instead.
+ *
+ * Each client acts as one player entity, by default the console's "player";
+ * clients registered with their own players share the ship, and what
+ * PlayerSystem broadcasts to them can be routed back through send(). When a
+ * player leaves the ship (quitting, or lost in the airlock), the clients
+ * acting for them are unregistered.
+ */
+public class CommandPipeline implements AutoCloseable {
+    private static final long IDLE_PARK_NANOS = 50_000;
+    static final int MAX_UNSENT_CHARS = 64 * 1024;
+
+    private final ECS world;
+    private final CommandSystem commandSystem;
+    private final int maxBatch;
+    private final int queueCapacity;
+    private final IoWorker[] workers;
+    private final BoundedQueue<Request> executeQueue;
+    private final Map<String, Client> clients;
+    // Clients with output waiting for room in their encoder queue; world thread only
+    private final List<Client> backlogged;
+    private final StageMetrics decode;
+    private final StageMetrics execute;
+    private final StageMetrics encode;
+    private final ByteArrayOutputStream captured;
+    private final PrintStream capture;
+    private volatile boolean open;
+
+    private static final class Client {
+        final String id;
+        final Entity actor;
+        final Consumer<byte[]> sink;
+        final IoWorker worker;
+        // World thread only: output that did not fit the encoder queue, and
+        // commands held back until it has been sent
+        final StringBuilder unsent = new StringBuilder();
+        final ArrayDeque<ParsedCommand> held = new ArrayDeque<>();
+        boolean backlogged;
+
+        Client(String id, Entity actor, Consumer<byte[]> sink, IoWorker worker) {
+            this.id = id;
+            this.actor = actor;
+            this.sink = sink;
+            this.worker = worker;
+        }
+    }
+
+    private static final class Frame {
+        final Client client;
+        final byte[] bytes;
+
+        Frame(Client client, byte[] bytes) {
+            this.client = client;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Request {
+        final Client client;
+        final ParsedCommand command;
+
+        Request(Client client, ParsedCommand command) {
+            this.client = client;
+            this.command = command;
+        }
+    }
+
+    private static final class Reply {
+        final Client client;
+        final String text;
+
+        Reply(Client client, String text) {
+            this.client = client;
+            this.text = text;
+        }
+    }
+
+    public CommandPipeline(ECS world, int ioThreads, int queueCapacity, int maxBatch) {
+        this.world = world;
+        this.commandSystem = world.getSystem(CommandSystem.class);
+        if (commandSystem == null) {
+            throw new IllegalStateException("World has no CommandSystem");
+        }
+        this.maxBatch = Math.max(1, maxBatch);
+        this.queueCapacity = queueCapacity;
+        this.executeQueue = new BoundedQueue<>(queueCapacity);
+        this.clients = new ConcurrentHashMap<>();
+        this.backlogged = new ArrayList<>();
+        this.decode = new StageMetrics("decode");
+        this.execute = new StageMetrics("execute");
+        this.encode = new StageMetrics("encode");
+        this.captured = new ByteArrayOutputStream();
+        this.capture = new PrintStream(captured, true, StandardCharsets.UTF_8);
+        this.open = true;
+        PlayerSystem players = world.getSystem(PlayerSystem.class);
+        if (players != null) {
+            players.onLeave(this::unregisterActor);
+        }
+        this.workers = new IoWorker[Math.max(1, ioThreads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new IoWorker(i, queueCapacity);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Connect a client that plays as the console player; its replies are
+     * delivered to sink as encoded frames, on an I/O thread
+     */
+    public void register(String clientId, Consumer<byte[]> sink) {
+        register(clientId, world.createEntity("player"), sink);
+    }
+
+    /**
+     * Connect a client whose commands are carried out by the given player
+     * (see PlayerSystem.join; send() makes a suitable audience)
+     */
+    public void register(String clientId, Entity actor, Consumer<byte[]> sink) {
+        IoWorker worker = workers[Math.floorMod(clientId.hashCode(), workers.length)];
+        clients.put(clientId, new Client(clientId, actor, sink, worker));
+    }
+
+    /**
+     * Queue text for one client outside of any reply, such as a line
+     * broadcast by PlayerSystem. World thread only, like tick().
+     */
+    public void send(String clientId, String text) {
+        Client client = clients.get(clientId);
+        if (client != null) {
+            reply(client, text);
+        }
+    }
+
+    public void unregister(String clientId) {
+        clients.remove(clientId);
+    }
+
+    // World thread: a player has left, so nobody may act for them any more
+    private void unregisterActor(Entity player) {
+        for (Client client : clients.values()) {
+            if (client.actor.equals(player)) {
+                clients.remove(client.id, client);
+            }
+        }
+    }
+
+    /**
+     * Hand over one frame received from a client (a UTF-8 command line).
+     * Returns false, without queueing it, if the client's I/O worker is full;
+     * the caller should stop reading from that client until a later try succeeds.
+     */
+    public boolean submit(String clientId, byte[] frame) {
+        Client client = clients.get(clientId);
+        if (client == null) {
+            throw new IllegalArgumentException("Unknown client: " + clientId);
+        }
+        if (!client.worker.inbound.offer(new Frame(client, frame))) {
+            return false;
+        }
+        decode.recordDepth(client.worker.inbound.size());
+        return true;
+    }
+
+    /**
+     * Number of decoded commands waiting for the world thread
+     */
+    public int getPendingCommands() {
+        return executeQueue.size();
+    }
+
+    /**
+     * Run one tick on the world's own thread: execute up to maxBatch queued
+     * commands, then update the world once with dt plus any time the
+     * commands let pass. Returns how many commands ran.
+     */
+    public int tick(double dt) {
+        long start = System.nanoTime();
+        PrintStream previous = world.getOutput();
+        world.setOutput(capture);
+        int ran = 0;
+        try {
+            ran = runHeld();
+            Request request;
+            while (ran < maxBatch && (request = executeQueue.poll()) != null) {
+                Client client = request.client;
+                if (clients.get(client.id) != client) {
+                    // Unregistered or disconnected since it was queued
+                    continue;
+                }
+                if (client.unsent.length() > 0 || !client.held.isEmpty()) {
+                    hold(client, request.command);
+                    continue;
+                }
+                runCommand(client, request.command);
+                ran++;
+            }
+            if (ran > 0 || dt > 0) {
+                try {
+                    world.update(dt + commandSystem.takeWaitedSeconds());
+                } catch (WorldLimitException e) {
+                    capture.println(e.getMessage() + ".");
+                }
+                String events = drainCapture();
+                if (!events.isEmpty()) {
+                    for (Client client : clients.values()) {
+                        reply(client, events);
+                    }
+                }
+            }
+        } finally {
+            world.setOutput(previous);
+        }
+        if (ran > 0) {
+            execute.recordProcessed(ran, System.nanoTime() - start);
+        }
+        return ran;
+    }
+
+    // A command refused by the world's caps is answered like any other
+    private void runCommand(Client client, ParsedCommand command) {
+        try {
+            commandSystem.execute(client.actor, command);
+        } catch (WorldLimitException e) {
+            capture.println(e.getMessage() + ".");
+        }
+        reply(client, drainCapture());
+    }
+
+    private String drainCapture() {
+        String text = captured.toString(StandardCharsets.UTF_8);
+        captured.reset();
+        return text;
+    }
+
+    // The world thread must not block on a slow client: what does not fit
+    // waits in the client's unsent text, behind anything already waiting
+    private void reply(Client client, String text) {
+        if (client.unsent.length() == 0 && offer(client, text)) {
+            return;
+        }
+        if (client.unsent.length() == 0) {
+            encode.recordRejected();
+        }
+        if (!client.backlogged) {
+            client.backlogged = true;
+            backlogged.add(client);
+        }
+        client.unsent.append(text);
+        if (client.unsent.length() > MAX_UNSENT_CHARS) {
+            disconnect(client);
+        }
+    }
+
+    private boolean offer(Client client, String text) {
+        BoundedQueue<Reply> outbound = client.worker.outbound;
+        if (!outbound.offer(new Reply(client, text))) {
+            return false;
+        }
+        encode.recordDepth(outbound.size());
+        return true;
+    }
+
+    private void hold(Client client, ParsedCommand command) {
+        client.held.add(command);
+        if (client.held.size() > queueCapacity) {
+            disconnect(client);
+        }
+    }
+
+    // Send what backlogged clients are owed, then run the commands held for
+    // those that are clear, up to maxBatch. Returns how many commands ran.
+    private int runHeld() {
+        int ran = 0;
+        for (Client client : backlogged.toArray(new Client[0])) {
+            if (ran == maxBatch) {
+                break;
+            }
+            if (clients.get(client.id) != client) {
+                release(client);
+                continue;
+            }
+            if (client.unsent.length() > 0) {
+                if (!offer(client, client.unsent.toString())) {
+                    continue;
+                }
+                client.unsent.setLength(0);
+            }
+            while (ran < maxBatch && client.unsent.length() == 0 && !client.held.isEmpty()) {
+                runCommand(client, client.held.poll());
+                ran++;
+            }
+            if (client.unsent.length() == 0 && client.held.isEmpty()) {
+                release(client);
+            }
+        }
+        return ran;
+    }
+
+    private void release(Client client) {
+        backlogged.remove(client);
+        client.backlogged = false;
+    }
+
+    private void disconnect(Client client) {
+        clients.remove(client.id, client);
+        release(client);
+        client.unsent.setLength(0);
+        client.held.clear();
+    }
+
+    /**
+     * Encode a reply as a frame: 4-byte big-endian length, then UTF-8 text
+     */
+    public static byte[] encodeFrame(String text) {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(4 + body.length).putInt(body.length).put(body).array();
+    }
+
+    /**
+     * Decode a frame produced by encodeFrame
+     */
+    public static String decodeFrame(byte[] frame) {
+        int length = ByteBuffer.wrap(frame).getInt();
+        return new String(frame, 4, length, StandardCharsets.UTF_8);
+    }
+
+    public List<StageMetrics> getMetrics() {
+        List<StageMetrics> metrics = new ArrayList<>();
+        metrics.add(decode);
+        metrics.add(execute);
+        metrics.add(encode);
+        return metrics;
+    }
+
+    /**
+     * One line per stage, with current queue depths
+     */
+    public List<String> describeMetrics() {
+        int inbound = 0;
+        int outbound = 0;
+        for (IoWorker worker : workers) {
+            inbound += worker.inbound.size();
+            outbound += worker.outbound.size();
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(decode.describe(inbound));
+        lines.add(execute.describe(executeQueue.size()));
+        lines.add(encode.describe(outbound));
+        return lines;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        for (IoWorker worker : workers) {
+            LockSupport.unpark(worker);
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Decodes its clients' frames and encodes their replies. Replies go
+    // first so finished work leaves the system before new work enters it.
+    private final class IoWorker extends Thread {
+        final BoundedQueue<Frame> inbound;
+        final BoundedQueue<Reply> outbound;
+        private Request stalled;
+
+        IoWorker(int index, int capacity) {
+            super("pipeline-io-" + index);
+            setDaemon(true);
+            this.inbound = new BoundedQueue<>(capacity);
+            this.outbound = new BoundedQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            while (open) {
+                boolean worked = encodeReplies() | decodeFrames();
+                if (!worked) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        private boolean encodeReplies() {
+            Reply reply;
+            int count = 0;
+            long start = System.nanoTime();
+            while ((reply = outbound.poll()) != null) {
+                if (!reply.text.isEmpty()) {
+                    reply.client.sink.accept(encodeFrame(reply.text));
+                }
+                count++;
+            }
+            if (count > 0) {
+                encode.recordProcessed(count, System.nanoTime() - start);
+            }
+            return count > 0;
+        }
+
+        private boolean decodeFrames() {
+            int count = 0;
+            long start = System.nanoTime();
+            while (true) {
+                Request request = stalled;
+                if (request == null) {
+                    Frame frame = inbound.poll();
+                    if (frame == null) break;
+                    String line = new String(frame.bytes, StandardCharsets.UTF_8);
+                    request = new Request(frame.client, ParsedCommand.parse(line));
+                }
+                if (!executeQueue.offer(request)) {
+                    // The world is behind: hold this command and stop pulling
+                    // more, so the backlog fills the inbound queue and
+                    // submit() pushes back on the client
+                    stalled = request;
+                    decode.recordRejected();
+                    break;
+                }
+                stalled = null;
+                execute.recordDepth(executeQueue.size());
+                count++;
+            }
+            if (count > 0) {
+                decode.recordProcessed(count, System.nanoTime() - start);
+            }
+            return count > 0;
+        }
+    }
+}
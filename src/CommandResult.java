@@ -0,0 +1,33 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of one command run through a BatchSession
+ * 
+ * Holds the text the command produced, the game-state values it changed
+ * (as "key: before -> after" lines), and how long it took to execute.
+ */
+public class CommandResult {
+    public final long sequence;
+    public final String command;
+    public final String output;
+    public final List<String> stateDeltas;
+    public final long elapsedNanos;
+    public final boolean sessionEnded;
+    
+    public CommandResult(long sequence, String command, String output, List<String> stateDeltas,
+                         long elapsedNanos, boolean sessionEnded) {
+        this.sequence = sequence;
+        this.command = command;
+        this.output = output;
+        this.stateDeltas = Collections.unmodifiableList(stateDeltas);
+        this.elapsedNanos = elapsedNanos;
+        this.sessionEnded = sessionEnded;
+    }
+    
+    @Override
+    public String toString() {
+        return "CommandResult{#" + sequence + " '" + command + "', deltas=" + stateDeltas
+            + ", " + elapsedNanos / 1000 + "us" + (sessionEnded ? ", ended" : "") + "}";
+    }
+}
@@ -6,32 +6,97 @@ import java.util.Scanner;
 public class CommandSystem implements Esystem {
     private ECS ecs;
     private Scanner scanner;
+    // The player the console (and anything not naming an actor) controls
     private static final String PLAYER = "player";
     private String lastInput = "";
+    private double waitedSeconds;
+    private static final double WAIT_SECONDS = 10.0;
     
     public CommandSystem(ECS ecs) {
         this.ecs = ecs;
-        this.scanner = new Scanner(System.in);
     }
     
+    /**
+     * Prompt for, read and execute one command from the console
+     */
     public void processCommand() {
-        System.out.print("> ");
-        String input = scanner.nextLine().trim().toLowerCase();
+        ecs.getOutput().print("> ");
+        execute(console().nextLine());
+    }
+    
+    /**
+     * Read one line from the console, or return null at end of input
+     */
+    public String readLine() {
+        Scanner console = console();
+        return console.hasNextLine() ? console.nextLine() : null;
+    }
+    
+    // Made on first use: a Scanner is slow to build, and headless sessions never need one
+    private Scanner console() {
+        if (scanner == null) {
+            scanner = new Scanner(System.in);
+        }
+        return scanner;
+    }
+    
+    /**
+     * Execute one command line for the console player without touching the console input
+     */
+    public void execute(String line) {
+        execute(ParsedCommand.parse(line));
+    }
+    
+    /**
+     * Execute a command for the console player that was already tokenized,
+     * possibly on another thread
+     */
+    public void execute(ParsedCommand parsed) {
+        execute(ecs.createEntity(PLAYER), parsed);
+    }
+    
+    /**
+     * Execute a command on behalf of one player. What it prints goes to the
+     * world's output, which should be that player's; anyone else affected
+     * hears through PlayerSystem.
+     */
+    public void execute(Entity actor, ParsedCommand parsed) {
+        String input = parsed.input;
         lastInput = input;
         
-        String[] parts = input.split(" ", 2);
-        String command = parts[0];
-        String argument = parts.length > 1 ? parts[1] : "";
+        // Apply anything other threads submitted while we were waiting for input
+        ecs.playbackCommandBuffers();
+        
+        // A command can arrive after its player has quit or died
+        if (!ecs.hasComponent(actor, PlayerComponent.class) || !ecs.hasComponent(actor, PositionComponent.class)) {
+            ecs.getOutput().println("You are no longer aboard.");
+            return;
+        }
+        
+        // A venting airlock takes the next command of whoever is caught in it as its event
+        AirlockSystem airlockSystem = ecs.getSystem(AirlockSystem.class);
+        if (airlockSystem != null && airlockSystem.onPlayerInput(actor, input)) {
+            return;
+        }
+        
+        // Content rules may refuse the command, or handle it themselves
+        RuleSystem rules = ecs.getSystem(RuleSystem.class);
+        if (rules != null && !rules.allowsCommand(actor, parsed)) {
+            return;
+        }
+        
+        String command = parsed.verb;
+        String argument = parsed.argument;
         
         switch (command) {
             case "go":
-                handleMove(argument);
+                handleMove(actor, argument);
                 break;
             case "look":
-                handleLook();
+                handleLook(actor);
                 break;
             case "examine":
-                handleExamine(argument);
+                handleExamine(actor, argument);
                 break;
             case "request":
                 handleRequest(argument);
@@ -41,99 +106,124 @@ public class CommandSystem implements Esystem {
                 break;
             case "a":
             case "aft":
-                handleMove("aft");
+                handleMove(actor, "aft");
                 break;
             case "f":
             case "fore":
-                handleMove("fore");
+                handleMove(actor, "fore");
                 break;
             case "p":
             case "port":
-                handleMove("port");
+                handleMove(actor, "port");
                 break;
             case "s":
             case "starboard":
-                handleMove("starboard");
+                handleMove(actor, "starboard");
                 break;
             case "u":
             case "up":
-                handleMove("up");
+                handleMove(actor, "up");
                 break;
             case "d":
             case "down":
-                handleMove("down");
+                handleMove(actor, "down");
                 break;
             case "o":
             case "out":
-                handleMove("out");
+                handleMove(actor, "out");
                 break;
             case "in":
-                handleMove("in");
+                handleMove(actor, "in");
                 break;
             case "i":
             case "inventory":
-                handleInventory();
+                handleInventory(actor);
                 break;
             case "get":
             case "take":
-                handleTake(argument);
+                handleTake(actor, argument);
+                break;
+            case "drop":
+                handleDrop(actor, argument);
+                break;
+            case "put":
+                handlePut(actor, argument);
+                break;
+            case "give":
+                handleGive(actor, argument);
                 break;
             case "wear":
             case "don":
-                handleWear(argument);
+                handleWear(actor, argument);
                 break;
             case "remove":
             case "doff":
-                handleRemove(argument);
+                handleRemove(actor, argument);
                 break;
             case "cycle":
-                handleCycle(argument);
+                handleCycle(actor, argument);
+                break;
+            case "wait":
+            case "z":
+                handleWait();
                 break;
             case "quit":
-                handleQuit();
+                handleQuit(actor);
                 break;
             default:
-                System.out.println("Unknown command. Try: go, look, examine, request, initiate, quit");
+                ecs.getOutput().println("Unknown command. Try: go, look, examine, request, initiate, quit");
         }
     }
     
-    private void handleMove(String direction) {
+    private void handleWait() {
+        ecs.getOutput().println("Time passes.");
+        waitedSeconds += WAIT_SECONDS;
+    }
+    
+    /**
+     * Simulated time the player has asked to let pass since the last call
+     */
+    public double takeWaitedSeconds() {
+        double seconds = waitedSeconds;
+        waitedSeconds = 0.0;
+        return seconds;
+    }
+    
+    private void handleMove(Entity actor, String direction) {
         MovementSystem movement = ecs.getSystem(MovementSystem.class);
-        Entity player = ecs.createEntity(PLAYER);
         
         if (movement != null) {
-            String oldRoom = ecs.getComponent(player, PositionComponent.class).room;
-            movement.moveEntity(player, direction);
-            String newRoom = ecs.getComponent(player, PositionComponent.class).room;
+            String oldRoom = ecs.getComponent(actor, PositionComponent.class).room;
+            movement.moveEntity(actor, direction);
+            String newRoom = ecs.getComponent(actor, PositionComponent.class).room;
             
             if (!newRoom.equals(oldRoom)) {
                 // Room changed, display it
                 RenderSystem render = ecs.getSystem(RenderSystem.class);
                 if (render != null) {
-                    render.displayRoom(newRoom, false);
+                    render.displayRoom(actor, newRoom, false);
                 }
             } else {
-                System.out.println("You can't go that way.");
+                ecs.getOutput().println("You can't go that way.");
             }
         }
     }
     
-    private void handleLook() {
-        Entity player = ecs.createEntity(PLAYER);
-        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
+    private void handleLook(Entity actor) {
+        PositionComponent position = ecs.getComponent(actor, PositionComponent.class);
         
         if (position != null) {
             RenderSystem render = ecs.getSystem(RenderSystem.class);
             if (render != null) {
-                render.displayRoom(position.room, true);
+                render.displayRoom(actor, position.room, true);
             }
         }
     }
     
-    private void handleExamine(String item) {
+    private void handleExamine(Entity actor, String item) {
         ItemSystem inventory = ecs.getSystem(ItemSystem.class);
         if (inventory != null) {
-            inventory.examineItem(item);
+            inventory.examineItem(actor, item);
         }
     }
     
@@ -144,7 +234,7 @@ public class CommandSystem implements Esystem {
                 docking.requestDocking();
             }
         } else {
-            System.out.println("Request what? Try 'request docking' from the bridge.");
+            ecs.getOutput().println("Request what? Try 'request docking' from the bridge.");
         }
     }
     
@@ -155,52 +245,94 @@ public class CommandSystem implements Esystem {
                 docking.initiateDocking();
             }
         } else {
-            System.out.println("Initiate what? Try 'initiate docking' from the bridge.");
+            ecs.getOutput().println("Initiate what? Try 'initiate docking' from the bridge.");
         }
     }
     
-    private void handleInventory() {
+    private void handleInventory(Entity actor) {
         RenderSystem render = ecs.getSystem(RenderSystem.class);
         if (render != null) {
-            render.displayInventory();
+            render.displayInventory(actor);
+        }
+    }
+    
+    private void handleTake(Entity actor, String argument) {
+        ItemSystem inventory = ecs.getSystem(ItemSystem.class);
+        if (inventory != null) {
+            String[] parts = argument.split(" (from|out of) ", 2);
+            if (parts.length == 2) {
+                inventory.takeItemFrom(actor, parts[0], parts[1]);
+            } else {
+                inventory.takeItem(actor, argument);
+            }
         }
     }
     
-    private void handleTake(String item) {
+    private void handleDrop(Entity actor, String item) {
         ItemSystem inventory = ecs.getSystem(ItemSystem.class);
         if (inventory != null) {
-            inventory.takeItem(item);
+            inventory.dropItem(actor, item);
         }
     }
     
-    private void handleWear(String item) {
+    private void handlePut(Entity actor, String argument) {
+        String[] parts = argument.split(" (in|into|inside) ", 2);
+        if (parts.length < 2) {
+            ecs.getOutput().println("Put what in what? Try 'put wrench in crate'.");
+            return;
+        }
         ItemSystem inventory = ecs.getSystem(ItemSystem.class);
         if (inventory != null) {
-            inventory.wearItem(item);
+            inventory.putItem(actor, parts[0], parts[1]);
         }
     }
     
-    private void handleRemove(String item) {
+    private void handleGive(Entity actor, String argument) {
+        String[] parts = argument.split(" to ", 2);
+        if (parts.length < 2) {
+            ecs.getOutput().println("Give what to whom? Try 'give wrench to drone'.");
+            return;
+        }
         ItemSystem inventory = ecs.getSystem(ItemSystem.class);
         if (inventory != null) {
-            inventory.removeItem(item);
+            inventory.giveItem(actor, parts[0], parts[1]);
         }
     }
     
-    private void handleCycle(String argument) {
+    private void handleWear(Entity actor, String item) {
+        ItemSystem inventory = ecs.getSystem(ItemSystem.class);
+        if (inventory != null) {
+            inventory.wearItem(actor, item);
+        }
+    }
+    
+    private void handleRemove(Entity actor, String item) {
+        ItemSystem inventory = ecs.getSystem(ItemSystem.class);
+        if (inventory != null) {
+            inventory.removeItem(actor, item);
+        }
+    }
+    
+    private void handleCycle(Entity actor, String argument) {
         if (argument.equals("airlock")) {
             AirlockSystem airlock = ecs.getSystem(AirlockSystem.class);
             if (airlock != null) {
-                airlock.cycleAirlock(scanner);
+                airlock.cycleAirlock(actor);
             }
         } else {
-            System.out.println("Cycle what? Try 'cycle airlock' from within the airlock.");
+            ecs.getOutput().println("Cycle what? Try 'cycle airlock' from within the airlock.");
         }
     }
     
-    private void handleQuit() {
-        System.out.println("Shutting down systems. Goodbye, Commander.");
-        System.exit(0);
+    private void handleQuit(Entity actor) {
+        ecs.getOutput().println("Shutting down systems. Goodbye, Commander.");
+        // With others still aboard only this player leaves; the last one ends the game
+        PlayerSystem players = ecs.getSystem(PlayerSystem.class);
+        if (players != null && players.getPlayerCount() > 1) {
+            players.leave(actor);
+        } else {
+            ecs.stop();
+        }
     }
     
     public String getLastInput() {
@@ -5,6 +5,14 @@
  * with no behavior. They should be immutable or use value semantics where possible.
  */
 public interface Component {
-    // Empty marker interface
     // Components should be POJOs (Plain Old Java Objects) containing only data
+    
+    /**
+     * Copy this component for a read snapshot. Immutable components can be
+     * shared between versions, which is the default; components with
+     * mutable state override this to return an independent copy.
+     */
+    default Component copy() {
+        return this;
+    }
 }
@@ -1,6 +1,12 @@
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 /**
@@ -8,12 +14,40 @@ import java.util.stream.Collectors;
  * 
  * This class manages the mapping between entities and their components.
  * It provides a type-safe way to add, remove, and query components.
+ * 
+ * By default the maps are plain HashMaps and the manager belongs to one
+ * thread. In concurrent mode every map is a ConcurrentHashMap, so any
+ * thread may read or write, and each component type is guarded by one of
+ * a fixed set of striped read-write locks. Writers share their type's
+ * stripe (the map itself copes with concurrent writers); snapshot() takes
+ * the stripes of the types it copies exclusively, in a fixed order, so a
+ * snapshot is a single point-in-time cut across all of those types.
  */
 public class ComponentManager {
-    private Map<Class<? extends Component>, Map<Entity, ? extends Component>> componentMaps;
+    private static final int STRIPES = 16;
+    
+    private final Map<Class<? extends Component>, Map<Entity, ? extends Component>> componentMaps;
+    private final ReadWriteLock[] stripes;
     
     public ComponentManager() {
-        componentMaps = new HashMap<>();
+        this(false);
+    }
+    
+    public ComponentManager(boolean concurrent) {
+        if (concurrent) {
+            componentMaps = new ConcurrentHashMap<>();
+            stripes = new ReadWriteLock[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new ReentrantReadWriteLock();
+            }
+        } else {
+            componentMaps = new HashMap<>();
+            stripes = null;
+        }
+    }
+    
+    public boolean isConcurrent() {
+        return stripes != null;
     }
     
     /**
@@ -21,11 +55,25 @@ public class ComponentManager {
      */
     @SuppressWarnings("unchecked")
     public <T extends Component> void addComponent(Entity entity, T component) {
-        Map<Entity, T> map = (Map<Entity, T>) componentMaps.computeIfAbsent(
-            component.getClass(), 
-            k -> new HashMap<>()
-        );
-        map.put(entity, component);
+        if (stripes == null) {
+            Map<Entity, T> map = (Map<Entity, T>) componentMaps.computeIfAbsent(
+                component.getClass(), 
+                k -> new HashMap<>()
+            );
+            map.put(entity, component);
+            return;
+        }
+        ReadWriteLock stripe = stripeFor(component.getClass());
+        stripe.readLock().lock();
+        try {
+            Map<Entity, T> map = (Map<Entity, T>) componentMaps.computeIfAbsent(
+                component.getClass(), 
+                k -> new ConcurrentHashMap<>()
+            );
+            map.put(entity, component);
+        } finally {
+            stripe.readLock().unlock();
+        }
     }
     
     /**
@@ -34,9 +82,111 @@ public class ComponentManager {
     @SuppressWarnings("unchecked")
     public <T extends Component> void removeComponent(Entity entity, Class<T> componentClass) {
         Map<Entity, T> map = (Map<Entity, T>) componentMaps.get(componentClass);
-        if (map != null) {
+        if (map == null) {
+            return;
+        }
+        if (stripes == null) {
+            map.remove(entity);
+            return;
+        }
+        ReadWriteLock stripe = stripeFor(componentClass);
+        stripe.readLock().lock();
+        try {
             map.remove(entity);
+        } finally {
+            stripe.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove every component an entity has, in one pass over the component types
+     */
+    public void removeAllComponents(Entity entity) {
+        if (stripes == null) {
+            for (Map<Entity, ? extends Component> map : componentMaps.values()) {
+                map.remove(entity);
+            }
+            return;
+        }
+        for (Map.Entry<Class<? extends Component>, Map<Entity, ? extends Component>> entry : componentMaps.entrySet()) {
+            ReadWriteLock stripe = stripeFor(entry.getKey());
+            stripe.readLock().lock();
+            try {
+                entry.getValue().remove(entity);
+            } finally {
+                stripe.readLock().unlock();
+            }
+        }
+    }
+    
+    /**
+     * Copy the current components of the given types as one consistent cut.
+     * In concurrent mode writers to those types wait while the copy is made;
+     * other types are unaffected.
+     * 
+     * The cut is only consistent as to which entities have which components.
+     * The component objects themselves are shared with the live world, not
+     * copied, so their field values are whatever they are when read, and
+     * changes made in place later show through.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final ComponentSnapshot snapshot(Class<? extends Component>... componentClasses) {
+        if (stripes == null) {
+            return copy(componentClasses);
         }
+        boolean[] needed = new boolean[STRIPES];
+        for (Class<? extends Component> componentClass : componentClasses) {
+            needed[stripeIndex(componentClass)] = true;
+        }
+        // Always lock in stripe order so concurrent snapshots cannot deadlock
+        int locked = 0;
+        try {
+            for (; locked < STRIPES; locked++) {
+                if (needed[locked]) {
+                    stripes[locked].writeLock().lock();
+                }
+            }
+            return copy(componentClasses);
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                if (needed[i]) {
+                    stripes[i].writeLock().unlock();
+                }
+            }
+        }
+    }
+    
+    private ComponentSnapshot copy(Class<? extends Component>[] componentClasses) {
+        Map<Class<? extends Component>, Map<Entity, Component>> copies = new HashMap<>();
+        for (Class<? extends Component> componentClass : componentClasses) {
+            Map<Entity, ? extends Component> map = componentMaps.get(componentClass);
+            copies.put(componentClass, map != null ? new HashMap<>(map) : new HashMap<>());
+        }
+        return new ComponentSnapshot(copies);
+    }
+    
+    private int stripeIndex(Class<?> componentClass) {
+        int h = componentClass.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+    
+    private ReadWriteLock stripeFor(Class<?> componentClass) {
+        return stripes[stripeIndex(componentClass)];
+    }
+    
+    /**
+     * Get every component attached to an entity
+     */
+    public List<Component> getComponents(Entity entity) {
+        List<Component> result = new ArrayList<>();
+        for (Map<Entity, ? extends Component> map : componentMaps.values()) {
+            Component component = map.get(entity);
+            if (component != null) {
+                result.add(component);
+            }
+        }
+        return result;
     }
     
     /**
@@ -54,21 +204,45 @@ public class ComponentManager {
     /**
      * Check if an entity has a specific component
      */
+    @SuppressWarnings("unchecked")
     public <T extends Component> boolean hasComponent(Entity entity, Class<T> componentClass) {
         Map<Entity, T> map = (Map<Entity, T>) componentMaps.get(componentClass);
         return map != null && map.containsKey(entity);
     }
     
+    /**
+     * Get every component type that has ever been added
+     */
+    public Collection<Class<? extends Component>> getComponentTypes() {
+        return Collections.unmodifiableSet(componentMaps.keySet());
+    }
+    
+    /**
+     * Total number of components held across all types
+     */
+    public int getComponentCount() {
+        int count = 0;
+        for (Map<Entity, ? extends Component> map : componentMaps.values()) {
+            count += map.size();
+        }
+        return count;
+    }
+    
     /**
      * Get all entities that have a specific component
+     * 
+     * The result is a read-only live view, not a copy. Structural changes made
+     * while iterating it should be recorded in a CommandBuffer and played back
+     * after the loop. In concurrent mode the view is weakly consistent: it
+     * never fails, but may or may not reflect writes made during iteration.
      */
     @SuppressWarnings("unchecked")
     public <T extends Component> Collection<Entity> getEntitiesWithComponent(Class<T> componentClass) {
         Map<Entity, T> map = (Map<Entity, T>) componentMaps.get(componentClass);
         if (map != null) {
-            return map.keySet();
+            return Collections.unmodifiableSet(map.keySet());
         }
-        return new java.util.ArrayList<>();
+        return Collections.emptyList();
     }
     
     /**
@@ -0,0 +1,42 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A read-only copy of some component types taken at one instant
+ * 
+ * Produced by ComponentManager.snapshot. Safe to read from any thread and
+ * unaffected by later adds and removes in the live world. Only membership is
+ * frozen: the component objects are the live ones, so their fields are not
+ * a point-in-time copy and may change under a reader.
+ */
+public class ComponentSnapshot {
+    private final Map<Class<? extends Component>, Map<Entity, Component>> components;
+    
+    ComponentSnapshot(Map<Class<? extends Component>, Map<Entity, Component>> components) {
+        this.components = components;
+    }
+    
+    /**
+     * Get an entity's component of a type, or null if it had none (or the type was not captured)
+     */
+    public <T extends Component> T getComponent(Entity entity, Class<T> componentClass) {
+        Map<Entity, Component> map = components.get(componentClass);
+        return map != null ? componentClass.cast(map.get(entity)) : null;
+    }
+    
+    public boolean hasComponent(Entity entity, Class<? extends Component> componentClass) {
+        Map<Entity, Component> map = components.get(componentClass);
+        return map != null && map.containsKey(entity);
+    }
+    
+    public Collection<Entity> getEntitiesWithComponent(Class<? extends Component> componentClass) {
+        Map<Entity, Component> map = components.get(componentClass);
+        return map != null ? Collections.unmodifiableSet(map.keySet()) : Collections.emptySet();
+    }
+    
+    public int size(Class<? extends Component> componentClass) {
+        Map<Entity, Component> map = components.get(componentClass);
+        return map != null ? map.size() : 0;
+    }
+}
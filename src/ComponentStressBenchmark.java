@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded stress test for a concurrent world's component storage
+ *
+ * Two checks run against ECS.createConcurrentWorld():
+ *
+ * Lost updates: several threads add components for their own entities to
+ * the same component type at once, then remove every other one. The final
+ * count must be exactly what the threads left behind.
+ *
+ * Consistent snapshots: writers repeatedly give an entity a Left component
+ * and then a Right one, and take them away in the opposite order, so at
+ * every instant an entity with Right also has Left. A reader snapshots both
+ * types in a loop; a snapshot that shows Right without Left was not a
+ * single point-in-time cut.
+ *
+ * Exits with status 1 if either check fails.
+ *
+ * Usage: java ComponentStressBenchmark [threads] [opsPerThread]
+ */
+public class ComponentStressBenchmark {
+    static final class Left implements Component {}
+    static final class Right implements Component {}
+    static final class Counter implements Component {}
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        boolean ok = checkLostUpdates(threads, ops);
+        ok &= checkSnapshots(threads, ops / 10);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean checkLostUpdates(int threads, int ops) throws InterruptedException {
+        ECS world = ECS.createConcurrentWorld();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < ops; i++) {
+                    world.addComponent(world.createEntity("w" + id + "-" + i), new Counter());
+                }
+                for (int i = 0; i < ops; i += 2) {
+                    world.removeComponent(world.createEntity("w" + id + "-" + i), Counter.class);
+                }
+            }));
+        }
+        long elapsed = runAll(workers, start);
+
+        int expected = threads * (ops / 2);
+        int actual = world.snapshot(Counter.class).size(Counter.class);
+        double opsPerSecond = threads * (ops + ops / 2.0) / (elapsed / 1e9);
+        System.out.printf("lost updates: threads=%d  expected=%,d  actual=%,d  ops/s=%,.0f%n",
+            threads, expected, actual, opsPerSecond);
+        return expected == actual;
+    }
+
+    private static boolean checkSnapshots(int writers, int cycles) throws InterruptedException {
+        ECS world = ECS.createConcurrentWorld();
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong snapshots = new AtomicLong();
+        AtomicLong violations = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < writers; t++) {
+            final Entity entity = world.createEntity("pair-" + t);
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < cycles; i++) {
+                    world.addComponent(entity, new Left());
+                    world.addComponent(entity, new Right());
+                    world.removeComponent(entity, Right.class);
+                    world.removeComponent(entity, Left.class);
+                }
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            awaitQuietly(start);
+            while (writing.get()) {
+                ComponentSnapshot snapshot = world.snapshot(Left.class, Right.class);
+                for (Entity entity : snapshot.getEntitiesWithComponent(Right.class)) {
+                    if (!snapshot.hasComponent(entity, Left.class)) {
+                        violations.incrementAndGet();
+                    }
+                }
+                snapshots.incrementAndGet();
+            }
+        });
+        reader.start();
+        long elapsed = runAll(threads, start);
+        writing.set(false);
+        reader.join();
+
+        System.out.printf("snapshots:    writers=%d  cycles=%,d  snapshots=%,d  violations=%d  ms=%d%n",
+            writers, cycles, snapshots.get(), violations.get(), elapsed / 1_000_000);
+        return violations.get() == 0;
+    }
+
+    // Start every thread, release them together and wait; returns elapsed nanoseconds
+    private static long runAll(List<Thread> threads, CountDownLatch start) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * COMPONENT class for container items in the ECS pattern
+ * 
+ * This component turns an item entity (a crate, a locker, a bag) into
+ * something other items can be put into, up to a weight and volume limit.
+ * Containers nest, and the tree is kept flat: each container only lists its
+ * direct contents and the id of the entity holding it, plus a cached total
+ * weight of everything inside it at any depth and the volume of its direct
+ * contents. A nested container takes up its own volume whatever it holds,
+ * so only weight is passed up to ancestors when an item moves, and capacity
+ * checks stay O(1).
+ */
+public class ContainerComponent implements Component, ItemHolder {
+    private final List<String> contents;
+    public final double maxWeight;
+    public final double maxVolume;
+    private double contentWeight;
+    private double contentVolume;
+    private String parent;
+    
+    public ContainerComponent(double maxWeight, double maxVolume) {
+        this.contents = new ArrayList<>();
+        this.maxWeight = maxWeight;
+        this.maxVolume = maxVolume;
+    }
+    
+    public boolean hasItem(String item) {
+        return contents.contains(item);
+    }
+    
+    public boolean canAccept(String item) {
+        return true;
+    }
+    
+    @Override
+    public boolean hasRoomFor(double weight, double volume) {
+        return contentWeight + weight <= maxWeight && contentVolume + volume <= maxVolume;
+    }
+    
+    @Override
+    public void adjustLoad(double weight, double volume) {
+        contentWeight += weight;
+        contentVolume += volume;
+    }
+    
+    public boolean addItem(String item) {
+        return contents.add(item);
+    }
+    
+    public boolean removeItem(String item) {
+        return contents.remove(item);
+    }
+    
+    public List<String> getItems() {
+        return Collections.unmodifiableList(contents);
+    }
+    
+    /**
+     * Total weight of everything inside, at any depth
+     */
+    public double getContentWeight() {
+        return contentWeight;
+    }
+    
+    /**
+     * Total volume of the direct contents (a nested container counts as its own volume)
+     */
+    public double getContentVolume() {
+        return contentVolume;
+    }
+    
+    /**
+     * Id of the entity (room, inventory owner or container) holding this container
+     */
+    public String getParent() {
+        return parent;
+    }
+    
+    public void setParent(String parent) {
+        this.parent = parent;
+    }
+    
+    @Override
+    public ContainerComponent copy() {
+        ContainerComponent copy = new ContainerComponent(maxWeight, maxVolume);
+        copy.contents.addAll(contents);
+        copy.contentWeight = contentWeight;
+        copy.contentVolume = contentVolume;
+        copy.parent = parent;
+        return copy;
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Watches a world content file and pushes edits into running worlds
+ *
+ * When the file changes it is parsed and diffed against the template that
+ * was last applied. The changed records are turned into one command buffer
+ * per attached world and submitted to that world, which applies the whole
+ * batch at its next sync point. Worlds keep ticking throughout, and a world
+ * never sees half of an edit. A file that fails to parse is reported and
+ * ignored until it is fixed.
+ */
+public class ContentReloader implements AutoCloseable {
+    private final Path file;
+    private final List<ECS> worlds;
+    private final WatchService watcher;
+    private volatile WorldContent template;
+    private Thread thread;
+
+    public ContentReloader(Path file, WorldContent template) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.template = template;
+        this.worlds = new CopyOnWriteArrayList<>();
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watcher,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+    }
+
+    /**
+     * Start applying changes to a world (which must have been built from the same template)
+     */
+    public void attach(ECS world) {
+        worlds.add(world);
+    }
+
+    public void detach(ECS world) {
+        worlds.remove(world);
+    }
+
+    public void start() {
+        thread = new Thread(this::watchLoop, "content-reloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Re-read the file now and push any changes. Returns the number of changed records.
+     */
+    public synchronized int reload() throws IOException {
+        WorldContent newer = WorldContent.parse(file);
+        int changed = 0;
+        for (ECS world : worlds) {
+            CommandBuffer buffer = new CommandBuffer();
+            changed = template.diff(newer, world, buffer);
+            if (!buffer.isEmpty()) {
+                world.submitCommandBuffer(buffer);
+            }
+        }
+        template = newer;
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean touched = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && file.getFileName().equals(context)) {
+                        touched = true;
+                    }
+                }
+                key.reset();
+                if (touched) {
+                    try {
+                        reload();
+                    } catch (IOException e) {
+                        System.err.println("Content reload failed: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+}
@@ -0,0 +1,553 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Binary encoding of component state for replication
+ *
+ * A component is described by its non-static fields of the supported kinds
+ * (numbers, booleans, strings, enums, string and int arrays, string lists
+ * and string maps). Fields of any other type are not replicated. Values are
+ * handled in a normalized form (enums as their names, collections as
+ * copies), so the server and a replica can compare and hash them the same
+ * way.
+ *
+ * Stream layout: every frame starts with a frame type byte.
+ *
+ *   SCHEMA  typeId, class name, field count, (field name, kind)*
+ *   DELTA   epoch, record count, record*
+ *   CHECK   epoch, entity count, state hash
+ *
+ * Records are ENTITY (index, id), DROP (index), SET (index, typeId, field
+ * mask, changed values) and UNSET (index, typeId). Counts, indices and ids
+ * are unsigned varints; ints and longs are zigzag varints.
+ *
+ * Schemas can also write captured values back into components, or build
+ * new components from them, which WorldImage uses to restore hibernated
+ * worlds and PrebuiltWorld to restore whole ones.
+ */
+public final class DeltaCodec {
+    public static final byte FRAME_SCHEMA = 1;
+    public static final byte FRAME_DELTA = 2;
+    public static final byte FRAME_CHECK = 3;
+
+    public static final byte RECORD_ENTITY = 1;
+    public static final byte RECORD_DROP = 2;
+    public static final byte RECORD_SET = 3;
+    public static final byte RECORD_UNSET = 4;
+
+    static final byte KIND_INT = 1;
+    static final byte KIND_LONG = 2;
+    static final byte KIND_DOUBLE = 3;
+    static final byte KIND_BOOLEAN = 4;
+    static final byte KIND_STRING = 5;
+    static final byte KIND_STRING_ARRAY = 6;
+    static final byte KIND_INT_ARRAY = 7;
+    static final byte KIND_STRING_LIST = 8;
+    static final byte KIND_STRING_MAP = 9;
+
+    private DeltaCodec() {
+    }
+
+    /**
+     * The replicated fields of one component type
+     */
+    public static final class Schema {
+        public final int typeId;
+        public final String typeName;
+        final String[] names;
+        final byte[] kinds;
+        private final Field[] fields;
+        private final boolean complete;
+        private final Constructor<?> constructor;
+        private final Constructor<?> blank;
+
+        Schema(int typeId, String typeName, String[] names, byte[] kinds, Field[] fields,
+               boolean complete, Constructor<?> constructor, Constructor<?> blank) {
+            this.typeId = typeId;
+            this.typeName = typeName;
+            this.names = names;
+            this.kinds = kinds;
+            this.fields = fields;
+            this.complete = complete;
+            this.constructor = constructor;
+            this.blank = blank;
+        }
+
+        public int fieldCount() {
+            return kinds.length;
+        }
+
+        /**
+         * Read a component's replicated fields in normalized form
+         */
+        public Object[] capture(Component component) {
+            Object[] values = new Object[fields.length];
+            try {
+                for (int i = 0; i < fields.length; i++) {
+                    values[i] = normalize(kinds[i], fields[i].get(component));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read " + typeName, e);
+            }
+            return values;
+        }
+
+        /**
+         * Names of the replicated fields, in capture order
+         */
+        public List<String> fieldNames() {
+            return Arrays.asList(names);
+        }
+
+        /**
+         * Whether every instance field of the type is replicated, so a capture
+         * holds its whole state
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public boolean hasValueConstructor() {
+            return constructor != null;
+        }
+
+        /**
+         * Write captured values back into a component's fields (final ones included)
+         */
+        public void apply(Component target, Object[] values) {
+            try {
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i].set(target, denormalize(kinds[i], fields[i].getType(), values[i]));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot write " + typeName, e);
+            }
+        }
+
+        /**
+         * Build a component from a capture through a constructor that takes
+         * every field in declaration order, as value classes such as
+         * PositionComponent have. Returns null if the type has no such constructor.
+         */
+        public Component instantiate(Object[] values) {
+            if (constructor == null) {
+                return null;
+            }
+            Object[] arguments = new Object[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                arguments[i] = denormalize(kinds[i], fields[i].getType(), values[i]);
+            }
+            try {
+                return (Component) constructor.newInstance(arguments);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot construct " + typeName, e);
+            }
+        }
+
+        /**
+         * Build a component from a complete capture, through a value
+         * constructor if the type has one, and otherwise by calling its
+         * simplest constructor with zero values and then writing every field.
+         * Returns null if the schema is not complete.
+         */
+        public Component rebuild(Object[] values) {
+            Component component = instantiate(values);
+            if (component != null || blank == null) {
+                return component;
+            }
+            Class<?>[] parameters = blank.getParameterTypes();
+            Object[] arguments = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                arguments[i] = zero(parameters[i]);
+            }
+            try {
+                component = (Component) blank.newInstance(arguments);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new IllegalStateException("Cannot construct a blank " + typeName, e);
+            }
+            apply(component, values);
+            return component;
+        }
+
+        public void write(DataOutputStream out) throws IOException {
+            writeVarLong(out, typeId);
+            out.writeUTF(typeName);
+            writeVarLong(out, kinds.length);
+            for (int i = 0; i < kinds.length; i++) {
+                out.writeUTF(names[i]);
+                out.writeByte(kinds[i]);
+            }
+        }
+
+        public static Schema read(DataInputStream in) throws IOException {
+            int typeId = (int) readVarLong(in);
+            String typeName = in.readUTF();
+            int count = (int) readVarLong(in);
+            String[] names = new String[count];
+            byte[] kinds = new byte[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = in.readUTF();
+                kinds[i] = in.readByte();
+            }
+            return new Schema(typeId, typeName, names, kinds, null, false, null, null);
+        }
+    }
+
+    /**
+     * Assigns type ids and builds schemas on first use
+     */
+    public static final class Registry {
+        private final Map<Class<?>, Schema> schemas = new HashMap<>();
+
+        public synchronized Schema schemaFor(Class<? extends Component> type) {
+            Schema schema = schemas.get(type);
+            if (schema == null) {
+                schema = build(schemas.size(), type);
+                schemas.put(type, schema);
+            }
+            return schema;
+        }
+
+        private static Schema build(int typeId, Class<?> type) {
+            List<String> names = new ArrayList<>();
+            List<Byte> kinds = new ArrayList<>();
+            List<Field> fields = new ArrayList<>();
+            List<Class<?>> fieldTypes = new ArrayList<>();
+            boolean complete = true;
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) continue;
+                fieldTypes.add(field.getType());
+                byte kind = kindOf(field);
+                if (kind == 0) {
+                    complete = false;
+                    continue;
+                }
+                field.setAccessible(true);
+                names.add(field.getName());
+                kinds.add(kind);
+                fields.add(field);
+                if (fields.size() == 64) {
+                    complete = false;
+                    break;
+                }
+            }
+            byte[] kindArray = new byte[kinds.size()];
+            for (int i = 0; i < kindArray.length; i++) {
+                kindArray[i] = kinds.get(i);
+            }
+            Constructor<?> constructor = null;
+            Constructor<?> blank = null;
+            if (complete) {
+                for (Constructor<?> candidate : type.getDeclaredConstructors()) {
+                    if (Arrays.asList(candidate.getParameterTypes()).equals(fieldTypes)) {
+                        candidate.setAccessible(true);
+                        constructor = candidate;
+                    }
+                    if (blank == null || candidate.getParameterCount() < blank.getParameterCount()) {
+                        blank = candidate;
+                    }
+                }
+                if (blank != null) {
+                    blank.setAccessible(true);
+                }
+            }
+            return new Schema(typeId, type.getName(), names.toArray(new String[0]), kindArray,
+                fields.toArray(new Field[0]), complete, constructor, blank);
+        }
+    }
+
+    private static byte kindOf(Field field) {
+        Class<?> type = field.getType();
+        if (type == int.class) return KIND_INT;
+        if (type == long.class) return KIND_LONG;
+        if (type == double.class) return KIND_DOUBLE;
+        if (type == boolean.class) return KIND_BOOLEAN;
+        if (type == String.class || type.isEnum()) return KIND_STRING;
+        if (type == String[].class) return KIND_STRING_ARRAY;
+        if (type == int[].class) return KIND_INT_ARRAY;
+        String generic = field.getGenericType().getTypeName();
+        if (List.class.isAssignableFrom(type) && generic.endsWith("<java.lang.String>")) return KIND_STRING_LIST;
+        if (Map.class.isAssignableFrom(type) && generic.endsWith("<java.lang.String, java.lang.String>")) return KIND_STRING_MAP;
+        return 0;
+    }
+
+    // The argument a blank constructor gets for a parameter: zero, false, an empty varargs array, or null
+    private static Object zero(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0.0f;
+        if (type == double.class) return 0.0;
+        if (type.isArray()) return Array.newInstance(type.getComponentType(), 0);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object normalize(byte kind, Object value) {
+        if (value == null) return null;
+        switch (kind) {
+            case KIND_STRING:
+                return value instanceof Enum ? ((Enum<?>) value).name() : value;
+            case KIND_STRING_ARRAY:
+                return ((String[]) value).clone();
+            case KIND_INT_ARRAY:
+                return ((int[]) value).clone();
+            case KIND_STRING_LIST:
+                return new ArrayList<>((List<String>) value);
+            case KIND_STRING_MAP:
+                return new LinkedHashMap<>((Map<String, String>) value);
+            default:
+                return value;
+        }
+    }
+
+    // The inverse of normalize: turn a captured value back into the field's own type
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object denormalize(byte kind, Class<?> fieldType, Object value) {
+        if (value == null) return null;
+        switch (kind) {
+            case KIND_STRING:
+                return fieldType.isEnum() ? Enum.valueOf((Class<? extends Enum>) fieldType, (String) value) : value;
+            case KIND_STRING_ARRAY:
+                return ((String[]) value).clone();
+            case KIND_INT_ARRAY:
+                return ((int[]) value).clone();
+            case KIND_STRING_LIST:
+                return new ArrayList<>((List<String>) value);
+            case KIND_STRING_MAP:
+                return new LinkedHashMap<>((Map<String, String>) value);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Bit i is set if field i differs between two captures (all bits if there is no previous one)
+     */
+    public static long changedFields(Object[] previous, Object[] current) {
+        if (previous == null) {
+            return current.length == 64 ? -1L : (1L << current.length) - 1;
+        }
+        long mask = 0;
+        for (int i = 0; i < current.length; i++) {
+            if (!Objects.deepEquals(previous[i], current[i])) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    public static void writeFields(DataOutputStream out, Schema schema, long mask, Object[] values) throws IOException {
+        writeVarLong(out, mask);
+        for (int i = 0; i < values.length; i++) {
+            if ((mask & (1L << i)) != 0) {
+                writeValue(out, schema.kinds[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a field mask and the values it covers into an existing capture
+     */
+    public static void readFields(DataInputStream in, Schema schema, Object[] values) throws IOException {
+        long mask = readVarLong(in);
+        for (int i = 0; i < values.length; i++) {
+            if ((mask & (1L << i)) != 0) {
+                values[i] = readValue(in, schema.kinds[i]);
+            }
+        }
+    }
+
+    /**
+     * Order-independent hash of replicated state, computed identically on both ends
+     */
+    public static int hashEntity(int index, String id, Map<Integer, Object[]> componentsByType) {
+        int hash = hashIdentity(index, id);
+        for (Map.Entry<Integer, Object[]> entry : componentsByType.entrySet()) {
+            hash += hashComponent(entry.getKey(), entry.getValue());
+        }
+        return hash;
+    }
+
+    /**
+     * The parts of hashEntity, for summing one component at a time
+     */
+    public static int hashIdentity(int index, String id) {
+        return index * 31 + id.hashCode();
+    }
+
+    public static int hashComponent(int typeId, Object[] fields) {
+        return typeId * 1_000_003 ^ Arrays.deepHashCode(fields);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(DataOutputStream out, byte kind, Object value) throws IOException {
+        if (kind == KIND_INT) {
+            writeVarLong(out, zigzag((Integer) value));
+            return;
+        }
+        if (kind == KIND_LONG) {
+            writeVarLong(out, zigzag((Long) value));
+            return;
+        }
+        if (kind == KIND_DOUBLE) {
+            out.writeDouble((Double) value);
+            return;
+        }
+        if (kind == KIND_BOOLEAN) {
+            out.writeBoolean((Boolean) value);
+            return;
+        }
+        // Reference kinds are prefixed with a presence flag
+        out.writeBoolean(value != null);
+        if (value == null) return;
+        switch (kind) {
+            case KIND_STRING:
+                out.writeUTF((String) value);
+                break;
+            case KIND_STRING_ARRAY: {
+                String[] array = (String[]) value;
+                writeVarLong(out, array.length);
+                for (String s : array) {
+                    writeNullableString(out, s);
+                }
+                break;
+            }
+            case KIND_INT_ARRAY: {
+                int[] array = (int[]) value;
+                writeVarLong(out, array.length);
+                for (int v : array) {
+                    writeVarLong(out, zigzag(v));
+                }
+                break;
+            }
+            case KIND_STRING_LIST: {
+                List<String> list = (List<String>) value;
+                writeVarLong(out, list.size());
+                for (String s : list) {
+                    writeNullableString(out, s);
+                }
+                break;
+            }
+            case KIND_STRING_MAP: {
+                Map<String, String> map = (Map<String, String>) value;
+                writeVarLong(out, map.size());
+                for (Map.Entry<String, String> entry : map.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    writeNullableString(out, entry.getValue());
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown field kind " + kind);
+        }
+    }
+
+    private static Object readValue(DataInputStream in, byte kind) throws IOException {
+        switch (kind) {
+            case KIND_INT:
+                return (int) unzigzag(readVarLong(in));
+            case KIND_LONG:
+                return unzigzag(readVarLong(in));
+            case KIND_DOUBLE:
+                return in.readDouble();
+            case KIND_BOOLEAN:
+                return in.readBoolean();
+            default:
+                break;
+        }
+        if (!in.readBoolean()) {
+            return null;
+        }
+        switch (kind) {
+            case KIND_STRING:
+                return in.readUTF();
+            case KIND_STRING_ARRAY: {
+                String[] array = new String[(int) readVarLong(in)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readNullableString(in);
+                }
+                return array;
+            }
+            case KIND_INT_ARRAY: {
+                int[] array = new int[(int) readVarLong(in)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (int) unzigzag(readVarLong(in));
+                }
+                return array;
+            }
+            case KIND_STRING_LIST: {
+                int size = (int) readVarLong(in);
+                List<String> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readNullableString(in));
+                }
+                return list;
+            }
+            case KIND_STRING_MAP: {
+                int size = (int) readVarLong(in);
+                Map<String, String> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(in.readUTF(), readNullableString(in));
+                }
+                return map;
+            }
+            default:
+                throw new IOException("Unknown field kind " + kind);
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
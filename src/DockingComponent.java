@@ -2,20 +2,25 @@
  * COMPONENT class for docking system state in the ECS pattern
  * 
  * This component tracks the state of the docking process with the starbase,
- * including whether docking has been requested, initiated, which pad is assigned,
- * and whether the ship is in space or docked.
+ * including whether docking has been requested, whether clearance is still pending,
+ * whether docking has been initiated, which pad is assigned, whether the ship
+ * is in space or docked, and how far it still is from its pad (-1 before the approach).
  */
 public class DockingComponent implements Component {
     public boolean requested;
+    public boolean clearancePending;
     public boolean initiated;
     public int pad;
     public boolean inSpace;
+    public double range;
     
     public DockingComponent() {
         this.requested = false;
+        this.clearancePending = false;
         this.initiated = false;
         this.pad = -1;
         this.inSpace = true;
+        this.range = -1.0;
     }
     
     public boolean isReadyForInitiation() {
@@ -25,4 +30,16 @@ public class DockingComponent implements Component {
     public boolean isFullyDocked() {
         return initiated && !inSpace;
     }
+    
+    @Override
+    public DockingComponent copy() {
+        DockingComponent copy = new DockingComponent();
+        copy.requested = requested;
+        copy.clearancePending = clearancePending;
+        copy.initiated = initiated;
+        copy.pad = pad;
+        copy.inSpace = inSpace;
+        copy.range = range;
+        return copy;
+    }
 }
@@ -1,74 +1,130 @@
-import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * System that handles docking procedures
+ * 
+ * Docking clearance comes from a TrafficControl service. The request returns
+ * straight away; the clearance is queued when it arrives and picked up in
+ * update() on the session's own thread, so the player keeps playing while
+ * the starbase decides.
+ *
+ * Docking itself is flown: initiating it sets ShipMotionSystem steering
+ * KY-25B from the docking entry to its pad, and docking completes on the
+ * tick the ship is clamped there.
+ *
+ * That docking is only done from the bridge is a content rule, checked by
+ * RuleSystem before these methods are called.
  */
 public class DockingSystem implements Esystem {
     private ECS ecs;
-    private Random random;
-    private static final String PLAYER = "player";
+    private TrafficControl trafficControl;
+    private final ConcurrentLinkedQueue<Integer> clearances;
+    private static final String SHIP_ID = "KY-25B";
+    // Metres: the docking entry where KY-25B holds, the gap between pads,
+    // and the range at which the docking arms fill the bridge window
+    private static final double ENTRY_DISTANCE = 100.0;
+    private static final double PAD_SPACING = 20.0;
+    private static final double ARMS_RANGE = 30.0;
     
     public DockingSystem(ECS ecs) {
+        this(ecs, new TrafficControl(5, 0));
+    }
+    
+    public DockingSystem(ECS ecs, TrafficControl trafficControl) {
         this.ecs = ecs;
-        this.random = new Random();
+        this.trafficControl = trafficControl;
+        this.clearances = new ConcurrentLinkedQueue<>();
     }
 
     public void requestDocking() {
-        Entity player = ecs.createEntity(PLAYER);
-        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
-        
-        if (!position.room.equals("Bridge")) {
-            System.out.println("You can only request docking from the bridge.");
-            return;
-        }
-        
         DockingComponent docking = ecs.getComponent(ecs.createEntity("docking"), DockingComponent.class);
-        if (docking.requested) {
-            System.out.println("Docking already requested.");
+        if (docking.requested || docking.clearancePending) {
+            ecs.getOutput().println("Docking already requested.");
             return;
         }
         
-        System.out.println("You lean into the comms unit and key the mic.");
-        System.out.println("KY-25B: 'Starbase Omicron, this is KY-25B requesting docking clearance. Over.'");
-        System.out.println("...static crackles...");
+        ecs.getOutput().println("You lean into the comms unit and key the mic.");
+        ecs.getOutput().println("KY-25B: 'Starbase Omicron, this is KY-25B requesting docking clearance. Over.'");
+        ecs.getOutput().println("...static crackles...");
         
-        // Assign a random docking pad
-        docking.pad = random.nextInt(5) + 1;
-        System.out.println("Starbase Omicron: 'KY-25B, this is Omicron Control. Clearance granted. Proceed to docking pad " + 
-                         docking.pad + ". Maintain approach vector. Out.'");
+        docking.clearancePending = true;
+        trafficControl.requestClearance(SHIP_ID).thenAccept(clearances::add);
+    }
+    
+    @Override
+    public void update(double deltaTime) {
+        DockingComponent current = ecs.getComponent(ecs.createEntity("docking"), DockingComponent.class);
+        if (current != null && current.initiated && current.inSpace) {
+            trackApproach(current);
+        }
         
-        docking.requested = true;
+        Integer pad;
+        while ((pad = clearances.poll()) != null) {
+            DockingComponent docking = ecs.getComponent(ecs.createEntity("docking"), DockingComponent.class);
+            docking.pad = pad;
+            docking.clearancePending = false;
+            docking.requested = true;
+            ecs.getOutput().println("Starbase Omicron: 'KY-25B, this is Omicron Control. Clearance granted. Proceed to docking pad " + 
+                             docking.pad + ". Maintain approach vector. Out.'");
+        }
     }
     
     public void initiateDocking() {
-        Entity player = ecs.createEntity(PLAYER);
-        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
         DockingComponent docking = ecs.getComponent(ecs.createEntity("docking"), DockingComponent.class);
         
-        if (!position.room.equals("Bridge")) {
-            System.out.println("You can only initiate docking from the bridge.");
+        if (docking.clearancePending) {
+            ecs.getOutput().println("Omicron Control hasn't answered yet. Stand by for clearance.");
             return;
         }
         
         if (!docking.requested) {
-            System.out.println("You need to request docking clearance first.");
+            ecs.getOutput().println("You need to request docking clearance first.");
             return;
         }
         
         if (docking.initiated) {
-            System.out.println("Docking sequence already complete.");
+            ecs.getOutput().println(docking.inSpace ?
+                "KY-25B is already on approach to pad " + docking.pad + "." :
+                "Docking sequence already complete.");
             return;
         }
         
-        // Perform docking sequence
-        System.out.println("You grip the controls and align KY-25B with pad " + docking.pad + ".");
-        System.out.println("The ship hums as thrusters fire, nudging you toward the starbase.");
-        System.out.println("The docking arms loom larger in the window, guiding you in.");
-        System.out.println("A soft thud reverberates as magnetic clamps engage.");
-        System.out.println("Starbase Omicron: 'KY-25B, docking complete. Welcome aboard.'");
-        
+        // Start the approach; update() finishes docking once the clamps engage
+        ecs.getOutput().println("You grip the controls and align KY-25B with pad " + docking.pad + ".");
+        ecs.getOutput().println("The ship hums as thrusters fire, nudging you toward the starbase.");
         docking.initiated = true;
+        
+        ShipMotionSystem motion = ecs.getSystem(ShipMotionSystem.class);
+        if (motion == null) {
+            completeDocking(docking);
+            return;
+        }
+        int ship = motion.addShip(SHIP_ID, 0.0, 0.0, -ENTRY_DISTANCE);
+        motion.approach(ship, (docking.pad - 1) * PAD_SPACING, 0.0, 0.0);
+        docking.range = motion.distanceToTarget(ship);
+    }
+    
+    private void trackApproach(DockingComponent docking) {
+        ShipMotionSystem motion = ecs.getSystem(ShipMotionSystem.class);
+        int ship = motion != null ? motion.slotOf(SHIP_ID) : -1;
+        if (ship < 0) return;
+        
+        double range = motion.distanceToTarget(ship);
+        if (docking.range > ARMS_RANGE && range <= ARMS_RANGE) {
+            ecs.getOutput().println("The docking arms loom larger in the window, guiding you in.");
+        }
+        docking.range = range;
+        if (motion.getPhase(ship) == ShipMotionSystem.Phase.CLAMPED) {
+            completeDocking(docking);
+        }
+    }
+    
+    private void completeDocking(DockingComponent docking) {
+        ecs.getOutput().println("A soft thud reverberates as magnetic clamps engage.");
+        ecs.getOutput().println("Starbase Omicron: 'KY-25B, docking complete. Welcome aboard.'");
+        
         docking.inSpace = false;
+        docking.range = 0.0;
         
         // Update room descriptions to reflect docked state
         RenderSystem renderSystem = ecs.getSystem(RenderSystem.class);
@@ -7,18 +7,118 @@
 public class ECS {
     private ComponentManager componentManager;
     private SystemManager systemManager;
-    private static ECS instance;
+    private EntityRegistry entityRegistry;
+    private RoomOccupancyIndex occupancy;
+    private final java.util.List<ThreadBuffer> commandBuffers;
+    private final ThreadLocal<CommandBuffer> threadCommandBuffer;
+    private final java.util.concurrent.ConcurrentLinkedQueue<CommandBuffer> submittedBuffers;
+    private java.io.PrintStream output;
+    private volatile boolean running;
+    private volatile WorldVersions versions;
+    private int maxEntities;
+    private int maxComponents;
     
-    private ECS() {
-        componentManager = new ComponentManager();
+    private ECS(boolean concurrent) {
+        componentManager = new ComponentManager(concurrent);
         systemManager = new SystemManager();
+        entityRegistry = new EntityRegistry();
+        occupancy = new RoomOccupancyIndex(entityRegistry);
+        commandBuffers = new java.util.concurrent.CopyOnWriteArrayList<>();
+        submittedBuffers = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        threadCommandBuffer = ThreadLocal.withInitial(() -> {
+            CommandBuffer buffer = new CommandBuffer();
+            commandBuffers.add(new ThreadBuffer(Thread.currentThread(), buffer));
+            return buffer;
+        });
+        output = System.out;
+        running = true;
+        maxEntities = Integer.MAX_VALUE;
+        maxComponents = Integer.MAX_VALUE;
+    }
+    
+    // Initialized on first use by the class loader, which makes it thread-safe
+    private static class InstanceHolder {
+        static final ECS INSTANCE = new ECS(false);
     }
     
     public static ECS getInstance() {
-        if (instance == null) {
-            instance = new ECS();
+        return InstanceHolder.INSTANCE;
+    }
+    
+    /**
+     * Create an independent world that does not share state with the
+     * game instance (used for benchmarks and simulations of other ships)
+     */
+    public static ECS createWorld() {
+        return new ECS(false);
+    }
+    
+    /**
+     * Create an independent world whose components may be read and written
+     * from any thread (metrics, network I/O, parallel systems). The room
+     * occupancy index and systems still belong to the world's own thread.
+     */
+    public static ECS createConcurrentWorld() {
+        return new ECS(true);
+    }
+    
+    /**
+     * Copy which entities have the given component types as one consistent
+     * cut. Component objects are shared, not copied (see ComponentManager.snapshot).
+     */
+    @SafeVarargs
+    public final ComponentSnapshot snapshot(Class<? extends Component>... componentClasses) {
+        return componentManager.snapshot(componentClasses);
+    }
+    
+    /**
+     * Start publishing a multi-version snapshot at every sync point so other
+     * threads can read the world without blocking it. Returns the version store.
+     */
+    public synchronized WorldVersions enableVersions() {
+        if (versions == null) {
+            WorldVersions store = new WorldVersions(entityRegistry, componentManager, occupancy);
+            store.publish();
+            versions = store;
         }
-        return instance;
+        return versions;
+    }
+    
+    public WorldVersions getVersions() {
+        return versions;
+    }
+    
+    /**
+     * Tell the version store that a component kept across ticks (rather than
+     * fetched with getComponent) was changed in place
+     */
+    public void markChanged(Entity entity) {
+        WorldVersions store = versions;
+        if (store != null) {
+            store.markDirty(entityRegistry.indexOf(entity));
+        }
+    }
+    
+    /**
+     * Cap how many entities and components this world may hold. Components
+     * stand in for memory use, since they are what a world accumulates.
+     * Adding past a cap throws WorldLimitException and changes nothing.
+     */
+    public void setLimits(int maxEntities, int maxComponents) {
+        this.maxEntities = maxEntities;
+        this.maxComponents = maxComponents;
+    }
+    
+    public int getMaxEntities() {
+        return maxEntities;
+    }
+    
+    public int getMaxComponents() {
+        return maxComponents;
+    }
+    
+    public int getComponentCount() {
+        return componentManager.getComponentCount();
     }
     
     // Entity management
@@ -26,17 +126,100 @@ public class ECS {
         return new Entity(id);
     }
     
+    public void registerEntity(Entity entity) {
+        checkEntityLimit(entity);
+        entityRegistry.register(entity);
+    }
+    
+    /**
+     * Remove an entity from the world: strip all of its components, take it
+     * out of the room occupancy index and recycle its index. Handles taken
+     * before this call become stale.
+     */
+    public void destroyEntity(Entity entity) {
+        markChanged(entity);
+        occupancy.leave(entity);
+        componentManager.removeAllComponents(entity);
+        entityRegistry.release(entity);
+    }
+    
+    public long getHandle(Entity entity) {
+        return entityRegistry.handleOf(entity);
+    }
+    
+    public boolean isAlive(long handle) {
+        return entityRegistry.isAlive(handle);
+    }
+    
+    /**
+     * Resolve a handle back to its entity, or null if the entity was destroyed
+     */
+    public Entity resolveHandle(long handle) {
+        return entityRegistry.resolve(handle);
+    }
+    
+    public int getEntityCount() {
+        return entityRegistry.liveCount();
+    }
+    
+    public int getEntityIndex(Entity entity) {
+        return entityRegistry.indexOf(entity);
+    }
+    
+    /**
+     * One past the highest entity index ever handed out, the bound for getEntityAt
+     */
+    public int getEntityIndexLimit() {
+        return entityRegistry.size();
+    }
+    
+    public Entity getEntityAt(int index) {
+        return entityRegistry.entityAt(index);
+    }
+    
     // Component management
     public <T extends Component> void addComponent(Entity entity, T component) {
+        checkLimits(entity, component);
+        entityRegistry.register(entity);
         componentManager.addComponent(entity, component);
+        markChanged(entity);
+    }
+    
+    private void checkLimits(Entity entity, Component component) {
+        if (maxEntities == Integer.MAX_VALUE && maxComponents == Integer.MAX_VALUE) {
+            return;
+        }
+        checkEntityLimit(entity);
+        if (!componentManager.hasComponent(entity, component.getClass())
+                && componentManager.getComponentCount() >= maxComponents) {
+            throw new WorldLimitException("World is at its limit of " + maxComponents + " components");
+        }
+    }
+    
+    private void checkEntityLimit(Entity entity) {
+        if (maxEntities != Integer.MAX_VALUE && entityRegistry.indexOf(entity) < 0
+                && entityRegistry.liveCount() >= maxEntities) {
+            throw new WorldLimitException("World is at its limit of " + maxEntities + " entities");
+        }
     }
     
     public <T extends Component> void removeComponent(Entity entity, Class<T> componentClass) {
         componentManager.removeComponent(entity, componentClass);
+        markChanged(entity);
     }
     
+    // The caller may mutate what it gets, so with versions enabled this counts as a change
     public <T extends Component> T getComponent(Entity entity, Class<T> componentClass) {
-        return componentManager.getComponent(entity, componentClass);
+        T component = componentManager.getComponent(entity, componentClass);
+        if (component != null) {
+            markChanged(entity);
+        }
+        return component;
+    }
+    
+    public java.util.List<Component> getComponents(Entity entity) {
+        markChanged(entity);
+        return componentManager.getComponents(entity);
     }
     
     public <T extends Component> boolean hasComponent(Entity entity, Class<T> componentClass) {
@@ -52,6 +235,85 @@ public class ECS {
         return componentManager.getEntitiesWithComponents(componentClasses);
     }
     
+    // Spatial queries
+    public RoomOccupancyIndex getOccupancy() {
+        return occupancy;
+    }
+    
+    // Deferred structural changes
+    /**
+     * Get the calling thread's command buffer. Everything recorded in it is
+     * played back at the end of the next update.
+     */
+    public CommandBuffer getCommandBuffer() {
+        return threadCommandBuffer.get();
+    }
+    
+    /**
+     * Apply all per-thread command buffers. Called at the sync point at the
+     * end of update, while no system is iterating. Operations refused for the
+     * world's caps are skipped without stopping the rest (see
+     * CommandBuffer.playback); the first refusal is rethrown at the end.
+     * The buffer of a thread that has ended is dropped once it is played
+     * back, so pool threads that come and go don't pile up buffers.
+     */
+    public void playbackCommandBuffers() {
+        WorldLimitException refused = null;
+        for (ThreadBuffer entry : commandBuffers) {
+            try {
+                entry.buffer.playback(this);
+            } catch (WorldLimitException e) {
+                refused = refused != null ? refused : e;
+            }
+            if (!entry.owner.isAlive() && entry.buffer.isEmpty()) {
+                commandBuffers.remove(entry);
+            }
+        }
+        CommandBuffer submitted;
+        while ((submitted = submittedBuffers.poll()) != null) {
+            try {
+                submitted.playback(this);
+            } catch (WorldLimitException e) {
+                refused = refused != null ? refused : e;
+            }
+        }
+        if (refused != null) {
+            throw refused;
+        }
+    }
+    
+    /**
+     * Hand a complete buffer over from another thread. It is played back as
+     * one batch at the next sync point; the caller must not touch it again.
+     */
+    public void submitCommandBuffer(CommandBuffer buffer) {
+        submittedBuffers.add(buffer);
+    }
+    
+    // Session I/O
+    /**
+     * Where systems write text for the player. Defaults to the console;
+     * headless runs point it somewhere else.
+     */
+    public java.io.PrintStream getOutput() {
+        return output;
+    }
+    
+    public void setOutput(java.io.PrintStream output) {
+        this.output = output;
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * End the session (the player quit or died)
+     */
+    public void stop() {
+        running = false;
+    }
+    
     // System management
     public void registerSystem(Esystem system) {
         systemManager.registerSystem(system);
@@ -68,5 +330,24 @@ public class ECS {
     // Update all systems
     public void update(double deltaTime) {
         systemManager.update(deltaTime);
+        try {
+            playbackCommandBuffers();
+        } finally {
+            WorldVersions store = versions;
+            if (store != null) {
+                store.publish();
+            }
+        }
+    }
+    
+    // A thread's command buffer, kept with the thread so it can be dropped when the thread ends
+    private static final class ThreadBuffer {
+        final Thread owner;
+        final CommandBuffer buffer;
+        
+        ThreadBuffer(Thread owner, CommandBuffer buffer) {
+            this.owner = owner;
+            this.buffer = buffer;
+        }
     }
 }
@@ -0,0 +1,264 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Dense integer indices and lifecycle for entities
+ *
+ * Entities are identified by strings, but indexes and per-entity arrays
+ * want small integers. An entity receives an index the first time it is
+ * given a component; lookups of entities that were never populated
+ * return -1 so that probing for an entity never allocates an index.
+ *
+ * When an entity is released its index goes on a free list to be reused,
+ * and the generation stored for that index is bumped. A handle packs the
+ * generation together with the index, so a handle kept past the entity's
+ * destruction is detected as stale instead of silently pointing at
+ * whichever entity reused the slot.
+ *
+ * Ids map to indices through an open-addressed table of parallel id and
+ * index arrays (linear probing, backward-shift deletion, so no tombstones
+ * build up), which only allocates when it grows. Once the world has reached
+ * its working size, registering and releasing entities allocates nothing
+ * here; the component maps still allocate an entry per component added.
+ *
+ * Registering and releasing are synchronized so a world in concurrent mode
+ * can be populated from several threads. Releasing shifts entries of the
+ * table around, so lookups read it optimistically under a StampedLock: a
+ * lookup that overlapped a change to the table is repeated under the read
+ * lock, and never returns another entity's index or misses one that was
+ * only moved.
+ */
+public class EntityRegistry {
+    private volatile IdTable indices;
+    private final StampedLock tableLock = new StampedLock();
+    private Entity[] entities;
+    private int[] generations;
+    private int[] freeList;
+    private int freeCount;
+    private int highWater;
+    private int liveCount;
+
+    public EntityRegistry() {
+        indices = new IdTable(32);
+        entities = new Entity[16];
+        generations = new int[16];
+        freeList = new int[16];
+    }
+
+    /**
+     * Get the index for an entity, assigning one (recycled if possible) if needed
+     */
+    public int register(Entity entity) {
+        int index = lookup(entity.getId());
+        if (index >= 0) {
+            return index;
+        }
+        return assignIndex(entity);
+    }
+
+    private synchronized int assignIndex(Entity entity) {
+        // Another thread may have registered it while we waited for the lock
+        int index = indices.get(entity.getId());
+        if (index >= 0) {
+            return index;
+        }
+        int newIndex;
+        if (freeCount > 0) {
+            newIndex = freeList[--freeCount];
+        } else {
+            newIndex = highWater++;
+            if (newIndex == entities.length) {
+                int newLength = newIndex * 2;
+                entities = Arrays.copyOf(entities, newLength);
+                generations = Arrays.copyOf(generations, newLength);
+            }
+        }
+        entities[newIndex] = entity;
+        long stamp = tableLock.writeLock();
+        try {
+            if ((liveCount + 1) * 2 > indices.ids.length) {
+                indices = indices.grow();
+            }
+            indices.put(entity.getId(), newIndex);
+        } finally {
+            tableLock.unlockWrite(stamp);
+        }
+        liveCount++;
+        return newIndex;
+    }
+
+    /**
+     * Release an entity's index for reuse. Returns false if it was not registered.
+     */
+    public synchronized boolean release(Entity entity) {
+        int index;
+        long stamp = tableLock.writeLock();
+        try {
+            index = indices.remove(entity.getId());
+        } finally {
+            tableLock.unlockWrite(stamp);
+        }
+        if (index < 0) {
+            return false;
+        }
+        entities[index] = null;
+        generations[index]++;
+        if (freeCount == freeList.length) {
+            freeList = Arrays.copyOf(freeList, freeCount * 2);
+        }
+        freeList[freeCount++] = index;
+        liveCount--;
+        return true;
+    }
+
+    /**
+     * Get the index for an entity, or -1 if it is not registered
+     */
+    public int indexOf(Entity entity) {
+        return lookup(entity.getId());
+    }
+
+    private int lookup(String id) {
+        long stamp = tableLock.tryOptimisticRead();
+        if (stamp != 0L) {
+            int index = indices.get(id);
+            if (tableLock.validate(stamp)) {
+                return index;
+            }
+        }
+        stamp = tableLock.readLock();
+        try {
+            return indices.get(id);
+        } finally {
+            tableLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the entity stored at an index, or null if the slot is free
+     */
+    public Entity entityAt(int index) {
+        return entities[index];
+    }
+
+    /**
+     * Get a generation-checked handle for an entity, or -1 if it is not registered
+     */
+    public long handleOf(Entity entity) {
+        int index = indexOf(entity);
+        if (index < 0) {
+            return -1L;
+        }
+        return ((long) generations[index] << 32) | index;
+    }
+
+    /**
+     * Check whether a handle still refers to the entity it was taken from
+     */
+    public boolean isAlive(long handle) {
+        if (handle < 0) {
+            return false;
+        }
+        int index = (int) handle;
+        int generation = (int) (handle >>> 32);
+        return index < highWater && entities[index] != null && generations[index] == generation;
+    }
+
+    /**
+     * Resolve a handle to its entity, or null if the handle is stale
+     */
+    public Entity resolve(long handle) {
+        return isAlive(handle) ? entities[(int) handle] : null;
+    }
+
+    /**
+     * One past the highest index ever handed out (the size per-entity arrays need)
+     */
+    public int size() {
+        return highWater;
+    }
+
+    /**
+     * Number of entities currently registered
+     */
+    public int liveCount() {
+        return liveCount;
+    }
+
+    // Open-addressed id -> index table; a power-of-two capacity kept at most half full
+    private static final class IdTable {
+        final String[] ids;
+        final int[] slots;
+
+        IdTable(int capacity) {
+            ids = new String[capacity];
+            slots = new int[capacity];
+        }
+
+        private int home(String id) {
+            int h = id.hashCode() * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (ids.length - 1);
+        }
+
+        // Bounded, as an optimistic read racing a change may not see the empty slot it would stop at
+        int get(String id) {
+            int mask = ids.length - 1;
+            int i = home(id);
+            for (int probes = 0; probes < ids.length; probes++, i = (i + 1) & mask) {
+                String candidate = ids[i];
+                if (candidate == null) {
+                    return -1;
+                }
+                if (candidate.equals(id)) {
+                    return slots[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(String id, int index) {
+            int mask = ids.length - 1;
+            int i = home(id);
+            while (ids[i] != null) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = index;
+            ids[i] = id;
+        }
+
+        int remove(String id) {
+            int mask = ids.length - 1;
+            int i = home(id);
+            while (ids[i] != null && !ids[i].equals(id)) {
+                i = (i + 1) & mask;
+            }
+            if (ids[i] == null) {
+                return -1;
+            }
+            int removed = slots[i];
+            // Shift later members of the probe run back so no lookup stops short at the hole
+            int hole = i;
+            for (int j = (i + 1) & mask; ids[j] != null; j = (j + 1) & mask) {
+                int wanted = home(ids[j]);
+                boolean movable = hole <= j ? wanted <= hole || wanted > j : wanted <= hole && wanted > j;
+                if (movable) {
+                    slots[hole] = slots[j];
+                    ids[hole] = ids[j];
+                    hole = j;
+                }
+            }
+            ids[hole] = null;
+            return removed;
+        }
+
+        IdTable grow() {
+            IdTable larger = new IdTable(ids.length * 2);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != null) {
+                    larger.put(ids[i], slots[i]);
+                }
+            }
+            return larger;
+        }
+    }
+}
@@ -1,33 +1,76 @@
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * COMPONENT class for equipment/wearing state in the ECS pattern
  * 
  * This component tracks what equipment an entity (typically the player) is wearing.
- * It supports multiple equipment slots (like armor, weapon, suit, etc.)
+ * It supports multiple equipment slots (like armor, weapon, suit, etc.). Items are
+ * stored in an array indexed by slot ordinal, and the effects of everything worn
+ * are kept combined in one bit set so effect checks are a single mask test.
  */
 public class EquipmentComponent implements Component {
-    private Map<EquipmentSlot, String> equipped;
+    private final String[] equipped;
+    private final int[] slotEffects;
+    private int effects;
     
     public EquipmentComponent() {
-        equipped = new HashMap<>();
+        equipped = new String[EquipmentSlot.values().length];
+        slotEffects = new int[equipped.length];
     }
     
     public void equipItem(EquipmentSlot slot, String item) {
-        equipped.put(slot, item);
+        equipItem(slot, item, 0);
+    }
+    
+    public void equipItem(EquipmentSlot slot, String item, int itemEffects) {
+        equipped[slot.ordinal()] = item;
+        slotEffects[slot.ordinal()] = itemEffects;
+        recomputeEffects();
     }
     
     public void unequipItem(EquipmentSlot slot) {
-        equipped.remove(slot);
+        equipped[slot.ordinal()] = null;
+        slotEffects[slot.ordinal()] = 0;
+        recomputeEffects();
     }
     
     public String getEquippedItem(EquipmentSlot slot) {
-        return equipped.get(slot);
+        return equipped[slot.ordinal()];
     }
     
     public boolean isEquipped(EquipmentSlot slot) {
-        return equipped.containsKey(slot);
+        return equipped[slot.ordinal()] != null;
+    }
+    
+    /**
+     * Find the slot an item is worn in, or null if it isn't worn
+     */
+    public EquipmentSlot findSlot(String item) {
+        for (EquipmentSlot slot : EquipmentSlot.values()) {
+            if (item.equals(equipped[slot.ordinal()])) {
+                return slot;
+            }
+        }
+        return null;
+    }
+    
+    public boolean hasEffect(WearableComponent.Effect effect) {
+        return (effects & effect.bit()) != 0;
+    }
+    
+    @Override
+    public EquipmentComponent copy() {
+        EquipmentComponent copy = new EquipmentComponent();
+        System.arraycopy(equipped, 0, copy.equipped, 0, equipped.length);
+        System.arraycopy(slotEffects, 0, copy.slotEffects, 0, slotEffects.length);
+        copy.effects = effects;
+        return copy;
+    }
+    
+    private void recomputeEffects() {
+        int combined = 0;
+        for (int flags : slotEffects) {
+            combined |= flags;
+        }
+        effects = combined;
     }
     
     public enum EquipmentSlot {
@@ -12,4 +12,11 @@ public interface Esystem {
     default int getPriority() {
         return 0;
     }
+    
+    /**
+     * Advance the system by one tick. Most systems are purely command-driven
+     * and leave this empty.
+     */
+    default void update(double deltaTime) {
+    }
 }
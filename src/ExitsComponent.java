@@ -30,4 +30,11 @@ public class ExitsComponent implements Component {
     public boolean hasExit(String direction) {
         return exits.containsKey(direction);
     }
+    
+    @Override
+    public ExitsComponent copy() {
+        ExitsComponent copy = new ExitsComponent();
+        copy.exits.putAll(exits);
+        return copy;
+    }
 }
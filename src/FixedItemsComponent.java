@@ -26,4 +26,11 @@ public class FixedItemsComponent implements Component {
     public List<String> getItems() {
         return Collections.unmodifiableList(fixedItems);
     }
+    
+    @Override
+    public FixedItemsComponent copy() {
+        FixedItemsComponent copy = new FixedItemsComponent();
+        copy.fixedItems.addAll(fixedItems);
+        return copy;
+    }
 }
@@ -2,6 +2,28 @@
  * Handles initialization of the game world, entities, and components
  */
 public class GameInitializer {
+    // Where the ship's controls may be used from, and what keeps the
+    // player out of vacuum; see RuleBook for the format
+    private static final String SHIP_RULES = String.join("\n",
+        "[rule request-docking-from-bridge]",
+        "on: request docking",
+        "when: player in Bridge",
+        "else: You can only request docking from the bridge.",
+        "",
+        "[rule initiate-docking-from-bridge]",
+        "on: initiate docking",
+        "when: player in Bridge",
+        "else: You can only initiate docking from the bridge.",
+        "",
+        "[rule cycle-airlock-from-airlock]",
+        "on: cycle airlock",
+        "when: player in Airlock",
+        "else: You can only cycle the airlock from within it.",
+        "",
+        "[rule vacuum-needs-suit]",
+        "on enter: outside",
+        "when: not docking.Docking.inSpace or player wears VACUUM_RATED");
+
     private ECS ecs;
     
     public GameInitializer(ECS ecs) {
@@ -9,6 +31,17 @@ public class GameInitializer {
     }
     
     public void initializeGame() {
+        initializeWorld();
+        
+        // Display initial message
+        displayWelcomeMessage();
+    }
+    
+    /**
+     * Build the world without greeting the player; this is what a
+     * PrebuiltWorld image captures
+     */
+    public void initializeWorld() {
         // Create room entities and their components
         initializeRooms();
         
@@ -21,8 +54,8 @@ public class GameInitializer {
         // Create game state entities
         initializeGameEntities();
         
-        // Display initial message
-        displayWelcomeMessage();
+        // Load the rules that gate commands and movement
+        initializeRules();
     }
     
     private void initializeRooms() {
@@ -30,11 +63,17 @@ public class GameInitializer {
         Entity commons = createRoom("Commons");
         addRoomComponents(commons, 
             "The ship's commons, a small lounge area.",
-            "The commons is a modest lounge at the heart of KY-25B. Worn cushions line a bench along the port wall, and a small table is bolted to the deck. A window offers a breathtaking view of Starbase Omicron's docking entry, its metallic arms glinting against the black void."
+            "The commons is a modest lounge at the heart of KY-25B. Worn cushions line a bench along the port wall, and a small table is bolted to the deck. {view}"
         );
         addExit(commons, "aft", "Engine");
         addExit(commons, "fore", "Hall");
         addRoomFixedItem(commons, "window");
+        ecs.addComponent(commons, new ViewportComponent());
+        addWindow(commons, "starboard",
+            "A window offers a breathtaking view of Starbase Omicron's docking entry, its metallic arms glinting against the black void.",
+            "The window frames Starbase Omicron's docking entry, a lattice of steel arms glowing faintly against the infinite black.",
+            "The window frames the interior of the starbase, bustling with activity.",
+            "The window frames the interior of the starbase, bustling with activity.");
         
         // Engine
         Entity engine = createRoom("Engine");
@@ -54,6 +93,8 @@ public class GameInitializer {
         );
         addExit(cargo, "up", "Engine");
         addRoomFixedItem(cargo, "tarp");
+        addRoomFixedItem(cargo, "crate");
+        addContainer(cargo, "crate", 200.0, 400.0);
         
         // Hall
         Entity hall = createRoom("Hall");
@@ -70,10 +111,18 @@ public class GameInitializer {
         Entity stateroom = createRoom("Stateroom");
         addRoomComponents(stateroom,
             "A cozy stateroom with a bunk.",
-            "The stateroom is a tight but comfortable retreat. A bunk is tucked against the wall, a folded blanket atop it. A small window reveals the starbase's silhouette, framed by distant stars."
+            "The stateroom is a tight but comfortable retreat. A bunk is tucked against the wall, a folded blanket atop it. {view}"
         );
         addExit(stateroom, "starboard", "Hall");
         addRoomFixedItem(stateroom, "window");
+        ecs.addComponent(stateroom, new ViewportComponent());
+        addWindow(stateroom, "port",
+            "A small window reveals the starbase's silhouette, framed by distant stars.",
+            "Through the stateroom window, the starbase looms, its silhouette stark against a scattering of stars.",
+            "Through the stateroom window, you can see the curved expanse of the interior of the starbase.",
+            "Through the stateroom window, you can see the curved expanse of the interior of the starbase.");
+        addRoomItem(stateroom, "bag");
+        addContainer(stateroom, "bag", 15.0, 25.0);
         
         // Ship Locker
         Entity shipLocker = createRoom("Ship Locker");
@@ -85,6 +134,8 @@ public class GameInitializer {
         addExit(shipLocker, "starboard", "Airlock");
         addRoomItem(shipLocker, "vac-suit");
         addRoomItem(shipLocker, "tank");
+        addRoomFixedItem(shipLocker, "locker");
+        addContainer(shipLocker, "locker", 100.0, 300.0);
         
         // Airlock
         Entity airlock = createRoom("Airlock");
@@ -99,11 +150,17 @@ public class GameInitializer {
         Entity bridge = createRoom("Bridge");
         addRoomComponents(bridge,
             "The bridge, command center of KY-25B.",
-            "The bridge is KY-25B's nerve center. A wide window dominates the forward bulkhead, showcasing Starbase Omicron's docking arms against the void. The pilot's chair faces a console studded with controls and a comms unit."
+            "The bridge is KY-25B's nerve center. {view} The pilot's chair faces a console studded with controls and a comms unit."
         );
         addExit(bridge, "aft", "Hall");
         addRoomFixedItem(bridge, "console");
         addRoomFixedItem(bridge, "window");
+        ecs.addComponent(bridge, new ViewportComponent());
+        addWindow(bridge, "fore",
+            "A wide window dominates the forward bulkhead, showcasing Starbase Omicron's docking arms against the void.",
+            "The bridge window offers a commanding view of the starbase's docking arms, poised like a predator in the void.",
+            "A wide window dominates the forward bulkhead, showing the interior of the starbase, bustling with activity.",
+            "The bridge window shows the interior of the starbase, bustling with activity.");
         
         // Outside
         Entity outside = createRoom("outside");
@@ -112,11 +169,22 @@ public class GameInitializer {
             "You float weightless outside KY-25B, the stars endless around you. The ship's hull gleams faintly in the starlight."
         );
         addExit(outside, "in", "Airlock");
+        
+        initializeSightlines();
+    }
+    
+    private void initializeSightlines() {
+        VisibilitySystem visibility = ecs.getSystem(VisibilitySystem.class);
+        if (visibility == null) return;
+        // KY-25B holds nose-on to the docking entry, which fills everything forward of the beam
+        visibility.addLandmark(VisibilitySystem.ViewState.IN_SPACE, "docking entry", 0.6, "fore", "port", "starboard");
+        // Docked, the starbase interior surrounds the ship
+        visibility.addLandmark(VisibilitySystem.ViewState.DOCKED, "starbase interior", 1.0, "fore", "aft", "port", "starboard");
     }
     
     private Entity createRoom(String roomId) {
         Entity room = ecs.createEntity(roomId);
-        ecs.addComponent(room, new PositionComponent(roomId));
+        ecs.addComponent(room, new RoomComponent(roomId));
         return room;
     }
     
@@ -142,10 +210,35 @@ public class GameInitializer {
         fixedItems.addFixedItem(fixedItem);
     }
     
+    private void addWindow(Entity room, String facing, String spacePhrase, String spaceCloseUp,
+                           String dockedPhrase, String dockedCloseUp) {
+        ViewportComponent viewports = ecs.getComponent(room, ViewportComponent.class);
+        viewports.addViewport("window", facing)
+            .addView("docking entry", spacePhrase, spaceCloseUp)
+            .addView("starbase interior", dockedPhrase, dockedCloseUp);
+    }
+    
+    private void addContainer(Entity room, String container, double maxWeight, double maxVolume) {
+        ContainerComponent contents = new ContainerComponent(maxWeight, maxVolume);
+        contents.setParent(room.getId());
+        ecs.addComponent(ecs.createEntity(container), contents);
+    }
+    
     private void initializePlayer() {
+        PlayerSystem players = ecs.getSystem(PlayerSystem.class);
+        if (players != null) {
+            players.join("player", "Commons", null);
+            return;
+        }
         Entity player = ecs.createEntity("player");
-        ecs.addComponent(player, new PositionComponent("Commons"));
-        ecs.addComponent(player, new InventoryComponent(10));
+        MovementSystem movement = ecs.getSystem(MovementSystem.class);
+        if (movement != null) {
+            movement.placeEntity(player, "Commons");
+        } else {
+            ecs.addComponent(player, new PositionComponent("Commons"));
+        }
+        ecs.addComponent(player, new PlayerComponent());
+        ecs.addComponent(player, new InventoryComponent(10, 40.0));
         ecs.addComponent(player, new EquipmentComponent());
     }
     
@@ -155,6 +248,8 @@ public class GameInitializer {
         ItemDescriptionComponent wrenchDesc = new ItemDescriptionComponent("The grease-caked wrench is hefty, useful for working on heavy machinery.");
         wrenchDesc.addContextDescription("Engine", "The hefty wrench, its handle worn smooth from use, rests near the reactor. It's caked with grease.");
         ecs.addComponent(wrench, wrenchDesc);
+        ecs.addComponent(wrench, new AliasesComponent("spanner"));
+        ecs.addComponent(wrench, new ItemPropertiesComponent(2.0, 1.0));
         
         // Initialize fixed tarp in Cargo bay
         Entity cargoTarp = ecs.createEntity("Cargo_tarp");
@@ -166,6 +261,8 @@ public class GameInitializer {
         ItemDescriptionComponent tankDesc = new ItemDescriptionComponent("The oxygen tank is scratched but functional, its gauge showing three-quarters full.");
         tankDesc.addContextDescription("Ship Locker", "The oxygen tank is leaning up against a bulkhead. It is scratched but functional, its gauge showing three-quarters full.");
         ecs.addComponent(tank, tankDesc);
+        ecs.addComponent(tank, new AliasesComponent("oxygen tank", "oxygen", "o2 tank", "air tank"));
+        ecs.addComponent(tank, new ItemPropertiesComponent(8.0, 10.0));
         
         // Initialize fixed console in Bridge
         Entity bridgeConsole = ecs.createEntity("Bridge_console");
@@ -177,50 +274,24 @@ public class GameInitializer {
         ItemDescriptionComponent vacSuitDesc = new ItemDescriptionComponent("The vac-suit is complete with helmet for EVAs.");
         vacSuitDesc.addContextDescription("Ship Locker", "The vac-suit hangs on a hook here, with an attached helmet.");
         ecs.addComponent(vacSuit, vacSuitDesc);
+        ecs.addComponent(vacSuit, new WearableComponent(EquipmentComponent.EquipmentSlot.VAC_SUIT,
+            WearableComponent.Effect.VACUUM_RATED, WearableComponent.Effect.OXYGEN_SUPPLY));
+        ecs.addComponent(vacSuit, new AliasesComponent("vacsuit", "spacesuit", "space suit", "eva suit"));
+        ecs.addComponent(vacSuit, new ItemPropertiesComponent(12.0, 40.0));
         
-        // Initialize window descriptions for different rooms and states
-        initializeWindowDescriptions();
-    }
-    
-    private void initializeWindowDescriptions() {
-        // Commons window descriptions
-        Entity commonsWindowSpace = ecs.createEntity("Commons_window_space");
-        ItemDescriptionComponent cwSpace = new ItemDescriptionComponent(
-            "The window frames Starbase Omicron's docking entry, a lattice of steel arms glowing faintly against the infinite black."
-        );
-        ecs.addComponent(commonsWindowSpace, cwSpace);
-        
-        Entity commonsWindowDocked = ecs.createEntity("Commons_window_docked");
-        ItemDescriptionComponent cwDocked = new ItemDescriptionComponent(
-            "The window frames the interior of the starbase, bustling with activity."
-        );
-        ecs.addComponent(commonsWindowDocked, cwDocked);
-        
-        // Stateroom window descriptions
-        Entity stateroomWindowSpace = ecs.createEntity("Stateroom_window_space");
-        ItemDescriptionComponent swSpace = new ItemDescriptionComponent(
-            "Through the stateroom window, the starbase looms, its silhouette stark against a scattering of stars."
-        );
-        ecs.addComponent(stateroomWindowSpace, swSpace);
-        
-        Entity stateroomWindowDocked = ecs.createEntity("Stateroom_window_docked");
-        ItemDescriptionComponent swDocked = new ItemDescriptionComponent(
-            "Through the stateroom window, you can see the curved expanse of the interior of the starbase."
-        );
-        ecs.addComponent(stateroomWindowDocked, swDocked);
+        // Containers
+        Entity cargoCrate = ecs.createEntity("Cargo_crate");
+        ecs.addComponent(cargoCrate, new ItemDescriptionComponent("A sturdy cargo crate, lashed to the deck. Its lid is unlatched."));
         
-        // Bridge window descriptions
-        Entity bridgeWindowSpace = ecs.createEntity("Bridge_window_space");
-        ItemDescriptionComponent bwSpace = new ItemDescriptionComponent(
-            "The bridge window offers a commanding view of the starbase's docking arms, poised like a predator in the void."
-        );
-        ecs.addComponent(bridgeWindowSpace, bwSpace);
+        Entity lockerLocker = ecs.createEntity("Ship Locker_locker");
+        ecs.addComponent(lockerLocker, new ItemDescriptionComponent("A tall gear locker with a dented door and room for plenty of equipment."));
         
-        Entity bridgeWindowDocked = ecs.createEntity("Bridge_window_docked");
-        ItemDescriptionComponent bwDocked = new ItemDescriptionComponent(
-            "The bridge window shows the interior of the starbase, bustling with activity."
-        );
-        ecs.addComponent(bridgeWindowDocked, bwDocked);
+        Entity bag = ecs.createEntity("bag");
+        ItemDescriptionComponent bagDesc = new ItemDescriptionComponent("A canvas duffel bag with a sturdy shoulder strap.");
+        bagDesc.addContextDescription("Stateroom", "A canvas duffel bag is slumped at the foot of the bunk.");
+        ecs.addComponent(bag, bagDesc);
+        ecs.addComponent(bag, new AliasesComponent("duffel", "duffel bag", "duffle"));
+        ecs.addComponent(bag, new ItemPropertiesComponent(0.5, 3.0));
     }
     
     private void initializeGameEntities() {
@@ -233,14 +304,20 @@ public class GameInitializer {
         ecs.addComponent(airlockEntity, new AirlockStateComponent());
     }
     
-    private void displayWelcomeMessage() {
-        System.out.println("You are aboard the starship KY-25B, floating in the void outside Starbase Omicron's docking entry.");
-        System.out.println("The hum of the engines vibrates faintly through the hull.");
+    // The ship's controls and airlock rely on these, so they are loaded
+    // even into a world that did not register a RuleSystem
+    private void initializeRules() {
+        RuleSystem.forWorld(ecs).load("ship rules", SHIP_RULES);
+    }
+    
+    public void displayWelcomeMessage() {
+        ecs.getOutput().println("You are aboard the starship KY-25B, floating in the void outside Starbase Omicron's docking entry.");
+        ecs.getOutput().println("The hum of the engines vibrates faintly through the hull.");
         
         // Display starting room
         RenderSystem render = ecs.getSystem(RenderSystem.class);
         if (render != null) {
-            render.displayRoom("Commons", false);
+            render.displayRoom(ecs.createEntity("player"), "Commons", false);
         }
     }
 }
@@ -0,0 +1,110 @@
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark and determinism check for ShipGenerator
+ *
+ * Generates a fleet of ships and starbases with increasing core counts,
+ * timing the parallel blueprint step and the populate step separately. The
+ * fleet digest must be the same for every core count (and for every run
+ * with the same seed). Every generated vessel is also checked to be fully
+ * connected with exits that lead back the way they came.
+ *
+ * Exits with status 1 if the digests differ or a layout is broken.
+ *
+ * Usage: java GeneratorBenchmark [ships] [roomsPerShip] [starbases] [roomsPerStarbase] [seed]
+ */
+public class GeneratorBenchmark {
+    public static void main(String[] args) {
+        int ships = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int roomsPerShip = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int starbases = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int roomsPerStarbase = args.length > 3 ? Integer.parseInt(args[3]) : 5_000;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 2025L;
+        int maxCores = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("ships: " + ships + " x " + roomsPerShip + " rooms, starbases: " + starbases
+            + " x " + roomsPerStarbase + " rooms, seed: " + seed);
+        ShipGenerator generator = new ShipGenerator(seed);
+        Long expected = null;
+        boolean ok = true;
+        for (int cores = 1; ; cores = Math.min(cores * 2, maxCores)) {
+            ForkJoinPool pool = new ForkJoinPool(cores);
+            long start = System.nanoTime();
+            List<ShipGenerator.Blueprint> fleet = generator.generateFleet(
+                ships, roomsPerShip, starbases, roomsPerStarbase, 8, pool);
+            long generated = System.nanoTime();
+            pool.shutdown();
+
+            ECS ecs = ECS.createWorld();
+            int rooms = ShipGenerator.populate(ecs, fleet);
+            long populated = System.nanoTime();
+
+            long digest = 17;
+            int items = 0;
+            for (ShipGenerator.Blueprint blueprint : fleet) {
+                digest = digest * 31 + blueprint.digest();
+                items += blueprint.items.size();
+            }
+            System.out.printf("cores=%2d  generate=%7.1f ms  populate=%7.1f ms  rooms=%,d items=%,d entities=%,d  digest=%016x%n",
+                cores, (generated - start) / 1e6, (populated - generated) / 1e6, rooms, items,
+                ecs.getEntityCount(), digest);
+            if (expected == null) {
+                expected = digest;
+                for (ShipGenerator.Blueprint blueprint : fleet) {
+                    ok &= checkLayout(ecs, blueprint);
+                }
+            } else if (digest != expected) {
+                System.out.println("digest differs from the single-core run");
+                ok = false;
+            }
+            if (cores == maxCores) break;
+        }
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // Every room reachable from the first, every exit answered by one back
+    private static boolean checkLayout(ECS ecs, ShipGenerator.Blueprint blueprint) {
+        Set<String> seen = new HashSet<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        queue.add(blueprint.rooms.get(0).id);
+        seen.add(queue.peek());
+        while (!queue.isEmpty()) {
+            String roomId = queue.poll();
+            ExitsComponent exits = ecs.getComponent(ecs.createEntity(roomId), ExitsComponent.class);
+            for (String direction : exits.getDirections()) {
+                String destination = exits.getExit(direction);
+                ExitsComponent back = ecs.getComponent(ecs.createEntity(destination), ExitsComponent.class);
+                if (back == null || !roomId.equals(back.getExit(opposite(direction)))) {
+                    System.out.println(blueprint.name + ": " + roomId + " " + direction + " has no way back");
+                    return false;
+                }
+                if (seen.add(destination)) {
+                    queue.add(destination);
+                }
+            }
+        }
+        if (seen.size() != blueprint.rooms.size()) {
+            System.out.println(blueprint.name + ": only " + seen.size() + " of " + blueprint.rooms.size() + " rooms reachable");
+            return false;
+        }
+        return true;
+    }
+
+    private static String opposite(String direction) {
+        switch (direction) {
+            case "fore": return "aft";
+            case "aft": return "fore";
+            case "port": return "starboard";
+            case "starboard": return "port";
+            case "up": return "down";
+            default: return "up";
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark for session hibernation at scale
+ *
+ * Starts a SessionHost with a small resident budget and many sessions. Each
+ * session plays a short script in its turn and is then hibernated as later
+ * sessions push it out of the LRU. Then random hibernated sessions are
+ * woken with one command each, timing the whole turn (restore included),
+ * and their output is compared with a session that never hibernated.
+ *
+ * Reports image sizes, heap in use with everything hibernated against an
+ * estimate for keeping every world resident, and wake latency percentiles.
+ * Exits with status 1 if a woken session answered differently.
+ *
+ * Usage: java HibernationBenchmark [sessions] [residentBudget] [wakeSamples]
+ */
+public class HibernationBenchmark {
+    private static final List<List<String>> SCRIPTS = Arrays.asList(
+        Arrays.asList("aft", "take wrench", "fore"),
+        Arrays.asList("fore", "fore", "starboard", "take vac-suit"),
+        Arrays.asList("look", "i", "fore"),
+        Arrays.asList("fore", "fore", "request docking", "initiate docking"));
+    private static final List<String> PROBE = Arrays.asList("look", "i");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int budget = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int samples = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        Path dir = Files.createTempDirectory("hibernation");
+        try {
+            System.out.println("sessions: " + sessions + ", resident budget: " + budget);
+            long residentBytes = bytesPerWorld(200);
+            SessionHost host = new SessionHost(8, 1_000.0, 8, 10_000, 50_000);
+            host.enableHibernation(dir, 60_000, budget);
+
+            // Everyone plays their script, a budget's worth of sessions at a time
+            long start = System.nanoTime();
+            for (int first = 0; first < sessions; first += budget) {
+                int last = Math.min(sessions, first + budget);
+                for (int s = first; s < last; s++) {
+                    SessionInbox inbox = host.addSession("s" + s);
+                    for (String command : SCRIPTS.get(s % SCRIPTS.size())) {
+                        inbox.offer(command);
+                    }
+                }
+                while (host.runPass(System.nanoTime()) > 0) {
+                    // Until this batch has drained
+                }
+            }
+            double fillSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("played and hibernated in %.1f s: hibernations=%,d refused=%d image bytes mean=%.0f total=%,d%n",
+                fillSeconds, host.getHibernationCount(), host.getHibernationsRefused(),
+                host.getImageBytes() / (double) Math.max(1, host.getHibernationCount()), host.getImageBytes());
+
+            long heap = usedHeap();
+            System.out.printf("heap in use: %,d KB with %,d resident; all resident would need about %,d KB (%,d bytes/world)%n",
+                heap / 1024, host.getResidentCount(), (long) sessions * residentBytes / 1024, residentBytes);
+
+            // Wake random sessions and check they carry on exactly as a never-hibernated one
+            BatchSession[] controls = new BatchSession[SCRIPTS.size()];
+            String[] expected = new String[SCRIPTS.size()];
+            for (int k = 0; k < SCRIPTS.size(); k++) {
+                controls[k] = new BatchSession();
+                controls[k].runAll(SCRIPTS.get(k));
+                expected[k] = controls[k].run(PROBE.get(0)).output;
+            }
+            SplittableRandom random = new SplittableRandom(42);
+            long[] wakes = new long[samples];
+            int wrong = 0;
+            for (int i = 0; i < samples; i++) {
+                int s = random.nextInt(sessions);
+                long t0 = System.nanoTime();
+                CommandResult result = host.run("s" + s, PROBE.get(0));
+                wakes[i] = System.nanoTime() - t0;
+                if (result == null || !result.output.equals(expected[s % SCRIPTS.size()])) {
+                    wrong++;
+                }
+                host.runPass(System.nanoTime());
+            }
+            Arrays.sort(wakes);
+            System.out.printf("wake turn (restore + command): p50=%.2f ms p99=%.2f ms max=%.2f ms; restores=%,d mean restore=%.2f ms%n",
+                wakes[samples / 2] / 1e6, wakes[(int) (samples * 0.99)] / 1e6, wakes[samples - 1] / 1e6,
+                host.getRestoreCount(), host.getMeanRestoreMillis());
+            System.out.println("mismatched wakes: " + wrong);
+            System.out.println(wrong == 0 ? "PASS" : "FAIL");
+            if (wrong != 0) {
+                System.exit(1);
+            }
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    // Rough heap cost of one resident world, from building a batch of them
+    private static long bytesPerWorld(int count) throws InterruptedException {
+        long before = usedHeap();
+        BatchSession[] worlds = new BatchSession[count];
+        for (int i = 0; i < count; i++) {
+            worlds[i] = new BatchSession();
+            worlds[i].runAll(SCRIPTS.get(i % SCRIPTS.size()));
+        }
+        long after = usedHeap();
+        if (worlds[count - 1] == null) {
+            throw new IllegalStateException();
+        }
+        return Math.max(0L, (after - before) / count);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -6,15 +6,24 @@ import java.util.Collections;
  * COMPONENT class for inventory in the ECS pattern
  * 
  * This component tracks the items an entity (typically the player) is carrying.
- * It has a maximum capacity and provides methods for adding and removing items.
+ * It has a maximum capacity (item count) and a maximum carried weight, and provides
+ * methods for adding and removing items. The carried weight is a cached total that
+ * includes the contents of any containers being carried.
  */
-public class InventoryComponent implements Component {
+public class InventoryComponent implements Component, ItemHolder {
     private List<String> items;
     public final int maxCapacity;
+    public final double maxWeight;
+    private double carriedWeight;
     
     public InventoryComponent(int maxCapacity) {
+        this(maxCapacity, Double.MAX_VALUE);
+    }
+    
+    public InventoryComponent(int maxCapacity, double maxWeight) {
         this.items = new ArrayList<>();
         this.maxCapacity = maxCapacity;
+        this.maxWeight = maxWeight;
     }
     
     public boolean addItem(String item) {
@@ -25,6 +34,24 @@ public class InventoryComponent implements Component {
         return false;
     }
     
+    public boolean canAccept(String item) {
+        return !isFull();
+    }
+    
+    @Override
+    public boolean hasRoomFor(double weight, double volume) {
+        return carriedWeight + weight <= maxWeight;
+    }
+    
+    @Override
+    public void adjustLoad(double weight, double volume) {
+        carriedWeight += weight;
+    }
+    
+    public double getCarriedWeight() {
+        return carriedWeight;
+    }
+    
     public boolean removeItem(String item) {
         return items.remove(item);
     }
@@ -40,4 +67,12 @@ public class InventoryComponent implements Component {
     public boolean isFull() {
         return items.size() >= maxCapacity;
     }
+    
+    @Override
+    public InventoryComponent copy() {
+        InventoryComponent copy = new InventoryComponent(maxCapacity, maxWeight);
+        copy.items.addAll(items);
+        copy.carriedWeight = carriedWeight;
+        return copy;
+    }
 }
@@ -24,7 +24,18 @@ public class ItemDescriptionComponent implements Component {
         return contextDescriptions.getOrDefault(context, defaultDescription);
     }
     
+    public Map<String, String> getContextDescriptions() {
+        return java.util.Collections.unmodifiableMap(contextDescriptions);
+    }
+    
     public String getDefaultDescription() {
         return defaultDescription;
     }
+    
+    @Override
+    public ItemDescriptionComponent copy() {
+        ItemDescriptionComponent copy = new ItemDescriptionComponent(defaultDescription);
+        copy.contextDescriptions.putAll(contextDescriptions);
+        return copy;
+    }
 }
\ No newline at end of file
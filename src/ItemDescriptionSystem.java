@@ -35,12 +35,16 @@ public class ItemDescriptionSystem implements Esystem {
      * @return The context-sensitive description
      */
     public String getItemInRoomDescription(String itemName, String roomName) {
-        String itemEntityId = roomName + "_" + itemName;
-        DockingComponent docking = ecs.getComponent(ecs.createEntity("docking"), DockingComponent.class);
-        if (itemName.equals("window")) {
-        	itemEntityId += docking.inSpace ? "_space" : "_docked"; 
+        // Windows and ports describe whatever is in sight through them
+        VisibilitySystem visibility = ecs.getSystem(VisibilitySystem.class);
+        if (visibility != null) {
+            String view = visibility.describeViewport(roomName, itemName);
+            if (view != null) {
+                return view;
+            }
         }
         
+        String itemEntityId = roomName + "_" + itemName;
         Entity itemEntity = ecs.createEntity(itemEntityId);
         ItemDescriptionComponent descComponent = ecs.getComponent(itemEntity, ItemDescriptionComponent.class);
         
@@ -0,0 +1,40 @@
+import java.util.List;
+
+/**
+ * Anything that can hold loose items: a room's floor, an inventory, a container
+ * 
+ * Implemented by the item-holding components so that ItemTransfer can move an
+ * item between any two of them the same way. Holders with a weight or volume
+ * limit keep cached totals, adjusted as items move, so capacity checks never
+ * have to walk the contents: weight counts everything beneath the holder
+ * (including the contents of nested containers), volume only what it holds
+ * directly.
+ */
+public interface ItemHolder {
+    
+    boolean hasItem(String item);
+    
+    /**
+     * Whether the item would fit if it were added now (slot or count limits only)
+     */
+    boolean canAccept(String item);
+    
+    /**
+     * Whether this many extra kilograms and litres would fit beneath this holder
+     */
+    default boolean hasRoomFor(double weight, double volume) {
+        return true;
+    }
+    
+    /**
+     * Change the cached weight/volume totals of this holder
+     */
+    default void adjustLoad(double weight, double volume) {
+    }
+    
+    boolean addItem(String item);
+    
+    boolean removeItem(String item);
+    
+    List<String> getItems();
+}
@@ -0,0 +1,228 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Timing and correctness check for ItemNameResolver
+ *
+ * A vocabulary of generated item names ("scorched-coupling", ...) with an
+ * alias each is indexed once. Lookups are then made against a room-sized
+ * scope of a dozen names, the way ItemSystem resolves what the player typed:
+ * the exact name behind an article, a single word of the name, an alias,
+ * and a name with one typo (an adjacent transposition). The typo lookups
+ * are repeated with the whole vocabulary in scope, which is the worst case
+ * for the fuzzy fallback.
+ *
+ * Every lookup must find the intended item; an ambiguous answer counts as a
+ * miss, except for a word the target shares with other names in scope, where
+ * the target must be among those offered. Every kind of lookup against a
+ * room-sized scope, typos included, must average under a microsecond. A
+ * typo with the whole vocabulary in scope, which no command has but which
+ * searches the BK-tree, must average under WHOLE_SCOPE_BUDGET_NANOS. A few
+ * fixed cases check that typo matching doesn't depend on the order names are
+ * in scope, and that the BK-tree finds what a scan of the scope would. Exits
+ * with status 1 otherwise. Also reports bytes allocated per lookup, where the
+ * JVM can measure it.
+ *
+ * Usage: java ItemNameBenchmark [names] [scope] [lookups] [seed]
+ */
+public class ItemNameBenchmark {
+    private static final String[] ADJECTIVES = {
+        "scorched", "dented", "spare", "sealed", "cracked", "shielded", "polished", "rusty",
+        "magnetic", "coiled", "thermal", "folded", "insulated", "braided", "pressurized", "sterile",
+        "hollow", "tempered", "flexible", "welded", "frosted", "calibrated", "surplus", "faded"};
+    private static final String[] NOUNS = {
+        "coupling", "wrench", "canister", "regulator", "gasket", "spanner", "cartridge", "filter",
+        "beacon", "harness", "lantern", "manifold", "scanner", "tether", "valve", "probe",
+        "battery", "helmet", "glove", "relay", "sextant", "capacitor", "winch", "ration-pack",
+        "datapad", "splint", "visor", "cable", "nozzle", "clamp", "flare", "toolkit"};
+    private static final double LOOKUP_BUDGET_NANOS = 1_000.0;
+    private static final double WHOLE_SCOPE_BUDGET_NANOS = 250_000.0;
+    private static final int SCOPES = 64;
+
+    public static void main(String[] args) {
+        int nameCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int scopeSize = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        int lookups = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 7L;
+        SplittableRandom random = new SplittableRandom(seed);
+
+        List<String> names = new ArrayList<>(nameCount);
+        for (int i = 0; names.size() < nameCount; i++) {
+            String name = ADJECTIVES[i % ADJECTIVES.length] + "-" + NOUNS[(i / ADJECTIVES.length) % NOUNS.length];
+            names.add(i < ADJECTIVES.length * NOUNS.length ? name : name + "-" + (i / (ADJECTIVES.length * NOUNS.length)));
+        }
+        ItemNameResolver resolver = new ItemNameResolver();
+        long buildStart = System.nanoTime();
+        for (String name : names) {
+            resolver.addName(name);
+            resolver.addAlias("item " + name.hashCode(), name);
+        }
+        double buildMillis = (System.nanoTime() - buildStart) / 1e6;
+        System.out.printf("vocabulary: %,d names (+ %,d aliases) indexed in %.1f ms, scope: %d names%n",
+            nameCount, nameCount, buildMillis, scopeSize);
+
+        // Scopes and queries are made up front so only the lookups are timed.
+        // Lookups cycle through a ship's worth of rooms (SCOPES), so the
+        // names involved stay about as cache-warm as they would in play.
+        int sets = SCOPES;
+        List<Set<String>> scopes = new ArrayList<>(sets);
+        String[] targets = new String[sets];
+        for (int s = 0; s < sets; s++) {
+            Set<String> scope = new LinkedHashSet<>();
+            while (scope.size() < scopeSize) {
+                scope.add(names.get(random.nextInt(names.size())));
+            }
+            scopes.add(scope);
+            targets[s] = scope.iterator().next();
+        }
+        Set<String> everything = new LinkedHashSet<>(names);
+
+        boolean pass = checkFixedCases();
+        double slowest = 0.0;
+        String[] kinds = {"exact", "word", "alias", "typo"};
+        for (String kind : kinds) {
+            String[] queries = new String[sets];
+            for (int s = 0; s < sets; s++) {
+                queries[s] = query(kind, targets[s], random);
+            }
+            Result small = time(resolver, queries, scopes, targets, lookups);
+            System.out.printf("%-5s  %7.0f ns/lookup  %6s bytes/lookup  misses=%d%n",
+                kind, small.nanos, small.bytes, small.misses);
+            pass &= small.misses == 0;
+            slowest = Math.max(slowest, small.nanos);
+            if (kind.equals("typo")) {
+                List<Set<String>> whole = new ArrayList<>(sets);
+                for (int s = 0; s < sets; s++) {
+                    whole.add(everything);
+                }
+                Result large = time(resolver, queries, whole, targets, Math.max(1, lookups / 100));
+                System.out.printf("typo with all %,d names in scope: %,.0f ns/lookup (budget %,.0f ns)  %s bytes/lookup  misses=%d%n",
+                    nameCount, large.nanos, WHOLE_SCOPE_BUDGET_NANOS, large.bytes, large.misses);
+                pass &= large.misses == 0 && large.nanos < WHOLE_SCOPE_BUDGET_NANOS;
+            }
+        }
+        System.out.printf("slowest lookup kind: %.0f ns (budget %.0f ns)%n", slowest, LOOKUP_BUDGET_NANOS);
+        pass &= slowest < LOOKUP_BUDGET_NANOS;
+
+        System.out.println(pass ? "PASS" : "FAIL");
+        if (!pass) {
+            System.exit(1);
+        }
+    }
+
+    // Typo matching must not depend on scope order, and the BK-tree must find what a scan would
+    private static boolean checkFixedCases() {
+        ItemNameResolver resolver = new ItemNameResolver();
+        for (String name : new String[] {"wrench", "tank", "vac-suit", "bag"}) {
+            resolver.addName(name);
+        }
+        boolean ok = expect(resolver, "wrnech", List.of("wrench", "tank"), "wrench")
+            & expect(resolver, "wrnech", List.of("tank", "wrench"), "wrench")
+            & expect(resolver, "sutt", List.of("vac-suit", "bag", "tank"), "vac-suit")
+            & expect(resolver, "sutt", List.of("tank", "bag", "vac-suit"), "vac-suit");
+
+        // "ac" is one edit from "abc", which is three from "ca", the root of the tree.
+        // The scope is large enough that the tree is searched rather than the scope.
+        ItemNameResolver tree = new ItemNameResolver();
+        tree.addName("ca");
+        tree.addName("abc");
+        Set<String> scope = new LinkedHashSet<>();
+        scope.add("abc");
+        for (int i = 0; scope.size() <= 64; i++) {
+            String filler = "filler" + i;
+            tree.addName(filler);
+            scope.add(filler);
+        }
+        ok &= expect(tree, "ac", scope, "abc");
+        System.out.println("typo matching independent of scope order and tree: " + ok);
+        return ok;
+    }
+
+    private static boolean expect(ItemNameResolver resolver, String query, java.util.Collection<String> scope, String expected) {
+        ItemNameResolver.Resolution resolution = resolver.resolve(query, scope);
+        if (expected.equals(resolution.match)) {
+            return true;
+        }
+        System.out.println("  \"" + query + "\" resolved to " + resolution.candidates + ", wanted " + expected);
+        return false;
+    }
+
+    private static String query(String kind, String target, SplittableRandom random) {
+        switch (kind) {
+            case "exact":
+                return "the " + target;
+            case "word":
+                return target.substring(0, target.indexOf('-'));
+            case "alias":
+                return "item " + target.hashCode();
+            default: {
+                // Swap two neighbouring letters of the noun, away from the hyphen
+                int at = target.indexOf('-') + 1 + random.nextInt(3);
+                char[] chars = target.toCharArray();
+                char swapped = chars[at];
+                chars[at] = chars[at + 1];
+                chars[at + 1] = swapped;
+                return new String(chars);
+            }
+        }
+    }
+
+    // Time lookups cycling through the prepared sets; a miss is a lookup that didn't find the target
+    private static Result time(ItemNameResolver resolver, String[] queries, List<Set<String>> scopes,
+                               String[] targets, int lookups) {
+        Result result = new Result();
+        for (int s = 0; s < queries.length; s++) {
+            ItemNameResolver.Resolution resolution = resolver.resolve(queries[s], scopes.get(s));
+            if (!targets[s].equals(resolution.match) && !(sharedWord(queries[s], scopes.get(s))
+                    && resolution.candidates.contains(targets[s]))) {
+                result.misses++;
+            }
+        }
+        // Warm up, then measure
+        int found = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                int s = i & (queries.length - 1);
+                found += resolver.resolve(queries[s], scopes.get(s)).candidates.size();
+            }
+            result.nanos = (System.nanoTime() - start) / (double) lookups;
+            long bytesAfter = allocatedBytes();
+            result.bytes = bytesBefore < 0 ? "n/a" : String.valueOf((bytesAfter - bytesBefore) / lookups);
+        }
+        if (found < 0) {
+            System.out.println(found);
+        }
+        return result;
+    }
+
+    // Whether the query is a word of more than one name in scope, so asking which is right
+    private static boolean sharedWord(String query, Set<String> scope) {
+        int holders = 0;
+        for (String name : scope) {
+            if (List.of(name.split("-")).contains(query)) {
+                holders++;
+            }
+        }
+        return holders > 1;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static class Result {
+        double nanos;
+        String bytes;
+        int misses;
+    }
+}
@@ -0,0 +1,579 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves what the player typed to an item name
+ * 
+ * The index is built from the item vocabulary and alias lists, and names
+ * can be added to it as new items appear. Every
+ * name is indexed under itself, under each of its hyphen/space separated
+ * words ("suit" for "vac-suit"), and under its aliases. A lookup strips
+ * leading articles, tries the index directly, and only if that finds
+ * nothing in scope falls back to a search for near misses, so the common
+ * case is a single hash lookup. Matches are always narrowed to the names
+ * actually in scope (the room and the player's inventory).
+ * 
+ * A scope is usually a handful of names while the vocabulary may run to
+ * thousands, so whichever side is smaller is the one walked: a word shared
+ * by many items is checked against the terms of each name in scope, and a
+ * near miss is looked for among the in-scope names' own terms. Only a scope
+ * larger than SCOPE_SCAN_LIMIT searches the BK-tree of every term. Each
+ * term keeps a mask of its letters, so most terms are ruled out by letters
+ * the query lacks (or has extra) before any distance is computed.
+ * 
+ * Typos are scored by optimal string alignment (edits plus adjacent
+ * transpositions). That is not a metric, so the BK-tree is built on true
+ * Damerau-Levenshtein distance, which never exceeds it, and what the tree
+ * finds is scored again the same way as the scope scan. Edit distances
+ * reuse per-thread scratch arrays, so the fuzzy path allocates little beyond
+ * its result. ItemNameBenchmark times each kind of lookup.
+ */
+public class ItemNameResolver {
+    private static final String[] ARTICLES = {"the ", "a ", "an ", "some ", "my "};
+    private static final int SCOPE_SCAN_LIMIT = 64;
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[64]);
+    
+    private final Map<String, List<String>> terms;
+    private final Map<String, NameTerms> termsByName;
+    private final Set<String> aliases;
+    private BkNode typoTree;
+    
+    public ItemNameResolver() {
+        terms = new HashMap<>();
+        termsByName = new HashMap<>();
+        aliases = new HashSet<>();
+    }
+    
+    /**
+     * Add an item name to the index
+     */
+    public void addName(String name) {
+        addTerm(name, name);
+        for (String word : name.split("[- ]")) {
+            if (!word.isEmpty()) {
+                addTerm(word, name);
+            }
+        }
+    }
+    
+    /**
+     * Whether a name has been added to the index
+     */
+    public boolean hasName(String name) {
+        return termsByName.containsKey(name);
+    }
+    
+    /**
+     * Add another way of referring to an item
+     */
+    public void addAlias(String alias, String name) {
+        String term = normalize(alias);
+        aliases.add(term);
+        addTerm(term, name);
+    }
+    
+    /**
+     * Resolve a query against the names currently in scope
+     */
+    public Resolution resolve(String query, Collection<String> inScope) {
+        String term = normalize(query);
+        if (term.isEmpty()) {
+            return Resolution.notFound();
+        }
+        if (inScope.contains(term)) {
+            return Resolution.found(term);
+        }
+        
+        List<String> indexed = terms.get(term);
+        if (indexed != null && indexed.size() == 1 && inScope.contains(indexed.get(0))) {
+            return Resolution.found(indexed.get(0));
+        }
+        // Matches are few, so a list with a contains check beats a set
+        List<String> matches = new ArrayList<>(4);
+        if (indexed != null) {
+            if (indexed.size() > inScope.size()) {
+                // Words are checked in the name itself; only aliases need the name's term list
+                boolean alias = aliases.contains(term);
+                for (String name : inScope) {
+                    boolean has = hasWord(name, term);
+                    if (!has && alias) {
+                        NameTerms own = termsByName.get(name);
+                        has = own != null && own.indexOf(term) >= 0;
+                    }
+                    if (has && !matches.contains(name)) {
+                        matches.add(name);
+                    }
+                }
+            } else {
+                addInScope(indexed, inScope, matches);
+            }
+        }
+        if (matches.isEmpty()) {
+            // Only now pay for a fuzzy search: closest distance wins
+            int maxDistance = term.length() <= 4 ? 1 : 2;
+            if (inScope.size() <= SCOPE_SCAN_LIMIT) {
+                nearestInScope(term, maxDistance, inScope, matches);
+            } else if (typoTree != null) {
+                nearestInTree(term, maxDistance, inScope, matches);
+            }
+        }
+        
+        if (matches.isEmpty()) {
+            return Resolution.notFound();
+        }
+        if (matches.size() == 1) {
+            return Resolution.found(matches.get(0));
+        }
+        return Resolution.ambiguous(matches);
+    }
+    
+    // Whether word is one of the hyphen/space separated words of name, as addName indexes them
+    private static boolean hasWord(String name, String word) {
+        int length = word.length();
+        int start = 0;
+        while (start + length <= name.length()) {
+            int end = start + length;
+            if (name.regionMatches(start, word, 0, length)
+                    && (end == name.length() || isSeparator(name.charAt(end)))) {
+                return true;
+            }
+            while (start < name.length() && !isSeparator(name.charAt(start))) {
+                start++;
+            }
+            start++;
+        }
+        return false;
+    }
+    
+    private static boolean isSeparator(char c) {
+        return c == '-' || c == ' ';
+    }
+    
+    // Every in-scope name with a term within maxDistance of the query, keeping only the closest
+    private void nearestInScope(String query, int maxDistance, Collection<String> inScope, List<String> matches) {
+        long queryMask = letterMask(query);
+        int best = maxDistance;
+        for (String name : inScope) {
+            NameTerms own = termsByName.get(name);
+            if (own == null) {
+                continue;
+            }
+            // Once a name ties the best, only a strictly closer term can change anything
+            int closest = maxDistance + 1;
+            for (int i = 0; i < own.size; i++) {
+                int limit = Math.min(best, closest - 1);
+                if (!withinLetters(queryMask, own.masks[i], limit)) {
+                    continue;
+                }
+                closest = Math.min(closest, distance(own.terms[i], query, limit));
+            }
+            if (closest > best) {
+                continue;
+            }
+            if (closest < best) {
+                matches.clear();
+                best = closest;
+            }
+            if (!matches.contains(name)) {
+                matches.add(name);
+            }
+        }
+    }
+    
+    /**
+     * The same for a scope too large to walk: the tree finds the candidate
+     * terms. A small radius is searched first, as it visits far less of the
+     * tree; anything it misses is further away than what it found.
+     */
+    private void nearestInTree(String query, int maxDistance, Collection<String> inScope, List<String> matches) {
+        List<String> near = new ArrayList<>();
+        for (int radius = 1; radius <= maxDistance && matches.isEmpty(); radius++) {
+            near.clear();
+            typoTree.search(query, radius, near);
+            int best = radius;
+            for (String nearTerm : near) {
+                int d = distance(nearTerm, query, best);
+                if (d > best || !anyInScope(terms.get(nearTerm), inScope)) {
+                    continue;
+                }
+                if (d < best) {
+                    matches.clear();
+                    best = d;
+                }
+                addInScope(terms.get(nearTerm), inScope, matches);
+            }
+        }
+    }
+    
+    private static boolean anyInScope(List<String> names, Collection<String> inScope) {
+        for (String name : names) {
+            if (inScope.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * One bit per letter (folded into 64 bits). Each edit brings in or takes
+     * out at most one letter and a transposition neither, so two strings
+     * within limit of each other differ by at most limit letters either way.
+     */
+    static long letterMask(String term) {
+        long mask = 0L;
+        for (int i = 0; i < term.length(); i++) {
+            mask |= 1L << term.charAt(i);
+        }
+        return mask;
+    }
+    
+    private static boolean withinLetters(long queryMask, long termMask, int limit) {
+        return Long.bitCount(queryMask & ~termMask) <= limit && Long.bitCount(termMask & ~queryMask) <= limit;
+    }
+    
+    private void addTerm(String term, String name) {
+        termsByName.computeIfAbsent(name, k -> new NameTerms()).add(term);
+        List<String> names = terms.get(term);
+        if (names == null) {
+            names = new ArrayList<>(1);
+            terms.put(term, names);
+            if (typoTree == null) {
+                typoTree = new BkNode(term);
+            } else {
+                typoTree.add(term);
+            }
+        }
+        if (!names.contains(name)) {
+            names.add(name);
+        }
+    }
+    
+    private static void addInScope(List<String> names, Collection<String> inScope, List<String> result) {
+        if (names != null) {
+            for (String name : names) {
+                if (inScope.contains(name) && !result.contains(name)) {
+                    result.add(name);
+                }
+            }
+        }
+    }
+    
+    static String normalize(String query) {
+        String term = isNormalized(query) ? query : collapse(query);
+        boolean stripped = true;
+        while (stripped) {
+            stripped = false;
+            for (String article : ARTICLES) {
+                if (term.startsWith(article)) {
+                    term = term.substring(article.length());
+                    stripped = true;
+                }
+            }
+        }
+        return term;
+    }
+    
+    // Already lowercase with single spaces between words, as most input is
+    private static boolean isNormalized(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (c != ' ' || i == 0 || i == query.length() - 1 || query.charAt(i - 1) == ' ') {
+                    return false;
+                }
+            } else if (Character.toLowerCase(c) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static String collapse(String query) {
+        StringBuilder builder = new StringBuilder(query.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = builder.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    builder.append(' ');
+                    pendingSpace = false;
+                }
+                builder.append(Character.toLowerCase(c));
+            }
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Distance between a and b if it is at most limit, otherwise limit + 1.
+     * Letters the two share at the start and end can't change the distance,
+     * so only what lies between is compared ("scorched-cuopling" against
+     * "scorched-coupling" comes down to "uo" against "ou"). Only the diagonal
+     * band of width 2 * limit + 1 is filled in, and the search stops as soon
+     * as a whole row is over the limit.
+     */
+    static int distance(String a, String b, int limit) {
+        if (limit < 0 || Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1;
+        }
+        int start = 0;
+        int shorter = Math.min(a.length(), b.length());
+        while (start < shorter && a.charAt(start) == b.charAt(start)) {
+            start++;
+        }
+        int endA = a.length();
+        int endB = b.length();
+        while (endA > start && endB > start && a.charAt(endA - 1) == b.charAt(endB - 1)) {
+            endA--;
+            endB--;
+        }
+        int m = endA - start;
+        int n = endB - start;
+        if (m == 0 || n == 0) {
+            return Math.min(m + n, limit + 1);
+        }
+        int over = limit + 1;
+        int width = n + 1;
+        int[] rows = SCRATCH.get();
+        if (rows.length < 3 * width) {
+            rows = new int[3 * width * 2];
+            SCRATCH.set(rows);
+        }
+        int prevPrev = 0;
+        int prev = width;
+        int current = 2 * width;
+        for (int j = 0; j < width; j++) {
+            rows[prev + j] = j <= limit ? j : over;
+        }
+        for (int i = 1; i <= m; i++) {
+            int lo = Math.max(1, i - limit);
+            int hi = Math.min(n, i + limit);
+            rows[current] = i <= limit ? i : over;
+            if (lo > 1) {
+                rows[current + lo - 1] = over;
+            }
+            int rowMin = lo > 1 ? over : rows[current];
+            char ai = a.charAt(start + i - 1);
+            for (int j = lo; j <= hi; j++) {
+                char bj = b.charAt(start + j - 1);
+                int cost = ai == bj ? 0 : 1;
+                int best = Math.min(Math.min(rows[prev + j] + 1, rows[current + j - 1] + 1), rows[prev + j - 1] + cost);
+                if (i > 1 && j > 1 && ai == b.charAt(start + j - 2) && a.charAt(start + i - 2) == bj) {
+                    best = Math.min(best, rows[prevPrev + j - 2] + 1);
+                }
+                rows[current + j] = best;
+                rowMin = Math.min(rowMin, best);
+            }
+            if (hi < n) {
+                rows[current + hi + 1] = over;
+            }
+            if (rowMin > limit) {
+                return over;
+            }
+            int recycled = prevPrev;
+            prevPrev = prev;
+            prev = current;
+            current = recycled;
+        }
+        return Math.min(rows[prev + n], over);
+    }
+    
+    /**
+     * True (unrestricted) Damerau-Levenshtein distance: edits plus
+     * transpositions of letters that may have been edited in between. Unlike
+     * optimal string alignment it is a metric, which the BK-tree relies on.
+     */
+    static int damerauDistance(String a, String b) {
+        // As in distance(), shared letters at either end are left out
+        int from = 0;
+        int shorter = Math.min(a.length(), b.length());
+        while (from < shorter && a.charAt(from) == b.charAt(from)) {
+            from++;
+        }
+        int endA = a.length();
+        int endB = b.length();
+        while (endA > from && endB > from && a.charAt(endA - 1) == b.charAt(endB - 1)) {
+            endA--;
+            endB--;
+        }
+        int n = endA - from;
+        int m = endB - from;
+        if (n == 0 || m == 0) {
+            return n + m;
+        }
+        // (n + 2) x (m + 2) matrix, then where each ASCII letter was last seen in a
+        int width = m + 2;
+        int lastRow = (n + 2) * width;
+        int[] d = SCRATCH.get();
+        if (d.length < lastRow + 128) {
+            d = new int[(lastRow + 128) * 2];
+            SCRATCH.set(d);
+        }
+        Arrays.fill(d, lastRow, lastRow + 128, 0);
+        int infinity = n + m;
+        d[0] = infinity;
+        for (int i = 0; i <= n; i++) {
+            d[(i + 1) * width] = infinity;
+            d[(i + 1) * width + 1] = i;
+        }
+        for (int j = 0; j <= m; j++) {
+            d[j + 1] = infinity;
+            d[width + j + 1] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            char ai = a.charAt(from + i - 1);
+            int lastMatchColumn = 0;
+            for (int j = 1; j <= m; j++) {
+                char bj = b.charAt(from + j - 1);
+                int i1 = bj < 128 ? d[lastRow + bj] : lastIndexOf(a, bj, from, from + i - 1) + 1;
+                int j1 = lastMatchColumn;
+                int cost = 1;
+                if (ai == bj) {
+                    cost = 0;
+                    lastMatchColumn = j;
+                }
+                int best = Math.min(Math.min(d[i * width + j] + cost, d[(i + 1) * width + j] + 1), d[i * width + j + 1] + 1);
+                best = Math.min(best, d[i1 * width + j1] + (i - i1 - 1) + 1 + (j - j1 - 1));
+                d[(i + 1) * width + j + 1] = best;
+            }
+            if (ai < 128) {
+                d[lastRow + ai] = i;
+            }
+        }
+        return d[(n + 1) * width + m + 1];
+    }
+    
+    // Position of c in a[from, to), counted from from, or -1
+    private static int lastIndexOf(String a, char c, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (a.charAt(i) == c) {
+                return i - from;
+            }
+        }
+        return -1;
+    }
+    
+    // A name's terms, each with its letterMask
+    private static class NameTerms {
+        String[] terms = new String[2];
+        long[] masks = new long[2];
+        int size;
+        
+        int indexOf(String term) {
+            for (int i = 0; i < size; i++) {
+                if (terms[i].equals(term)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        void add(String term) {
+            if (indexOf(term) >= 0) {
+                return;
+            }
+            if (size == terms.length) {
+                terms = Arrays.copyOf(terms, size * 2);
+                masks = Arrays.copyOf(masks, size * 2);
+            }
+            terms[size] = term;
+            masks[size] = letterMask(term);
+            size++;
+        }
+    }
+    
+    // Children are indexed by their Damerau-Levenshtein distance from this node's term
+    private static class BkNode {
+        private static final BkNode[] NONE = new BkNode[0];
+        
+        final String term;
+        BkNode[] children = NONE;
+        
+        BkNode(String term) {
+            this.term = term;
+        }
+        
+        void add(String other) {
+            BkNode node = this;
+            while (true) {
+                int d = damerauDistance(node.term, other);
+                if (d >= node.children.length) {
+                    node.children = Arrays.copyOf(node.children, d + 1);
+                }
+                BkNode child = node.children[d];
+                if (child == null) {
+                    node.children[d] = new BkNode(other);
+                    return;
+                }
+                node = child;
+            }
+        }
+        
+        // Terms within maxDistance, plus perhaps a few more: callers score what comes back with distance()
+        void search(String query, int maxDistance, List<String> out) {
+            if (children == NONE) {
+                // A leaf only matters if it is close itself, which the banded distance answers sooner
+                if (distance(term, query, maxDistance) <= maxDistance) {
+                    out.add(term);
+                }
+                return;
+            }
+            if (Math.abs(term.length() - query.length()) - maxDistance >= children.length) {
+                // The distance is at least the difference in length: too far for this term and every child
+                return;
+            }
+            int d = damerauDistance(term, query);
+            if (d <= maxDistance) {
+                out.add(term);
+            }
+            int to = Math.min(d + maxDistance, children.length - 1);
+            for (int k = Math.max(0, d - maxDistance); k <= to; k++) {
+                BkNode child = children[k];
+                if (child != null) {
+                    child.search(query, maxDistance, out);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Result of a lookup: a single match, several candidates, or nothing
+     */
+    public static class Resolution {
+        public final String match;
+        public final List<String> candidates;
+        
+        private Resolution(String match, List<String> candidates) {
+            this.match = match;
+            this.candidates = candidates;
+        }
+        
+        static Resolution found(String match) {
+            return new Resolution(match, List.of(match));
+        }
+        
+        static Resolution ambiguous(List<String> candidates) {
+            return new Resolution(null, candidates);
+        }
+        
+        static Resolution notFound() {
+            return new Resolution(null, List.of());
+        }
+        
+        public boolean isFound() {
+            return match != null;
+        }
+        
+        public boolean isAmbiguous() {
+            return match == null && !candidates.isEmpty();
+        }
+    }
+}
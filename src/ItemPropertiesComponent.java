@@ -0,0 +1,18 @@
+/**
+ * COMPONENT class for physical item properties in the ECS pattern
+ * 
+ * This component gives an item entity its own weight (kilograms) and
+ * volume (litres). Items without one use the defaults.
+ */
+public class ItemPropertiesComponent implements Component {
+    public static final double DEFAULT_WEIGHT = 1.0;
+    public static final double DEFAULT_VOLUME = 1.0;
+    
+    public final double weight;
+    public final double volume;
+    
+    public ItemPropertiesComponent(double weight, double volume) {
+        this.weight = weight;
+        this.volume = volume;
+    }
+}
@@ -1,4 +1,6 @@
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * System that handles inventory and item interaction
@@ -6,15 +8,260 @@ import java.util.Collection;
 public class ItemSystem implements Esystem {
     private ECS ecs;
     private ItemDescriptionSystem itemDescriptionSystem;
-    private static final String PLAYER = "player";
+    private volatile ItemNameResolver nameResolver;
+    private final ItemTransfer transfers;
     
     public ItemSystem(ECS ecs) {
         this.ecs = ecs;
         this.itemDescriptionSystem = new ItemDescriptionSystem(ecs);
+        this.transfers = new ItemTransfer();
     }
 
-    public boolean takeItem(String itemName) {
-        Entity player = ecs.createEntity(PLAYER);
+    /**
+     * Rebuild the item name index from every item name and alias in the world.
+     * Called lazily on first use, and again whenever an item that isn't
+     * indexed yet is in scope, so this only needs calling by hand when an
+     * existing item's aliases change.
+     */
+    public void rebuildNameIndex() {
+        buildNameIndex(List.of());
+    }
+    
+    // A fresh index replaces the old one rather than growing it, as other threads may be reading it
+    private synchronized ItemNameResolver buildNameIndex(Collection<String> alsoIndex) {
+        ItemNameResolver resolver = new ItemNameResolver();
+        for (Entity entity : ecs.getEntitiesWithComponent(ItemsComponent.class)) {
+            ecs.getComponent(entity, ItemsComponent.class).getItems().forEach(resolver::addName);
+        }
+        for (Entity entity : ecs.getEntitiesWithComponent(FixedItemsComponent.class)) {
+            ecs.getComponent(entity, FixedItemsComponent.class).getItems().forEach(resolver::addName);
+        }
+        for (Entity entity : ecs.getEntitiesWithComponent(InventoryComponent.class)) {
+            ecs.getComponent(entity, InventoryComponent.class).getItems().forEach(resolver::addName);
+        }
+        for (Entity entity : ecs.getEntitiesWithComponent(AliasesComponent.class)) {
+            addToIndex(resolver, entity.getId());
+        }
+        for (String name : alsoIndex) {
+            if (!resolver.hasName(name)) {
+                addToIndex(resolver, name);
+            }
+        }
+        nameResolver = resolver;
+        return resolver;
+    }
+    
+    private void addToIndex(ItemNameResolver resolver, String name) {
+        resolver.addName(name);
+        AliasesComponent aliases = ecs.getComponent(ecs.createEntity(name), AliasesComponent.class);
+        if (aliases != null) {
+            for (String alias : aliases.getAliases()) {
+                resolver.addAlias(alias, name);
+            }
+        }
+    }
+    
+    /**
+     * Turn what the player typed into the name of an item in scope. If the
+     * input is ambiguous the player is asked which they meant and null is
+     * returned; if nothing matches, the input is returned unchanged so the
+     * caller reports it as usual.
+     */
+    private String resolveItemName(String input, Collection<String> inScope) {
+        ItemNameResolver resolver = nameResolver;
+        if (resolver == null || !indexesAll(resolver, inScope)) {
+            resolver = buildNameIndex(inScope);
+        }
+        ItemNameResolver.Resolution resolution = resolver.resolve(input, inScope);
+        if (resolution.isFound()) {
+            return resolution.match;
+        }
+        if (resolution.isAmbiguous()) {
+            ecs.getOutput().println("Which do you mean: " + String.join(" or ", resolution.candidates) + "?");
+            return null;
+        }
+        return input;
+    }
+    
+    private static boolean indexesAll(ItemNameResolver resolver, Collection<String> names) {
+        for (String name : names) {
+            if (!resolver.hasName(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Move an item between holders, keeping the cached weight/volume totals of
+     * every container and inventory above both ends up to date
+     */
+    public ItemTransfer.Result moveItem(Entity fromOwner, ItemHolder from, Entity toOwner, ItemHolder to, String itemName) {
+        Entity item = ecs.createEntity(itemName);
+        // The holders above each end are checked and adjusted under their locks
+        // along with the transfer itself. Which holders those are can only change
+        // by moving one of them, which needs a lock already held, so if they are
+        // the same once locked they stay that way.
+        while (true) {
+            List<Entity> involved = lockedForMove(fromOwner, toOwner, item);
+            ItemTransfer.Result result = transfers.withLocks(involved,
+                () -> lockedForMove(fromOwner, toOwner, item).equals(involved)
+                    ? moveLocked(fromOwner, from, toOwner, to, item) : null);
+            if (result != null) {
+                return result;
+            }
+        }
+    }
+    
+    // The item (its content weight), both ends, and every holder above either end
+    private List<Entity> lockedForMove(Entity fromOwner, Entity toOwner, Entity item) {
+        List<Entity> involved = new ArrayList<>();
+        involved.add(item);
+        for (Entity owner = fromOwner; owner != null; owner = parentOf(owner)) {
+            involved.add(owner);
+        }
+        for (Entity owner = toOwner; owner != null; owner = parentOf(owner)) {
+            involved.add(owner);
+        }
+        return involved;
+    }
+    
+    private ItemTransfer.Result moveLocked(Entity fromOwner, ItemHolder from, Entity toOwner, ItemHolder to, Entity item) {
+        ItemPropertiesComponent properties = ecs.getComponent(item, ItemPropertiesComponent.class);
+        ContainerComponent asContainer = ecs.getComponent(item, ContainerComponent.class);
+        double weight = properties != null ? properties.weight : ItemPropertiesComponent.DEFAULT_WEIGHT;
+        double volume = properties != null ? properties.volume : ItemPropertiesComponent.DEFAULT_VOLUME;
+        if (asContainer != null) {
+            weight += asContainer.getContentWeight();
+        }
+        
+        // Whatever holds the destination has to be able to take the extra weight too,
+        // unless it also holds the source, in which case its total doesn't change.
+        // Volume only counts against the direct container: a bag takes up its own
+        // volume in whatever holds it, however full it is.
+        for (Entity ancestor = parentOf(toOwner); ancestor != null; ancestor = parentOf(ancestor)) {
+            ItemHolder holder = holderOf(ancestor);
+            if (holder != null && !isWithin(fromOwner, ancestor.getId()) && !holder.hasRoomFor(weight, 0.0)) {
+                return ItemTransfer.Result.NO_ROOM;
+            }
+        }
+        
+        boolean toHoldsFrom = isWithin(fromOwner, toOwner.getId());
+        ItemTransfer.Result result = transfers.transfer(fromOwner, from, toOwner, to, item.getId(), weight, volume, toHoldsFrom);
+        if (result == ItemTransfer.Result.MOVED) {
+            adjustAncestors(fromOwner, -weight);
+            adjustAncestors(toOwner, weight);
+            if (asContainer != null) {
+                asContainer.setParent(toOwner.getId());
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Whether a container is the given entity or sits somewhere inside it
+     */
+    private boolean isWithin(Entity entity, String containerName) {
+        for (Entity current = entity; current != null; current = parentOf(current)) {
+            if (current.getId().equals(containerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void adjustAncestors(Entity owner, double weight) {
+        for (Entity ancestor = parentOf(owner); ancestor != null; ancestor = parentOf(ancestor)) {
+            ItemHolder holder = holderOf(ancestor);
+            if (holder != null) {
+                transfers.adjustLoad(ancestor, holder, weight, 0.0);
+            }
+        }
+    }
+    
+    // Only containers have a parent; rooms and inventory owners are roots
+    private Entity parentOf(Entity owner) {
+        ContainerComponent container = ecs.getComponent(owner, ContainerComponent.class);
+        if (container == null || container.getParent() == null) {
+            return null;
+        }
+        return ecs.createEntity(container.getParent());
+    }
+    
+    private ItemHolder holderOf(Entity owner) {
+        ContainerComponent container = ecs.getComponent(owner, ContainerComponent.class);
+        if (container != null) return container;
+        InventoryComponent inventory = ecs.getComponent(owner, InventoryComponent.class);
+        if (inventory != null) return inventory;
+        return ecs.getComponent(owner, ItemsComponent.class);
+    }
+    
+    /**
+     * List a container's contents, descending into nested containers, e.g.
+     * "tank, bag (wrench, rope)". Only the container's own subtree is visited.
+     */
+    public String describeContents(String containerName) {
+        ContainerComponent container = ecs.getComponent(ecs.createEntity(containerName), ContainerComponent.class);
+        if (container == null) {
+            return "";
+        }
+        List<String> parts = new ArrayList<>();
+        for (String item : container.getItems()) {
+            ContainerComponent nested = ecs.getComponent(ecs.createEntity(item), ContainerComponent.class);
+            if (nested != null && !nested.getItems().isEmpty()) {
+                parts.add(item + " (" + describeContents(item) + ")");
+            } else {
+                parts.add(item);
+            }
+        }
+        return String.join(", ", parts);
+    }
+    
+    public boolean takeItemFrom(Entity player, String itemName, String containerName) {
+        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
+        InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
+        
+        if (position == null || inventory == null) {
+            return false;
+        }
+        
+        Entity currentRoom = ecs.createEntity(position.room);
+        List<String> reachable = new ArrayList<>(inventory.getItems());
+        ItemsComponent roomItems = ecs.getComponent(currentRoom, ItemsComponent.class);
+        FixedItemsComponent fixedRoomItems = ecs.getComponent(currentRoom, FixedItemsComponent.class);
+        if (roomItems != null) reachable.addAll(roomItems.getItems());
+        if (fixedRoomItems != null) reachable.addAll(fixedRoomItems.getItems());
+        
+        containerName = resolveItemName(containerName, reachable);
+        if (containerName == null) {
+            return false;
+        }
+        Entity container = ecs.createEntity(containerName);
+        ContainerComponent contents = ecs.getComponent(container, ContainerComponent.class);
+        if (!reachable.contains(containerName) || contents == null) {
+            ecs.getOutput().println("You don't see that here.");
+            return false;
+        }
+        
+        itemName = resolveItemName(itemName, contents.getItems());
+        if (itemName == null) {
+            return false;
+        }
+        
+        switch (moveItem(container, contents, player, inventory, itemName)) {
+            case MOVED:
+                ecs.getOutput().println("You take the " + itemName + " from the " + containerName + ".");
+                return true;
+            case NO_ROOM:
+                ecs.getOutput().println("You can't carry that much.");
+                return false;
+            default:
+                ecs.getOutput().println("There's no " + itemName + " in the " + containerName + ".");
+                return false;
+        }
+    }
+    
+    public boolean takeItem(Entity player, String itemName) {
         PositionComponent position = ecs.getComponent(player, PositionComponent.class);
         InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
         
@@ -25,84 +272,275 @@ public class ItemSystem implements Esystem {
         // Check if item exists in current room
         Entity currentRoom = ecs.createEntity(position.room);
         ItemsComponent roomItems = ecs.getComponent(currentRoom, ItemsComponent.class);
+        if (roomItems != null) {
+            itemName = resolveItemName(itemName, roomItems.getItems());
+            if (itemName == null) {
+                return false;
+            }
+        }
         
         if (roomItems == null || !roomItems.hasItem(itemName)) {
-            System.out.println("You can't take that.");
+            ecs.getOutput().println("You can't take that.");
             return false;
         }
         
-        // Check if inventory has space
-        if (inventory.isFull()) {
-            System.out.println("Your inventory is full.");
+        // Transfer item from room to inventory
+        switch (moveItem(currentRoom, roomItems, player, inventory, itemName)) {
+            case MOVED:
+                ecs.getOutput().println("You take the " + itemName + ".");
+                return true;
+            case NO_ROOM:
+                ecs.getOutput().println(inventory.isFull() ? "Your inventory is full." : "You can't carry that much.");
+                return false;
+            default:
+                // Someone else got to it first
+                ecs.getOutput().println("You can't take that.");
+                return false;
+        }
+    }
+    
+    public boolean dropItem(Entity player, String itemName) {
+        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
+        InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
+        
+        if (position == null || inventory == null) {
             return false;
         }
         
-        // Transfer item from room to inventory
-        if (inventory.addItem(itemName)) {
-            roomItems.removeItem(itemName);
-            System.out.println("You take the " + itemName + ".");
+        itemName = resolveItemName(itemName, inventory.getItems());
+        if (itemName == null) {
+            return false;
+        }
+        
+        if (refuseIfWorn(player, itemName)) {
+            return false;
+        }
+        
+        Entity currentRoom = ecs.createEntity(position.room);
+        ItemsComponent roomItems = ecs.getComponent(currentRoom, ItemsComponent.class);
+        if (roomItems != null
+                && moveItem(player, inventory, currentRoom, roomItems, itemName) == ItemTransfer.Result.MOVED) {
+            ecs.getOutput().println("You drop the " + itemName + ".");
             return true;
         }
         
+        ecs.getOutput().println("You aren't carrying that.");
         return false;
     }
     
-    public boolean wearItem(String itemName) {
-        Entity player = ecs.createEntity(PLAYER);
+    public boolean putItem(Entity player, String itemName, String containerName) {
+        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
         InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
-        EquipmentComponent equipment = ecs.getComponent(player, EquipmentComponent.class);
         
-        if (inventory == null || equipment == null) {
+        if (position == null || inventory == null) {
+            return false;
+        }
+        
+        // The container can be lying in the room or carried
+        Entity currentRoom = ecs.createEntity(position.room);
+        List<String> reachable = new ArrayList<>(inventory.getItems());
+        ItemsComponent roomItems = ecs.getComponent(currentRoom, ItemsComponent.class);
+        FixedItemsComponent fixedRoomItems = ecs.getComponent(currentRoom, FixedItemsComponent.class);
+        if (roomItems != null) reachable.addAll(roomItems.getItems());
+        if (fixedRoomItems != null) reachable.addAll(fixedRoomItems.getItems());
+        
+        containerName = resolveItemName(containerName, reachable);
+        if (containerName == null) {
+            return false;
+        }
+        if (!reachable.contains(containerName)) {
+            ecs.getOutput().println("You don't see that here.");
             return false;
         }
         
-        // Check for vac-suit specifically
-        if (itemName.equals("vac-suit")) {
-            if (!inventory.hasItem("vac-suit")) {
-                System.out.println("You don't have a vac-suit to wear.");
+        Entity container = ecs.createEntity(containerName);
+        ContainerComponent contents = ecs.getComponent(container, ContainerComponent.class);
+        if (contents == null) {
+            ecs.getOutput().println("You can't put things in the " + containerName + ".");
+            return false;
+        }
+        
+        itemName = resolveItemName(itemName, inventory.getItems());
+        if (itemName == null) {
+            return false;
+        }
+        if (refuseIfWorn(player, itemName)) {
+            return false;
+        }
+        if (isWithin(container, itemName)) {
+            ecs.getOutput().println("You can't put the " + itemName + " inside itself.");
+            return false;
+        }
+        
+        switch (moveItem(player, inventory, container, contents, itemName)) {
+            case MOVED:
+                ecs.getOutput().println("You put the " + itemName + " in the " + containerName + ".");
+                return true;
+            case NO_ROOM:
+                ecs.getOutput().println("The " + containerName + " is full.");
                 return false;
-            }
-            
-            if (equipment.isEquipped(EquipmentComponent.EquipmentSlot.VAC_SUIT)) {
-                System.out.println("You're already wearing a vac-suit.");
+            default:
+                ecs.getOutput().println("You aren't carrying that.");
                 return false;
+        }
+    }
+    
+    public boolean giveItem(Entity player, String itemName, String recipientName) {
+        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
+        InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
+        
+        if (position == null || inventory == null) {
+            return false;
+        }
+        
+        // Only someone in the same room can be handed something
+        Entity recipient = null;
+        for (Entity occupant : ecs.getOccupancy().getOccupants(position.room, player)) {
+            if (occupant.getId().equalsIgnoreCase(ItemNameResolver.normalize(recipientName))) {
+                recipient = occupant;
             }
-            
-            equipment.equipItem(EquipmentComponent.EquipmentSlot.VAC_SUIT, "vac-suit");
-            System.out.println("You don the vac-suit.");
-            return true;
+        }
+        InventoryComponent recipientInventory = recipient != null
+            ? ecs.getComponent(recipient, InventoryComponent.class) : null;
+        if (recipientInventory == null) {
+            ecs.getOutput().println("There's no one here by that name.");
+            return false;
+        }
+        
+        itemName = resolveItemName(itemName, inventory.getItems());
+        if (itemName == null || refuseIfWorn(player, itemName)) {
+            return false;
         }
         
-        System.out.println("You can't wear that.");
+        switch (moveItem(player, inventory, recipient, recipientInventory, itemName)) {
+            case MOVED:
+                ecs.getOutput().println("You give the " + itemName + " to " + recipient.getId() + ".");
+                PlayerSystem players = ecs.getSystem(PlayerSystem.class);
+                if (players != null) {
+                    players.tell(recipient, player.getId() + " gives you the " + itemName + ".");
+                }
+                return true;
+            case NO_ROOM:
+                ecs.getOutput().println(recipient.getId() + " can't carry any more.");
+                return false;
+            default:
+                ecs.getOutput().println("You aren't carrying that.");
+                return false;
+        }
+    }
+    
+    // Worn items stay in the inventory too, so anything handing one over must check first
+    private boolean refuseIfWorn(Entity player, String itemName) {
+        EquipmentComponent equipment = ecs.getComponent(player, EquipmentComponent.class);
+        if (equipment != null && equipment.findSlot(itemName) != null) {
+            ecs.getOutput().println("You'll need to remove the " + itemName + " first.");
+            return true;
+        }
         return false;
     }
     
-    public boolean removeItem(String itemName) {
-        Entity player = ecs.createEntity(PLAYER);
+    /**
+     * Move an item from an entity's room into its inventory without any output.
+     * Used by non-player entities such as NPCs.
+     */
+    public boolean pickUp(Entity holder, String itemName) {
+        PositionComponent position = ecs.getComponent(holder, PositionComponent.class);
+        InventoryComponent inventory = ecs.getComponent(holder, InventoryComponent.class);
+        if (position == null || inventory == null) {
+            return false;
+        }
+        
+        Entity room = ecs.createEntity(position.room);
+        ItemsComponent roomItems = ecs.getComponent(room, ItemsComponent.class);
+        return roomItems != null
+            && moveItem(room, roomItems, holder, inventory, itemName) == ItemTransfer.Result.MOVED;
+    }
+    
+    /**
+     * Move an item from an entity's inventory into its room without any output
+     */
+    public boolean putDown(Entity holder, String itemName) {
+        PositionComponent position = ecs.getComponent(holder, PositionComponent.class);
+        InventoryComponent inventory = ecs.getComponent(holder, InventoryComponent.class);
+        if (position == null || inventory == null) {
+            return false;
+        }
+        
+        Entity room = ecs.createEntity(position.room);
+        ItemsComponent roomItems = ecs.getComponent(room, ItemsComponent.class);
+        return roomItems != null
+            && moveItem(holder, inventory, room, roomItems, itemName) == ItemTransfer.Result.MOVED;
+    }
+    
+    public boolean wearItem(Entity player, String itemName) {
+        InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
+        EquipmentComponent equipment = ecs.getComponent(player, EquipmentComponent.class);
+        
+        if (inventory == null || equipment == null) {
+            return false;
+        }
+        
+        itemName = resolveItemName(itemName, inventory.getItems());
+        if (itemName == null) {
+            return false;
+        }
+        
+        // What can be worn, and where, comes from the item's definition
+        WearableComponent wearable = ecs.getComponent(ecs.createEntity(itemName), WearableComponent.class);
+        if (wearable == null) {
+            ecs.getOutput().println("You can't wear that.");
+            return false;
+        }
+        
+        if (!inventory.hasItem(itemName)) {
+            ecs.getOutput().println("You don't have a " + itemName + " to wear.");
+            return false;
+        }
+        
+        if (equipment.isEquipped(wearable.slot)) {
+            ecs.getOutput().println("You're already wearing a " + equipment.getEquippedItem(wearable.slot) + ".");
+            return false;
+        }
+        
+        equipment.equipItem(wearable.slot, itemName, wearable.effects);
+        ecs.getOutput().println("You don the " + itemName + ".");
+        return true;
+    }
+    
+    public boolean removeItem(Entity player, String itemName) {
         EquipmentComponent equipment = ecs.getComponent(player, EquipmentComponent.class);
         
         if (equipment == null) {
             return false;
         }
         
-        // Check for vac-suit specifically
-        if (itemName.equals("vac-suit")) {
-            if (!equipment.isEquipped(EquipmentComponent.EquipmentSlot.VAC_SUIT)) {
-                System.out.println("You're not wearing a vac-suit.");
-                return false;
+        List<String> worn = new ArrayList<>();
+        for (EquipmentComponent.EquipmentSlot slot : EquipmentComponent.EquipmentSlot.values()) {
+            if (equipment.isEquipped(slot)) {
+                worn.add(equipment.getEquippedItem(slot));
             }
-            
-            equipment.unequipItem(EquipmentComponent.EquipmentSlot.VAC_SUIT);
-            System.out.println("You remove the vac-suit.");
-            return true;
+        }
+        itemName = resolveItemName(itemName, worn);
+        if (itemName == null) {
+            return false;
         }
         
-        System.out.println("You're not wearing that.");
-        return false;
+        EquipmentComponent.EquipmentSlot slot = equipment.findSlot(itemName);
+        if (slot == null) {
+            if (ecs.hasComponent(ecs.createEntity(itemName), WearableComponent.class)) {
+                ecs.getOutput().println("You're not wearing a " + itemName + ".");
+            } else {
+                ecs.getOutput().println("You're not wearing that.");
+            }
+            return false;
+        }
+        
+        equipment.unequipItem(slot);
+        ecs.getOutput().println("You remove the " + itemName + ".");
+        return true;
     }
     
-    public void examineItem(String itemName) {
-        Entity player = ecs.createEntity(PLAYER);
+    public void examineItem(Entity player, String itemName) {
         PositionComponent position = ecs.getComponent(player, PositionComponent.class);
         
         if (position == null) {
@@ -113,6 +551,16 @@ public class ItemSystem implements Esystem {
         Entity currentRoom = ecs.createEntity(position.room);
         ItemsComponent roomItems = ecs.getComponent(currentRoom, ItemsComponent.class);
         FixedItemsComponent fixedRoomItems = ecs.getComponent(currentRoom, FixedItemsComponent.class);
+        InventoryComponent carried = ecs.getComponent(player, InventoryComponent.class);
+        
+        List<String> inScope = new ArrayList<>();
+        if (roomItems != null) inScope.addAll(roomItems.getItems());
+        if (fixedRoomItems != null) inScope.addAll(fixedRoomItems.getItems());
+        if (carried != null) inScope.addAll(carried.getItems());
+        itemName = resolveItemName(itemName, inScope);
+        if (itemName == null) {
+            return;
+        }
         
         boolean itemExists = false;
         if (roomItems != null && roomItems.hasItem(itemName)) {
@@ -126,7 +574,7 @@ public class ItemSystem implements Esystem {
         	// check if not in inventory
             InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
             if (!inventory.getItems().contains(itemName)) {
-            	System.out.println("You don't see that here.");
+            	ecs.getOutput().println("You don't see that here.");
             	return;
             }
         }
@@ -138,7 +586,16 @@ public class ItemSystem implements Esystem {
         else { // if no inventory-specific description exists for item, will return the default description
         	description = itemDescriptionSystem.getItemDescription(itemName, "Inventory");
         }
-		System.out.println(description);
+		ecs.getOutput().println(description);
+        
+        ContainerComponent container = ecs.getComponent(ecs.createEntity(itemName), ContainerComponent.class);
+        if (container != null) {
+            if (container.getItems().isEmpty()) {
+                ecs.getOutput().println("The " + itemName + " is empty.");
+            } else {
+                ecs.getOutput().println("The " + itemName + " contains: " + describeContents(itemName) + ".");
+            }
+        }
     }
     
     public String getItemDescription(String item, String room) {
@@ -0,0 +1,140 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Moves items between holders as a single atomic step
+ * 
+ * Checking the source, checking room at the destination, removing and adding
+ * all happen while holding the locks of both holders' entities, so two
+ * players grabbing the same item at once can never both get it, and an item
+ * is never in two places (or none) at any moment another transfer can see.
+ * Locks are striped by entity id and always taken in stripe order, so
+ * transfers in opposite directions cannot deadlock. A move that also has to
+ * check and adjust the holders above both ends runs inside withLocks, which
+ * takes all of their locks in the same order.
+ */
+public class ItemTransfer {
+    private final ReentrantLock[] stripes;
+    
+    public ItemTransfer(int stripeCount) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+    
+    public ItemTransfer() {
+        this(64);
+    }
+    
+    /**
+     * Move an item from one holder to another
+     * 
+     * @param fromOwner the entity that owns the source holder (room, player, container)
+     * @param toOwner the entity that owns the destination holder
+     * @param weight the item's weight including anything inside it
+     * @param volume the item's volume
+     * @param toHoldsFrom whether the destination already holds the source (taking
+     *        something out of a carried bag), so the weight is already counted there
+     */
+    public Result transfer(Entity fromOwner, ItemHolder from, Entity toOwner, ItemHolder to,
+                           String item, double weight, double volume, boolean toHoldsFrom) {
+        int first = stripeOf(fromOwner);
+        int second = stripeOf(toOwner);
+        if (first > second) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        
+        stripes[first].lock();
+        if (second != first) {
+            stripes[second].lock();
+        }
+        try {
+            if (!from.hasItem(item)) {
+                return Result.NOT_PRESENT;
+            }
+            if (!to.canAccept(item) || !to.hasRoomFor(toHoldsFrom ? 0.0 : weight, volume)) {
+                return Result.NO_ROOM;
+            }
+            from.removeItem(item);
+            from.adjustLoad(-weight, -volume);
+            to.addItem(item);
+            to.adjustLoad(weight, volume);
+            return Result.MOVED;
+        } finally {
+            if (second != first) {
+                stripes[second].unlock();
+            }
+            stripes[first].unlock();
+        }
+    }
+    
+    /**
+     * Run an action holding the locks of all the given entities, taken in
+     * stripe order. The locks are reentrant, so the action may call transfer
+     * and adjustLoad on the same entities.
+     */
+    public <T> T withLocks(List<Entity> owners, Supplier<T> action) {
+        int[] order = new int[owners.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = stripeOf(owners.get(i));
+        }
+        Arrays.sort(order);
+        int locked = 0;
+        try {
+            for (; locked < order.length; locked++) {
+                if (locked == 0 || order[locked] != order[locked - 1]) {
+                    stripes[order[locked]].lock();
+                }
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                if (i == 0 || order[i] != order[i - 1]) {
+                    stripes[order[i]].unlock();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Adjust the cached totals of a holder further up the tree under its lock
+     */
+    public void adjustLoad(Entity owner, ItemHolder holder, double weight, double volume) {
+        ReentrantLock lock = stripes[stripeOf(owner)];
+        lock.lock();
+        try {
+            holder.adjustLoad(weight, volume);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Run a read of one holder under its lock, for a consistent view while
+     * other threads may be transferring
+     */
+    public <T> T read(Entity owner, java.util.function.Supplier<T> reader) {
+        ReentrantLock lock = stripes[stripeOf(owner)];
+        lock.lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private int stripeOf(Entity owner) {
+        return (owner.hashCode() & Integer.MAX_VALUE) % stripes.length;
+    }
+    
+    public enum Result {
+        MOVED,
+        NOT_PRESENT,
+        NO_ROOM
+    }
+}
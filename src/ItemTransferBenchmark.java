@@ -0,0 +1,203 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency stress test for ItemTransfer
+ * 
+ * Many entities share one room holding a single wrench (and a few other
+ * items). Each runs on its own thread, grabbing and dropping items as fast
+ * as it can. At the end every item must exist exactly once across the room
+ * and all inventories, and each entity's successful takes minus drops must
+ * match what it is holding.
+ * 
+ * Then one crew member carries several bags, and a thread per bag fills its
+ * bag from the floor at the same time. The member's weight limit must hold
+ * however the puts interleave, and an item taken out of a carried bag when
+ * the member is at the limit must still fit, as its weight is already
+ * carried. Exits with status 1 if any check fails.
+ * 
+ * Usage: java ItemTransferBenchmark [threads] [iterations]
+ */
+public class ItemTransferBenchmark {
+    private static final String[] ITEMS = {"wrench", "tank", "tarp", "console"};
+    
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        
+        ECS ecs = ECS.createWorld();
+        ecs.registerSystem(new MovementSystem(ecs));
+        ItemSystem itemSystem = new ItemSystem(ecs);
+        ecs.registerSystem(itemSystem);
+        
+        Entity room = ecs.createEntity("Engine");
+        ecs.addComponent(room, new RoomComponent("Engine"));
+        ItemsComponent floor = new ItemsComponent();
+        for (String item : ITEMS) {
+            floor.addItem(item);
+        }
+        ecs.addComponent(room, floor);
+        
+        List<Entity> crew = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Entity member = ecs.createEntity("crew-" + i);
+            ecs.addComponent(member, new InventoryComponent(2));
+            ecs.getSystem(MovementSystem.class).placeEntity(member, "Engine");
+            crew.add(member);
+        }
+        
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] takes = new long[threads];
+        long[] drops = new long[threads];
+        AtomicLong operations = new AtomicLong();
+        
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            final Entity member = crew.get(t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < iterations; i++) {
+                    String item = ITEMS[(i + id) % ITEMS.length];
+                    if (((i / ITEMS.length) & 1) == 0) {
+                        if (itemSystem.pickUp(member, item)) takes[id]++;
+                    } else {
+                        if (itemSystem.putDown(member, item)) drops[id]++;
+                    }
+                }
+                operations.addAndGet(iterations);
+                done.countDown();
+            });
+            worker.start();
+        }
+        
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        
+        boolean consistent = true;
+        for (String item : ITEMS) {
+            int copies = count(floor.getItems(), item);
+            for (Entity member : crew) {
+                copies += count(ecs.getComponent(member, InventoryComponent.class).getItems(), item);
+            }
+            if (copies != 1) {
+                System.out.println("Item " + item + " exists " + copies + " times!");
+                consistent = false;
+            }
+        }
+        for (int t = 0; t < threads; t++) {
+            int held = ecs.getComponent(crew.get(t), InventoryComponent.class).getItems().size();
+            if (takes[t] - drops[t] != held) {
+                System.out.println("crew-" + t + " took " + takes[t] + ", dropped " + drops[t] + " but holds " + held);
+                consistent = false;
+            }
+        }
+        
+        System.out.println("Threads: " + threads + ", attempts: " + operations.get());
+        System.out.printf("Transfers/s: %.0f%n", operations.get() / (elapsed / 1e9));
+        System.out.println(consistent ? "No items lost or duplicated." : "INCONSISTENT");
+        boolean limits = checkNestedLimits(ecs, itemSystem, Math.max(2, Math.min(threads, 8)), 500);
+        System.out.println(limits ? "Weight limit held for bags carried by one member." : "LIMIT BROKEN");
+        consistent &= limits;
+        System.out.println(consistent ? "PASS" : "FAIL");
+        if (!consistent) {
+            System.exit(1);
+        }
+    }
+    
+    private static boolean checkNestedLimits(ECS ecs, ItemSystem itemSystem, int bags, int rounds)
+            throws InterruptedException {
+        double limit = 10.0;
+        Entity carrier = ecs.createEntity("carrier");
+        InventoryComponent inventory = new InventoryComponent(bags + 1, limit);
+        ecs.addComponent(carrier, inventory);
+        Entity hold = ecs.createEntity("Hold");
+        ItemsComponent floor = new ItemsComponent();
+        ecs.addComponent(hold, floor);
+        List<Entity> bagEntities = new ArrayList<>();
+        for (int b = 0; b < bags; b++) {
+            Entity bag = ecs.createEntity("bag-" + b);
+            ContainerComponent container = new ContainerComponent(100.0, 100.0);
+            container.setParent(carrier.getId());
+            ecs.addComponent(bag, container);
+            inventory.addItem(bag.getId());
+            inventory.adjustLoad(ItemPropertiesComponent.DEFAULT_WEIGHT, 0.0);
+            bagEntities.add(bag);
+            for (int i = 0; i < limit; i++) {
+                floor.addItem("ore-" + b + "-" + i);
+            }
+        }
+        
+        boolean ok = true;
+        for (int round = 0; round < rounds && ok; round++) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int b = 0; b < bags; b++) {
+                final int bagIndex = b;
+                final Entity bag = bagEntities.get(b);
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    ContainerComponent contents = ecs.getComponent(bag, ContainerComponent.class);
+                    for (int i = 0; i < limit; i++) {
+                        itemSystem.moveItem(hold, floor, bag, contents, "ore-" + bagIndex + "-" + i);
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            if (inventory.getCarriedWeight() > limit) {
+                System.out.println("round " + round + ": carrying " + inventory.getCarriedWeight() + " of " + limit);
+                ok = false;
+            }
+            
+            // At the limit, an item out of a bag into the inventory changes nothing
+            Entity fullest = null;
+            for (Entity bag : bagEntities) {
+                if (!ecs.getComponent(bag, ContainerComponent.class).getItems().isEmpty()) {
+                    fullest = bag;
+                }
+            }
+            if (ok && fullest != null && inventory.getCarriedWeight() == limit) {
+                ContainerComponent contents = ecs.getComponent(fullest, ContainerComponent.class);
+                String ore = contents.getItems().get(0);
+                if (itemSystem.moveItem(fullest, contents, carrier, inventory, ore) != ItemTransfer.Result.MOVED) {
+                    System.out.println("round " + round + ": couldn't take " + ore + " out of " + fullest.getId() + " at the limit");
+                    ok = false;
+                } else {
+                    itemSystem.moveItem(carrier, inventory, hold, floor, ore);
+                }
+            }
+            for (Entity bag : bagEntities) {
+                ContainerComponent contents = ecs.getComponent(bag, ContainerComponent.class);
+                for (String ore : new ArrayList<>(contents.getItems())) {
+                    itemSystem.moveItem(bag, contents, hold, floor, ore);
+                }
+            }
+        }
+        return ok;
+    }
+    
+    private static int count(List<String> items, String item) {
+        int n = 0;
+        for (String candidate : items) {
+            if (candidate.equals(item)) n++;
+        }
+        return n;
+    }
+}
@@ -8,15 +8,19 @@ import java.util.Collections;
  * This component maintains a list of items present in a room entity.
  * Items can be picked up, examined, or interacted with by the player.
  */
-public class ItemsComponent implements Component {
+public class ItemsComponent implements Component, ItemHolder {
     private List<String> items;
     
     public ItemsComponent() {
         items = new ArrayList<>();
     }
     
-    public void addItem(String item) {
-        items.add(item);
+    public boolean canAccept(String item) {
+        return true;
+    }
+    
+    public boolean addItem(String item) {
+        return items.add(item);
     }
     
     public boolean removeItem(String item) {
@@ -30,4 +34,11 @@ public class ItemsComponent implements Component {
     public List<String> getItems() {
         return Collections.unmodifiableList(items);
     }
+    
+    @Override
+    public ItemsComponent copy() {
+        ItemsComponent copy = new ItemsComponent();
+        copy.items.addAll(items);
+        return copy;
+    }
 }
@@ -0,0 +1,14 @@
+/**
+ * COMPONENT class for light sources in the ECS pattern
+ * 
+ * This component gives an entity its own light, from 0 (dark) to 1 (floodlit).
+ * Things outside the ship can only be made out through a window if they are
+ * lit, either by their surroundings or by a light of their own.
+ */
+public class LightComponent implements Component {
+    public final double intensity;
+    
+    public LightComponent(double intensity) {
+        this.intensity = intensity;
+    }
+}
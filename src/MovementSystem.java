@@ -5,13 +5,20 @@ import java.util.Collection;
  */
 public class MovementSystem implements Esystem {
     private ECS ecs;
-    private static final String PLAYER = "player";
-    private static final String OUTSIDE = "outside";
     
     public MovementSystem(ECS ecs) {
         this.ecs = ecs;
     }
     
+    /**
+     * Put an entity in a room directly, e.g. when it is first spawned
+     */
+    public void placeEntity(Entity entity, String roomId) {
+        ecs.removeComponent(entity, PositionComponent.class);
+        ecs.addComponent(entity, new PositionComponent(roomId));
+        ecs.getOccupancy().enter(entity, roomId);
+    }
+    
     public void moveEntity(Entity entity, String direction) {
         PositionComponent position = ecs.getComponent(entity, PositionComponent.class);
         if (position == null) return;
@@ -28,40 +35,59 @@ public class MovementSystem implements Esystem {
         }
         
         // Check special conditions for player movement
-        if (entity.getId().equals(PLAYER)) {
-            if (!checkPlayerMovementConditions(entity, position.room, newRoomId)) {
-                return;
-            }
+        boolean player = ecs.hasComponent(entity, PlayerComponent.class);
+        if (player && !checkPlayerMovementConditions(entity, position.room, newRoomId)) {
+            return;
         }
         
         // Update entity position
-        ecs.removeComponent(entity, PositionComponent.class);
-        ecs.addComponent(entity, new PositionComponent(newRoomId));
+        placeEntity(entity, newRoomId);
         
+        // Players see each other come and go; NPCs move in bulk every tick and are not announced
+        if (player) {
+            announceMove(entity, position.room, direction, newRoomId);
+        }
+    }
+    
+    private void announceMove(Entity mover, String from, String direction, String to) {
+        PlayerSystem players = ecs.getSystem(PlayerSystem.class);
+        if (players == null) return;
+        
+        players.broadcast(from, mover, mover.getId() + " leaves " + direction + ".");
+        // Name the way they came by the exit leading back, if there is one
+        ExitsComponent exits = ecs.getComponent(ecs.createEntity(to), ExitsComponent.class);
+        String back = null;
+        if (exits != null) {
+            for (String exit : exits.getDirections()) {
+                if (from.equals(exits.getExit(exit))) {
+                    back = exit;
+                    break;
+                }
+            }
+        }
+        players.broadcast(to, mover, back != null ? mover.getId() + " enters from " + back + "." : mover.getId() + " arrives.");
     }
     
     private boolean checkPlayerMovementConditions(Entity player, String from, String to) {
         // Handle airlock and outside transitions
         DockingComponent docking = ecs.getComponent(ecs.createEntity("docking"), DockingComponent.class);
         EquipmentComponent equipment = ecs.getComponent(player, EquipmentComponent.class);
-        AirlockStateComponent airlock = ecs.getComponent(ecs.createEntity("airlock"), AirlockStateComponent.class);
+        PlayerComponent state = ecs.getComponent(player, PlayerComponent.class);
         
-        // Check if moving to outside space without suit
-        if (to.equals(OUTSIDE) && docking.inSpace && !equipment.isEquipped(EquipmentComponent.EquipmentSlot.VAC_SUIT)) {
-            // Handle immediate death
+        // Content rules, such as needing a suit to go outside in space
+        RuleSystem rules = ecs.getSystem(RuleSystem.class);
+        if (rules != null && !rules.allowsMove(player, from, to)) {
             return false;
         }
         
-        // Track turns in airlock without suit
-        if (from.equals("Airlock") && !equipment.isEquipped(EquipmentComponent.EquipmentSlot.VAC_SUIT) && docking.inSpace) {
-            airlock.incrementTurnsWithoutSuit();
-            if (airlock.turnsWithoutSuit >= 2 && !airlock.cycled) {
+        // Track this player's turns in the airlock without a suit
+        if (from.equals("Airlock") && !equipment.hasEffect(WearableComponent.Effect.VACUUM_RATED) && docking.inSpace) {
+            if (state.addAirlockTurnWithoutSuit()) {
                 // Handle death condition
                 return false;
             }
         } else {
-            airlock.resetTurnsWithoutSuit();
-            airlock.setCycled(false);
+            state.leaveAirlockDanger();
         }
         
         return true;
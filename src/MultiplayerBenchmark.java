@@ -0,0 +1,220 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Load test for many players sharing one ship
+ *
+ * Hundreds of players join the standard ship at the Commons and take turns
+ * issuing random commands (moving about, looking, taking and dropping
+ * things) on one world, one world update per round, as a CommandPipeline
+ * tick would run them. Every command's output is captured as that player's
+ * reply, and each player's audience counts what it hears from others.
+ *
+ * Checks, exiting with status 1 if any fail:
+ *   - every move is heard by exactly the other listening players in the
+ *     rooms at both ends, worked out independently from the occupancy counts
+ *   - a player who joins late still gets the full description of rooms
+ *     everyone else has seen, and the short one on their own second visit
+ *   - two CommandPipeline clients with their own players see each other
+ *     leave, as frames
+ *
+ * Reports commands per second, per-command latency percentiles, and the
+ * cost of a room broadcast through the occupancy index against scanning
+ * every player's position.
+ *
+ * Usage: java MultiplayerBenchmark [players] [rounds] [seed]
+ */
+public class MultiplayerBenchmark {
+    private static final String[] COMMANDS = {
+        "fore", "aft", "port", "starboard", "up", "down", "look", "i",
+        "take wrench", "drop wrench", "take bag", "drop bag", "examine tank"};
+    private static final int BROADCAST_SAMPLES = 20_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int playerCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        ECS world = ECS.createWorld();
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        world.setOutput(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        StarshipAdventure.registerSystems(world);
+        new GameInitializer(world).initializeWorld();
+        PlayerSystem players = world.getSystem(PlayerSystem.class);
+        CommandSystem commands = world.getSystem(CommandSystem.class);
+
+        long[] heard = new long[playerCount];
+        Entity[] crew = new Entity[playerCount];
+        for (int p = 0; p < playerCount; p++) {
+            int listener = p;
+            crew[p] = players.join("crew" + p, "Commons", line -> heard[listener]++);
+        }
+        Arrays.fill(heard, 0);
+        long deliveredAtStart = players.getDeliveredCount();
+        captured.reset();
+        System.out.println("players: " + playerCount + " (plus the console player), rounds: " + rounds);
+
+        // Everyone takes a turn each round, then the world advances once
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] latencies = new long[playerCount * rounds];
+        long replyBytes = 0;
+        long moves = 0;
+        long wrongDeliveries = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int p = 0; p < playerCount; p++) {
+                Entity actor = crew[p];
+                String from = world.getComponent(actor, PositionComponent.class).room;
+                long deliveredBefore = players.getDeliveredCount();
+
+                long begin = System.nanoTime();
+                commands.execute(actor, ParsedCommand.parse(COMMANDS[random.nextInt(COMMANDS.length)]));
+                latencies[round * playerCount + p] = System.nanoTime() - begin;
+                replyBytes += captured.size();
+                captured.reset();
+
+                String to = world.getComponent(actor, PositionComponent.class).room;
+                if (!to.equals(from)) {
+                    moves++;
+                    long expected = listeners(world, players, from) + listeners(world, players, to) - 1;
+                    if (players.getDeliveredCount() - deliveredBefore != expected) {
+                        wrongDeliveries++;
+                    }
+                }
+            }
+            world.update(1.0 + commands.takeWaitedSeconds());
+            captured.reset();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long totalHeard = Arrays.stream(heard).sum();
+
+        Arrays.sort(latencies);
+        System.out.printf("%,d commands in %.2f s: %,.0f commands/s, latency p50=%.1f us p99=%.1f us max=%.1f us%n",
+            latencies.length, seconds, latencies.length / seconds,
+            percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3,
+            latencies[latencies.length - 1] / 1e3);
+        System.out.printf("moves=%,d lines heard from others=%,d (%.1f per move) reply bytes=%,d%n",
+            moves, totalHeard, totalHeard / (double) Math.max(1, moves), replyBytes);
+        boolean deliveries = wrongDeliveries == 0 && totalHeard == players.getDeliveredCount() - deliveredAtStart;
+        System.out.println("moves heard by exactly the players at either end: " + deliveries
+            + (wrongDeliveries > 0 ? " (" + wrongDeliveries + " wrong)" : ""));
+
+        boolean visits = checkLateJoiner(world, players, commands, captured);
+        System.out.println("late joiner gets full descriptions of rooms others have seen: " + visits);
+
+        compareBroadcasts(world, players, crew, random);
+
+        boolean pipeline = checkPipeline();
+        System.out.println("pipeline clients see each other leave: " + pipeline);
+
+        boolean pass = deliveries && visits && pipeline;
+        System.out.println(pass ? "PASS" : "FAIL");
+        if (!pass) {
+            System.exit(1);
+        }
+    }
+
+    // Players in a room who would hear a broadcast there (everyone but the silent console player)
+    private static int listeners(ECS world, PlayerSystem players, String roomId) {
+        int count = 0;
+        for (Entity occupant : world.getOccupancy().getOccupants(roomId, null)) {
+            if (players.isPlayer(occupant) && !occupant.getId().equals("player")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean checkLateJoiner(ECS world, PlayerSystem players, CommandSystem commands,
+                                           ByteArrayOutputStream captured) {
+        Entity late = players.join("latecomer", "Commons", null);
+        String room = world.getComponent(world.createEntity("Commons"), ExitsComponent.class).getExit("fore");
+        DescriptionComponent desc = world.getComponent(world.createEntity(room), DescriptionComponent.class);
+        boolean othersVisited = false;
+        for (Entity player : world.getEntitiesWithComponent(PlayerComponent.class)) {
+            othersVisited |= !player.equals(late) && world.getComponent(player, PlayerComponent.class).hasVisited(room);
+        }
+
+        captured.reset();
+        commands.execute(late, ParsedCommand.parse("fore"));
+        String first = captured.toString(StandardCharsets.UTF_8);
+        commands.execute(late, ParsedCommand.parse("aft"));
+        captured.reset();
+        commands.execute(late, ParsedCommand.parse("fore"));
+        String second = captured.toString(StandardCharsets.UTF_8);
+        captured.reset();
+        players.leave(late);
+
+        return othersVisited && !first.startsWith(desc.shortDesc + System.lineSeparator())
+            && second.startsWith(desc.shortDesc + System.lineSeparator());
+    }
+
+    // A broadcast to one room: walking its occupants against checking where every player is
+    private static void compareBroadcasts(ECS world, PlayerSystem players, Entity[] crew, SplittableRandom random) {
+        List<String> rooms = new ArrayList<>();
+        for (Entity room : world.getEntitiesWithComponent(RoomComponent.class)) {
+            rooms.add(room.getId());
+        }
+        long[] sink = new long[1];
+        Entity[] listeners = crew.clone();
+        for (int pass = 0; pass < 2; pass++) {
+            long indexed = 0;
+            long scanned = 0;
+            for (int i = 0; i < BROADCAST_SAMPLES; i++) {
+                String room = rooms.get(random.nextInt(rooms.size()));
+                long begin = System.nanoTime();
+                players.broadcast(room, null, "A klaxon sounds.");
+                indexed += System.nanoTime() - begin;
+
+                begin = System.nanoTime();
+                for (Entity listener : listeners) {
+                    if (room.equals(world.getComponent(listener, PositionComponent.class).room)) {
+                        sink[0]++;
+                    }
+                }
+                scanned += System.nanoTime() - begin;
+            }
+            if (pass == 1) {
+                System.out.printf("room broadcast: occupancy index %.2f us, scanning all %d players %.2f us (%.1fx)%n",
+                    indexed / 1e3 / BROADCAST_SAMPLES, listeners.length, scanned / 1e3 / BROADCAST_SAMPLES,
+                    scanned / (double) Math.max(1, indexed));
+            }
+        }
+    }
+
+    // Two clients, each its own player, in the same room; one walks out
+    private static boolean checkPipeline() throws InterruptedException {
+        ECS world = ECS.createWorld();
+        world.setOutput(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        StarshipAdventure.registerSystems(world);
+        new GameInitializer(world).initializeWorld();
+        PlayerSystem players = world.getSystem(PlayerSystem.class);
+
+        ConcurrentLinkedQueue<String> seenByBo = new ConcurrentLinkedQueue<>();
+        try (CommandPipeline pipeline = new CommandPipeline(world, 1, 64, 16)) {
+            Entity ana = players.join("ana", "Commons", line -> pipeline.send("ana", line + "\n"));
+            Entity bo = players.join("bo", "Commons", line -> pipeline.send("bo", line + "\n"));
+            pipeline.register("ana", ana, frame -> { });
+            pipeline.register("bo", bo, frame -> seenByBo.add(CommandPipeline.decodeFrame(frame)));
+
+            pipeline.submit("ana", "aft".getBytes(StandardCharsets.UTF_8));
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (System.nanoTime() < deadline && !seenByBo.contains("ana leaves aft.\n")) {
+                pipeline.tick(0.0);
+                Thread.sleep(1);
+            }
+            return seenByBo.contains("ana leaves aft.\n")
+                && world.getComponent(ana, PositionComponent.class).room.equals("Engine");
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+}
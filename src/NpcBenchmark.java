@@ -0,0 +1,96 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark for NpcSystem
+ *
+ * Builds a number of small ring-shaped ships in one world, fills them with
+ * wandering NPCs, and reports ticks per second for increasing core counts.
+ * Every run starts from the same seeds, and the final layout is hashed so it
+ * is easy to see that the result does not depend on the number of cores.
+ *
+ * Usage: java NpcBenchmark [npcs] [ships] [ticks]
+ */
+public class NpcBenchmark {
+    private static final String[] RING = {"fore", "aft"};
+
+    public static void main(String[] args) {
+        int npcCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int ships = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int maxCores = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("NPCs: " + npcCount + ", ships: " + ships + ", ticks: " + ticks);
+        for (int cores = 1; cores <= maxCores; cores *= 2) {
+            run(npcCount, ships, ticks, cores);
+            if (cores < maxCores && cores * 2 > maxCores) {
+                run(npcCount, ships, ticks, maxCores);
+            }
+        }
+    }
+
+    private static void run(int npcCount, int ships, int ticks, int cores) {
+        ECS ecs = ECS.createWorld();
+        ecs.registerSystem(new MovementSystem(ecs));
+        ecs.registerSystem(new ItemSystem(ecs));
+        NpcSystem npcSystem = new NpcSystem(ecs, 0.1);
+        ecs.registerSystem(npcSystem);
+
+        int roomsPerShip = 8;
+        for (int s = 0; s < ships; s++) {
+            buildShip(ecs, s, roomsPerShip);
+        }
+        for (int n = 0; n < npcCount; n++) {
+            int ship = n % ships;
+            String room = roomId(ship, (n / ships) % roomsPerShip);
+            NpcComponent.Behavior behavior = n % 4 == 0 ? NpcComponent.Behavior.PATROL : NpcComponent.Behavior.WANDER;
+            npcSystem.spawnNpc("npc-" + n, room, new NpcComponent(behavior, n * 31L + 7, RING), 4);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(cores);
+        npcSystem.setPool(pool);
+
+        // Warm up before timing
+        for (int i = 0; i < 5; i++) {
+            npcSystem.tick();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            npcSystem.tick();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        double ticksPerSecond = ticks / (elapsed / 1e9);
+        System.out.printf("cores=%2d  ticks/s=%8.1f  ms/tick=%7.2f  layoutHash=%08x%n",
+            cores, ticksPerSecond, elapsed / 1e6 / ticks, layoutHash(ecs, npcCount));
+    }
+
+    private static void buildShip(ECS ecs, int ship, int rooms) {
+        for (int r = 0; r < rooms; r++) {
+            Entity room = ecs.createEntity(roomId(ship, r));
+            ecs.addComponent(room, new RoomComponent(room.getId()));
+            ExitsComponent exits = new ExitsComponent();
+            exits.addExit("fore", roomId(ship, (r + 1) % rooms));
+            exits.addExit("aft", roomId(ship, (r + rooms - 1) % rooms));
+            ecs.addComponent(room, exits);
+            ItemsComponent items = new ItemsComponent();
+            if (r % 2 == 0) {
+                items.addItem("crate-" + r);
+            }
+            ecs.addComponent(room, items);
+        }
+    }
+
+    private static String roomId(int ship, int room) {
+        return "ship" + ship + ":room" + room;
+    }
+
+    private static int layoutHash(ECS ecs, int npcCount) {
+        int hash = 1;
+        for (int n = 0; n < npcCount; n++) {
+            PositionComponent position = ecs.getComponent(ecs.createEntity("npc-" + n), PositionComponent.class);
+            hash = hash * 31 + position.room.hashCode();
+        }
+        return hash;
+    }
+}
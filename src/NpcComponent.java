@@ -0,0 +1,43 @@
+/**
+ * COMPONENT class for non-player characters in the ECS pattern
+ * 
+ * This component holds the simple behavior state for an NPC or drone:
+ * what it is doing, the route it patrols, and a seed so its choices are
+ * reproducible from one run to the next.
+ */
+public class NpcComponent implements Component {
+    public Behavior behavior;
+    public final String[] schedule;
+    public int scheduleStep;
+    public int restTicks;
+    public final long seed;
+    
+    public NpcComponent(Behavior behavior, long seed, String... schedule) {
+        this.behavior = behavior;
+        this.seed = seed;
+        this.schedule = schedule;
+        this.scheduleStep = 0;
+        this.restTicks = 0;
+    }
+    
+    public String nextScheduledDirection() {
+        if (schedule.length == 0) {
+            return null;
+        }
+        return schedule[scheduleStep % schedule.length];
+    }
+    
+    @Override
+    public NpcComponent copy() {
+        NpcComponent copy = new NpcComponent(behavior, seed, schedule);
+        copy.scheduleStep = scheduleStep;
+        copy.restTicks = restTicks;
+        return copy;
+    }
+    
+    public enum Behavior {
+        IDLE,
+        WANDER,
+        PATROL
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * System that simulates NPCs and drones on a fixed tick
+ *
+ * Each tick runs in two phases. In the decide phase every NPC looks at the
+ * world and records what it wants to do; NPCs are split into fixed partitions
+ * that run in parallel, and nothing in the world is written. In the apply
+ * phase the recorded intents are carried out one NPC at a time in spawn
+ * order through MovementSystem and ItemSystem. Choices come from each NPC's
+ * seed and the tick number rather than a shared Random, so a run gives the
+ * same result regardless of how many threads did the deciding.
+ */
+public class NpcSystem implements Esystem {
+    private static final byte REST = 0;
+    private static final byte MOVE = 1;
+    private static final byte TAKE = 2;
+    private static final byte DROP = 3;
+    private static final int PARTITION_SIZE = 4096;
+
+    private final ECS ecs;
+    private final double tickSeconds;
+    private ForkJoinPool pool;
+    private Entity[] npcs;
+    private NpcComponent[] states;
+    private byte[] intents;
+    private String[] intentArgs;
+    private int count;
+    private long tick;
+    private double accumulator;
+
+    public NpcSystem(ECS ecs, double tickSeconds) {
+        this.ecs = ecs;
+        this.tickSeconds = tickSeconds;
+        this.pool = ForkJoinPool.commonPool();
+        this.npcs = new Entity[16];
+        this.states = new NpcComponent[16];
+        this.intents = new byte[16];
+        this.intentArgs = new String[16];
+    }
+
+    @Override
+    public int getPriority() {
+        return 10;
+    }
+
+    /**
+     * Set the pool used for the decide phase (mainly for benchmarking)
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Create an NPC in a room and start simulating it
+     */
+    public Entity spawnNpc(String id, String roomId, NpcComponent npc, int inventoryCapacity) {
+        Entity entity = ecs.createEntity(id);
+        ecs.addComponent(entity, npc);
+        ecs.addComponent(entity, new InventoryComponent(inventoryCapacity));
+        ecs.getSystem(MovementSystem.class).placeEntity(entity, roomId);
+
+        if (count == npcs.length) {
+            int newLength = count * 2;
+            npcs = Arrays.copyOf(npcs, newLength);
+            states = Arrays.copyOf(states, newLength);
+            intents = Arrays.copyOf(intents, newLength);
+            intentArgs = Arrays.copyOf(intentArgs, newLength);
+        }
+        npcs[count] = entity;
+        states[count] = npc;
+        count++;
+        return entity;
+    }
+
+    public int getNpcCount() {
+        return count;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    @Override
+    public void update(double deltaTime) {
+        accumulator += deltaTime;
+        while (accumulator >= tickSeconds) {
+            accumulator -= tickSeconds;
+            tick();
+        }
+    }
+
+    /**
+     * Run exactly one simulation tick
+     */
+    public void tick() {
+        decideAll();
+        MovementSystem movement = ecs.getSystem(MovementSystem.class);
+        ItemSystem items = ecs.getSystem(ItemSystem.class);
+        for (int i = 0; i < count; i++) {
+            apply(i, movement, items);
+        }
+        tick++;
+    }
+
+    private void decideAll() {
+        int partitions = (count + PARTITION_SIZE - 1) / PARTITION_SIZE;
+        if (partitions <= 1) {
+            decideRange(0, count);
+            return;
+        }
+        List<Future<?>> pending = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            final int from = p * PARTITION_SIZE;
+            final int to = Math.min(count, from + PARTITION_SIZE);
+            pending.add(pool.submit(() -> decideRange(from, to)));
+        }
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new IllegalStateException("NPC decide phase failed", e);
+            }
+        }
+    }
+
+    private void decideRange(int from, int to) {
+        for (int i = from; i < to; i++) {
+            decide(i);
+        }
+    }
+
+    // Reads the world only; writes go to this NPC's intent slot
+    private void decide(int i) {
+        NpcComponent npc = states[i];
+        intents[i] = REST;
+        intentArgs[i] = null;
+        if (npc.restTicks > 0 || npc.behavior == NpcComponent.Behavior.IDLE) {
+            return;
+        }
+
+        PositionComponent position = ecs.getComponent(npcs[i], PositionComponent.class);
+        if (position == null) {
+            return;
+        }
+        Entity room = ecs.createEntity(position.room);
+        long roll = mix(npc.seed, tick);
+
+        if (npc.behavior == NpcComponent.Behavior.PATROL) {
+            intents[i] = MOVE;
+            intentArgs[i] = npc.nextScheduledDirection();
+            return;
+        }
+
+        // Wandering: sometimes fiddle with items, otherwise pick a random exit
+        int choice = (int) (roll & 7);
+        if (choice == 0) {
+            ItemsComponent roomItems = ecs.getComponent(room, ItemsComponent.class);
+            if (roomItems != null && !roomItems.getItems().isEmpty()) {
+                List<String> items = roomItems.getItems();
+                intents[i] = TAKE;
+                intentArgs[i] = items.get((int) ((roll >>> 3) % items.size()));
+                return;
+            }
+        } else if (choice == 1) {
+            InventoryComponent inventory = ecs.getComponent(npcs[i], InventoryComponent.class);
+            if (inventory != null && !inventory.getItems().isEmpty()) {
+                List<String> items = inventory.getItems();
+                intents[i] = DROP;
+                intentArgs[i] = items.get((int) ((roll >>> 3) % items.size()));
+                return;
+            }
+        }
+
+        ExitsComponent exits = ecs.getComponent(room, ExitsComponent.class);
+        if (exits == null || exits.getDirections().isEmpty()) {
+            return;
+        }
+        int pick = (int) ((roll >>> 3) % exits.getDirections().size());
+        for (String direction : exits.getDirections()) {
+            if (pick-- == 0) {
+                intents[i] = MOVE;
+                intentArgs[i] = direction;
+                break;
+            }
+        }
+    }
+
+    private void apply(int i, MovementSystem movement, ItemSystem items) {
+        NpcComponent npc = states[i];
+        ecs.markChanged(npcs[i]);
+        switch (intents[i]) {
+            case MOVE:
+                if (intentArgs[i] != null) {
+                    movement.moveEntity(npcs[i], intentArgs[i]);
+                }
+                npc.scheduleStep++;
+                npc.restTicks = (int) ((mix(npc.seed, tick) >>> 20) & 3);
+                break;
+            case TAKE:
+                items.pickUp(npcs[i], intentArgs[i]);
+                break;
+            case DROP:
+                items.putDown(npcs[i], intentArgs[i]);
+                break;
+            default:
+                if (npc.restTicks > 0) {
+                    npc.restTicks--;
+                }
+        }
+    }
+
+    // SplitMix64 finalizer: a cheap, well-distributed hash of (seed, tick)
+    private static long mix(long seed, long tick) {
+        long z = seed + tick * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * A command line after tokenizing: normalized, and split into verb and argument
+ *
+ * Parsing touches no world state, so it can happen on any thread before the
+ * command reaches the world's own thread (see CommandPipeline).
+ */
+public final class ParsedCommand {
+    public final String input;
+    public final String verb;
+    public final String argument;
+
+    private ParsedCommand(String input, String verb, String argument) {
+        this.input = input;
+        this.verb = verb;
+        this.argument = argument;
+    }
+
+    public static ParsedCommand parse(String line) {
+        String input = line.trim().toLowerCase();
+        String[] parts = input.split(" ", 2);
+        return new ParsedCommand(input, parts[0], parts.length > 1 ? parts[1] : "");
+    }
+
+    @Override
+    public String toString() {
+        return input;
+    }
+}
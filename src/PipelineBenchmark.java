@@ -0,0 +1,166 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark for the staged CommandPipeline
+ *
+ * First checks that a client sees exactly what a BatchSession prints when
+ * the walkthrough is sent one command per tick. Then many clients send
+ * commands as fast as they are accepted, and commands per second through
+ * the pipeline (decode and encode on I/O threads, execution batched per
+ * tick on the world thread) are compared with doing every stage on one
+ * thread and updating the world after each command. Per-stage metrics are
+ * printed for the pipelined run.
+ *
+ * How much the I/O threads help depends on free cores; on a single core
+ * the gain comes from batching, not from overlap.
+ *
+ * Exits with status 1 if the client's output differed.
+ *
+ * Usage: java PipelineBenchmark [clients] [commandsPerClient] [ioThreads] [maxBatch]
+ */
+public class PipelineBenchmark {
+    private static final List<String> WALKTHROUGH = Arrays.asList(
+        "aft", "take wrench", "fore", "fore", "starboard", "take vac-suit", "wear vac-suit",
+        "starboard", "cycle airlock", "port", "port", "fore", "request docking",
+        "initiate docking", "wait", "wait", "look", "i");
+    private static final List<String> LOAD = Arrays.asList("look", "i", "aft", "look", "fore", "examine wrench");
+    private static final int QUEUE = 1024;
+
+    public static void main(String[] args) throws InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int perClient = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int ioThreads = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int maxBatch = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        boolean same = checkWalkthrough(ioThreads);
+        System.out.println("walkthrough through pipeline matches batch session: " + same);
+
+        System.out.println("clients: " + clients + ", commands/client: " + perClient
+            + ", I/O threads: " + ioThreads + ", max batch: " + maxBatch
+            + ", cores: " + Runtime.getRuntime().availableProcessors());
+        double serial = runSerial(clients * perClient);
+        double pipelined = runPipelined(clients, perClient, ioThreads, maxBatch);
+        System.out.printf("serial:    %,.0f commands/s%n", serial);
+        System.out.printf("pipelined: %,.0f commands/s (%.2fx)%n", pipelined, pipelined / serial);
+
+        System.out.println(same ? "PASS" : "FAIL");
+        if (!same) {
+            System.exit(1);
+        }
+    }
+
+    // One client, one command per tick, so output must match BatchSession's exactly
+    private static boolean checkWalkthrough(int ioThreads) throws InterruptedException {
+        BatchSession control = new BatchSession();
+        StringBuilder expected = new StringBuilder();
+        for (CommandResult result : control.runAll(WALKTHROUGH)) {
+            expected.append(result.output);
+        }
+
+        BatchSession session = new BatchSession();
+        ConcurrentLinkedQueue<byte[]> frames = new ConcurrentLinkedQueue<>();
+        try (CommandPipeline pipeline = new CommandPipeline(session.getWorld(), ioThreads, QUEUE, 1)) {
+            pipeline.register("player", frames::add);
+            for (String command : WALKTHROUGH) {
+                pipeline.submit("player", command.getBytes(StandardCharsets.UTF_8));
+                while (pipeline.getPendingCommands() == 0) {
+                    Thread.onSpinWait();
+                }
+                pipeline.tick(1.0);
+            }
+            awaitQuiet(frames);
+        }
+        StringBuilder actual = new StringBuilder();
+        for (byte[] frame : frames) {
+            actual.append(CommandPipeline.decodeFrame(frame));
+        }
+        return actual.toString().equals(expected.toString());
+    }
+
+    // Every stage on the caller's thread, one world update per command
+    private static double runSerial(int commands) {
+        BatchSession session = new BatchSession();
+        ECS world = session.getWorld();
+        CommandSystem commandSystem = world.getSystem(CommandSystem.class);
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        world.setOutput(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < commands; i++) {
+            byte[] frame = LOAD.get(i % LOAD.size()).getBytes(StandardCharsets.UTF_8);
+            commandSystem.execute(ParsedCommand.parse(new String(frame, StandardCharsets.UTF_8)));
+            world.update(commandSystem.takeWaitedSeconds());
+            sink += CommandPipeline.encodeFrame(captured.toString(StandardCharsets.UTF_8)).length;
+            captured.reset();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (sink == 0) {
+            throw new IllegalStateException("No output");
+        }
+        return commands / seconds;
+    }
+
+    private static double runPipelined(int clients, int perClient, int ioThreads, int maxBatch)
+            throws InterruptedException {
+        BatchSession session = new BatchSession();
+        AtomicLong received = new AtomicLong();
+        AtomicBoolean done = new AtomicBoolean();
+        long total = (long) clients * perClient;
+        try (CommandPipeline pipeline = new CommandPipeline(session.getWorld(), ioThreads, QUEUE, maxBatch)) {
+            for (int c = 0; c < clients; c++) {
+                pipeline.register("client-" + c, frame -> received.incrementAndGet());
+            }
+            StageMetrics decode = pipeline.getMetrics().get(0);
+            AtomicLong executed = new AtomicLong();
+            Thread worldThread = new Thread(() -> {
+                while (!done.get()) {
+                    if (executed.addAndGet(pipeline.tick(0.0)) >= total) {
+                        done.set(true);
+                    }
+                }
+            }, "world");
+
+            long start = System.nanoTime();
+            worldThread.start();
+            // Clients take turns, so a full queue pushes back on the sender rather than losing commands
+            int[] sent = new int[clients];
+            long outstanding = total;
+            while (outstanding > 0) {
+                for (int c = 0; c < clients; c++) {
+                    if (sent[c] == perClient) continue;
+                    byte[] frame = LOAD.get(sent[c] % LOAD.size()).getBytes(StandardCharsets.UTF_8);
+                    if (pipeline.submit("client-" + c, frame)) {
+                        sent[c]++;
+                        outstanding--;
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }
+            worldThread.join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            for (String line : pipeline.describeMetrics()) {
+                System.out.println("  " + line);
+            }
+            System.out.println("  reply frames: " + received.get() + ", decoder stalls on a full execute queue: "
+                + decode.getRejected());
+            return executed.get() / seconds;
+        }
+    }
+
+    private static void awaitQuiet(ConcurrentLinkedQueue<byte[]> frames) throws InterruptedException {
+        int size = -1;
+        while (size != frames.size()) {
+            size = frames.size();
+            Thread.sleep(50);
+        }
+    }
+}
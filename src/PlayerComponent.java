@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * COMPONENT class for players in the ECS pattern
+ *
+ * This component marks an entity as a player (as opposed to an NPC) and holds
+ * what each player keeps for themselves while sharing the ship with others.
+ * Room descriptions belong to the rooms; which rooms this player has already
+ * seen, and so gets the short description of, is kept here. The list is kept
+ * sorted so a lookup is a binary search.
+ *
+ * It also holds the player's own airlock danger: how many turns they have
+ * spent in the airlock without a suit, and whether they have cycled it since.
+ */
+public class PlayerComponent implements Component {
+    private List<String> visitedRooms;
+    public int airlockTurnsWithoutSuit;
+    public boolean airlockCycled;
+
+    public PlayerComponent() {
+        this.visitedRooms = new ArrayList<>();
+    }
+
+    /**
+     * Count another turn spent unsuited in the airlock. Returns true once
+     * that has gone on long enough to be fatal without cycling it.
+     */
+    public boolean addAirlockTurnWithoutSuit() {
+        airlockTurnsWithoutSuit++;
+        return airlockTurnsWithoutSuit >= 2 && !airlockCycled;
+    }
+
+    /**
+     * Clear the airlock danger, once the player is somewhere safe
+     */
+    public void leaveAirlockDanger() {
+        airlockTurnsWithoutSuit = 0;
+        airlockCycled = false;
+    }
+
+    public boolean hasVisited(String roomId) {
+        return Collections.binarySearch(visitedRooms, roomId) >= 0;
+    }
+
+    /**
+     * Record that the player has seen a room. Returns true if this is the
+     * first time (or the first since the room was forgotten).
+     */
+    public boolean visit(String roomId) {
+        int at = Collections.binarySearch(visitedRooms, roomId);
+        if (at >= 0) {
+            return false;
+        }
+        visitedRooms.add(-at - 1, roomId);
+        return true;
+    }
+
+    /**
+     * Forget a room, so the player gets its full description again
+     */
+    public void forget(String roomId) {
+        int at = Collections.binarySearch(visitedRooms, roomId);
+        if (at >= 0) {
+            visitedRooms.remove(at);
+        }
+    }
+
+    public List<String> getVisitedRooms() {
+        return Collections.unmodifiableList(visitedRooms);
+    }
+
+    @Override
+    public PlayerComponent copy() {
+        PlayerComponent copy = new PlayerComponent();
+        copy.visitedRooms.addAll(visitedRooms);
+        copy.airlockTurnsWithoutSuit = airlockTurnsWithoutSuit;
+        copy.airlockCycled = airlockCycled;
+        return copy;
+    }
+}
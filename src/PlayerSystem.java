@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * System that lets any number of players share one ship
+ *
+ * A player is an entity with a PlayerComponent, a position, an inventory and
+ * equipment, as the single original "player" always was, and every command
+ * names the player acting (see CommandSystem.execute). What a command prints
+ * goes to the world's output, which the host points at the acting player's
+ * connection. Everyone else hears about it through this system: each player
+ * may have an audience, a callback taking one line at a time, and
+ * broadcast() hands a line to the audience of every player in a room.
+ *
+ * Audiences are kept in an array indexed like the entity registry, and a
+ * broadcast walks the room occupancy index, so it costs one array read per
+ * occupant of that room however many players are aboard. A player without
+ * an audience (the console player) hears nothing broadcast.
+ */
+public class PlayerSystem implements Esystem {
+    private static final int CARRY_ITEMS = 10;
+    private static final double CARRY_WEIGHT = 40.0;
+
+    private ECS ecs;
+    private Consumer<String>[] audiences;
+    private final List<Consumer<Entity>> departures;
+    private long delivered;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PlayerSystem(ECS ecs) {
+        this.ecs = ecs;
+        this.audiences = new Consumer[16];
+        this.departures = new ArrayList<>();
+    }
+
+    /**
+     * Be told of every player who leaves, just before they are removed from
+     * the world, e.g. to disconnect whatever was acting for them
+     */
+    public void onLeave(Consumer<Entity> listener) {
+        departures.add(listener);
+    }
+
+    /**
+     * Bring a new player aboard in a room. The audience receives what the
+     * player hears from others, and may be null. Throws
+     * IllegalArgumentException if anything in the world already has that id.
+     */
+    public Entity join(String id, String roomId, Consumer<String> audience) {
+        Entity player = ecs.createEntity(id);
+        if (ecs.getEntityIndex(player) >= 0) {
+            throw new IllegalArgumentException("Name already taken: " + id);
+        }
+        ecs.addComponent(player, new PlayerComponent());
+        ecs.addComponent(player, new InventoryComponent(CARRY_ITEMS, CARRY_WEIGHT));
+        ecs.addComponent(player, new EquipmentComponent());
+        MovementSystem movement = ecs.getSystem(MovementSystem.class);
+        if (movement != null) {
+            movement.placeEntity(player, roomId);
+        } else {
+            ecs.addComponent(player, new PositionComponent(roomId));
+            ecs.getOccupancy().enter(player, roomId);
+        }
+        listen(player, audience);
+        broadcast(roomId, player, id + " comes aboard.");
+        return player;
+    }
+
+    /**
+     * Take a player out of the world. Whatever they carried or wore is left
+     * in the room they were in, so no item leaves the ship with them. The
+     * airlock stops waiting on them, and onLeave listeners are told.
+     */
+    public void leave(Entity player) {
+        if (!isPlayer(player)) {
+            return;
+        }
+        EquipmentComponent equipment = ecs.getComponent(player, EquipmentComponent.class);
+        if (equipment != null) {
+            for (EquipmentComponent.EquipmentSlot slot : EquipmentComponent.EquipmentSlot.values()) {
+                equipment.unequipItem(slot);
+            }
+        }
+        InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
+        ItemSystem items = ecs.getSystem(ItemSystem.class);
+        if (inventory != null && items != null) {
+            for (String item : inventory.getItems().toArray(new String[0])) {
+                items.putDown(player, item);
+            }
+        }
+        PositionComponent position = ecs.getComponent(player, PositionComponent.class);
+        int index = ecs.getEntityIndex(player);
+        if (index < audiences.length) {
+            audiences[index] = null;
+        }
+        if (position != null) {
+            broadcast(position.room, player, player.getId() + " leaves the ship.");
+        }
+        AirlockSystem airlock = ecs.getSystem(AirlockSystem.class);
+        if (airlock != null) {
+            airlock.forget(player);
+        }
+        for (Consumer<Entity> listener : departures) {
+            listener.accept(player);
+        }
+        ecs.destroyEntity(player);
+    }
+
+    /**
+     * Set (or with null, clear) where a player hears what others do
+     */
+    public void listen(Entity player, Consumer<String> audience) {
+        int index = ecs.getEntityIndex(player);
+        if (index < 0) {
+            throw new IllegalArgumentException("Not in this world: " + player.getId());
+        }
+        if (index >= audiences.length) {
+            audiences = Arrays.copyOf(audiences, Math.max(audiences.length * 2, index + 1));
+        }
+        audiences[index] = audience;
+    }
+
+    public boolean isPlayer(Entity entity) {
+        return ecs.hasComponent(entity, PlayerComponent.class);
+    }
+
+    public int getPlayerCount() {
+        return ecs.getEntitiesWithComponent(PlayerComponent.class).size();
+    }
+
+    /**
+     * Send a line to one player, if they are listening
+     */
+    public void tell(Entity player, String line) {
+        int index = ecs.getEntityIndex(player);
+        if (index >= 0 && index < audiences.length && audiences[index] != null) {
+            audiences[index].accept(line);
+            delivered++;
+        }
+    }
+
+    /**
+     * Send a line to every listening player in a room except one (usually the
+     * one who caused it). Returns how many players received it.
+     */
+    public int broadcast(String roomId, Entity exclude, String line) {
+        int skip = exclude != null ? ecs.getEntityIndex(exclude) : -1;
+        long before = delivered;
+        ecs.getOccupancy().forEachOccupant(roomId, index -> {
+            if (index != skip && index < audiences.length && audiences[index] != null) {
+                audiences[index].accept(line);
+                delivered++;
+            }
+        });
+        return (int) (delivered - before);
+    }
+
+    /**
+     * Lines handed to audiences so far, by tell and broadcast together
+     */
+    public long getDeliveredCount() {
+        return delivered;
+    }
+}
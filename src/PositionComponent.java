@@ -2,8 +2,8 @@
  * COMPONENT class for position in the ECS pattern
  * 
  * This component stores the current room/location for an entity.
- * It's used by the player entity to track their current position
- * and by room entities to define their own position identifier.
+ * It's used by the player and any other mobile entity to track their
+ * current position. Rooms identify themselves with RoomComponent instead.
  */
 public class PositionComponent implements Component {
     public final String room;
@@ -0,0 +1,316 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A complete, freshly initialized world saved to disk, for fast startup
+ *
+ * GameInitializer builds the ship in code every time the game starts. A
+ * prebuilt image holds the result instead: every entity in index order,
+ * then each component type's components as one array, each entry the
+ * owning entity's index and every field encoded as DeltaCodec encodes
+ * them, plus the rules, the ship motion state and the landmarks visible
+ * through the windows. Restoring it into a world that has its systems
+ * registered gives the same world GameInitializer would have built,
+ * without running any of it.
+ *
+ * Unlike WorldImage, which stores a session's difference from the base
+ * content and needs that content built first, this stores everything, so
+ * every component type must be one DeltaCodec captures completely.
+ * ViewportComponent, whose viewports are nested objects, writes itself.
+ *
+ * Each type is written with its class and field names, and reading checks
+ * them against the running code, so an image from a build whose components
+ * have since changed is refused rather than misread; callers fall back to
+ * initializing normally.
+ *
+ * Layout: magic, version, rule sources, ship motion state and landmarks
+ * (each length-prefixed, -1 for none), entity ids, then per component
+ * type its class name, field names, count and components.
+ */
+public final class PrebuiltWorld {
+    private static final int MAGIC = 0x50574c44; // "PWLD"
+    private static final int VERSION = 1;
+
+    private static final DeltaCodec.Registry SCHEMAS = new DeltaCodec.Registry();
+
+    private PrebuiltWorld() {
+    }
+
+    /**
+     * Build the standard world and write it to a file
+     */
+    public static void build(Path file) throws IOException {
+        ECS world = ECS.createWorld();
+        StarshipAdventure.registerSystems(world);
+        new GameInitializer(world).initializeWorld();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(world, out);
+        }
+    }
+
+    /**
+     * Restore a world from a file; see read(InputStream, ECS)
+     */
+    public static void read(Path file, ECS world) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            read(in, world);
+        } catch (EOFException e) {
+            throw new IOException("Prebuilt world image is truncated", e);
+        }
+    }
+
+    /**
+     * Write a whole world. Throws IllegalStateException if it holds a
+     * component type with state DeltaCodec does not capture.
+     */
+    public static void write(ECS world, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+
+        RuleSystem rules = world.getSystem(RuleSystem.class);
+        Map<String, String> sources = rules != null ? rules.getSources() : Map.of();
+        DeltaCodec.writeVarLong(out, sources.size());
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            out.writeUTF(source.getKey());
+            // Rule sources can be longer than writeUTF allows
+            byte[] text = source.getValue().getBytes(StandardCharsets.UTF_8);
+            DeltaCodec.writeVarLong(out, text.length);
+            out.write(text);
+        }
+
+        ShipMotionSystem motion = world.getSystem(ShipMotionSystem.class);
+        ByteArrayOutputStream motionState = new ByteArrayOutputStream();
+        if (motion != null) {
+            motion.writeState(new DataOutputStream(motionState));
+        }
+        writeBlock(out, motion != null ? motionState : null);
+
+        VisibilitySystem visibility = world.getSystem(VisibilitySystem.class);
+        ByteArrayOutputStream landmarks = new ByteArrayOutputStream();
+        if (visibility != null) {
+            visibility.writeLandmarks(new DataOutputStream(landmarks));
+        }
+        writeBlock(out, visibility != null ? landmarks : null);
+
+        // Entities get dense indices in the image, whatever holes the world had
+        List<String> ids = new ArrayList<>();
+        Map<Class<? extends Component>, List<Integer>> owners = new LinkedHashMap<>();
+        Map<Class<? extends Component>, List<Component>> components = new LinkedHashMap<>();
+        int limit = world.getEntityIndexLimit();
+        for (int index = 0; index < limit; index++) {
+            Entity entity = world.getEntityAt(index);
+            if (entity == null) continue;
+            int dense = ids.size();
+            ids.add(entity.getId());
+            for (Component component : world.getComponents(entity)) {
+                owners.computeIfAbsent(component.getClass(), type -> new ArrayList<>()).add(dense);
+                components.computeIfAbsent(component.getClass(), type -> new ArrayList<>()).add(component);
+            }
+        }
+        DeltaCodec.writeVarLong(out, ids.size());
+        for (String id : ids) {
+            out.writeUTF(id);
+        }
+
+        DeltaCodec.writeVarLong(out, components.size());
+        for (Map.Entry<Class<? extends Component>, List<Component>> entry : components.entrySet()) {
+            Class<? extends Component> type = entry.getKey();
+            boolean viewports = type == ViewportComponent.class;
+            DeltaCodec.Schema schema = viewports ? null : SCHEMAS.schemaFor(type);
+            if (schema != null && !schema.isComplete()) {
+                throw new IllegalStateException(type.getName() + " has state a prebuilt world cannot hold");
+            }
+            out.writeUTF(type.getName());
+            List<String> names = viewports ? List.of() : schema.fieldNames();
+            DeltaCodec.writeVarLong(out, names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+
+            List<Integer> indices = owners.get(type);
+            List<Component> ofType = entry.getValue();
+            DeltaCodec.writeVarLong(out, ofType.size());
+            for (int i = 0; i < ofType.size(); i++) {
+                DeltaCodec.writeVarLong(out, indices.get(i));
+                if (viewports) {
+                    ((ViewportComponent) ofType.get(i)).write(out);
+                } else {
+                    Object[] values = schema.capture(ofType.get(i));
+                    DeltaCodec.writeFields(out, schema, DeltaCodec.changedFields(null, values), values);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Restore an image into a new world whose systems are registered but
+     * which has not been initialized. Throws IOException if the file is not
+     * an image or was written by an incompatible build; the whole image is
+     * read and checked before the world is touched, so the world is still
+     * empty if that happens.
+     */
+    public static void read(InputStream stream, ECS world) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a prebuilt world image, or from an incompatible version");
+        }
+
+        Map<String, String> sources = new LinkedHashMap<>();
+        int sourceCount = (int) DeltaCodec.readVarLong(in);
+        for (int i = 0; i < sourceCount; i++) {
+            String source = in.readUTF();
+            byte[] text = new byte[(int) DeltaCodec.readVarLong(in)];
+            in.readFully(text);
+            sources.put(source, new String(text, StandardCharsets.UTF_8));
+        }
+
+        byte[] motionState = readBlock(in);
+        ShipMotionSystem motion = world.getSystem(ShipMotionSystem.class);
+        if (motionState != null && motion == null) {
+            throw new IOException("Image has ship motion but the world has no ShipMotionSystem");
+        }
+        byte[] landmarks = readBlock(in);
+        VisibilitySystem visibility = world.getSystem(VisibilitySystem.class);
+
+        String[] ids = new String[(int) DeltaCodec.readVarLong(in)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.readUTF();
+        }
+
+        int typeCount = (int) DeltaCodec.readVarLong(in);
+        List<int[]> owners = new ArrayList<>(typeCount);
+        List<Component[]> components = new ArrayList<>(typeCount);
+        for (int t = 0; t < typeCount; t++) {
+            Class<? extends Component> type = readType(in);
+            boolean viewports = type == ViewportComponent.class;
+            DeltaCodec.Schema schema = viewports ? null : SCHEMAS.schemaFor(type);
+            int[] indices = new int[(int) DeltaCodec.readVarLong(in)];
+            Component[] ofType = new Component[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = (int) DeltaCodec.readVarLong(in);
+                if (indices[i] < 0 || indices[i] >= ids.length) {
+                    throw new IOException("Corrupt prebuilt world image: no entity " + indices[i]);
+                }
+                if (viewports) {
+                    ofType[i] = ViewportComponent.read(in);
+                } else {
+                    Object[] values = new Object[schema.fieldCount()];
+                    DeltaCodec.readFields(in, schema, values);
+                    ofType[i] = rebuild(schema, values);
+                }
+            }
+            owners.add(indices);
+            components.add(ofType);
+        }
+
+        // Every rule source is compiled before any is added, and before any
+        // entity, so a source that no longer compiles is reported while the
+        // world is still empty and the caller can build it afresh instead
+        Map<String, List<Rule>> compiled = new LinkedHashMap<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            try {
+                compiled.put(source.getKey(), RuleBook.parse(source.getKey(), source.getValue()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Image rules no longer compile: " + e.getMessage(), e);
+            }
+        }
+        if (!compiled.isEmpty()) {
+            RuleSystem rules = RuleSystem.forWorld(world);
+            for (Map.Entry<String, List<Rule>> source : compiled.entrySet()) {
+                rules.add(source.getKey(), sources.get(source.getKey()), source.getValue());
+            }
+        }
+
+        Entity[] entities = new Entity[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            entities[i] = world.createEntity(ids[i]);
+            world.registerEntity(entities[i]);
+        }
+        for (int t = 0; t < components.size(); t++) {
+            int[] indices = owners.get(t);
+            Component[] ofType = components.get(t);
+            for (int i = 0; i < ofType.length; i++) {
+                Entity entity = entities[indices[i]];
+                world.addComponent(entity, ofType[i]);
+                if (ofType[i] instanceof PositionComponent) {
+                    world.getOccupancy().enter(entity, ((PositionComponent) ofType[i]).room);
+                }
+            }
+        }
+        if (motionState != null) {
+            motion.readState(new DataInputStream(new ByteArrayInputStream(motionState)));
+        }
+        if (landmarks != null && visibility != null) {
+            visibility.readLandmarks(new DataInputStream(new ByteArrayInputStream(landmarks)));
+        }
+    }
+
+    // The component class the image names, if it still has the same fields
+    private static Class<? extends Component> readType(DataInputStream in) throws IOException {
+        String className = in.readUTF();
+        List<String> names = new ArrayList<>();
+        int count = (int) DeltaCodec.readVarLong(in);
+        for (int i = 0; i < count; i++) {
+            names.add(in.readUTF());
+        }
+        Class<? extends Component> type;
+        try {
+            type = Class.forName(className).asSubclass(Component.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Image holds an unknown component type " + className, e);
+        }
+        List<String> expected = type == ViewportComponent.class ? List.of() : SCHEMAS.schemaFor(type).fieldNames();
+        if (!names.equals(expected)) {
+            throw new IOException("Image was built from a different " + className + ": fields "
+                + names + ", now " + expected);
+        }
+        return type;
+    }
+
+    private static Component rebuild(DeltaCodec.Schema schema, Object[] values) throws IOException {
+        Component component;
+        try {
+            component = schema.rebuild(values);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new IOException("Cannot rebuild " + schema.typeName + ": " + e.getMessage(), e);
+        }
+        if (component == null) {
+            throw new IOException(schema.typeName + " has state a prebuilt world cannot hold");
+        }
+        return component;
+    }
+
+    private static void writeBlock(DataOutputStream out, ByteArrayOutputStream block) throws IOException {
+        out.writeInt(block != null ? block.size() : -1);
+        if (block != null) {
+            block.writeTo(out);
+        }
+    }
+
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] block = new byte[length];
+        in.readFully(block);
+        return block;
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load test for session quotas: one abusive session must not starve the rest
+ *
+ * A SessionHost runs several well-behaved sessions, each sent a few
+ * commands per second, first on their own and then alongside one session
+ * whose client sends commands as fast as it can. The well-behaved sessions'
+ * queue waits are compared between the two runs; the abuser should be
+ * held to its rate limit and have its excess shed. Finally a world is
+ * filled until its entity cap refuses more.
+ *
+ * Exits with status 1 if a well-behaved session lost commands, waited far
+ * longer with the abuser present, or the entity cap did not hold.
+ *
+ * Usage: java QuotaBenchmark [sessions] [seconds]
+ */
+public class QuotaBenchmark {
+    private static final int QUEUE = 32;
+    private static final double RATE = 20.0;
+    private static final int BURST = 10;
+    private static final double HONEST_RATE = 5.0;
+    private static final long MAX_HONEST_WAIT_MILLIS = 250;
+
+    public static void main(String[] args) throws InterruptedException {
+        int honest = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.println("sessions: " + honest + ", seconds/run: " + seconds
+            + ", limit: " + RATE + " commands/s, queue: " + QUEUE);
+        Result calm = run(honest, seconds, false);
+        Result loaded = run(honest, seconds, true);
+        boolean ok = calm.honestShed == 0 && loaded.honestShed == 0
+            && loaded.honestMaxWaitMillis <= Math.max(MAX_HONEST_WAIT_MILLIS, 2 * calm.honestMaxWaitMillis);
+        ok &= checkEntityCap();
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static final class Result {
+        long honestShed;
+        double honestMaxWaitMillis;
+    }
+
+    private static Result run(int honest, int seconds, boolean withAbuser) throws InterruptedException {
+        SessionHost host = new SessionHost(QUEUE, RATE, BURST, 1_000, 5_000);
+        List<SessionInbox> inboxes = new ArrayList<>();
+        for (int i = 0; i < honest; i++) {
+            inboxes.add(host.addSession("s" + i));
+        }
+        SessionInbox abuser = withAbuser ? host.addSession("abuser") : null;
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> clients = new ArrayList<>();
+        for (SessionInbox inbox : inboxes) {
+            clients.add(start(() -> {
+                long interval = (long) (1000 / HONEST_RATE);
+                int n = 0;
+                while (running.get()) {
+                    try {
+                        inbox.offer(n++ % 2 == 0 ? "look" : "i", interval, TimeUnit.MILLISECONDS);
+                        Thread.sleep(interval);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }));
+        }
+        if (abuser != null) {
+            clients.add(start(() -> {
+                while (running.get()) {
+                    abuser.offer("look");
+                    Thread.yield();
+                }
+            }));
+        }
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long passes = 0;
+        long commands = 0;
+        while (System.nanoTime() < end) {
+            int ran = host.runPass(System.nanoTime());
+            passes++;
+            commands += ran;
+            if (ran == 0) {
+                Thread.sleep(1);
+            }
+        }
+        running.set(false);
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        Result result = new Result();
+        long honestProcessed = 0;
+        double meanWait = 0;
+        for (SessionInbox inbox : inboxes) {
+            result.honestShed += inbox.getShed();
+            result.honestMaxWaitMillis = Math.max(result.honestMaxWaitMillis, inbox.getMaxWaitNanos() / 1e6);
+            honestProcessed += inbox.getProcessed();
+            meanWait += inbox.getMeanWaitMillis() / inboxes.size();
+        }
+        System.out.printf("%s: passes=%,d commands=%,d  honest processed=%d shed=%d wait mean=%.1fms max=%.1fms%n",
+            withAbuser ? "with abuser   " : "without abuser", passes, commands, honestProcessed,
+            result.honestShed, meanWait, result.honestMaxWaitMillis);
+        if (abuser != null) {
+            System.out.println("  abuser: " + abuser.describeMetrics());
+        }
+        return result;
+    }
+
+    private static Thread start(Runnable body) {
+        Thread thread = new Thread(body);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static boolean checkEntityCap() {
+        ECS world = ECS.createWorld();
+        world.setLimits(100, 1_000);
+        int created = 0;
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                world.addComponent(world.createEntity("crate-" + i), new PositionComponent("Commons"));
+                created++;
+            }
+        } catch (WorldLimitException e) {
+            System.out.println("entity cap: created " + created + ", then \"" + e.getMessage() + "\"");
+        }
+        return created == 100 && world.getEntityCount() == 100;
+    }
+}
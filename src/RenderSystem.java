@@ -6,61 +6,85 @@ import java.util.List;
  */
 public class RenderSystem implements Esystem {
     private ECS ecs;
-    private static final String PLAYER = "player";
     
     public RenderSystem(ECS ecs) {
         this.ecs = ecs;
     }
     
-    public void displayRoom(String roomId, boolean forceLongDescription) {
+    /**
+     * Describe a room as the viewer sees it: in full on their first visit
+     * (or when forced, as by "look"), briefly after that
+     */
+    public void displayRoom(Entity viewer, String roomId, boolean forceLongDescription) {
         Entity room = ecs.createEntity(roomId);
         DescriptionComponent desc = ecs.getComponent(room, DescriptionComponent.class);
         ExitsComponent exits = ecs.getComponent(room, ExitsComponent.class);
         
         if (desc != null) {
-            // Show description
-            if (forceLongDescription || desc.firstVisit) {
-                System.out.print(desc.longDesc);
-                desc.firstVisit = false;
+            // Show description; anyone who isn't a player has no memory of rooms
+            PlayerComponent player = ecs.getComponent(viewer, PlayerComponent.class);
+            boolean firstVisit = player == null || player.visit(roomId);
+            if (forceLongDescription || firstVisit) {
+                VisibilitySystem visibility = ecs.getSystem(VisibilitySystem.class);
+                ecs.getOutput().print(visibility != null ? visibility.render(roomId, desc.longDesc) : desc.longDesc);
             } else {
-                System.out.println(desc.shortDesc);
+                ecs.getOutput().println(desc.shortDesc);
             }
         }
         
         // Show exits
         if (exits != null) {
-            System.out.print("\nExits: ");
+            ecs.getOutput().print("\nExits: ");
             for (String direction : exits.getDirections()) {
-                System.out.print(direction + " ");
+                ecs.getOutput().print(direction + " ");
             }
-            System.out.println();
+            ecs.getOutput().println();
         }
         // List non-fixed items
         ItemsComponent roomItems = ecs.getComponent(room, ItemsComponent.class);
         List<String> lstItems = roomItems.getItems();
         if (!lstItems.isEmpty()) {
-        	System.out.print("Items: ");
+        	ecs.getOutput().print("Items: ");
 	        for (String item : roomItems.getItems()) {
-	        	System.out.print(item + " ");
+	        	ecs.getOutput().print(item + " ");
 	        }
-	        System.out.println();
+	        ecs.getOutput().println();
+        }
+        // List anyone or anything else standing here
+        List<Entity> occupants = ecs.getOccupancy().getOccupants(roomId, viewer);
+        if (!occupants.isEmpty()) {
+            ecs.getOutput().print("Also here: ");
+            for (Entity occupant : occupants) {
+                ecs.getOutput().print(occupant.getId() + " ");
+            }
+            ecs.getOutput().println();
         }
     }
     
-    public void displayInventory() {
-        Entity player = ecs.createEntity(PLAYER);
+    public void displayInventory(Entity player) {
         InventoryComponent inventory = ecs.getComponent(player, InventoryComponent.class);
         EquipmentComponent equipment = ecs.getComponent(player, EquipmentComponent.class);
         
         if (inventory == null || inventory.getItems().isEmpty()) {
-            System.out.println("Your inventory is empty.");
+            ecs.getOutput().println("Your inventory is empty.");
         } else {
-            System.out.print("You are carrying: ");
-            System.out.println(String.join(", ", inventory.getItems()));
+            ecs.getOutput().print("You are carrying: ");
+            ecs.getOutput().println(String.join(", ", inventory.getItems()));
+            ItemSystem itemSystem = ecs.getSystem(ItemSystem.class);
+            for (String item : inventory.getItems()) {
+                ContainerComponent container = ecs.getComponent(ecs.createEntity(item), ContainerComponent.class);
+                if (container != null && !container.getItems().isEmpty() && itemSystem != null) {
+                    ecs.getOutput().println("The " + item + " holds: " + itemSystem.describeContents(item) + ".");
+                }
+            }
         }
         
-        if (equipment != null && equipment.isEquipped(EquipmentComponent.EquipmentSlot.VAC_SUIT)) {
-            System.out.println("You are wearing a vac-suit.");
+        if (equipment != null) {
+            for (EquipmentComponent.EquipmentSlot slot : EquipmentComponent.EquipmentSlot.values()) {
+                if (equipment.isEquipped(slot)) {
+                    ecs.getOutput().println("You are wearing a " + equipment.getEquippedItem(slot) + ".");
+                }
+            }
         }
     }
     
@@ -90,39 +114,10 @@ public class RenderSystem implements Esystem {
             ecs.addComponent(outside, new DescriptionComponent(outsideDesc.shortDesc, newDesc));
         }
         
-        // Update windowed rooms - Commons, Stateroom, Bridge
-        updateWindowedRoom("Commons", docking);
-        updateWindowedRoom("Stateroom", docking);
-        updateWindowedRoom("Bridge", docking);
-    }
-    
-    private void updateWindowedRoom(String roomId, DockingComponent docking) {
-        Entity room = ecs.createEntity(roomId);
-        DescriptionComponent desc = ecs.getComponent(room, DescriptionComponent.class);
-        if (desc == null) return;
-        
-        String newDesc = "";
-        switch (roomId) {
-            case "Commons":
-                newDesc = docking.inSpace ?
-                    "The commons is a modest lounge at the heart of KY-25B. Worn cushions line a bench along the port wall, and a small table is bolted to the deck. A window offers a breathtaking view of Starbase Omicron's docking entry, its metallic arms glinting against the black void." :
-                    "The commons is a modest lounge at the heart of KY-25B. Worn cushions line a bench along the port wall, and a small table is bolted to the deck. The window frames the interior of the starbase, bustling with activity.";
-                break;
-            case "Stateroom":
-                newDesc = docking.inSpace ?
-                    "The stateroom is a tight but comfortable retreat. A bunk is tucked against the wall, a folded blanket atop it. A small window reveals the starbase's silhouette, framed by distant stars." :
-                    "The stateroom is a tight but comfortable retreat. A bunk is tucked against the wall, a folded blanket atop it. Through the stateroom window, you can see the curved expanse of the interior of the starbase.";
-                break;
-            case "Bridge":
-                newDesc = docking.inSpace ?
-                    "The bridge is KY-25B's nerve center. A wide window dominates the forward bulkhead, showcasing Starbase Omicron's docking arms against the void. The pilot's chair faces a console studded with controls and a comms unit." :
-                    "The bridge is KY-25B's nerve center. A wide window dominates the forward bulkhead, showing the interior of the starbase, bustling with activity. The pilot's chair faces a console studded with controls and a comms unit.";
-                break;
-            default:
-                return;
+        // Rooms with windows now look out on something else
+        VisibilitySystem visibility = ecs.getSystem(VisibilitySystem.class);
+        if (visibility != null) {
+            visibility.invalidate();
         }
-        
-        ecs.removeComponent(room, DescriptionComponent.class);
-        ecs.addComponent(room, new DescriptionComponent(desc.shortDesc, newDesc));
     }
 }
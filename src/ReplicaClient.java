@@ -0,0 +1,261 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A replication client that rebuilds a world view from ReplicationServer deltas
+ *
+ * The replica holds, per entity index, the entity id and the replicated
+ * fields of each of its components. Every CHECK frame is compared against a
+ * hash of the replica, so any divergence from the server is counted.
+ *
+ * Run on its own, it starts a headless session with a replication server,
+ * connects to it, plays a script (the built-in walkthrough, or a file of
+ * commands) and reports traffic and verification results. Exits with
+ * status 1 if the replica ever disagreed with the server.
+ *
+ * Usage: java ReplicaClient [scriptFile]
+ */
+public class ReplicaClient implements AutoCloseable {
+    private static final String PLAYER = "player";
+    private static final List<String> WALKTHROUGH = Arrays.asList(
+        "aft", "take wrench", "fore", "fore", "starboard", "take vac-suit", "wear vac-suit",
+        "starboard", "cycle airlock", "port", "port", "fore", "request docking",
+        "initiate docking", "wait", "wait", "look", "i");
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final Map<Integer, DeltaCodec.Schema> schemas;
+    private final Map<Integer, String> ids;
+    private final Map<Integer, Map<Integer, Object[]>> components;
+    private final AtomicLong bytesReceived;
+    private final AtomicLong frames;
+    private final AtomicLong checks;
+    private final AtomicLong mismatches;
+    private volatile long checkedEpoch;
+    private Thread reader;
+
+    public ReplicaClient(String host, int port, String playerId) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(new CountingInput(socket.getInputStream())));
+        this.schemas = new HashMap<>();
+        this.ids = new HashMap<>();
+        this.components = new HashMap<>();
+        this.bytesReceived = new AtomicLong();
+        this.frames = new AtomicLong();
+        this.checks = new AtomicLong();
+        this.mismatches = new AtomicLong();
+        this.checkedEpoch = -1;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeUTF(playerId);
+        out.flush();
+    }
+
+    public void start() {
+        reader = new Thread(this::readLoop, "replica-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    public long getCheckCount() {
+        return checks.get();
+    }
+
+    public long getMismatchCount() {
+        return mismatches.get();
+    }
+
+    /**
+     * The newest epoch the replica has been verified at
+     */
+    public long getCheckedEpoch() {
+        return checkedEpoch;
+    }
+
+    /**
+     * Wait until the replica has been verified at the given epoch or later
+     */
+    public boolean awaitEpoch(long epoch, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (checkedEpoch < epoch) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    /**
+     * The entity ids the replica currently holds
+     */
+    public synchronized List<String> getEntityIds() {
+        return new ArrayList<>(ids.values());
+    }
+
+    private void readLoop() {
+        try {
+            while (true) {
+                byte frame = in.readByte();
+                frames.incrementAndGet();
+                switch (frame) {
+                    case DeltaCodec.FRAME_SCHEMA: {
+                        DeltaCodec.Schema schema = DeltaCodec.Schema.read(in);
+                        schemas.put(schema.typeId, schema);
+                        break;
+                    }
+                    case DeltaCodec.FRAME_DELTA:
+                        applyDelta();
+                        break;
+                    case DeltaCodec.FRAME_CHECK:
+                        verify();
+                        break;
+                    default:
+                        throw new IOException("Unknown frame type " + frame);
+                }
+            }
+        } catch (EOFException e) {
+            // Server closed the stream
+        } catch (IOException e) {
+            if (!socket.isClosed()) {
+                System.err.println("Replica stopped: " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void applyDelta() throws IOException {
+        in.readLong();
+        long records = DeltaCodec.readVarLong(in);
+        for (long r = 0; r < records; r++) {
+            byte type = in.readByte();
+            int index = (int) DeltaCodec.readVarLong(in);
+            switch (type) {
+                case DeltaCodec.RECORD_ENTITY:
+                    ids.put(index, in.readUTF());
+                    components.put(index, new HashMap<>());
+                    break;
+                case DeltaCodec.RECORD_DROP:
+                    ids.remove(index);
+                    components.remove(index);
+                    break;
+                case DeltaCodec.RECORD_SET: {
+                    DeltaCodec.Schema schema = schemaOf((int) DeltaCodec.readVarLong(in));
+                    Object[] values = components.get(index)
+                        .computeIfAbsent(schema.typeId, k -> new Object[schema.fieldCount()]);
+                    DeltaCodec.readFields(in, schema, values);
+                    break;
+                }
+                case DeltaCodec.RECORD_UNSET:
+                    components.get(index).remove((int) DeltaCodec.readVarLong(in));
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + type);
+            }
+        }
+    }
+
+    private DeltaCodec.Schema schemaOf(int typeId) throws IOException {
+        DeltaCodec.Schema schema = schemas.get(typeId);
+        if (schema == null) {
+            throw new IOException("Component type " + typeId + " used before its schema");
+        }
+        return schema;
+    }
+
+    private synchronized void verify() throws IOException {
+        long epoch = in.readLong();
+        long entityCount = DeltaCodec.readVarLong(in);
+        int expected = in.readInt();
+        int hash = 0;
+        for (Map.Entry<Integer, String> entry : ids.entrySet()) {
+            hash += DeltaCodec.hashEntity(entry.getKey(), entry.getValue(), components.get(entry.getKey()));
+        }
+        checks.incrementAndGet();
+        if (hash != expected || entityCount != ids.size()) {
+            mismatches.incrementAndGet();
+        }
+        checkedEpoch = epoch;
+    }
+
+    // Counts raw bytes off the socket, before buffering
+    private class CountingInput extends FilterInputStream {
+        CountingInput(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) bytesReceived.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) bytesReceived.addAndGet(n);
+            return n;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> script = args.length > 0 ? Files.readAllLines(Paths.get(args[0])) : WALKTHROUGH;
+
+        BatchSession session = new BatchSession();
+        ECS world = session.getWorld();
+        try (ReplicationServer server = new ReplicationServer(world, 0, 2);
+             ReplicaClient client = new ReplicaClient("localhost", server.getPort(), PLAYER)) {
+            server.start();
+            client.start();
+            for (String command : script) {
+                if (!session.isRunning()) break;
+                session.run(command);
+                Thread.sleep(10);
+            }
+            long finalEpoch = world.getVersions().getCurrent().getEpoch();
+            boolean caughtUp = client.awaitEpoch(finalEpoch, 5_000);
+
+            System.out.println("commands:     " + script.size());
+            System.out.println("final epoch:  " + finalEpoch + (caughtUp ? "" : " (replica did not catch up)"));
+            System.out.println("frames:       " + client.getFrameCount());
+            System.out.println("bytes:        " + client.getBytesReceived()
+                + " received, " + server.getBytesSent() + " sent");
+            System.out.println("entities:     " + client.getEntityIds().size() + " in view");
+            System.out.println("checks:       " + client.getCheckCount());
+            System.out.println("mismatches:   " + client.getMismatchCount());
+            boolean ok = caughtUp && client.getMismatchCount() == 0;
+            System.out.println(ok ? "PASS" : "FAIL");
+            if (!ok) {
+                System.exit(1);
+            }
+        }
+    }
+}
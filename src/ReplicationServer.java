@@ -0,0 +1,256 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams incremental world state to remote clients
+ *
+ * Clients connect on a local socket and name the player entity they follow.
+ * Each client gets its own thread, which watches the world's published
+ * versions (see WorldVersions) and sends one DELTA frame per new version
+ * holding only what changed since the last frame it sent that client,
+ * followed by a CHECK frame with a hash of the client's whole view so a
+ * replica can verify itself. The hash is taken from the pinned version's
+ * own components, not from what was sent, so a delta that went wrong shows
+ * up as a mismatch. The world's own thread is never involved.
+ *
+ * Interest management: a client sees global entities (those with neither a
+ * RoomComponent nor a PositionComponent, such as the docking and airlock
+ * state), the room its player is in, and everything positioned in that
+ * room. Entities drop out of view when the player leaves. The view is read
+ * from the occupancy and global masks each version carries, so it costs
+ * the size of the room rather than the size of the world.
+ *
+ * Change detection is cheap because versions share untouched pages: a
+ * component whose copy is the same object as last time is unchanged and is
+ * not even captured: its hash for the CHECK frame was kept from when it was.
+ * Otherwise its fields are captured and compared, and only the changed
+ * fields are sent.
+ */
+public class ReplicationServer implements AutoCloseable {
+    private final WorldVersions versions;
+    private final ServerSocket serverSocket;
+    private final DeltaCodec.Registry registry;
+    private final long pollMillis;
+    private final List<ClientSession> clients;
+    private final AtomicLong bytesSent;
+    private Thread acceptor;
+    private volatile boolean open;
+
+    public ReplicationServer(ECS world, int port, long pollMillis) throws IOException {
+        this.versions = world.enableVersions();
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.registry = new DeltaCodec.Registry();
+        this.pollMillis = pollMillis;
+        this.clients = new CopyOnWriteArrayList<>();
+        this.bytesSent = new AtomicLong();
+        this.open = true;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public void start() {
+        acceptor = new Thread(this::acceptLoop, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        serverSocket.close();
+        for (ClientSession client : clients) {
+            client.socket.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (open) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                ClientSession client = new ClientSession(socket);
+                clients.add(client);
+                Thread thread = new Thread(client, "replication-client-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // Closed, or a client failed to connect
+            }
+        }
+    }
+
+    // A component as last sent to a client: the copy, its captured fields and their hash
+    private static class Sent {
+        final Component component;
+        final Object[] fields;
+        final int hash;
+
+        Sent(Component component, Object[] fields, int hash) {
+            this.component = component;
+            this.fields = fields;
+            this.hash = hash;
+        }
+    }
+
+    private class ClientSession implements Runnable {
+        final Socket socket;
+        final BitSet schemasSent = new BitSet();
+        // What the client currently holds
+        final Map<Integer, Entity> known = new HashMap<>();
+        final Map<Integer, Map<Integer, Sent>> sent = new HashMap<>();
+        Entity player;
+        long lastEpoch = -1;
+
+        ClientSession(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try (Socket s = socket) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                player = new Entity(in.readUTF());
+                while (open) {
+                    try (WorldVersion version = versions.pin()) {
+                        if (version != null && version.getEpoch() != lastEpoch) {
+                            sendDelta(version, out);
+                            lastEpoch = version.getEpoch();
+                        }
+                    }
+                    Thread.sleep(pollMillis);
+                }
+            } catch (IOException | InterruptedException e) {
+                // Client went away or the server is closing
+            } finally {
+                clients.remove(this);
+            }
+        }
+
+        private void sendDelta(WorldVersion version, DataOutputStream socketOut) throws IOException {
+            int startSize = socketOut.size();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream records = new DataOutputStream(body);
+            int recordCount = 0;
+            List<Class<? extends Component>> types = new ArrayList<>(version.componentPages().keySet());
+            BitSet interest = interestOf(version);
+
+            // Entities that left the view, or whose index now belongs to someone else
+            Iterator<Map.Entry<Integer, Entity>> it = known.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Entity> entry = it.next();
+                int index = entry.getKey();
+                if (!interest.get(index) || !entry.getValue().equals(version.entityAt(index))) {
+                    records.writeByte(DeltaCodec.RECORD_DROP);
+                    DeltaCodec.writeVarLong(records, index);
+                    recordCount++;
+                    sent.remove(index);
+                    it.remove();
+                }
+            }
+
+            int checkHash = 0;
+            for (int index = interest.nextSetBit(0); index >= 0; index = interest.nextSetBit(index + 1)) {
+                Entity entity = version.entityAt(index);
+                int entityHash = DeltaCodec.hashIdentity(index, entity.getId());
+                if (!known.containsKey(index)) {
+                    records.writeByte(DeltaCodec.RECORD_ENTITY);
+                    DeltaCodec.writeVarLong(records, index);
+                    records.writeUTF(entity.getId());
+                    recordCount++;
+                    known.put(index, entity);
+                }
+                Map<Integer, Sent> components = sent.computeIfAbsent(index, k -> new HashMap<>());
+                for (Class<? extends Component> type : types) {
+                    DeltaCodec.Schema schema = registry.schemaFor(type);
+                    Component component = version.componentAt(type, index);
+                    if (component == null) {
+                        if (components.remove(schema.typeId) != null) {
+                            records.writeByte(DeltaCodec.RECORD_UNSET);
+                            DeltaCodec.writeVarLong(records, index);
+                            DeltaCodec.writeVarLong(records, schema.typeId);
+                            recordCount++;
+                        }
+                        continue;
+                    }
+                    Sent previous = components.get(schema.typeId);
+                    if (previous != null && previous.component == component) {
+                        entityHash += previous.hash;
+                        continue;
+                    }
+                    Object[] captured = schema.capture(component);
+                    int hash = DeltaCodec.hashComponent(schema.typeId, captured);
+                    entityHash += hash;
+                    long mask = DeltaCodec.changedFields(previous != null ? previous.fields : null, captured);
+                    components.put(schema.typeId, new Sent(component, captured, hash));
+                    if (previous != null && mask == 0) {
+                        continue;
+                    }
+                    if (!schemasSent.get(schema.typeId)) {
+                        socketOut.writeByte(DeltaCodec.FRAME_SCHEMA);
+                        schema.write(socketOut);
+                        schemasSent.set(schema.typeId);
+                    }
+                    records.writeByte(DeltaCodec.RECORD_SET);
+                    DeltaCodec.writeVarLong(records, index);
+                    DeltaCodec.writeVarLong(records, schema.typeId);
+                    DeltaCodec.writeFields(records, schema, mask, captured);
+                    recordCount++;
+                }
+                checkHash += entityHash;
+            }
+
+            socketOut.writeByte(DeltaCodec.FRAME_DELTA);
+            socketOut.writeLong(version.getEpoch());
+            DeltaCodec.writeVarLong(socketOut, recordCount);
+            body.writeTo(socketOut);
+            socketOut.writeByte(DeltaCodec.FRAME_CHECK);
+            socketOut.writeLong(version.getEpoch());
+            DeltaCodec.writeVarLong(socketOut, known.size());
+            socketOut.writeInt(checkHash);
+            bytesSent.addAndGet(socketOut.size() - startSize);
+            socketOut.flush();
+        }
+
+        private BitSet interestOf(WorldVersion version) {
+            BitSet interest = version.globals();
+            PositionComponent position = version.getComponent(player, PositionComponent.class);
+            if (position == null) {
+                return interest;
+            }
+            int roomIndex = version.indexOf(new Entity(position.room));
+            if (roomIndex >= 0 && version.componentAt(RoomComponent.class, roomIndex) != null) {
+                interest.set(roomIndex);
+            }
+            for (int index : version.occupantsOf(position.room)) {
+                interest.set(index);
+            }
+            return interest;
+        }
+    }
+}
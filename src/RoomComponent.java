@@ -0,0 +1,14 @@
+/**
+ * COMPONENT class for room identity in the ECS pattern
+ * 
+ * This component marks an entity as a room. Rooms used to carry a
+ * PositionComponent naming themselves; that is now reserved for things
+ * that are located inside a room.
+ */
+public class RoomComponent implements Component {
+    public final String roomId;
+    
+    public RoomComponent(String roomId) {
+        this.roomId = roomId;
+    }
+}
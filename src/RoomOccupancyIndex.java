@@ -0,0 +1,200 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Index of which entities are currently in which room
+ * 
+ * Each room keeps a dense array of entity indices. Because an entity can only
+ * be in one room at a time, its slot within that array is stored in a single
+ * per-entity table, so entering and leaving a room are both O(1)
+ * (leaving swaps the last occupant into the vacated slot).
+ */
+public class RoomOccupancyIndex {
+    private final EntityRegistry registry;
+    private final Map<String, Occupants> rooms;
+    private Occupants[] roomOf;
+    private int[] slotOf;
+    private final List<Occupants> changed;
+    
+    public RoomOccupancyIndex(EntityRegistry registry) {
+        this.registry = registry;
+        this.rooms = new HashMap<>();
+        this.roomOf = new Occupants[16];
+        this.slotOf = new int[16];
+        this.changed = new ArrayList<>();
+    }
+    
+    /**
+     * Place an entity in a room, removing it from any room it was in
+     */
+    public void enter(Entity entity, String roomId) {
+        int index = registry.register(entity);
+        ensureCapacity(index);
+        if (roomOf[index] != null) {
+            remove(index);
+        }
+        Occupants occupants = rooms.computeIfAbsent(roomId, Occupants::new);
+        noteChanged(occupants);
+        slotOf[index] = occupants.add(index);
+        roomOf[index] = occupants;
+    }
+    
+    /**
+     * Remove an entity from whichever room it is in
+     */
+    public void leave(Entity entity) {
+        int index = registry.indexOf(entity);
+        if (index >= 0 && index < roomOf.length && roomOf[index] != null) {
+            remove(index);
+        }
+    }
+    
+    /**
+     * Get the room an entity is indexed in, or null if it is in none
+     */
+    public String roomOf(Entity entity) {
+        int index = registry.indexOf(entity);
+        if (index < 0 || index >= roomOf.length || roomOf[index] == null) {
+            return null;
+        }
+        return roomOf[index].roomId;
+    }
+    
+    /**
+     * Number of entities in a room
+     */
+    public int count(String roomId) {
+        Occupants occupants = rooms.get(roomId);
+        return occupants != null ? occupants.size : 0;
+    }
+    
+    /**
+     * Counter that changes whenever anyone enters or leaves a room, for cache checks
+     */
+    public int version(String roomId) {
+        Occupants occupants = rooms.get(roomId);
+        return occupants != null ? occupants.version : 0;
+    }
+    
+    /**
+     * Hand over each room someone has entered or left since the last call
+     */
+    public void drainChangedRooms(Consumer<String> action) {
+        for (Occupants occupants : changed) {
+            occupants.changed = false;
+            action.accept(occupants.roomId);
+        }
+        changed.clear();
+    }
+    
+    /**
+     * Copy the entity indices currently in a room
+     */
+    public int[] occupantIndices(String roomId) {
+        Occupants occupants = rooms.get(roomId);
+        return occupants != null ? Arrays.copyOf(occupants.members, occupants.size) : new int[0];
+    }
+    
+    /**
+     * Visit the index of every entity in a room without allocating
+     */
+    public void forEachOccupant(String roomId, IntConsumer action) {
+        Occupants occupants = rooms.get(roomId);
+        if (occupants == null) return;
+        for (int i = 0; i < occupants.size; i++) {
+            action.accept(occupants.members[i]);
+        }
+    }
+    
+    /**
+     * Deliver something to every occupant of a room except one (usually the sender)
+     */
+    public void broadcast(String roomId, Entity exclude, Consumer<Entity> action) {
+        Occupants occupants = rooms.get(roomId);
+        if (occupants == null) return;
+        for (int i = 0; i < occupants.size; i++) {
+            Entity occupant = registry.entityAt(occupants.members[i]);
+            if (!occupant.equals(exclude)) {
+                action.accept(occupant);
+            }
+        }
+    }
+    
+    /**
+     * Get the entities in a room, optionally excluding one (usually the viewer)
+     */
+    public List<Entity> getOccupants(String roomId, Entity exclude) {
+        List<Entity> result = new ArrayList<>();
+        Occupants occupants = rooms.get(roomId);
+        if (occupants == null) return result;
+        for (int i = 0; i < occupants.size; i++) {
+            Entity occupant = registry.entityAt(occupants.members[i]);
+            if (!occupant.equals(exclude)) {
+                result.add(occupant);
+            }
+        }
+        return result;
+    }
+    
+    private void remove(int index) {
+        Occupants occupants = roomOf[index];
+        noteChanged(occupants);
+        int moved = occupants.removeAt(slotOf[index]);
+        if (moved >= 0) {
+            slotOf[moved] = slotOf[index];
+        }
+        roomOf[index] = null;
+    }
+    
+    private void noteChanged(Occupants occupants) {
+        if (!occupants.changed) {
+            occupants.changed = true;
+            changed.add(occupants);
+        }
+    }
+    
+    private void ensureCapacity(int index) {
+        if (index >= roomOf.length) {
+            int newLength = Math.max(roomOf.length * 2, index + 1);
+            roomOf = Arrays.copyOf(roomOf, newLength);
+            slotOf = Arrays.copyOf(slotOf, newLength);
+        }
+    }
+    
+    private static class Occupants {
+        final String roomId;
+        int[] members = new int[4];
+        int size;
+        int version;
+        boolean changed;
+        
+        Occupants(String roomId) {
+            this.roomId = roomId;
+        }
+        
+        int add(int index) {
+            version++;
+            if (size == members.length) {
+                members = Arrays.copyOf(members, size * 2);
+            }
+            members[size] = index;
+            return size++;
+        }
+        
+        // Returns the entity index that was swapped into the slot, or -1 if none
+        int removeAt(int slot) {
+            version++;
+            size--;
+            if (slot == size) {
+                return -1;
+            }
+            members[slot] = members[size];
+            return members[slot];
+        }
+    }
+}
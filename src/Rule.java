@@ -0,0 +1,106 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One compiled rule: a trigger, a precondition, and what happens either way
+ *
+ * A rule fires on a command (matched by verb and, optionally, argument) or
+ * on an entity entering or leaving a room. If its condition fails, the
+ * command or move is refused and the rule's message, if any, is printed.
+ * If it holds, the rule's effects run in order; a rule can end the command
+ * there (for commands only Java does not know about, such as a puzzle's).
+ *
+ * Rules are built by RuleBook and are immutable apart from their counters,
+ * which record how often the rule ran, how often it refused, and how long
+ * its conditions took to evaluate.
+ */
+public final class Rule {
+    public enum Trigger { COMMAND, ENTER, LEAVE }
+
+    public enum Outcome { PROCEED, REFUSED, CONSUMED }
+
+    /**
+     * A compiled condition over the world and the entity acting
+     */
+    @FunctionalInterface
+    public interface Condition {
+        boolean test(ECS world, Entity actor);
+    }
+
+    /**
+     * A compiled effect, run when the condition holds
+     */
+    @FunctionalInterface
+    public interface Effect {
+        void apply(ECS world, Entity actor);
+    }
+
+    public final String name;
+    public final Trigger trigger;
+    // The verb or room the trigger matches, and for commands the argument ("" for any)
+    public final String subject;
+    public final String argument;
+    private final Condition condition;
+    private final String refusal;
+    private final List<Effect> effects;
+    private final boolean consumes;
+
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong refusals = new AtomicLong();
+    private final AtomicLong evaluationNanos = new AtomicLong();
+
+    Rule(String name, Trigger trigger, String subject, String argument, Condition condition,
+         String refusal, List<Effect> effects, boolean consumes) {
+        this.name = name;
+        this.trigger = trigger;
+        this.subject = subject;
+        this.argument = argument;
+        this.condition = condition;
+        this.refusal = refusal;
+        this.effects = List.copyOf(effects);
+        this.consumes = consumes;
+    }
+
+    boolean matchesArgument(String typed) {
+        return argument.isEmpty() || argument.equals(typed);
+    }
+
+    /**
+     * Evaluate the rule for an actor and carry out its consequences
+     */
+    public Outcome apply(ECS world, Entity actor) {
+        long start = System.nanoTime();
+        boolean holds = condition.test(world, actor);
+        evaluationNanos.addAndGet(System.nanoTime() - start);
+        evaluations.incrementAndGet();
+        if (!holds) {
+            refusals.incrementAndGet();
+            if (refusal != null) {
+                world.getOutput().println(refusal);
+            }
+            return Outcome.REFUSED;
+        }
+        for (Effect effect : effects) {
+            effect.apply(world, actor);
+        }
+        return consumes ? Outcome.CONSUMED : Outcome.PROCEED;
+    }
+
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    public long getRefusals() {
+        return refusals.get();
+    }
+
+    public long getEvaluationNanos() {
+        return evaluationNanos.get();
+    }
+
+    public String describe() {
+        long count = evaluations.get();
+        return String.format("%s evaluated=%,d refused=%,d mean=%.2fus",
+            name, count, refusals.get(), count == 0 ? 0.0 : evaluationNanos.get() / 1e3 / count);
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Correctness check and timing for content rules
+ *
+ * Compiles a generated rule file of the given size and reports the cost per
+ * rule, then checks RuleBook and RuleSystem against the standard ship:
+ *
+ *   - mistakes are reported with the source and line they are on
+ *   - a rule's refusal stops the command and prints its message, and a
+ *     rule that holds runs its effects (say, set, consume) in order
+ *   - the ship's own rules (bridge-only docking, no vacuum without a suit)
+ *     hold even in a world that never registered a RuleSystem
+ *
+ * Then evaluates the ship's rules many times and prints RuleSystem's
+ * per-rule metrics. Exits with status 1 if a check fails or an evaluation
+ * averages a microsecond or more.
+ *
+ * Usage: java RuleBenchmark [rules] [evaluations]
+ */
+public class RuleBenchmark {
+    private static final double EVALUATION_BUDGET_NANOS = 1_000.0;
+
+    // Each mistake, and the line it should be reported on
+    private static final String[][] MISTAKES = {
+        {"[rule a]\non: look\nwhen: player.Nonexistent.flag", "3"},
+        {"[rule a]\non: look\nwhen: player.Docking.nothing", "3"},
+        {"[rule a]\non: look\nwhen: player wears NOT_AN_EFFECT", "3"},
+        {"[rule a]\non: look\n\nwhen: docking.Docking.pad == yes", "4"},
+        {"[rule a]\non: look\nwhen: (player in Bridge", "3"},
+        {"[rule a]\non: look\nthen: explode", "3"},
+        {"[rule a]\non: look\nsometimes: always", "3"},
+        {"when: player in Bridge", "1"},
+        {"[rule a]\nwhen: player in Bridge", "1"},
+        {"[rule a]\non enter: Bridge\nthen: consume", "1"},
+    };
+
+    private static final String EFFECTS = String.join("\n",
+        "[rule knock-on-hatch]",
+        "on: knock hatch",
+        "when: player in Airlock and not docking.Docking.requested",
+        "else: There is nothing here to knock on.",
+        "then: say The hatch rings hollow.",
+        "then: set docking.Docking.requested = true",
+        "then: consume");
+
+    public static void main(String[] args) {
+        int ruleCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int evaluations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        boolean pass = true;
+
+        boolean parsed = checkParse(ruleCount);
+        System.out.println("generated rules compile: " + parsed);
+        pass &= parsed;
+
+        boolean mistakes = checkMistakes();
+        System.out.println("every mistake reported on its line: " + mistakes);
+        pass &= mistakes;
+
+        boolean effects = checkEffects();
+        System.out.println("refusal stops the command; effects say, set and consume: " + effects);
+        pass &= effects;
+
+        boolean builtIn = checkShipRulesWithoutRuleSystem();
+        System.out.println("ship rules hold without a registered RuleSystem: " + builtIn);
+        pass &= builtIn;
+
+        double nanos = timeEvaluations(evaluations);
+        System.out.printf("slowest rule evaluation: %.0f ns (budget %.0f ns)%n", nanos, EVALUATION_BUDGET_NANOS);
+        pass &= nanos < EVALUATION_BUDGET_NANOS;
+
+        System.out.println(pass ? "PASS" : "FAIL");
+        if (!pass) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean checkParse(int ruleCount) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < ruleCount; i++) {
+            text.append("[rule generated-").append(i).append("]\n")
+                .append("on: examine panel-").append(i).append('\n')
+                .append("when: player in \"Room ").append(i % 50).append("\" or (player has wrench and not docking.Docking.inSpace)\n")
+                .append("when: docking.Docking.pad >= ").append(i % 8).append(" or player wears VACUUM_RATED\n")
+                .append("else: Panel ").append(i).append(" stays shut.\n")
+                .append("then: say Panel ").append(i).append(" opens.\n\n");
+        }
+        String source = text.toString();
+        List<Rule> rules = RuleBook.parse("generated", source);
+        long start = System.nanoTime();
+        int rounds = 5;
+        for (int r = 0; r < rounds; r++) {
+            rules = RuleBook.parse("generated", source);
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / rounds / ruleCount;
+        System.out.printf("compile: %,d rules, %.1f us per rule%n", ruleCount, micros);
+        return rules.size() == ruleCount;
+    }
+
+    private static boolean checkMistakes() {
+        boolean ok = true;
+        for (String[] mistake : MISTAKES) {
+            String expected = "mistakes:" + mistake[1] + ": ";
+            try {
+                RuleBook.parse("mistakes", mistake[0]);
+                System.out.println("  not reported: " + mistake[0].replace('\n', '|'));
+                ok = false;
+            } catch (IllegalArgumentException e) {
+                if (!e.getMessage().startsWith(expected)) {
+                    System.out.println("  wrong line, wanted " + mistake[1] + ": " + e.getMessage());
+                    ok = false;
+                }
+            }
+        }
+        return ok;
+    }
+
+    private static boolean checkEffects() {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        ECS world = shipWorld(captured, true);
+        world.getSystem(RuleSystem.class).load("effects", EFFECTS);
+        CommandSystem commands = world.getSystem(CommandSystem.class);
+        Entity player = world.createEntity("player");
+        DockingComponent docking = world.getComponent(world.createEntity("docking"), DockingComponent.class);
+
+        captured.reset();
+        commands.execute(player, ParsedCommand.parse("knock hatch"));
+        String refused = captured.toString(StandardCharsets.UTF_8);
+        boolean refusal = refused.equals("There is nothing here to knock on." + System.lineSeparator())
+            && !docking.requested;
+
+        world.getSystem(MovementSystem.class).placeEntity(player, "Airlock");
+        captured.reset();
+        commands.execute(player, ParsedCommand.parse("knock hatch"));
+        String allowed = captured.toString(StandardCharsets.UTF_8);
+        boolean applied = allowed.equals("The hatch rings hollow." + System.lineSeparator()) && docking.requested;
+        return refusal && applied;
+    }
+
+    // The docking and vacuum checks live only in the ship's rules
+    private static boolean checkShipRulesWithoutRuleSystem() {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        ECS world = shipWorld(captured, false);
+        CommandSystem commands = world.getSystem(CommandSystem.class);
+        Entity player = world.createEntity("player");
+        DockingComponent docking = world.getComponent(world.createEntity("docking"), DockingComponent.class);
+
+        captured.reset();
+        commands.execute(player, ParsedCommand.parse("request docking"));
+        boolean bridgeOnly = captured.toString(StandardCharsets.UTF_8).startsWith("You can only request docking from the bridge.")
+            && !docking.requested && !docking.clearancePending;
+
+        world.getSystem(MovementSystem.class).placeEntity(player, "Airlock");
+        String outside = world.getComponent(world.createEntity("Airlock"), ExitsComponent.class).getExit("out");
+        commands.execute(player, ParsedCommand.parse("out"));
+        boolean suitNeeded = docking.inSpace && outside != null
+            && !world.getComponent(player, PositionComponent.class).room.equals(outside);
+        return world.getSystem(RuleSystem.class) != null && bridgeOnly && suitNeeded;
+    }
+
+    private static double timeEvaluations(int evaluations) {
+        ECS world = shipWorld(OutputStream.nullOutputStream(), true);
+        RuleSystem rules = world.getSystem(RuleSystem.class);
+        Entity player = world.createEntity("player");
+        ParsedCommand request = ParsedCommand.parse("request docking");
+        ParsedCommand cycle = ParsedCommand.parse("cycle airlock");
+        int allowed = 0;
+        for (int i = 0; i < evaluations; i++) {
+            allowed += rules.allowsCommand(player, (i & 1) == 0 ? request : cycle) ? 1 : 0;
+            allowed += rules.allowsMove(player, "Airlock", "outside") ? 1 : 0;
+        }
+        for (String line : rules.describeMetrics()) {
+            System.out.println("  " + line);
+        }
+        double slowest = 0;
+        for (Rule rule : rules.getRules()) {
+            if (rule.getEvaluations() > 0) {
+                slowest = Math.max(slowest, rule.getEvaluationNanos() / (double) rule.getEvaluations());
+            }
+        }
+        if (allowed < 0) {
+            System.out.println(allowed);
+        }
+        return slowest;
+    }
+
+    private static ECS shipWorld(OutputStream output, boolean withRuleSystem) {
+        ECS world = ECS.createWorld();
+        world.setOutput(new PrintStream(output, true, StandardCharsets.UTF_8));
+        StarshipAdventure.registerSystems(world);
+        if (!withRuleSystem) {
+            world.unregisterSystem(world.getSystem(RuleSystem.class));
+        }
+        new GameInitializer(world).initializeWorld();
+        return world;
+    }
+}
@@ -0,0 +1,537 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Parses and compiles rules written as content
+ *
+ * A rules file is made of sections, in the style of WorldContent:
+ *
+ *   [rule request-docking-from-bridge]
+ *   on: request docking
+ *   when: player in Bridge
+ *   else: You can only request docking from the bridge.
+ *
+ *   [rule override-airlock]
+ *   on: override airlock
+ *   when: player in Airlock and player has wrench
+ *   else: The override panel is bolted shut.
+ *   then: say You jam the wrench into the override and the airlock chimes.
+ *   then: set player.Player.airlockCycled = true
+ *   then: consume
+ *
+ * Keys:
+ *   on: VERB [ARGUMENT]   a command, matched on the verb as typed; no argument matches any
+ *   on enter: ROOM        an entity moving into ROOM (quotes optional)
+ *   on leave: ROOM        an entity moving out of ROOM
+ *   when: CONDITION       may repeat; all must hold
+ *   else: TEXT            printed when the rule refuses
+ *   then: EFFECT          may repeat: "say TEXT", "set PATH = VALUE", or
+ *                         "consume" to end the command after the effects
+ *
+ * Conditions combine tests with and, or, not and parentheses:
+ *   ENTITY in ROOM               the entity's position
+ *   ENTITY has ITEM              the entity's inventory
+ *   ENTITY wears EFFECT          an effect of the entity's worn equipment
+ *   ENTITY.Component.field       a boolean field
+ *   ENTITY.Component.field OP VALUE   with OP one of == != < <= > >=
+ * "player" is the entity acting; any other name is an entity id. Component
+ * is a class name with or without its "Component" suffix. Names with spaces
+ * are written in double quotes.
+ *
+ * Everything is resolved while compiling: components, fields, enum
+ * constants and the types of values, so a typo is reported with its line
+ * rather than found in play. The result is a tree of small Condition
+ * objects that touch only the components they name.
+ */
+public final class RuleBook {
+    private static final String ACTOR = "player";
+
+    private RuleBook() {
+    }
+
+    /**
+     * Compile rules from text. Throws IllegalArgumentException naming the
+     * source and line of the first mistake.
+     */
+    public static List<Rule> parse(String source, String text) {
+        List<Rule> rules = new ArrayList<>();
+        Draft draft = null;
+        int lineNumber = 0;
+        for (String raw : text.split("\r?\n")) {
+            lineNumber++;
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("[rule ") && line.endsWith("]")) {
+                if (draft != null) {
+                    rules.add(draft.build());
+                }
+                draft = new Draft(line.substring(6, line.length() - 1).trim(), source, lineNumber);
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0 || draft == null) {
+                throw new IllegalArgumentException(where(source, lineNumber) + "expected 'key: value' inside a [rule] section");
+            }
+            String key = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            try {
+                draft.add(key, value);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(where(source, lineNumber) + e.getMessage(), e);
+            }
+        }
+        if (draft != null) {
+            rules.add(draft.build());
+        }
+        return rules;
+    }
+
+    // Only built for errors: the first string concatenation in a JVM costs
+    // tens of milliseconds to bootstrap, too much to pay at startup per line
+    private static String where(String source, int line) {
+        return source + ":" + line + ": ";
+    }
+
+    // A rule while its section is being read
+    private static final class Draft {
+        final String name;
+        final String source;
+        final int line;
+        Rule.Trigger trigger;
+        String subject;
+        String argument = "";
+        Rule.Condition condition;
+        String refusal;
+        final List<Rule.Effect> effects = new ArrayList<>();
+        boolean consumes;
+
+        Draft(String name, String source, int line) {
+            this.name = name;
+            this.source = source;
+            this.line = line;
+        }
+
+        void add(String key, String value) {
+            switch (key) {
+                case "on": {
+                    ParsedCommand command = ParsedCommand.parse(value);
+                    setTrigger(Rule.Trigger.COMMAND, command.verb);
+                    argument = command.argument;
+                    break;
+                }
+                case "on enter":
+                    setTrigger(Rule.Trigger.ENTER, value);
+                    break;
+                case "on leave":
+                    setTrigger(Rule.Trigger.LEAVE, value);
+                    break;
+                case "when": {
+                    Rule.Condition next = new Parser(value).parseCondition();
+                    Rule.Condition previous = condition;
+                    condition = previous == null ? next : (world, actor) -> previous.test(world, actor) && next.test(world, actor);
+                    break;
+                }
+                case "else":
+                    refusal = value;
+                    break;
+                case "then":
+                    addEffect(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown rule key '" + key + "'");
+            }
+        }
+
+        void setTrigger(Rule.Trigger trigger, String subject) {
+            if (this.trigger != null) {
+                throw new IllegalArgumentException("rule " + name + " already has a trigger");
+            }
+            if (subject.isEmpty()) {
+                throw new IllegalArgumentException("trigger needs a command or room");
+            }
+            this.trigger = trigger;
+            this.subject = word(subject);
+        }
+
+        void addEffect(String value) {
+            if (value.equals("consume")) {
+                consumes = true;
+            } else if (value.startsWith("say ")) {
+                String text = value.substring(4).trim();
+                effects.add((world, actor) -> world.getOutput().println(text));
+            } else if (value.startsWith("set ")) {
+                effects.add(new Parser(value.substring(4)).parseAssignment());
+            } else {
+                throw new IllegalArgumentException("unknown effect '" + value + "'; expected say, set or consume");
+            }
+        }
+
+        Rule build() {
+            if (trigger == null) {
+                throw new IllegalArgumentException(where(source, line) + "rule " + name + " has no 'on' trigger");
+            }
+            if (consumes && trigger != Rule.Trigger.COMMAND) {
+                throw new IllegalArgumentException(where(source, line) + "rule " + name + ": only command rules can consume");
+            }
+            Rule.Condition test = condition != null ? condition : (world, actor) -> true;
+            return new Rule(name, trigger, subject, argument, test, refusal, effects, consumes);
+        }
+    }
+
+    // Recursive descent over one condition or assignment
+    private static final class Parser {
+        private final List<String> tokens;
+        private int position;
+
+        Parser(String text) {
+            this.tokens = tokenize(text);
+        }
+
+        Rule.Condition parseCondition() {
+            Rule.Condition condition = parseOr();
+            expectEnd();
+            return condition;
+        }
+
+        Rule.Effect parseAssignment() {
+            Accessor target = parseAccessor(next());
+            if (Modifier.isFinal(target.field.getModifiers())) {
+                throw new IllegalArgumentException(target + " cannot be changed");
+            }
+            expect("=");
+            Object value = coerce(target.field.getType(), next(), target);
+            expectEnd();
+            return (world, actor) -> target.set(world, actor, value);
+        }
+
+        private Rule.Condition parseOr() {
+            Rule.Condition left = parseAnd();
+            while (accept("or")) {
+                Rule.Condition a = left;
+                Rule.Condition b = parseAnd();
+                left = (world, actor) -> a.test(world, actor) || b.test(world, actor);
+            }
+            return left;
+        }
+
+        private Rule.Condition parseAnd() {
+            Rule.Condition left = parseUnary();
+            while (accept("and")) {
+                Rule.Condition a = left;
+                Rule.Condition b = parseUnary();
+                left = (world, actor) -> a.test(world, actor) && b.test(world, actor);
+            }
+            return left;
+        }
+
+        private Rule.Condition parseUnary() {
+            if (accept("not")) {
+                Rule.Condition inner = parseUnary();
+                return (world, actor) -> !inner.test(world, actor);
+            }
+            if (accept("(")) {
+                Rule.Condition inner = parseOr();
+                expect(")");
+                return inner;
+            }
+            if (accept("true")) {
+                return (world, actor) -> true;
+            }
+            if (accept("false")) {
+                return (world, actor) -> false;
+            }
+            return parseTest();
+        }
+
+        private Rule.Condition parseTest() {
+            String subject = next();
+            if (peek("in")) {
+                next();
+                EntityRef entity = new EntityRef(word(subject));
+                String room = word(next());
+                return (world, actor) -> {
+                    PositionComponent position = world.getComponent(entity.resolve(world, actor), PositionComponent.class);
+                    return position != null && position.room.equals(room);
+                };
+            }
+            if (peek("has")) {
+                next();
+                EntityRef entity = new EntityRef(word(subject));
+                String item = word(next());
+                return (world, actor) -> {
+                    InventoryComponent inventory = world.getComponent(entity.resolve(world, actor), InventoryComponent.class);
+                    return inventory != null && inventory.hasItem(item);
+                };
+            }
+            if (peek("wears")) {
+                next();
+                EntityRef entity = new EntityRef(word(subject));
+                WearableComponent.Effect effect = enumConstant(WearableComponent.Effect.class, next());
+                return (world, actor) -> {
+                    EquipmentComponent equipment = world.getComponent(entity.resolve(world, actor), EquipmentComponent.class);
+                    return equipment != null && equipment.hasEffect(effect);
+                };
+            }
+
+            Accessor accessor = parseAccessor(subject);
+            Class<?> type = accessor.field.getType();
+            if (atEnd() || peek("and") || peek("or") || peek(")")) {
+                if (type != boolean.class && type != Boolean.class) {
+                    throw new IllegalArgumentException(accessor + " is not true/false; compare it with a value");
+                }
+                return (world, actor) -> Boolean.TRUE.equals(accessor.get(world, actor));
+            }
+            String operator = next();
+            Object value = coerce(type, next(), accessor);
+            switch (operator) {
+                case "==":
+                    return (world, actor) -> Objects.equals(accessor.get(world, actor), value);
+                case "!=":
+                    return (world, actor) -> !Objects.equals(accessor.get(world, actor), value);
+                case "<":
+                case "<=":
+                case ">":
+                case ">=": {
+                    if (!(value instanceof Number)) {
+                        throw new IllegalArgumentException(accessor + " is not a number; use == or !=");
+                    }
+                    double limit = ((Number) value).doubleValue();
+                    return numeric(accessor, operator, limit);
+                }
+                default:
+                    throw new IllegalArgumentException("expected a comparison after " + accessor + ", found '" + operator + "'");
+            }
+        }
+
+        private Rule.Condition numeric(Accessor accessor, String operator, double limit) {
+            switch (operator) {
+                case "<":
+                    return (world, actor) -> number(accessor.get(world, actor)) < limit;
+                case "<=":
+                    return (world, actor) -> number(accessor.get(world, actor)) <= limit;
+                case ">":
+                    return (world, actor) -> number(accessor.get(world, actor)) > limit;
+                default:
+                    return (world, actor) -> number(accessor.get(world, actor)) >= limit;
+            }
+        }
+
+        private Accessor parseAccessor(String entity) {
+            expect(".");
+            String component = next();
+            expect(".");
+            String field = next();
+            return new Accessor(new EntityRef(word(entity)), resolveComponent(component), field);
+        }
+
+        private boolean atEnd() {
+            return position >= tokens.size();
+        }
+
+        private boolean peek(String token) {
+            return !atEnd() && tokens.get(position).equals(token);
+        }
+
+        private boolean accept(String token) {
+            if (peek(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw new IllegalArgumentException("expected '" + token + "'"
+                    + (atEnd() ? " at end" : ", found '" + tokens.get(position) + "'"));
+            }
+        }
+
+        private void expectEnd() {
+            if (!atEnd()) {
+                throw new IllegalArgumentException("unexpected '" + tokens.get(position) + "'");
+            }
+        }
+
+        private String next() {
+            if (atEnd()) {
+                throw new IllegalArgumentException("condition ends too soon");
+            }
+            return tokens.get(position++);
+        }
+    }
+
+    // Which entity a test reads: the actor, or a fixed entity by id
+    private static final class EntityRef {
+        final String id;
+        final boolean actor;
+
+        EntityRef(String id) {
+            this.id = id;
+            this.actor = id.equals(ACTOR);
+        }
+
+        Entity resolve(ECS world, Entity acting) {
+            return actor ? acting : world.createEntity(id);
+        }
+    }
+
+    // A public field of a component on an entity, looked up once
+    private static final class Accessor {
+        final EntityRef entity;
+        final Class<? extends Component> type;
+        final Field field;
+
+        Accessor(EntityRef entity, Class<? extends Component> type, String fieldName) {
+            this.entity = entity;
+            this.type = type;
+            try {
+                this.field = type.getField(fieldName);
+            } catch (NoSuchFieldException e) {
+                throw new IllegalArgumentException(type.getSimpleName() + " has no public field '" + fieldName + "'");
+            }
+        }
+
+        Object get(ECS world, Entity actor) {
+            Component component = world.getComponent(entity.resolve(world, actor), type);
+            if (component == null) {
+                return null;
+            }
+            try {
+                return field.get(component);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void set(ECS world, Entity actor, Object value) {
+            Component component = world.getComponent(entity.resolve(world, actor), type);
+            if (component == null) {
+                return;
+            }
+            try {
+                field.set(component, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return entity.id + "." + type.getSimpleName() + "." + field.getName();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Component> resolveComponent(String name) {
+        for (String candidate : new String[] {name + "Component", name}) {
+            try {
+                Class<?> type = Class.forName(candidate);
+                if (Component.class.isAssignableFrom(type)) {
+                    return (Class<? extends Component>) type;
+                }
+            } catch (ClassNotFoundException e) {
+                // Try the next spelling
+            }
+        }
+        throw new IllegalArgumentException("unknown component '" + name + "'");
+    }
+
+    // Turn a literal into the field's own type, so tests compare like with like
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object coerce(Class<?> type, String literal, Accessor accessor) {
+        try {
+            if (type == boolean.class || type == Boolean.class) {
+                if (!literal.equals("true") && !literal.equals("false")) {
+                    throw new IllegalArgumentException(accessor + " takes true or false, not '" + literal + "'");
+                }
+                return Boolean.valueOf(literal);
+            }
+            if (type == int.class || type == Integer.class) {
+                return Integer.valueOf(literal);
+            }
+            if (type == long.class || type == Long.class) {
+                return Long.valueOf(literal);
+            }
+            if (type == double.class || type == Double.class) {
+                return Double.valueOf(literal);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(accessor + " takes a "
+                + (type == double.class || type == Double.class ? "number" : "whole number") + ", not '" + literal + "'");
+        }
+        if (type == String.class) {
+            return word(literal);
+        }
+        if (type.isEnum()) {
+            return enumConstant((Class) type, literal);
+        }
+        throw new IllegalArgumentException(accessor + " has a type rules cannot use (" + type.getSimpleName() + ")");
+    }
+
+    private static <E extends Enum<E>> E enumConstant(Class<E> type, String literal) {
+        try {
+            return Enum.valueOf(type, word(literal));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("no " + type.getSimpleName() + " called '" + word(literal) + "'");
+        }
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    // Strip the quotes from a quoted token
+    private static String word(String token) {
+        return token.length() >= 2 && token.startsWith("\"") ? token.substring(1, token.length() - 1) : token;
+    }
+
+    // Quoted strings keep their quotes so word() can tell them apart
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("unterminated string");
+                }
+                tokens.add(text.substring(i, end + 1));
+                i = end + 1;
+            } else if ("=!<>".indexOf(c) >= 0) {
+                boolean pair = i + 1 < text.length() && text.charAt(i + 1) == '=';
+                String operator = text.substring(i, i + (pair ? 2 : 1));
+                if (operator.equals("!")) {
+                    throw new IllegalArgumentException("use 'not' or '!='");
+                }
+                tokens.add(operator);
+                i += operator.length();
+            } else if (Character.isDigit(c) || (c == '-' && i + 1 < text.length() && Character.isDigit(text.charAt(i + 1)))) {
+                int start = i++;
+                while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i));
+            } else if ("().".indexOf(c) >= 0) {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else {
+                int start = i;
+                while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+                       && "\"=!<>().".indexOf(text.charAt(i)) < 0) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * System that gates commands and movement with rules from content
+ *
+ * Rules (see RuleBook) are indexed by what triggers them, so a command or
+ * move only evaluates the few rules written for it. Rules for the same
+ * trigger run in the order they were added; the first to refuse stops the
+ * rest, and the command or move does not happen.
+ *
+ * Each rule keeps its own counters; describeMetrics() reports them with the
+ * total time spent evaluating conditions.
+ *
+ * The text of everything loaded is kept, by source, so a PrebuiltWorld can
+ * carry the rules along with the components.
+ *
+ * Whoever loads rules into a world gets its RuleSystem through forWorld(),
+ * which registers one if need be, so rules are never dropped (and the
+ * checks they carry never skipped) for want of a registered system.
+ */
+public class RuleSystem implements Esystem {
+    private ECS ecs;
+    private final Map<String, List<Rule>> commandRules;
+    private final Map<String, List<Rule>> enterRules;
+    private final Map<String, List<Rule>> leaveRules;
+    private final List<Rule> rules;
+    private final Map<String, String> sources;
+
+    public RuleSystem(ECS ecs) {
+        this.ecs = ecs;
+        this.commandRules = new HashMap<>();
+        this.enterRules = new HashMap<>();
+        this.leaveRules = new HashMap<>();
+        this.rules = new ArrayList<>();
+        this.sources = new LinkedHashMap<>();
+    }
+
+    /**
+     * Get a world's RuleSystem, registering one first if it has none
+     */
+    public static RuleSystem forWorld(ECS world) {
+        RuleSystem rules = world.getSystem(RuleSystem.class);
+        if (rules == null) {
+            rules = new RuleSystem(world);
+            world.registerSystem(rules);
+        }
+        return rules;
+    }
+
+    /**
+     * Compile rules from text and add them after those already loaded
+     */
+    public void load(String source, String text) {
+        add(source, text, RuleBook.parse(source, text));
+    }
+
+    /**
+     * Add rules already compiled from text by RuleBook.parse, keeping the
+     * text as load() does. Lets a caller compile several sources before
+     * adding any of them.
+     */
+    public void add(String source, String text, List<Rule> compiled) {
+        addAll(compiled);
+        sources.merge(source, text, (earlier, later) -> earlier + "\n" + later);
+    }
+
+    /**
+     * Compile and add the rules in a file. Mistakes are reported as an
+     * IOException naming the file and line.
+     */
+    public void load(Path file) throws IOException {
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        try {
+            load(file.toString(), text);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The text of every rule source loaded, in load order
+     */
+    public Map<String, String> getSources() {
+        return Collections.unmodifiableMap(sources);
+    }
+
+    private void addAll(List<Rule> added) {
+        for (Rule rule : added) {
+            Map<String, List<Rule>> index;
+            switch (rule.trigger) {
+                case COMMAND:
+                    index = commandRules;
+                    break;
+                case ENTER:
+                    index = enterRules;
+                    break;
+                default:
+                    index = leaveRules;
+                    break;
+            }
+            index.computeIfAbsent(rule.subject, key -> new ArrayList<>()).add(rule);
+            rules.add(rule);
+        }
+    }
+
+    public List<Rule> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * Apply the rules for a command. Returns true if the command should go
+     * on to run, false if a rule refused it or handled it completely.
+     */
+    public boolean allowsCommand(Entity actor, ParsedCommand command) {
+        List<Rule> candidates = commandRules.get(command.verb);
+        if (candidates == null) {
+            return true;
+        }
+        for (Rule rule : candidates) {
+            if (!rule.matchesArgument(command.argument)) continue;
+            if (rule.apply(ecs, actor) != Rule.Outcome.PROCEED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply the rules for leaving one room and entering another. Returns
+     * false if the move is refused.
+     */
+    public boolean allowsMove(Entity actor, String from, String to) {
+        return passes(leaveRules.get(from), actor) && passes(enterRules.get(to), actor);
+    }
+
+    private boolean passes(List<Rule> candidates, Entity actor) {
+        if (candidates == null) {
+            return true;
+        }
+        for (Rule rule : candidates) {
+            if (rule.apply(ecs, actor) == Rule.Outcome.REFUSED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Time spent evaluating every rule's conditions so far
+     */
+    public long getEvaluationNanos() {
+        long total = 0;
+        for (Rule rule : rules) {
+            total += rule.getEvaluationNanos();
+        }
+        return total;
+    }
+
+    /**
+     * One line per rule, then the total
+     */
+    public List<String> describeMetrics() {
+        List<String> lines = new ArrayList<>();
+        long evaluations = 0;
+        for (Rule rule : rules) {
+            lines.add(rule.describe());
+            evaluations += rule.getEvaluations();
+        }
+        lines.add(String.format("rules=%d evaluated=%,d total=%.3f ms",
+            rules.size(), evaluations, getEvaluationNanos() / 1e6));
+        return lines;
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs many headless game sessions fairly on one thread
+ *
+ * Each session has its own world (a BatchSession) and its own SessionInbox.
+ * Producers add commands to a session's inbox from any thread; the host
+ * thread calls runPass(), which visits every session in turn and runs at
+ * most one command from each, subject to that session's rate limit. A
+ * session flooding its inbox therefore gets no more than its turn and its
+ * rate, and the excess is shed at its own queue instead of delaying others.
+ *
+ * Every world is capped with ECS.setLimits; a command that would exceed a
+ * cap is refused, reported to that session and counted in its metrics.
+ *
+ * With hibernation enabled, worlds are kept in memory only while in use.
+ * Resident worlds form an LRU; after each pass, worlds idle for longer than
+ * the idle period, and the least recently used beyond the resident budget,
+ * are written to disk as WorldImages and dropped. A session's next command
+ * brings its world back before running. Sessions are not given a world
+ * until their first command.
+ */
+public class SessionHost {
+    private final Map<String, HostedSession> sessions;
+    private final List<HostedSession> order;
+    private final int queueCapacity;
+    private final double commandsPerSecond;
+    private final int burst;
+    private final int maxEntities;
+    private final int maxComponents;
+
+    // Hibernation; resident is in least-recently-used order
+    private final LinkedHashMap<String, HostedSession> resident;
+    private Path hibernationDir;
+    private long idleNanos;
+    private int residentBudget;
+    private BatchSession base;
+    private long hibernations;
+    private long hibernationsRefused;
+    private long restores;
+    private long restoreNanos;
+    private long maxRestoreNanos;
+    private long imageBytes;
+
+    private static final class HostedSession {
+        final String id;
+        final SessionInbox inbox;
+        BatchSession session;
+        long lastActive;
+        boolean hibernated;
+        boolean finished;
+
+        HostedSession(String id, SessionInbox inbox) {
+            this.id = id;
+            this.inbox = inbox;
+        }
+    }
+
+    public SessionHost(int queueCapacity, double commandsPerSecond, int burst, int maxEntities, int maxComponents) {
+        this.sessions = new ConcurrentHashMap<>();
+        this.order = new ArrayList<>();
+        this.resident = new LinkedHashMap<>(16, 0.75f, true);
+        this.queueCapacity = queueCapacity;
+        this.commandsPerSecond = commandsPerSecond;
+        this.burst = burst;
+        this.maxEntities = maxEntities;
+        this.maxComponents = maxComponents;
+    }
+
+    /**
+     * Hibernate worlds idle for idleMillis, and keep at most residentBudget
+     * worlds in memory, writing the rest to images in dir. Call before adding sessions.
+     */
+    public void enableHibernation(Path dir, long idleMillis, int residentBudget) throws IOException {
+        if (!order.isEmpty()) {
+            throw new IllegalStateException("Enable hibernation before adding sessions");
+        }
+        Files.createDirectories(dir);
+        this.hibernationDir = dir;
+        this.idleNanos = idleMillis * 1_000_000L;
+        this.residentBudget = Math.max(1, residentBudget);
+        // Never run; images are the difference from this
+        this.base = new BatchSession();
+    }
+
+    /**
+     * Add a session. Call from the host thread. Without hibernation its world
+     * is built now; with it, on its first command.
+     */
+    public SessionInbox addSession(String id) {
+        HostedSession hosted = new HostedSession(id, new SessionInbox(queueCapacity, commandsPerSecond, burst));
+        if (sessions.putIfAbsent(id, hosted) != null) {
+            throw new IllegalArgumentException("Session already exists: " + id);
+        }
+        order.add(hosted);
+        if (hibernationDir == null) {
+            hosted.session = newSession();
+        }
+        return hosted.inbox;
+    }
+
+    /**
+     * Get a session's inbox so commands can be added to it, or null if there is no such session
+     */
+    public SessionInbox getInbox(String id) {
+        HostedSession hosted = sessions.get(id);
+        return hosted != null ? hosted.inbox : null;
+    }
+
+    public int getSessionCount() {
+        return order.size();
+    }
+
+    /**
+     * Give every session one turn. Returns how many commands were run.
+     */
+    public int runPass(long nowNanos) {
+        int ran = 0;
+        for (HostedSession hosted : order) {
+            if (hosted.finished) continue;
+            String command = hosted.inbox.poll(nowNanos);
+            if (command == null) continue;
+            execute(hosted, command, nowNanos);
+            ran++;
+        }
+        if (hibernationDir != null) {
+            hibernateIdle(nowNanos);
+        }
+        return ran;
+    }
+
+    /**
+     * Run one command on a session right away, bypassing its inbox, and
+     * return the result (null if the session has ended or was refused by a cap)
+     */
+    public CommandResult run(String id, String command) {
+        HostedSession hosted = sessions.get(id);
+        if (hosted == null) {
+            throw new IllegalArgumentException("No such session: " + id);
+        }
+        return hosted.finished ? null : execute(hosted, command, System.nanoTime());
+    }
+
+    private CommandResult execute(HostedSession hosted, String command, long nowNanos) {
+        BatchSession session = wake(hosted);
+        hosted.lastActive = nowNanos;
+        CommandResult result = null;
+        try {
+            result = session.run(command);
+        } catch (WorldLimitException e) {
+            hosted.inbox.recordRejection();
+        }
+        if (!session.isRunning()) {
+            hosted.finished = true;
+            hosted.session = null;
+            resident.remove(hosted.id);
+        }
+        return result;
+    }
+
+    // Make sure a session's world is in memory, restoring it if it was hibernated
+    private BatchSession wake(HostedSession hosted) {
+        if (hosted.session != null) {
+            if (hibernationDir != null) {
+                resident.get(hosted.id);
+            }
+            return hosted.session;
+        }
+        long start = System.nanoTime();
+        BatchSession session = newSession();
+        if (hosted.hibernated) {
+            Path image = imagePath(hosted.id);
+            try (InputStream file = Files.newInputStream(image)) {
+                WorldImage.read(new DataInputStream(new BufferedInputStream(file)), session.getWorld());
+                Files.delete(image);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not restore session " + hosted.id, e);
+            }
+            hosted.hibernated = false;
+            long elapsed = System.nanoTime() - start;
+            restores++;
+            restoreNanos += elapsed;
+            maxRestoreNanos = Math.max(maxRestoreNanos, elapsed);
+        }
+        hosted.session = session;
+        resident.put(hosted.id, hosted);
+        return session;
+    }
+
+    private BatchSession newSession() {
+        BatchSession session = new BatchSession();
+        session.getWorld().setLimits(maxEntities, maxComponents);
+        return session;
+    }
+
+    // Least recently used first: evict over budget, then anything idle too long
+    private void hibernateIdle(long nowNanos) {
+        Iterator<HostedSession> it = resident.values().iterator();
+        while (it.hasNext()) {
+            HostedSession hosted = it.next();
+            boolean overBudget = resident.size() > residentBudget;
+            if (!overBudget && nowNanos - hosted.lastActive < idleNanos) {
+                break;
+            }
+            if (hibernate(hosted)) {
+                it.remove();
+            } else if (!overBudget) {
+                break;
+            }
+        }
+    }
+
+    private boolean hibernate(HostedSession hosted) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            WorldImage.write(hosted.session.getWorld(), base.getWorld(), new DataOutputStream(bytes));
+            Files.write(imagePath(hosted.id), bytes.toByteArray());
+        } catch (IllegalStateException | IOException e) {
+            // Stays in memory; it will be offered for hibernation again later
+            hibernationsRefused++;
+            return false;
+        }
+        imageBytes += bytes.size();
+        hibernations++;
+        hosted.session = null;
+        hosted.hibernated = true;
+        return true;
+    }
+
+    // Session ids come from outside, so the file is named by a hash of the id
+    // rather than the id itself, which could hold separators or "..".
+    private Path imagePath(String id) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(id.getBytes(StandardCharsets.UTF_8));
+            return hibernationDir.resolve(HexFormat.of().formatHex(digest) + ".world");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public int getResidentCount() {
+        return hibernationDir != null ? resident.size() : order.size();
+    }
+
+    public long getHibernationCount() {
+        return hibernations;
+    }
+
+    public long getHibernationsRefused() {
+        return hibernationsRefused;
+    }
+
+    public long getRestoreCount() {
+        return restores;
+    }
+
+    public double getMeanRestoreMillis() {
+        return restores == 0 ? 0.0 : restoreNanos / 1e6 / restores;
+    }
+
+    public double getMaxRestoreMillis() {
+        return maxRestoreNanos / 1e6;
+    }
+
+    /**
+     * Total bytes of images written
+     */
+    public long getImageBytes() {
+        return imageBytes;
+    }
+
+    /**
+     * One metrics line per session
+     */
+    public List<String> describeMetrics() {
+        List<String> lines = new ArrayList<>();
+        for (HostedSession hosted : order) {
+            lines.add(hosted.id + ": " + hosted.inbox.describeMetrics());
+        }
+        return lines;
+    }
+}
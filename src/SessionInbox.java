@@ -0,0 +1,218 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded command queue for one game session, with backpressure and a rate limit
+ *
+ * Producers (a console reader, a network connection) add commands; the
+ * thread that runs the session takes them out. The queue holds at most
+ * capacity commands. When it is full a producer is either turned away at
+ * once (offer: the command is shed) or made to wait for room (offer with a
+ * timeout, or put), which pushes back on whoever is sending.
+ *
+ * Commands leave the queue no faster than a token bucket allows, so a
+ * session sending a flood is slowed to its rate and then, once its queue
+ * fills, shed, while the session's host keeps serving everyone else.
+ *
+ * All counters may be read from any thread.
+ */
+public class SessionInbox {
+    private static final class Pending {
+        final String command;
+        final long enqueuedAt;
+
+        Pending(String command, long enqueuedAt) {
+            this.command = command;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final BlockingQueue<Pending> queue;
+    private final TokenBucket bucket;
+    private volatile boolean closed;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxDepth = new AtomicLong();
+
+    public SessionInbox(int capacity, double commandsPerSecond, int burst) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.bucket = new TokenBucket(commandsPerSecond, burst, System.nanoTime());
+    }
+
+    /**
+     * Add a command if there is room, otherwise shed it. Returns whether it was accepted.
+     */
+    public boolean offer(String command) {
+        if (closed || !queue.offer(new Pending(command, System.nanoTime()))) {
+            shed.incrementAndGet();
+            return false;
+        }
+        admitted();
+        return true;
+    }
+
+    /**
+     * Add a command, waiting up to the timeout for room before shedding it
+     */
+    public boolean offer(String command, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(command)) {
+            return true;
+        }
+        shed.decrementAndGet();
+        delayed.incrementAndGet();
+        if (closed || !queue.offer(new Pending(command, System.nanoTime()), timeout, unit)) {
+            shed.incrementAndGet();
+            return false;
+        }
+        admitted();
+        return true;
+    }
+
+    /**
+     * Add a command, waiting as long as it takes for room
+     */
+    public void put(String command) throws InterruptedException {
+        if (queue.remainingCapacity() == 0) {
+            delayed.incrementAndGet();
+        }
+        queue.put(new Pending(command, System.nanoTime()));
+        admitted();
+    }
+
+    private void admitted() {
+        accepted.incrementAndGet();
+        long depth = queue.size();
+        long max;
+        while (depth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, depth)) {
+            // Retry until we record the larger depth or someone records a larger one
+        }
+    }
+
+    /**
+     * Take the next command if the rate limit allows one now, or return null
+     * if the queue is empty or the session must wait
+     */
+    public String poll(long nowNanos) {
+        if (queue.isEmpty()) {
+            return null;
+        }
+        if (!bucket.tryAcquire(nowNanos)) {
+            throttled.incrementAndGet();
+            return null;
+        }
+        Pending next = queue.poll();
+        return next != null ? dispatched(next, nowNanos) : null;
+    }
+
+    /**
+     * Take the next command, waiting for one to arrive and for the rate limit.
+     * Returns null once the inbox is closed and empty.
+     */
+    public String take() throws InterruptedException {
+        while (true) {
+            Pending next = queue.poll(50, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                if (closed && queue.isEmpty()) {
+                    return null;
+                }
+                continue;
+            }
+            long now = System.nanoTime();
+            long wait = bucket.nanosUntilAvailable(now);
+            if (wait > 0) {
+                throttled.incrementAndGet();
+                TimeUnit.NANOSECONDS.sleep(wait);
+                now = System.nanoTime();
+            }
+            bucket.tryAcquire(now);
+            return dispatched(next, now);
+        }
+    }
+
+    private String dispatched(Pending next, long nowNanos) {
+        long wait = Math.max(0L, nowNanos - next.enqueuedAt);
+        totalWaitNanos.addAndGet(wait);
+        long max;
+        while (wait > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, wait)) {
+            // Same as in admitted()
+        }
+        processed.incrementAndGet();
+        return next.command;
+    }
+
+    /**
+     * No more commands will arrive; take() returns null once the queue is empty
+     */
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Count a command that was taken but refused because the world is at a limit
+     */
+    public void recordRejection() {
+        rejected.incrementAndGet();
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getShed() {
+        return shed.get();
+    }
+
+    public long getDelayed() {
+        return delayed.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    public double getMeanWaitMillis() {
+        long count = processed.get();
+        return count == 0 ? 0.0 : totalWaitNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * One line of metrics, for logs and status output
+     */
+    public String describeMetrics() {
+        return String.format("depth=%d max=%d accepted=%d shed=%d delayed=%d throttled=%d processed=%d rejected=%d wait(mean/max ms)=%.1f/%.1f",
+            getDepth(), getMaxDepth(), getAccepted(), getShed(), getDelayed(), getThrottled(),
+            getProcessed(), getRejected(), getMeanWaitMillis(), getMaxWaitNanos() / 1e6);
+    }
+}
@@ -0,0 +1,213 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One ship or starbase in a Universe
+ * 
+ * A shard wraps its own ECS world and is only ever ticked by the worker thread
+ * it is assigned to, so the world itself needs no locking. Other shards talk
+ * to it by sending ShardMessages, and outside code that wants to touch the
+ * world posts a task; both queues are drained at the start of the shard's tick.
+ * 
+ * A starbase shard hands out pads through its own TrafficControl, sized from
+ * its StarbaseComponent. A ship that asks while every pad is taken is told
+ * it is queued and gets a clearance as soon as a pad is released; a shard
+ * with no starbase denies the request, which lets the ship ask again.
+ */
+public class Shard {
+    private static final String DOCKING = "docking";
+    
+    private final String id;
+    private final ECS world;
+    private final Universe universe;
+    private final ConcurrentLinkedQueue<ShardMessage> mailbox;
+    private final ConcurrentLinkedQueue<Runnable> tasks;
+    private TrafficControl trafficControl;
+    private volatile double load;
+    
+    Shard(String id, ECS world, Universe universe) {
+        this.id = id;
+        this.world = world;
+        this.universe = universe;
+        this.mailbox = new ConcurrentLinkedQueue<>();
+        this.tasks = new ConcurrentLinkedQueue<>();
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    /**
+     * The shard's world. Only safe to use from the shard's own tick, i.e.
+     * inside a posted task or a system update.
+     */
+    public ECS getWorld() {
+        return world;
+    }
+    
+    /**
+     * Smoothed nanoseconds per tick, used by the universe to rebalance shards
+     */
+    public double getLoad() {
+        return load;
+    }
+    
+    /**
+     * Run something against this shard's world on its owning thread
+     */
+    public void post(Runnable task) {
+        tasks.add(task);
+    }
+    
+    void deliver(ShardMessage message) {
+        mailbox.add(message);
+    }
+    
+    void tick(double deltaTime) {
+        long start = System.nanoTime();
+        
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        ShardMessage message;
+        while ((message = mailbox.poll()) != null) {
+            handle(message);
+        }
+        world.update(deltaTime);
+        
+        long elapsed = System.nanoTime() - start;
+        load = load == 0 ? elapsed : load * 0.8 + elapsed * 0.2;
+    }
+    
+    /**
+     * Ask a starbase shard for a docking pad. The clearance arrives later as
+     * a message and is written into this shard's DockingComponent.
+     * Must be called from this shard's thread.
+     */
+    public void requestDocking(String starbaseShard) {
+        DockingComponent docking = world.getComponent(world.createEntity(DOCKING), DockingComponent.class);
+        if (docking == null || docking.requested || docking.clearancePending) {
+            return;
+        }
+        docking.clearancePending = true;
+        universe.send(ShardMessage.dockingRequest(id, starbaseShard, id));
+    }
+    
+    /**
+     * Leave a starbase, giving the pad back so the next queued ship gets it.
+     * Must be called from this shard's thread.
+     */
+    public void departStarbase(String starbaseShard) {
+        DockingComponent docking = world.getComponent(world.createEntity(DOCKING), DockingComponent.class);
+        if (docking == null || docking.pad <= 0) {
+            return;
+        }
+        universe.send(ShardMessage.padRelease(id, starbaseShard, id, docking.pad));
+        docking.pad = -1;
+        docking.requested = false;
+        docking.initiated = false;
+        docking.inSpace = true;
+        docking.range = -1.0;
+    }
+    
+    /**
+     * The starbase's pad allocator, or null if this shard has no starbase.
+     * Only for use from this shard's thread.
+     */
+    public TrafficControl getTrafficControl() {
+        if (trafficControl == null) {
+            Collection<Entity> starbases = world.getEntitiesWithComponent(StarbaseComponent.class);
+            if (!starbases.isEmpty()) {
+                StarbaseComponent starbase = world.getComponent(starbases.iterator().next(), StarbaseComponent.class);
+                trafficControl = new TrafficControl(starbase.getPadCount(), 0);
+            }
+        }
+        return trafficControl;
+    }
+    
+    /**
+     * Move an entity (typically a player leaving through the airlock) to
+     * another shard. Its components travel with it, apart from its position,
+     * which is replaced by the arrival room. Must be called from this shard's thread.
+     */
+    public void transferEntity(Entity entity, String toShard, String arrivalRoom) {
+        List<Component> components = new ArrayList<>();
+        for (Component component : world.getComponents(entity)) {
+            if (!(component instanceof PositionComponent)) {
+                components.add(component);
+            }
+        }
+        world.destroyEntity(entity);
+        universe.send(ShardMessage.entityTransfer(id, toShard, entity.getId(), arrivalRoom, components));
+    }
+    
+    private void handle(ShardMessage message) {
+        switch (message.type) {
+            case DOCKING_REQUEST: {
+                TrafficControl control = getTrafficControl();
+                if (control == null) {
+                    universe.send(ShardMessage.dockingDenied(id, message.fromShard, message.entityId));
+                    break;
+                }
+                CompletableFuture<Integer> clearance = control.requestClearance(message.entityId);
+                if (!clearance.isDone()) {
+                    universe.send(ShardMessage.dockingQueued(id, message.fromShard, message.entityId));
+                }
+                // Completes here, or later on whichever tick releases a pad to this ship
+                clearance.thenAccept(pad ->
+                    universe.send(ShardMessage.dockingClearance(id, message.fromShard, message.entityId, pad)));
+                break;
+            }
+            case DOCKING_CLEARANCE: {
+                DockingComponent docking = world.getComponent(world.createEntity(DOCKING), DockingComponent.class);
+                if (docking != null) {
+                    docking.pad = message.pad;
+                    docking.requested = true;
+                    docking.clearancePending = false;
+                    world.getOutput().println(message.fromShard + ": 'Clearance granted. Proceed to docking pad "
+                        + message.pad + ".'");
+                }
+                break;
+            }
+            case DOCKING_QUEUED: {
+                world.getOutput().println(message.fromShard + ": 'All pads are occupied. Hold for the next free pad.'");
+                break;
+            }
+            case DOCKING_DENIED: {
+                DockingComponent docking = world.getComponent(world.createEntity(DOCKING), DockingComponent.class);
+                if (docking != null) {
+                    docking.clearancePending = false;
+                }
+                world.getOutput().println(message.fromShard + " has no docking pads. Request denied.");
+                break;
+            }
+            case PAD_RELEASE: {
+                TrafficControl control = getTrafficControl();
+                if (control != null && message.pad > 0 && message.pad <= control.getPadCount()
+                        && message.entityId.equals(control.getPadOwner(message.pad))) {
+                    control.releasePad(message.pad);
+                }
+                break;
+            }
+            case ENTITY_TRANSFER: {
+                Entity entity = world.createEntity(message.entityId);
+                for (Component component : message.components) {
+                    world.addComponent(entity, component);
+                }
+                MovementSystem movement = world.getSystem(MovementSystem.class);
+                if (movement != null) {
+                    movement.placeEntity(entity, message.room);
+                } else {
+                    world.addComponent(entity, new PositionComponent(message.room));
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+}
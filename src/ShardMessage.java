@@ -0,0 +1,64 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A message sent from one shard to another
+ * 
+ * Shards never touch each other's worlds directly. Anything that crosses a
+ * shard boundary (docking handshakes, entities moving through an airlock)
+ * is sent as one of these and handled on the receiving shard's own thread.
+ */
+public class ShardMessage {
+    public final Type type;
+    public final String fromShard;
+    public final String toShard;
+    public final String entityId;
+    public final int pad;
+    public final String room;
+    public final List<Component> components;
+    
+    private ShardMessage(Type type, String fromShard, String toShard, String entityId,
+                         int pad, String room, List<Component> components) {
+        this.type = type;
+        this.fromShard = fromShard;
+        this.toShard = toShard;
+        this.entityId = entityId;
+        this.pad = pad;
+        this.room = room;
+        this.components = components;
+    }
+    
+    public static ShardMessage dockingRequest(String fromShard, String toShard, String shipId) {
+        return new ShardMessage(Type.DOCKING_REQUEST, fromShard, toShard, shipId, -1, null, Collections.emptyList());
+    }
+    
+    public static ShardMessage dockingClearance(String fromShard, String toShard, String shipId, int pad) {
+        return new ShardMessage(Type.DOCKING_CLEARANCE, fromShard, toShard, shipId, pad, null, Collections.emptyList());
+    }
+    
+    public static ShardMessage dockingQueued(String fromShard, String toShard, String shipId) {
+        return new ShardMessage(Type.DOCKING_QUEUED, fromShard, toShard, shipId, -1, null, Collections.emptyList());
+    }
+    
+    public static ShardMessage dockingDenied(String fromShard, String toShard, String shipId) {
+        return new ShardMessage(Type.DOCKING_DENIED, fromShard, toShard, shipId, -1, null, Collections.emptyList());
+    }
+    
+    public static ShardMessage padRelease(String fromShard, String toShard, String shipId, int pad) {
+        return new ShardMessage(Type.PAD_RELEASE, fromShard, toShard, shipId, pad, null, Collections.emptyList());
+    }
+    
+    public static ShardMessage entityTransfer(String fromShard, String toShard, String entityId,
+                                              String room, List<Component> components) {
+        return new ShardMessage(Type.ENTITY_TRANSFER, fromShard, toShard, entityId, -1, room, components);
+    }
+    
+    public enum Type {
+        DOCKING_REQUEST,
+        DOCKING_CLEARANCE,
+        DOCKING_QUEUED,
+        DOCKING_DENIED,
+        PAD_RELEASE,
+        ENTITY_TRANSFER
+    }
+}
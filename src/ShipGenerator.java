@@ -0,0 +1,370 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Seeded procedural generator for ships and starbases
+ *
+ * Generation happens in two steps. blueprint() lays out one ship or station
+ * as plain data: rooms on decks of a grid, joined by a random spanning tree
+ * of fore/aft/port/starboard exits plus a few extra loops, lift shafts
+ * (up/down) between decks, fixed fittings suited to each room type, and
+ * loose items. populate() then creates the entities and components through
+ * the normal ECS calls, the same way GameInitializer builds KY-25B.
+ *
+ * Each blueprint draws from its own random stream, derived from the
+ * generator seed and the vessel's number, so blueprints can be built in
+ * parallel (generateFleet) in any order and still come out the same. They
+ * are populated one after another in vessel order, so a given seed always
+ * produces the same world whatever the number of cores.
+ */
+public class ShipGenerator {
+    private static final String[] SHIP_NAMES = {
+        "Vega", "Altair", "Rigel", "Deneb", "Castor", "Pollux", "Mira", "Izar", "Sabik", "Hadar"
+    };
+    private static final String[] SHIP_ROOMS = {
+        "Corridor", "Cabin", "Galley", "Lab", "Storage", "Workshop", "Medbay", "Hydroponics", "Lounge"
+    };
+    private static final String[] STATION_ROOMS = {
+        "Concourse", "Market", "Hangar", "Quarters", "Storage", "Workshop", "Medbay", "Hydroponics", "Cantina"
+    };
+    private static final String[] ADJECTIVES = {
+        "cramped", "dim", "spotless", "cluttered", "humming", "chilly", "well-worn", "brightly lit"
+    };
+    private static final String[] DETAILS = {
+        "Conduits run along the ceiling.",
+        "A faint smell of ozone hangs in the air.",
+        "Scuff marks cover the deck plates.",
+        "Status lights blink on a wall panel.",
+        "The air recyclers whisper overhead.",
+        "A faded safety notice is stencilled on the bulkhead."
+    };
+    private static final Map<String, String> FITTINGS = new LinkedHashMap<>();
+    static {
+        FITTINGS.put("Cabin", "bunk");
+        FITTINGS.put("Quarters", "bunk");
+        FITTINGS.put("Galley", "stove");
+        FITTINGS.put("Cantina", "bar");
+        FITTINGS.put("Lab", "bench");
+        FITTINGS.put("Workshop", "lathe");
+        FITTINGS.put("Medbay", "autodoc");
+        FITTINGS.put("Hydroponics", "planter");
+        FITTINGS.put("Hangar", "gantry");
+        FITTINGS.put("Market", "stall");
+    }
+    private static final String[] ITEMS = {
+        "wrench", "toolkit", "ration", "datapad", "flashlight", "cable", "canister", "filter"
+    };
+    private static final double[][] ITEM_PROPERTIES = {
+        {2.0, 1.0}, {5.0, 6.0}, {0.5, 0.5}, {0.3, 0.4}, {0.4, 0.3}, {1.0, 2.0}, {3.0, 4.0}, {0.8, 1.5}
+    };
+    // Indexed so that (d + 2) % 4 is the opposite of d
+    private static final String[] DIRECTIONS = {"fore", "starboard", "aft", "port"};
+    private static final double LOOP_CHANCE = 0.15;
+    private static final double ITEM_CHANCE = 0.3;
+
+    private final long seed;
+
+    public ShipGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * One room of a blueprint
+     */
+    public static final class RoomPlan {
+        public final String id;
+        public final String shortDesc;
+        public final String longDesc;
+        public final Map<String, String> exits;
+        public final List<String> items;
+        public final String fitting;
+
+        RoomPlan(String id, String shortDesc, String longDesc, String fitting) {
+            this.id = id;
+            this.shortDesc = shortDesc;
+            this.longDesc = longDesc;
+            this.exits = new LinkedHashMap<>();
+            this.items = new ArrayList<>();
+            this.fitting = fitting;
+        }
+    }
+
+    /**
+     * One loose item of a blueprint
+     */
+    public static final class ItemPlan {
+        public final String id;
+        public final String description;
+        public final double weight;
+        public final double volume;
+
+        ItemPlan(String id, String description, double weight, double volume) {
+            this.id = id;
+            this.description = description;
+            this.weight = weight;
+            this.volume = volume;
+        }
+    }
+
+    /**
+     * The generated layout of one ship or starbase, ready to be populated
+     */
+    public static final class Blueprint {
+        public final String name;
+        public final int pads;
+        public final List<RoomPlan> rooms;
+        public final List<ItemPlan> items;
+
+        Blueprint(String name, int pads, List<RoomPlan> rooms, List<ItemPlan> items) {
+            this.name = name;
+            this.pads = pads;
+            this.rooms = Collections.unmodifiableList(rooms);
+            this.items = Collections.unmodifiableList(items);
+        }
+
+        public boolean isStarbase() {
+            return pads > 0;
+        }
+
+        /**
+         * Hash of everything in the blueprint, stable across runs and JVMs
+         */
+        public long digest() {
+            long hash = fnv(0xcbf29ce484222325L, name);
+            hash = fnv(hash, Integer.toString(pads));
+            for (RoomPlan room : rooms) {
+                hash = fnv(hash, room.id);
+                hash = fnv(hash, room.shortDesc);
+                hash = fnv(hash, room.longDesc);
+                for (Map.Entry<String, String> exit : room.exits.entrySet()) {
+                    hash = fnv(fnv(hash, exit.getKey()), exit.getValue());
+                }
+                for (String item : room.items) {
+                    hash = fnv(hash, item);
+                }
+                hash = fnv(hash, String.valueOf(room.fitting));
+            }
+            for (ItemPlan item : items) {
+                hash = fnv(fnv(hash, item.id), item.description);
+                hash = fnv(hash, item.weight + "/" + item.volume);
+            }
+            return hash;
+        }
+
+        private static long fnv(long hash, String text) {
+            for (int i = 0; i < text.length(); i++) {
+                hash ^= text.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return (hash ^ 0xff) * 0x100000001b3L;
+        }
+    }
+
+    /**
+     * Lay out vessel number index: a ship, or a starbase if pads is positive
+     */
+    public Blueprint blueprint(int index, int roomCount, int pads) {
+        SplittableRandom random = new SplittableRandom(mix(seed, index));
+        boolean starbase = pads > 0;
+        String name = starbase
+            ? "Station " + SHIP_NAMES[index % SHIP_NAMES.length] + "-" + index
+            : SHIP_NAMES[index % SHIP_NAMES.length] + "-" + index;
+        String[] roomTypes = starbase ? STATION_ROOMS : SHIP_ROOMS;
+
+        int rooms = Math.max(1, roomCount);
+        int decks = Math.max(1, (int) Math.round(Math.cbrt(rooms / 4.0)));
+        int perDeck = (rooms + decks - 1) / decks;
+        int cols = Math.max(1, (int) Math.ceil(Math.sqrt(perDeck)));
+
+        // Rooms are filled deck by deck, row by row; cell c of a deck is (c / cols, c % cols)
+        List<RoomPlan> plans = new ArrayList<>(rooms);
+        Map<String, Integer> typeCounts = new LinkedHashMap<>();
+        for (int r = 0; r < rooms; r++) {
+            String type;
+            if (starbase && r < pads) {
+                type = "Docking Pad";
+            } else if (r % perDeck == 0) {
+                type = roomTypes[0];
+            } else {
+                type = roomTypes[random.nextInt(roomTypes.length)];
+            }
+            int number = typeCounts.merge(type, 1, Integer::sum);
+            String id = name + " " + type + " " + number;
+            String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+            String shortDesc = "A " + adjective + " " + type.toLowerCase() + ".";
+            String longDesc = "This " + type.toLowerCase() + " on deck " + (r / perDeck + 1) + " of " + name
+                + " is " + adjective + ". " + DETAILS[random.nextInt(DETAILS.length)];
+            plans.add(new RoomPlan(id, shortDesc, longDesc, FITTINGS.get(type)));
+        }
+
+        for (int deck = 0; deck < decks; deck++) {
+            int first = deck * perDeck;
+            int count = Math.min(perDeck, rooms - first);
+            if (count > 0) {
+                connectDeck(plans, first, count, cols, random);
+            }
+            if (deck > 0) {
+                connectDecks(plans, (deck - 1) * perDeck, first, count, random);
+            }
+        }
+
+        List<ItemPlan> items = new ArrayList<>();
+        for (RoomPlan room : plans) {
+            while (random.nextDouble() < ITEM_CHANCE) {
+                int kind = random.nextInt(ITEMS.length);
+                String id = ITEMS[kind] + "-" + index + "-" + items.size();
+                room.items.add(id);
+                items.add(new ItemPlan(id, "A " + ITEMS[kind] + " stamped with the markings of " + name + ".",
+                    ITEM_PROPERTIES[kind][0], ITEM_PROPERTIES[kind][1]));
+            }
+        }
+        return new Blueprint(name, pads, plans, items);
+    }
+
+    // Random spanning tree over the deck's grid (randomized depth-first
+    // search), then a few extra connections so the deck has loops
+    private void connectDeck(List<RoomPlan> plans, int first, int count, int cols, SplittableRandom random) {
+        boolean[] visited = new boolean[count];
+        int[] stack = new int[count];
+        int top = 0;
+        stack[top++] = 0;
+        visited[0] = true;
+        int[] neighbours = new int[4];
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int options = 0;
+            for (int direction = 0; direction < 4; direction++) {
+                int next = neighbour(cell, direction, count, cols);
+                if (next >= 0 && !visited[next]) {
+                    neighbours[options++] = direction;
+                }
+            }
+            if (options == 0) {
+                top--;
+                continue;
+            }
+            int direction = neighbours[random.nextInt(options)];
+            int next = neighbour(cell, direction, count, cols);
+            link(plans.get(first + cell), plans.get(first + next), direction);
+            visited[next] = true;
+            stack[top++] = next;
+        }
+        for (int cell = 0; cell < count; cell++) {
+            // Only look fore and starboard so each pair is considered once
+            for (int direction = 0; direction < 2; direction++) {
+                int next = neighbour(cell, direction, count, cols);
+                if (next >= 0 && !plans.get(first + cell).exits.containsKey(DIRECTIONS[direction])
+                        && random.nextDouble() < LOOP_CHANCE) {
+                    link(plans.get(first + cell), plans.get(first + next), direction);
+                }
+            }
+        }
+    }
+
+    // Lift shafts: the first room of each deck always connects to the deck
+    // below, plus about one in sixteen of the cells both decks have
+    private void connectDecks(List<RoomPlan> plans, int below, int first, int count, SplittableRandom random) {
+        for (int cell = 0; cell < count; cell++) {
+            if (cell == 0 || random.nextInt(16) == 0) {
+                RoomPlan upper = plans.get(first + cell);
+                RoomPlan lower = plans.get(below + cell);
+                lower.exits.put("up", upper.id);
+                upper.exits.put("down", lower.id);
+            }
+        }
+    }
+
+    private static int neighbour(int cell, int direction, int count, int cols) {
+        int row = cell / cols;
+        int col = cell % cols;
+        int next;
+        switch (direction) {
+            case 0: next = cell + cols; break;                    // fore
+            case 1: next = col + 1 < cols ? cell + 1 : -1; break; // starboard
+            case 2: next = row > 0 ? cell - cols : -1; break;     // aft
+            default: next = col > 0 ? cell - 1 : -1; break;       // port
+        }
+        return next >= 0 && next < count ? next : -1;
+    }
+
+    private static void link(RoomPlan from, RoomPlan to, int direction) {
+        from.exits.put(DIRECTIONS[direction], to.id);
+        to.exits.put(DIRECTIONS[(direction + 2) % 4], from.id);
+    }
+
+    /**
+     * Lay out a fleet of ships followed by starbases, in parallel on the
+     * given pool. The list is in vessel order regardless of scheduling.
+     */
+    public List<Blueprint> generateFleet(int ships, int roomsPerShip, int starbases, int roomsPerStarbase,
+                                         int padsPerStarbase, ForkJoinPool pool) {
+        int total = ships + starbases;
+        return pool.submit(() -> IntStream.range(0, total).parallel()
+            .mapToObj(i -> i < ships
+                ? blueprint(i, roomsPerShip, 0)
+                : blueprint(i, roomsPerStarbase, Math.max(1, padsPerStarbase)))
+            .collect(Collectors.toList())).join();
+    }
+
+    /**
+     * Create every blueprint's entities in a world, in list order
+     *
+     * @return the number of rooms created
+     */
+    public static int populate(ECS ecs, List<Blueprint> blueprints) {
+        int rooms = 0;
+        for (Blueprint blueprint : blueprints) {
+            rooms += populate(ecs, blueprint);
+        }
+        return rooms;
+    }
+
+    public static int populate(ECS ecs, Blueprint blueprint) {
+        for (RoomPlan plan : blueprint.rooms) {
+            Entity room = ecs.createEntity(plan.id);
+            ecs.addComponent(room, new RoomComponent(plan.id));
+            ecs.addComponent(room, new DescriptionComponent(plan.shortDesc, plan.longDesc));
+            ExitsComponent exits = new ExitsComponent();
+            for (Map.Entry<String, String> exit : plan.exits.entrySet()) {
+                exits.addExit(exit.getKey(), exit.getValue());
+            }
+            ecs.addComponent(room, exits);
+            ItemsComponent items = new ItemsComponent();
+            for (String item : plan.items) {
+                items.addItem(item);
+            }
+            ecs.addComponent(room, items);
+            FixedItemsComponent fixedItems = new FixedItemsComponent();
+            if (plan.fitting != null) {
+                fixedItems.addFixedItem(plan.fitting);
+                ecs.addComponent(ecs.createEntity(plan.id + "_" + plan.fitting),
+                    new ItemDescriptionComponent("The " + plan.fitting + " is bolted firmly in place."));
+            }
+            ecs.addComponent(room, fixedItems);
+        }
+        for (ItemPlan plan : blueprint.items) {
+            Entity item = ecs.createEntity(plan.id);
+            ecs.addComponent(item, new ItemDescriptionComponent(plan.description));
+            ecs.addComponent(item, new ItemPropertiesComponent(plan.weight, plan.volume));
+        }
+        if (blueprint.isStarbase()) {
+            ecs.addComponent(ecs.createEntity(blueprint.name), new StarbaseComponent(blueprint.pads));
+        }
+        return blueprint.rooms.size();
+    }
+
+    // SplitMix64 finalizer, so neighbouring vessel numbers get unrelated streams
+    private static long mix(long seed, int index) {
+        long z = seed + 0x9e3779b97f4a7c15L * (index + 1);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
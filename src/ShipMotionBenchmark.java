@@ -0,0 +1,63 @@
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark for ShipMotionSystem
+ *
+ * Scatters ships around a starbase, sends each on an approach to a pad, and
+ * times fixed steps of the integrator for increasing fleet sizes. Ships that
+ * clamp are sent back out to a new holding point so the whole fleet stays
+ * under thrust. Reports ship-steps per second and how many ships one 50 ms
+ * tick can carry at that rate.
+ *
+ * Usage: java ShipMotionBenchmark [maxShips] [steps]
+ */
+public class ShipMotionBenchmark {
+    public static void main(String[] args) {
+        int maxShips = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        System.out.println("Steps per run: " + steps + ", step: " + ShipMotionSystem.STEP + " s");
+        for (int ships = 1_000; ships <= maxShips; ships *= 10) {
+            run(ships, steps);
+        }
+    }
+
+    private static void run(int ships, int steps) {
+        SplittableRandom random = new SplittableRandom(42);
+        ShipMotionSystem motion = new ShipMotionSystem(ships);
+        for (int i = 0; i < ships; i++) {
+            int slot = motion.addShip("ship-" + i,
+                random.nextDouble(-500, 500), random.nextDouble(-500, 500), random.nextDouble(-500, 500));
+            motion.approach(slot, (i % 64) * 20.0, 0.0, 0.0);
+        }
+
+        // Warm up before timing
+        for (int i = 0; i < 50; i++) {
+            motion.step(ShipMotionSystem.STEP);
+        }
+        long start = System.nanoTime();
+        int clamped = 0;
+        for (int i = 0; i < steps; i++) {
+            motion.step(ShipMotionSystem.STEP);
+            if (i % 20 == 19) {
+                clamped += relaunchClamped(motion, random);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        double shipStepsPerSecond = (double) ships * steps / (elapsed / 1e9);
+        System.out.printf("ships=%,10d  ms/step=%8.3f  ship-steps/s=%,14.0f  ships per 50ms tick=%,12.0f  clamped=%d%n",
+            ships, elapsed / 1e6 / steps, shipStepsPerSecond, shipStepsPerSecond * 0.05, clamped);
+    }
+
+    private static int relaunchClamped(ShipMotionSystem motion, SplittableRandom random) {
+        int clamped = 0;
+        for (int slot = 0; slot < motion.size(); slot++) {
+            if (motion.getPhase(slot) == ShipMotionSystem.Phase.CLAMPED) {
+                motion.approach(slot, random.nextDouble(-500, 500), random.nextDouble(-500, 500), random.nextDouble(-500, 500));
+                clamped++;
+            }
+        }
+        return clamped;
+    }
+}
@@ -0,0 +1,243 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * System that integrates ship position and velocity relative to a starbase
+ *
+ * Ship state is kept as parallel primitive arrays (one per axis for
+ * position, velocity and target) rather than one object per ship, so a
+ * step is a handful of straight loops over doubles that the JIT can
+ * vectorize. Ships on approach are steered by a damped spring towards
+ * their target with thrust limited to MAX_THRUST per axis; free ships
+ * drift. A ship on approach that reaches its target slowly enough is
+ * clamped there.
+ *
+ * The simulation advances in fixed steps of STEP seconds. update() adds
+ * the frame's time to an accumulator and runs as many whole steps as it
+ * holds, so results do not depend on how time is sliced into frames.
+ */
+public class ShipMotionSystem implements Esystem {
+    public enum Phase { FREE, APPROACH, CLAMPED }
+
+    public static final double STEP = 0.05;
+    public static final double MAX_THRUST = 3.0;
+    private static final double STIFFNESS = 0.25;
+    private static final double DAMPING = 1.0;
+    private static final double CLAMP_DISTANCE = 0.5;
+    private static final double CLAMP_SPEED = 0.3;
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Map<String, Integer> slots;
+    private String[] ids;
+    private double[] posX, posY, posZ;
+    private double[] velX, velY, velZ;
+    private double[] targetX, targetY, targetZ;
+    private double[] thrust;
+    private byte[] phase;
+    private int count;
+    private double accumulator;
+
+    public ShipMotionSystem(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        slots = new HashMap<>();
+        ids = new String[capacity];
+        posX = new double[capacity];
+        posY = new double[capacity];
+        posZ = new double[capacity];
+        velX = new double[capacity];
+        velY = new double[capacity];
+        velZ = new double[capacity];
+        targetX = new double[capacity];
+        targetY = new double[capacity];
+        targetZ = new double[capacity];
+        thrust = new double[capacity];
+        phase = new byte[capacity];
+    }
+
+    public ShipMotionSystem() {
+        this(4);
+    }
+
+    /**
+     * Start tracking a ship at rest at the given position. Returns its slot.
+     */
+    public int addShip(String shipId, double x, double y, double z) {
+        Integer existing = slots.get(shipId);
+        if (existing != null) {
+            return existing;
+        }
+        if (count == ids.length) {
+            grow(count * 2);
+        }
+        int slot = count++;
+        ids[slot] = shipId;
+        posX[slot] = x;
+        posY[slot] = y;
+        posZ[slot] = z;
+        targetX[slot] = x;
+        targetY[slot] = y;
+        targetZ[slot] = z;
+        phase[slot] = (byte) Phase.FREE.ordinal();
+        slots.put(shipId, slot);
+        return slot;
+    }
+
+    /**
+     * Get a ship's slot, or -1 if it is not tracked
+     */
+    public int slotOf(String shipId) {
+        Integer slot = slots.get(shipId);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * Fire thrusters to bring a ship to rest at a target and clamp it there
+     */
+    public void approach(int slot, double x, double y, double z) {
+        targetX[slot] = x;
+        targetY[slot] = y;
+        targetZ[slot] = z;
+        thrust[slot] = 1.0;
+        phase[slot] = (byte) Phase.APPROACH.ordinal();
+    }
+
+    /**
+     * Release a clamped or approaching ship to drift with its current velocity
+     */
+    public void release(int slot) {
+        thrust[slot] = 0.0;
+        phase[slot] = (byte) Phase.FREE.ordinal();
+    }
+
+    public Phase getPhase(int slot) {
+        return PHASES[phase[slot]];
+    }
+
+    public double distanceToTarget(int slot) {
+        double dx = targetX[slot] - posX[slot];
+        double dy = targetY[slot] - posY[slot];
+        double dz = targetZ[slot] - posZ[slot];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    public double speed(int slot) {
+        return Math.sqrt(velX[slot] * velX[slot] + velY[slot] * velY[slot] + velZ[slot] * velZ[slot]);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void update(double deltaTime) {
+        accumulator += deltaTime;
+        while (accumulator >= STEP) {
+            step(STEP);
+            accumulator -= STEP;
+        }
+    }
+
+    /**
+     * Advance every ship by one step of dt seconds
+     */
+    public void step(double dt) {
+        integrateAxis(posX, velX, targetX, dt);
+        integrateAxis(posY, velY, targetY, dt);
+        integrateAxis(posZ, velZ, targetZ, dt);
+        clampArrivals();
+    }
+
+    // Semi-implicit Euler along one axis. Free and clamped ships have zero
+    // thrust, so the loop has no branches on phase.
+    private void integrateAxis(double[] pos, double[] vel, double[] target, double dt) {
+        for (int i = 0; i < count; i++) {
+            double accel = STIFFNESS * (target[i] - pos[i]) - DAMPING * vel[i];
+            accel = Math.max(-MAX_THRUST, Math.min(MAX_THRUST, accel)) * thrust[i];
+            vel[i] += accel * dt;
+            pos[i] += vel[i] * dt;
+        }
+    }
+
+    private void clampArrivals() {
+        final double clampDistance2 = CLAMP_DISTANCE * CLAMP_DISTANCE;
+        final double clampSpeed2 = CLAMP_SPEED * CLAMP_SPEED;
+        final byte approaching = (byte) Phase.APPROACH.ordinal();
+        for (int i = 0; i < count; i++) {
+            if (phase[i] != approaching) {
+                continue;
+            }
+            double dx = targetX[i] - posX[i];
+            double dy = targetY[i] - posY[i];
+            double dz = targetZ[i] - posZ[i];
+            double speed2 = velX[i] * velX[i] + velY[i] * velY[i] + velZ[i] * velZ[i];
+            if (dx * dx + dy * dy + dz * dz <= clampDistance2 && speed2 <= clampSpeed2) {
+                posX[i] = targetX[i];
+                posY[i] = targetY[i];
+                posZ[i] = targetZ[i];
+                velX[i] = 0.0;
+                velY[i] = 0.0;
+                velZ[i] = 0.0;
+                thrust[i] = 0.0;
+                phase[i] = (byte) Phase.CLAMPED.ordinal();
+            }
+        }
+    }
+
+    /**
+     * Save every ship's state and the step accumulator, for hibernation
+     */
+    public void writeState(DataOutputStream out) throws IOException {
+        out.writeDouble(accumulator);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeUTF(ids[i]);
+            double[][] columns = {posX, posY, posZ, velX, velY, velZ, targetX, targetY, targetZ, thrust};
+            for (double[] column : columns) {
+                out.writeDouble(column[i]);
+            }
+            out.writeByte(phase[i]);
+        }
+    }
+
+    /**
+     * Replace all ship state with what writeState saved
+     */
+    public void readState(DataInputStream in) throws IOException {
+        accumulator = in.readDouble();
+        int ships = in.readInt();
+        slots.clear();
+        count = 0;
+        if (ships > ids.length) {
+            grow(ships);
+        }
+        for (int i = 0; i < ships; i++) {
+            ids[i] = in.readUTF();
+            double[][] columns = {posX, posY, posZ, velX, velY, velZ, targetX, targetY, targetZ, thrust};
+            for (double[] column : columns) {
+                column[i] = in.readDouble();
+            }
+            phase[i] = in.readByte();
+            slots.put(ids[i], i);
+        }
+        count = ships;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        posZ = Arrays.copyOf(posZ, capacity);
+        velX = Arrays.copyOf(velX, capacity);
+        velY = Arrays.copyOf(velY, capacity);
+        velZ = Arrays.copyOf(velZ, capacity);
+        targetX = Arrays.copyOf(targetX, capacity);
+        targetY = Arrays.copyOf(targetY, capacity);
+        targetZ = Arrays.copyOf(targetZ, capacity);
+        thrust = Arrays.copyOf(thrust, capacity);
+        phase = Arrays.copyOf(phase, capacity);
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for one stage of a pipeline
+ *
+ * Items processed, items refused because the next stage's queue was full,
+ * time spent working, and the deepest the stage's input queue has been.
+ * Updated by the stage's own threads and readable from any thread.
+ */
+public final class StageMetrics {
+    private final String name;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong maxDepth = new AtomicLong();
+
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    public void recordProcessed(int count, long nanos) {
+        processed.addAndGet(count);
+        busyNanos.addAndGet(nanos);
+    }
+
+    public void recordRejected() {
+        rejected.incrementAndGet();
+    }
+
+    public void recordDepth(int depth) {
+        long max;
+        while (depth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, depth)) {
+            // Retry until we record the larger depth or someone records a larger one
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getBusyNanos() {
+        return busyNanos.get();
+    }
+
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * Mean time spent per item, in microseconds
+     */
+    public double getMeanMicros() {
+        long count = processed.get();
+        return count == 0 ? 0.0 : busyNanos.get() / 1e3 / count;
+    }
+
+    public String describe(int depth) {
+        return String.format("%-7s processed=%,d rejected=%d depth=%d max=%d mean=%.1fus",
+            name, getProcessed(), getRejected(), depth, getMaxDepth(), getMeanMicros());
+    }
+}
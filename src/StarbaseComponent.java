@@ -0,0 +1,24 @@
+/**
+ * COMPONENT class for starbases in the ECS pattern
+ * 
+ * This component marks the starbase entity of a starbase shard and records
+ * how many docking pads it has, numbered from 1. Which ship holds which pad
+ * is up to the shard's TrafficControl, which is sized from this component,
+ * so there is only one pad allocator.
+ */
+public class StarbaseComponent implements Component {
+    private final int padCount;
+    
+    public StarbaseComponent(int padCount) {
+        this.padCount = padCount;
+    }
+    
+    public int getPadCount() {
+        return padCount;
+    }
+    
+    @Override
+    public StarbaseComponent copy() {
+        return new StarbaseComponent(padCount);
+    }
+}
@@ -1,3 +1,8 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 /**
  * Starship Adventure Game - Improved ECS Architecture
  * 
@@ -5,7 +10,7 @@
  * 
  * ENTITIES (E): Unique IDs representing game objects
  * - Rooms ("Commons", "Bridge", etc.)
- * - Player ("player")
+ * - Players ("player" at the console, and any others who join)
  * - Game state objects ("docking", "airlock")
  * 
  * COMPONENTS (C): Pure data holders implementing Component interface
@@ -25,29 +30,123 @@
  * Runtime experience remains identical to the original implementation.
  */
 public class StarshipAdventure {
+    private static final int CONSOLE_QUEUE = 64;
+    private static final double CONSOLE_RATE = 20.0;
+    private static final int CONSOLE_BURST = 20;
+    
     public static void main(String[] args) {
+        // Write a prebuilt world image for --image and stop
+        if (args.length >= 2 && args[0].equals("--build-image")) {
+            buildImage(Paths.get(args[1]));
+            return;
+        }
+        
         // Initialize the ECS framework
         ECS ecs = ECS.getInstance();
         
         // Register all systems
         registerSystems(ecs);
         
-        // Initialize the game world
+        // Initialize the game world, from a prebuilt image if one was given
         GameInitializer initializer = new GameInitializer(ecs);
-        initializer.initializeGame();
+        Path image = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--image")) {
+                image = Paths.get(args[i + 1]);
+            }
+        }
+        if (image == null || !restoreImage(ecs, image)) {
+            initializer.initializeWorld();
+        }
+        initializer.displayWelcomeMessage();
+        
+        // Optionally watch a content file so writers can edit the world live,
+        // and add rules (puzzles, restrictions) from rule files
+        ContentReloader reloader = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--content")) {
+                reloader = watchContent(ecs, Paths.get(args[i + 1]));
+            } else if (args[i].equals("--rules")) {
+                loadRules(ecs, Paths.get(args[i + 1]));
+            }
+        }
         
         // Start the game loop
         gameLoop(ecs);
+        
+        if (reloader != null) {
+            try {
+                reloader.close();
+            } catch (IOException e) {
+                // Exiting anyway
+            }
+        }
+    }
+    
+    private static ContentReloader watchContent(ECS ecs, Path file) {
+        try {
+            WorldContent content = WorldContent.fromWorld(ecs);
+            if (Files.exists(file)) {
+                // Bring the fresh world in line with the file before play starts
+                WorldContent edited = WorldContent.parse(file);
+                CommandBuffer buffer = new CommandBuffer();
+                content.diff(edited, ecs, buffer);
+                buffer.playback(ecs);
+                content = edited;
+            } else {
+                content.write(file);
+            }
+            ContentReloader reloader = new ContentReloader(file, content);
+            reloader.attach(ecs);
+            reloader.start();
+            return reloader;
+        } catch (IOException e) {
+            System.err.println("Could not watch content file " + file + ": " + e.getMessage());
+            return null;
+        }
     }
     
-    private static void registerSystems(ECS ecs) {
+    private static void buildImage(Path file) {
+        try {
+            PrebuiltWorld.build(file);
+            System.out.println("Wrote prebuilt world image " + file + " (" + Files.size(file) + " bytes)");
+        } catch (IOException e) {
+            System.err.println("Could not write world image " + file + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    private static boolean restoreImage(ECS ecs, Path file) {
+        try {
+            PrebuiltWorld.read(file, ecs);
+            return true;
+        } catch (IOException e) {
+            // The image is only a shortcut; build the world the slow way instead
+            System.err.println("Not using world image " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private static void loadRules(ECS ecs, Path file) {
+        try {
+            RuleSystem.forWorld(ecs).load(file);
+        } catch (IOException e) {
+            System.err.println("Could not load rules from " + file + ": " + e.getMessage());
+        }
+    }
+    
+    static void registerSystems(ECS ecs) {
         // Register systems in order of dependency
         ecs.registerSystem(new RenderSystem(ecs));
+        ecs.registerSystem(new VisibilitySystem(ecs));
         ecs.registerSystem(new MovementSystem(ecs));
+        ecs.registerSystem(new PlayerSystem(ecs));
         ecs.registerSystem(new ItemDescriptionSystem(ecs)); // Handles context-sensitive descriptions
         ecs.registerSystem(new ItemSystem(ecs));
+        ecs.registerSystem(new ShipMotionSystem());
         ecs.registerSystem(new DockingSystem(ecs));
         ecs.registerSystem(new AirlockSystem(ecs));
+        ecs.registerSystem(new RuleSystem(ecs));
         ecs.registerSystem(new CommandSystem(ecs));
     }
     
@@ -59,13 +158,58 @@ public class StarshipAdventure {
             return;
         }
         
+        // Console input goes through a bounded, rate-limited inbox; a reader
+        // that gets ahead of the game blocks instead of queueing without limit
+        SessionInbox inbox = new SessionInbox(CONSOLE_QUEUE, CONSOLE_RATE, CONSOLE_BURST);
+        Thread reader = new Thread(() -> readConsole(commandSystem, inbox), "console-reader");
+        reader.setDaemon(true);
+        reader.start();
+        
         // Main game loop
-        while (true) {
+        long lastUpdate = System.nanoTime();
+        while (ecs.isRunning()) {
             // Process player input
-            commandSystem.processCommand();
+            ecs.getOutput().print("> ");
+            String line;
+            try {
+                line = inbox.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (line == null) {
+                break;
+            }
+            try {
+                commandSystem.execute(line);
+            } catch (WorldLimitException e) {
+                inbox.recordRejection();
+                ecs.getOutput().println(e.getMessage() + ".");
+            }
             
-            // Update all systems (though most are event-driven)
-            ecs.update(0.0); // Delta time not used in this text-based game
+            // Advance the simulation by the real time spent waiting on the player,
+            // plus any time they chose to let pass
+            long now = System.nanoTime();
+            try {
+                ecs.update((now - lastUpdate) / 1e9 + commandSystem.takeWaitedSeconds());
+            } catch (WorldLimitException e) {
+                inbox.recordRejection();
+                ecs.getOutput().println(e.getMessage() + ".");
+            }
+            lastUpdate = now;
+        }
+    }
+    
+    private static void readConsole(CommandSystem commandSystem, SessionInbox inbox) {
+        try {
+            String line;
+            while ((line = commandSystem.readLine()) != null) {
+                inbox.put(line);
+            }
+        } catch (InterruptedException e) {
+            // Shutting down
+        } finally {
+            inbox.close();
         }
     }
 }
@@ -0,0 +1,264 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark for time to first prompt
+ *
+ * Launches the game as a fresh JVM, over and over, and times from starting
+ * the process to the first "> " on its output, which is what a player
+ * waits for. Four ways of starting are compared:
+ *
+ *   plain        initialize the world in code, as the game always has
+ *   image        restore a PrebuiltWorld image (--image)
+ *   cds          plain, with an AppCDS archive of the game's classes
+ *   cds+image    both
+ *
+ * The benchmark packs the classes it was run from into a jar (the JVM only
+ * archives classes loaded from jars) and makes each archive with a training
+ * run of the same configuration, as scripts/appcds.sh does by hand. Trials
+ * of the configurations are interleaved so drift in the machine affects
+ * them alike; medians are reported.
+ *
+ * First it checks in process that a restored world holds exactly what an
+ * initialized one does, and exits with status 1 if not.
+ *
+ * Usage: java StartupBenchmark [trials]
+ */
+public class StartupBenchmark {
+    private static final byte[] PROMPT = {'>', ' '};
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 15;
+
+        Path dir = Files.createTempDirectory("startup");
+        try {
+            Path image = dir.resolve("world.img");
+            PrebuiltWorld.build(image);
+            System.out.printf("world image: %,d bytes%n", Files.size(image));
+            if (!sameWorld(image)) {
+                System.out.println("FAIL: the restored world differs from an initialized one");
+                System.exit(1);
+            }
+            System.out.println("restored world matches an initialized one");
+
+            Path jar = dir.resolve("starship.jar");
+            packClasses(classesDirectory(), jar);
+            String[] plain = {};
+            String[] withImage = {"--image", image.toString()};
+            Path plainArchive = train(jar, dir.resolve("plain.jsa"), plain);
+            Path imageArchive = train(jar, dir.resolve("image.jsa"), withImage);
+
+            List<String> names = new ArrayList<>(Arrays.asList("plain", "image"));
+            List<List<String>> commands = new ArrayList<>();
+            commands.add(command(jar, null, plain));
+            commands.add(command(jar, null, withImage));
+            if (plainArchive != null && imageArchive != null) {
+                names.add("cds");
+                names.add("cds+image");
+                commands.add(command(jar, plainArchive, plain));
+                commands.add(command(jar, imageArchive, withImage));
+            } else {
+                System.out.println("this JVM made no AppCDS archive; timing without it");
+            }
+
+            // One untimed launch each so the files involved are in the page cache
+            for (List<String> command : commands) {
+                timeToPrompt(command);
+            }
+            double[][] millis = new double[commands.size()][trials];
+            for (int t = 0; t < trials; t++) {
+                for (int c = 0; c < commands.size(); c++) {
+                    millis[c][t] = timeToPrompt(commands.get(c));
+                }
+            }
+
+            System.out.printf("time to first prompt over %d launches each:%n", trials);
+            double baseline = median(millis[0]);
+            for (int c = 0; c < commands.size(); c++) {
+                double median = median(millis[c]);
+                System.out.printf("  %-10s median %6.1f ms  min %6.1f ms  %.2fx%n",
+                    names.get(c), median, Arrays.stream(millis[c]).min().getAsDouble(), baseline / median);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Every entity and component of a restored world against an initialized one
+    private static boolean sameWorld(Path image) throws IOException {
+        ECS initialized = ECS.createWorld();
+        StarshipAdventure.registerSystems(initialized);
+        new GameInitializer(initialized).initializeWorld();
+
+        ECS restored = ECS.createWorld();
+        StarshipAdventure.registerSystems(restored);
+        PrebuiltWorld.read(image, restored);
+
+        List<Entity> expected = entities(initialized);
+        List<Entity> actual = entities(restored);
+        if (expected.size() != actual.size()) {
+            System.out.println("restored world has " + actual.size() + " entities, not " + expected.size());
+            return false;
+        }
+        DeltaCodec.Registry schemas = new DeltaCodec.Registry();
+        int checked = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            Entity entity = expected.get(i);
+            Entity twin = actual.get(i);
+            List<Component> components = initialized.getComponents(entity);
+            if (!entity.getId().equals(twin.getId()) || components.size() != restored.getComponents(twin).size()) {
+                System.out.println("entity " + entity.getId() + " was restored as " + twin.getId()
+                    + " with different components");
+                return false;
+            }
+            for (Component component : components) {
+                Component other = restored.getComponent(twin, component.getClass());
+                if (other == null || !Arrays.deepEquals(state(schemas, component), state(schemas, other))) {
+                    System.out.println("entity " + entity.getId() + " differs in " + component.getClass().getName());
+                    return false;
+                }
+                checked++;
+            }
+        }
+        if (!initialized.getSystem(RuleSystem.class).getSources().equals(restored.getSystem(RuleSystem.class).getSources())) {
+            System.out.println("restored world has different rules");
+            return false;
+        }
+        System.out.printf("compared %d entities, %d components%n", expected.size(), checked);
+        return true;
+    }
+
+    private static List<Entity> entities(ECS world) {
+        List<Entity> entities = new ArrayList<>();
+        for (int index = 0; index < world.getEntityIndexLimit(); index++) {
+            Entity entity = world.getEntityAt(index);
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    private static Object[] state(DeltaCodec.Registry schemas, Component component) throws IOException {
+        if (component instanceof ViewportComponent) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ((ViewportComponent) component).write(new DataOutputStream(bytes));
+            return new Object[] {bytes.toByteArray()};
+        }
+        return schemas.schemaFor(component.getClass()).capture(component);
+    }
+
+    private static Path classesDirectory() {
+        try {
+            return Paths.get(StartupBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot find the game's classes", e);
+        }
+    }
+
+    private static void packClasses(Path classes, Path jar) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "StarshipAdventure");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest);
+             Stream<Path> files = Files.walk(classes)) {
+            for (Path file : (Iterable<Path>) files.filter(path -> path.toString().endsWith(".class"))::iterator) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    // A training run that writes the classes it loaded to an archive; null if the JVM made none
+    private static Path train(Path jar, Path archive, String[] gameArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable());
+        command.add("-XX:ArchiveClassesAtExit=" + archive);
+        command.add("-cp");
+        command.add(jar.toString());
+        command.add("StarshipAdventure");
+        command.addAll(Arrays.asList(gameArgs));
+        Process process = new ProcessBuilder(command)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try (OutputStream in = process.getOutputStream()) {
+            in.write("look\ni\nquit\n".getBytes());
+        }
+        process.waitFor();
+        return Files.exists(archive) ? archive : null;
+    }
+
+    private static List<String> command(Path jar, Path archive, String[] gameArgs) {
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable());
+        if (archive != null) {
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.add("-cp");
+        command.add(jar.toString());
+        command.add("StarshipAdventure");
+        command.addAll(Arrays.asList(gameArgs));
+        return command;
+    }
+
+    private static String javaExecutable() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    // Milliseconds from launching the game to its first prompt
+    private static double timeToPrompt(List<String> command) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        long elapsed = -1;
+        try (InputStream out = process.getInputStream()) {
+            int matched = 0;
+            int b;
+            while ((b = out.read()) >= 0) {
+                matched = b == PROMPT[matched] ? matched + 1 : (b == PROMPT[0] ? 1 : 0);
+                if (matched == PROMPT.length) {
+                    elapsed = System.nanoTime() - start;
+                    break;
+                }
+            }
+            try (OutputStream in = process.getOutputStream()) {
+                in.write("quit\n".getBytes());
+            }
+            out.transferTo(OutputStream.nullOutputStream());
+        }
+        process.waitFor();
+        if (elapsed < 0) {
+            throw new IllegalStateException("The game exited without prompting: " + command);
+        }
+        return elapsed / 1e6;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
@@ -43,6 +43,9 @@ public class SystemManager {
             needsSort = false;
         }
         
+        for (Esystem system : systems) {
+            system.update(deltaTime);
+        }
     }
     
     /**
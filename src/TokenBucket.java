@@ -0,0 +1,55 @@
+/**
+ * Token-bucket rate limiter
+ *
+ * Tokens accrue at a steady rate up to a burst size, and each admitted
+ * operation spends one. Callers pass the current time in nanoseconds, which
+ * keeps the bucket deterministic under a simulated clock. Not thread-safe;
+ * each bucket belongs to whoever drains its session.
+ */
+public class TokenBucket {
+    private final double ratePerSecond;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = nowNanos;
+    }
+
+    /**
+     * Spend a token if one is available
+     */
+    public boolean tryAcquire(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Nanoseconds until the next token will be available (0 if one is now)
+     */
+    public long nanosUntilAvailable(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1.0) {
+            return 0L;
+        }
+        return (long) Math.ceil((1.0 - tokens) / ratePerSecond * 1e9);
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed / 1e9 * ratePerSecond);
+            lastRefill = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Starbase traffic control: hands out docking pads to many ships at once
+ * 
+ * Pads are reserved with a compare-and-set on the pad's owner slot, so ships
+ * never block each other. A ship that finds every pad taken joins a waiting
+ * queue and is granted the next pad to be released. Clearances are returned
+ * as futures, completed after a simulated comms delay, so a caller never
+ * waits on the controller.
+ */
+public class TrafficControl implements AutoCloseable {
+    private final AtomicReferenceArray<String> padOwners;
+    private final ConcurrentLinkedQueue<Waiting> waiting;
+    private final ScheduledExecutorService comms;
+    private final long commsDelayMillis;
+    
+    public TrafficControl(int padCount, long commsDelayMillis) {
+        this.padOwners = new AtomicReferenceArray<>(padCount);
+        this.waiting = new ConcurrentLinkedQueue<>();
+        this.commsDelayMillis = commsDelayMillis;
+        // Only spin up a comms thread if replies are actually delayed
+        this.comms = commsDelayMillis <= 0 ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "traffic-control");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Ask for a pad. The future completes with the pad number (from 1) once
+     * one is free and the reply has come back over comms.
+     */
+    public CompletableFuture<Integer> requestClearance(String shipId) {
+        CompletableFuture<Integer> clearance = new CompletableFuture<>();
+        int pad = tryReserve(shipId);
+        if (pad > 0) {
+            reply(clearance, pad);
+        } else {
+            waiting.add(new Waiting(shipId, clearance));
+            // A pad may have been released between the failed reservation and the enqueue
+            serveWaiting();
+        }
+        return clearance;
+    }
+    
+    /**
+     * Free a pad once its ship has departed, handing it to the next waiting ship
+     */
+    public void releasePad(int pad) {
+        padOwners.set(pad - 1, null);
+        serveWaiting();
+    }
+    
+    public int getPadCount() {
+        return padOwners.length();
+    }
+    
+    public String getPadOwner(int pad) {
+        return padOwners.get(pad - 1);
+    }
+    
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+    
+    @Override
+    public void close() {
+        if (comms != null) {
+            comms.shutdown();
+        }
+    }
+    
+    private int tryReserve(String shipId) {
+        int padCount = padOwners.length();
+        // Start each ship at a different pad so concurrent requests spread out
+        int start = (shipId.hashCode() & Integer.MAX_VALUE) % padCount;
+        for (int i = 0; i < padCount; i++) {
+            int slot = (start + i) % padCount;
+            if (padOwners.get(slot) == null && padOwners.compareAndSet(slot, null, shipId)) {
+                return slot + 1;
+            }
+        }
+        return -1;
+    }
+    
+    private void serveWaiting() {
+        while (!waiting.isEmpty()) {
+            int pad = tryReserve("");
+            if (pad < 0) {
+                return;
+            }
+            Waiting next = waiting.poll();
+            if (next == null) {
+                padOwners.set(pad - 1, null);
+                return;
+            }
+            padOwners.set(pad - 1, next.shipId);
+            reply(next.clearance, pad);
+        }
+    }
+    
+    private void reply(CompletableFuture<Integer> clearance, int pad) {
+        if (commsDelayMillis <= 0) {
+            clearance.complete(pad);
+        } else {
+            comms.schedule(() -> clearance.complete(pad), commsDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private static class Waiting {
+        final String shipId;
+        final CompletableFuture<Integer> clearance;
+        
+        Waiting(String shipId, CompletableFuture<Integer> clearance) {
+            this.shipId = shipId;
+            this.clearance = clearance;
+        }
+    }
+}
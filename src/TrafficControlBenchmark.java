@@ -0,0 +1,77 @@
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for TrafficControl
+ * 
+ * Thousands of ships request docking at the same moment against a small
+ * number of pads. Each ship holds its pad briefly and then departs, which
+ * hands the pad to the next ship in the queue. The run checks that every
+ * ship was cleared and that no pad was ever given to two ships at once,
+ * and reports throughput and clearance latency. Exits with status 1 if
+ * any ship went uncleared or a pad was double-booked.
+ * 
+ * Usage: java TrafficControlBenchmark [ships] [pads] [threads]
+ */
+public class TrafficControlBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int ships = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int pads = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        
+        TrafficControl control = new TrafficControl(pads, 1);
+        ExecutorService requesters = Executors.newFixedThreadPool(threads);
+        ExecutorService departures = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(ships);
+        AtomicInteger conflicts = new AtomicInteger();
+        long[] latencies = new long[ships];
+        
+        for (int i = 0; i < ships; i++) {
+            final int ship = i;
+            final String shipId = "ship-" + i;
+            requesters.submit(() -> {
+                start.await();
+                long requested = System.nanoTime();
+                control.requestClearance(shipId).thenAccept(pad -> {
+                    latencies[ship] = System.nanoTime() - requested;
+                    departures.submit(() -> {
+                        if (!shipId.equals(control.getPadOwner(pad))) {
+                            conflicts.incrementAndGet();
+                        }
+                        control.releasePad(pad);
+                        done.countDown();
+                    });
+                });
+                return null;
+            });
+        }
+        
+        long begin = System.nanoTime();
+        start.countDown();
+        boolean finished = done.await(120, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - begin;
+        
+        requesters.shutdown();
+        departures.shutdown();
+        control.close();
+        
+        Arrays.sort(latencies);
+        System.out.println("Ships: " + ships + ", pads: " + pads + ", requester threads: " + threads);
+        System.out.println("All cleared: " + finished + " (" + (ships - done.getCount()) + "/" + ships + ")");
+        System.out.println("Pad conflicts: " + conflicts.get());
+        System.out.printf("Clearances/s: %.0f%n", (ships - done.getCount()) / (elapsed / 1e9));
+        System.out.printf("Latency ms p50=%.2f p99=%.2f max=%.2f%n",
+            latencies[ships / 2] / 1e6, latencies[(int) (ships * 0.99)] / 1e6, latencies[ships - 1] / 1e6);
+        
+        boolean pass = finished && conflicts.get() == 0;
+        System.out.println(pass ? "PASS" : "FAIL");
+        if (!pass) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A collection of ships and starbases, each running as its own Shard
+ * 
+ * Every worker is a single thread that owns a list of shards and ticks them
+ * one after another, so a shard's world is only touched by one thread at a
+ * time. Cross-shard traffic goes through ShardMessages. Every few ticks the
+ * shards are redistributed across workers from their measured tick cost
+ * (largest first onto the least loaded worker). Everything runs in one JVM.
+ */
+public class Universe implements AutoCloseable {
+    private final Map<String, Shard> shards;
+    private final ExecutorService[] workers;
+    private final List<List<Shard>> assignments;
+    private final int rebalanceInterval;
+    private long tickCount;
+    
+    public Universe(int workerCount, int rebalanceInterval) {
+        this.shards = new ConcurrentHashMap<>();
+        this.workers = new ExecutorService[workerCount];
+        this.assignments = new ArrayList<>();
+        this.rebalanceInterval = rebalanceInterval;
+        for (int i = 0; i < workerCount; i++) {
+            final int worker = i;
+            workers[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "shard-worker-" + worker);
+                thread.setDaemon(true);
+                return thread;
+            });
+            assignments.add(new ArrayList<>());
+        }
+    }
+    
+    /**
+     * Add a world as a new shard. Call between ticks.
+     */
+    public Shard addShard(String id, ECS world) {
+        Shard shard = new Shard(id, world, this);
+        if (shards.putIfAbsent(id, shard) != null) {
+            throw new IllegalArgumentException("Shard already exists: " + id);
+        }
+        List<Shard> smallest = assignments.get(0);
+        for (List<Shard> assignment : assignments) {
+            if (assignment.size() < smallest.size()) {
+                smallest = assignment;
+            }
+        }
+        smallest.add(shard);
+        return shard;
+    }
+    
+    public Shard getShard(String id) {
+        return shards.get(id);
+    }
+    
+    public int getShardCount() {
+        return shards.size();
+    }
+    
+    /**
+     * Queue a message for another shard; it is handled on that shard's next tick
+     */
+    public void send(ShardMessage message) {
+        Shard target = shards.get(message.toShard);
+        if (target != null) {
+            target.deliver(message);
+        }
+    }
+    
+    /**
+     * Tick every shard once, each on its owning worker, and wait for all of them
+     */
+    public void tick(double deltaTime) {
+        List<Future<?>> pending = new ArrayList<>(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            final List<Shard> owned = assignments.get(i);
+            pending.add(workers[i].submit(() -> {
+                for (Shard shard : owned) {
+                    shard.tick(deltaTime);
+                }
+            }));
+        }
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new IllegalStateException("Shard tick failed", e);
+            }
+        }
+        
+        tickCount++;
+        if (rebalanceInterval > 0 && tickCount % rebalanceInterval == 0) {
+            rebalance();
+        }
+    }
+    
+    /**
+     * Reassign shards to workers by measured load. Only called between ticks,
+     * so no shard is running while it changes owner.
+     */
+    public void rebalance() {
+        List<Shard> all = new ArrayList<>(shards.values());
+        all.sort(Comparator.comparingDouble(Shard::getLoad).reversed().thenComparing(Shard::getId));
+        double[] loads = new double[workers.length];
+        for (List<Shard> assignment : assignments) {
+            assignment.clear();
+        }
+        for (Shard shard : all) {
+            int lightest = 0;
+            for (int i = 1; i < loads.length; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            assignments.get(lightest).add(shard);
+            loads[lightest] += shard.getLoad();
+        }
+    }
+    
+    /**
+     * Sum of shard loads per worker, in nanoseconds per tick
+     */
+    public double[] getWorkerLoads() {
+        double[] loads = new double[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            for (Shard shard : assignments.get(i)) {
+                loads[i] += shard.getLoad();
+            }
+        }
+        return loads;
+    }
+    
+    @Override
+    public void close() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
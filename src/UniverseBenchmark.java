@@ -0,0 +1,251 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cross-shard check and load test for Universe
+ *
+ * A generated fleet of ships and one starbase with fewer pads than ships
+ * run as shards of one Universe in this JVM. Every ship asks the starbase
+ * for docking at once; ships that find the pads taken are queued, and each
+ * docked ship departs a few ticks later, handing its pad on. A ship also
+ * asks a shard that has no starbase and must be denied. Then a player
+ * carrying an item goes out through a ship's airlock to the starbase.
+ * Finally the ships that started on the first worker are made expensive
+ * to tick, and rebalancing must spread them out.
+ *
+ * Checks, exiting with status 1 if any fail:
+ *   - every ship is cleared, no pad is ever held by two ships, and every
+ *     pad is free again at the end
+ *   - the denied ship is told so and is no longer waiting for clearance
+ *   - the transferred player leaves the ship and arrives on the starbase
+ *     with their inventory, in the arrival room's occupancy
+ *   - after rebalancing, the busiest worker carries well under the share
+ *     it had before
+ *
+ * Usage: java UniverseBenchmark [ships] [pads] [workers] [seed]
+ */
+public class UniverseBenchmark {
+    private static final String STARBASE = "starbase";
+    private static final int DOCKED_TICKS = 3;
+
+    public static void main(String[] args) {
+        int ships = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int pads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 2025L;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        ShipGenerator generator = new ShipGenerator(seed);
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        List<ShipGenerator.Blueprint> fleet = generator.generateFleet(ships, 12, 1, 40, pads, pool);
+        pool.shutdown();
+
+        try (Universe universe = new Universe(workers, 0)) {
+            List<Shard> shipShards = new ArrayList<>();
+            for (int i = 0; i < ships; i++) {
+                shipShards.add(universe.addShard("ship-" + i, shipWorld(fleet.get(i), quiet)));
+            }
+            ShipGenerator.Blueprint station = fleet.get(ships);
+            Shard starbase = universe.addShard(STARBASE, world(station, quiet));
+            universe.addShard("beacon", world(generator.blueprint(ships + 1, 1, 0), quiet));
+            System.out.println("ships: " + ships + ", pads: " + pads + ", workers: " + workers);
+
+            boolean docking = checkDocking(universe, shipShards, starbase, pads);
+            System.out.println("every ship docked, no pad shared, all pads free at the end: " + docking);
+
+            boolean denied = checkDenial(universe, shipShards.get(0));
+            System.out.println("request to a shard without a starbase is denied: " + denied);
+
+            boolean transfer = checkTransfer(universe, shipShards.get(0), fleet.get(0), starbase, station);
+            System.out.println("player goes through the airlock to the starbase with their inventory: " + transfer);
+
+            boolean balanced = checkRebalance(universe, shipShards);
+            System.out.println("rebalancing spreads the expensive shards: " + balanced);
+
+            boolean pass = docking && denied && transfer && balanced;
+            System.out.println(pass ? "PASS" : "FAIL");
+            if (!pass) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static ECS world(ShipGenerator.Blueprint blueprint, PrintStream output) {
+        ECS world = ECS.createWorld();
+        world.setOutput(output);
+        world.registerSystem(new MovementSystem(world));
+        world.registerSystem(new PlayerSystem(world));
+        ShipGenerator.populate(world, blueprint);
+        return world;
+    }
+
+    private static ECS shipWorld(ShipGenerator.Blueprint blueprint, PrintStream output) {
+        ECS world = world(blueprint, output);
+        world.addComponent(world.createEntity("docking"), new DockingComponent());
+        return world;
+    }
+
+    private static DockingComponent docking(Shard ship) {
+        return ship.getWorld().getComponent(ship.getWorld().createEntity("docking"), DockingComponent.class);
+    }
+
+    private static boolean checkDocking(Universe universe, List<Shard> ships, Shard starbase, int pads) {
+        AtomicInteger conflicts = new AtomicInteger();
+        int[] dockedFor = new int[ships.size()];
+        boolean[] done = new boolean[ships.size()];
+        for (Shard ship : ships) {
+            ship.post(() -> ship.requestDocking(STARBASE));
+        }
+
+        long start = System.nanoTime();
+        int remaining = ships.size();
+        int ticks = 0;
+        for (; remaining > 0 && ticks < 100 * ships.size(); ticks++) {
+            for (int i = 0; i < ships.size(); i++) {
+                Shard ship = ships.get(i);
+                int index = i;
+                ship.post(() -> {
+                    DockingComponent docking = docking(ship);
+                    if (docking.pad <= 0) {
+                        return;
+                    }
+                    if (dockedFor[index]++ == 0) {
+                        // The pad's owner at the starbase must be this ship
+                        int pad = docking.pad;
+                        starbase.post(() -> {
+                            if (!ship.getId().equals(starbase.getTrafficControl().getPadOwner(pad))) {
+                                conflicts.incrementAndGet();
+                            }
+                        });
+                    } else if (dockedFor[index] > DOCKED_TICKS) {
+                        ship.departStarbase(STARBASE);
+                        done[index] = true;
+                    }
+                });
+            }
+            universe.tick(1.0);
+            remaining = 0;
+            for (boolean shipDone : done) {
+                remaining += shipDone ? 0 : 1;
+            }
+        }
+        // One more tick lets the last releases reach the starbase
+        universe.tick(1.0);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        TrafficControl control = starbase.getTrafficControl();
+        int held = 0;
+        for (int pad = 1; pad <= control.getPadCount(); pad++) {
+            held += control.getPadOwner(pad) != null ? 1 : 0;
+        }
+        System.out.printf("docking: %d ships through %d pads in %d ticks (%.2f s), conflicts=%d, still held=%d%n",
+            ships.size(), pads, ticks, seconds, conflicts.get(), held);
+        return remaining == 0 && conflicts.get() == 0 && held == 0 && control.getWaitingCount() == 0;
+    }
+
+    private static boolean checkDenial(Universe universe, Shard ship) {
+        ship.post(() -> ship.requestDocking("beacon"));
+        boolean pending = false;
+        for (int i = 0; i < 3; i++) {
+            universe.tick(1.0);
+            if (i == 0) {
+                pending = docking(ship).clearancePending;
+            }
+        }
+        DockingComponent docking = docking(ship);
+        return pending && !docking.clearancePending && !docking.requested && docking.pad <= 0;
+    }
+
+    private static boolean checkTransfer(Universe universe, Shard ship, ShipGenerator.Blueprint shipPlan,
+                                         Shard starbase, ShipGenerator.Blueprint stationPlan) {
+        String airlock = shipPlan.rooms.get(0).id;
+        String arrival = stationPlan.rooms.get(0).id;
+        String item = shipPlan.items.isEmpty() ? null : shipPlan.items.get(0).id;
+        Entity[] player = new Entity[1];
+        ship.post(() -> {
+            player[0] = ship.getWorld().getSystem(PlayerSystem.class).join("spacer", airlock, null);
+            if (item != null) {
+                ship.getWorld().getComponent(player[0], InventoryComponent.class).addItem(item);
+            }
+        });
+        universe.tick(1.0);
+        ship.post(() -> ship.transferEntity(player[0], STARBASE, arrival));
+        universe.tick(1.0);
+        universe.tick(1.0);
+
+        ECS from = ship.getWorld();
+        ECS to = starbase.getWorld();
+        Entity arrived = to.createEntity("spacer");
+        InventoryComponent inventory = to.getComponent(arrived, InventoryComponent.class);
+        PositionComponent position = to.getComponent(arrived, PositionComponent.class);
+        return from.getEntityIndex(from.createEntity("spacer")) < 0
+            && to.hasComponent(arrived, PlayerComponent.class)
+            && inventory != null && (item == null || inventory.hasItem(item))
+            && position != null && position.room.equals(arrival)
+            && to.getOccupancy().getOccupants(arrival, null).contains(arrived);
+    }
+
+    // addShard dealt the ships out to workers in turn, so every workers-th ship started on the first one
+    private static boolean checkRebalance(Universe universe, List<Shard> ships) {
+        Set<String> heavy = new HashSet<>();
+        for (int i = 0; i < ships.size(); i++) {
+            if (i % universe.getWorkerLoads().length == 0) {
+                Shard ship = ships.get(i);
+                heavy.add(ship.getId());
+                ship.post(() -> ship.getWorld().registerSystem(new Esystem() {
+                    @Override
+                    public void update(double deltaTime) {
+                        burn(20_000);
+                    }
+                }));
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            universe.tick(1.0);
+        }
+        double before = busiestShare(universe.getWorkerLoads());
+        universe.rebalance();
+        for (int i = 0; i < 10; i++) {
+            universe.tick(1.0);
+        }
+        double after = busiestShare(universe.getWorkerLoads());
+        System.out.printf("rebalance: %d expensive shards, busiest worker's share of load %.0f%% -> %.0f%% (%s)%n",
+            heavy.size(), before * 100, after * 100, Arrays.toString(round(universe.getWorkerLoads())));
+        return after < before * 0.75;
+    }
+
+    private static double busiestShare(double[] loads) {
+        double total = 0;
+        double busiest = 0;
+        for (double load : loads) {
+            total += load;
+            busiest = Math.max(busiest, load);
+        }
+        return total > 0 ? busiest / total : 0;
+    }
+
+    private static long[] round(double[] loads) {
+        long[] micros = new long[loads.length];
+        for (int i = 0; i < loads.length; i++) {
+            micros[i] = Math.round(loads[i] / 1e3);
+        }
+        return micros;
+    }
+
+    private static volatile long sink;
+
+    private static void burn(int iterations) {
+        long x = sink;
+        for (int i = 0; i < iterations; i++) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        sink = x;
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark and consistency check for WorldVersions
+ *
+ * A session thread shuffles items between rooms, mutating ItemsComponents in
+ * place, and publishes a version every tick. Reader threads pin the latest
+ * version and count every item across all rooms; in a consistent version
+ * each item is in exactly one room. Session ticks per second are reported
+ * with and without readers, to show that readers do not slow the session,
+ * together with how many pages each publish copied and how many versions
+ * were reclaimed.
+ *
+ * Exits with status 1 if a reader ever sees torn state.
+ *
+ * Usage: java VersionBenchmark [rooms] [items] [movesPerTick] [ticks] [readers]
+ */
+public class VersionBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int items = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int moves = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int ticks = args.length > 3 ? Integer.parseInt(args[3]) : 2_000;
+        int readers = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+
+        System.out.println("rooms: " + rooms + ", items: " + items + ", moves/tick: " + moves + ", ticks: " + ticks);
+        boolean ok = run(rooms, items, moves, ticks, 0);
+        ok &= run(rooms, items, moves, ticks, readers);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(int rooms, int items, int moves, int ticks, int readerCount) throws InterruptedException {
+        ECS ecs = ECS.createWorld();
+        Entity[] roomEntities = new Entity[rooms];
+        for (int r = 0; r < rooms; r++) {
+            roomEntities[r] = ecs.createEntity("room-" + r);
+            ecs.addComponent(roomEntities[r], new ItemsComponent());
+        }
+        for (int i = 0; i < items; i++) {
+            ecs.getComponent(roomEntities[i % rooms], ItemsComponent.class).addItem("item-" + i);
+        }
+        WorldVersions versions = ecs.enableVersions();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong torn = new AtomicLong();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < readerCount; t++) {
+            Thread reader = new Thread(() -> {
+                while (running.get()) {
+                    try (WorldVersion version = versions.pin()) {
+                        if (countItems(version, roomEntities) != items) {
+                            torn.incrementAndGet();
+                        }
+                    }
+                    reads.incrementAndGet();
+                }
+            });
+            reader.setDaemon(true);
+            readers.add(reader);
+            reader.start();
+        }
+
+        SplittableRandom random = new SplittableRandom(7);
+        long copiedBefore = versions.getPagesCopied();
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int m = 0; m < moves; m++) {
+                ItemsComponent from = ecs.getComponent(roomEntities[random.nextInt(rooms)], ItemsComponent.class);
+                if (from.getItems().isEmpty()) continue;
+                String item = from.getItems().get(0);
+                from.removeItem(item);
+                ecs.getComponent(roomEntities[random.nextInt(rooms)], ItemsComponent.class).addItem(item);
+            }
+            ecs.update(0.0);
+        }
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        System.out.printf("readers=%d  session ticks/s=%,9.0f  pages copied/publish=%6.1f  reads=%,d  torn=%d  reclaimed=%,d  retained=%d%n",
+            readerCount, ticks / (elapsed / 1e9), (versions.getPagesCopied() - copiedBefore) / (double) ticks,
+            reads.get(), torn.get(), versions.getReclaimedCount(), versions.getRetainedCount());
+        return torn.get() == 0;
+    }
+
+    private static int countItems(WorldVersion version, Entity[] rooms) {
+        int count = 0;
+        for (Entity room : rooms) {
+            ItemsComponent items = version.getComponent(room, ItemsComponent.class);
+            count += items.getItems().size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * COMPONENT class for windows and ports in the ECS pattern
+ * 
+ * This component lists the openings a room has onto the outside. Each
+ * viewport is named after the fixed item it appears as (e.g. "window"),
+ * faces a bearing relative to the ship, and says how it frames each
+ * landmark it might have in sight: a phrase for the room description and
+ * a longer description for when the viewport itself is examined.
+ */
+public class ViewportComponent implements Component {
+    private final List<Viewport> viewports;
+    
+    public ViewportComponent() {
+        this.viewports = new ArrayList<>();
+    }
+    
+    public Viewport addViewport(String name, String facing) {
+        Viewport viewport = new Viewport(name, facing);
+        viewports.add(viewport);
+        return viewport;
+    }
+    
+    public Viewport getViewport(String name) {
+        for (Viewport viewport : viewports) {
+            if (viewport.name.equals(name)) {
+                return viewport;
+            }
+        }
+        return null;
+    }
+    
+    public List<Viewport> getViewports() {
+        return Collections.unmodifiableList(viewports);
+    }
+    
+    @Override
+    public ViewportComponent copy() {
+        ViewportComponent copy = new ViewportComponent();
+        for (Viewport viewport : viewports) {
+            Viewport copied = copy.addViewport(viewport.name, viewport.facing);
+            copied.phrases.putAll(viewport.phrases);
+            copied.closeUps.putAll(viewport.closeUps);
+        }
+        return copy;
+    }
+    
+    /**
+     * Write every viewport and its views, for a prebuilt world image
+     * (DeltaCodec does not describe nested viewports)
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(viewports.size());
+        for (Viewport viewport : viewports) {
+            out.writeUTF(viewport.name);
+            out.writeUTF(viewport.facing);
+            out.writeInt(viewport.phrases.size());
+            for (Map.Entry<String, String> view : viewport.phrases.entrySet()) {
+                out.writeUTF(view.getKey());
+                out.writeUTF(view.getValue());
+                out.writeUTF(viewport.closeUps.get(view.getKey()));
+            }
+        }
+    }
+    
+    public static ViewportComponent read(DataInputStream in) throws IOException {
+        ViewportComponent component = new ViewportComponent();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Viewport viewport = component.addViewport(in.readUTF(), in.readUTF());
+            int views = in.readInt();
+            for (int v = 0; v < views; v++) {
+                viewport.addView(in.readUTF(), in.readUTF(), in.readUTF());
+            }
+        }
+        return component;
+    }
+    
+    public static class Viewport {
+        public final String name;
+        public final String facing;
+        private final Map<String, String> phrases;
+        private final Map<String, String> closeUps;
+        
+        Viewport(String name, String facing) {
+            this.name = name;
+            this.facing = facing;
+            this.phrases = new HashMap<>();
+            this.closeUps = new HashMap<>();
+        }
+        
+        /**
+         * Describe how this viewport frames a landmark
+         */
+        public Viewport addView(String landmark, String phrase, String closeUp) {
+            phrases.put(landmark, phrase);
+            closeUps.put(landmark, closeUp);
+            return this;
+        }
+        
+        public boolean frames(String landmark) {
+            return phrases.containsKey(landmark);
+        }
+        
+        public String getPhrase(String landmark) {
+            return phrases.get(landmark);
+        }
+        
+        public String getCloseUp(String landmark) {
+            return closeUps.get(landmark);
+        }
+    }
+}
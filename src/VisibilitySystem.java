@@ -0,0 +1,263 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * System that works out what can be seen through windows and ports
+ *
+ * Landmarks (the starbase, its docking entry) are declared per view state
+ * together with the bearings they occupy and how brightly they are lit.
+ * Rooms declare viewports with a ViewportComponent. Which landmark each
+ * viewport has in sight for each view state is pure geometry, so it is
+ * worked out once into a sightline table; rendering a room only looks the
+ * answer up.
+ *
+ * A room's long description marks where the view goes with {view}. The
+ * rendered text, including anything lit enough to be made out outside the
+ * hull, is cached per room until the view state changes, the outside
+ * occupancy changes, or invalidate() is called.
+ */
+public class VisibilitySystem implements Esystem {
+    public enum ViewState { IN_SPACE, DOCKED }
+
+    public static final String VIEW = "{view}";
+    private static final String OUTSIDE = "outside";
+    private static final double STARLIGHT = 0.1;
+    private static final double VISIBLE_LIGHT = 0.3;
+
+    private final ECS ecs;
+    private final List<Landmark> landmarks;
+    private final Map<String, CachedView> rendered;
+    private Map<String, Sightline[]> sightlines;
+    private ViewState cachedState;
+    private int cachedOutsideVersion;
+
+    public VisibilitySystem(ECS ecs) {
+        this.ecs = ecs;
+        this.landmarks = new ArrayList<>();
+        this.rendered = new HashMap<>();
+    }
+
+    /**
+     * Declare a landmark that lies on the given bearings while in a view state.
+     * Earlier landmarks take precedence when a viewport could see several.
+     */
+    public void addLandmark(ViewState state, String name, double light, String... bearings) {
+        landmarks.add(new Landmark(state, name, light, bearings));
+        sightlines = null;
+    }
+
+    /**
+     * Save the declared landmarks, for a prebuilt world image
+     */
+    public void writeLandmarks(DataOutputStream out) throws IOException {
+        out.writeInt(landmarks.size());
+        for (Landmark landmark : landmarks) {
+            out.writeUTF(landmark.state.name());
+            out.writeUTF(landmark.name);
+            out.writeDouble(landmark.light);
+            out.writeInt(landmark.bearings.size());
+            for (String bearing : landmark.bearings) {
+                out.writeUTF(bearing);
+            }
+        }
+    }
+
+    /**
+     * Declare the landmarks writeLandmarks saved, after any already declared
+     */
+    public void readLandmarks(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            ViewState state = ViewState.valueOf(in.readUTF());
+            String name = in.readUTF();
+            double light = in.readDouble();
+            String[] bearings = new String[in.readInt()];
+            for (int b = 0; b < bearings.length; b++) {
+                bearings[b] = in.readUTF();
+            }
+            addLandmark(state, name, light, bearings);
+        }
+    }
+
+    /**
+     * Recompute the sightline table, e.g. after rooms gain or lose viewports
+     */
+    public void rebuildSightlines() {
+        Map<String, Sightline[]> table = new HashMap<>();
+        for (Entity room : ecs.getEntitiesWithComponent(ViewportComponent.class)) {
+            ViewportComponent viewports = ecs.getComponent(room, ViewportComponent.class);
+            Sightline[] byState = new Sightline[ViewState.values().length];
+            for (ViewState state : ViewState.values()) {
+                byState[state.ordinal()] = traceSightline(viewports, state);
+            }
+            table.put(room.getId(), byState);
+        }
+        sightlines = table;
+        rendered.clear();
+    }
+
+    /**
+     * Forget cached views. Call when the ship moves or docks; rooms with a
+     * view will give every player their full description again on the next visit.
+     */
+    public void invalidate() {
+        rendered.clear();
+        Collection<Entity> players = ecs.getEntitiesWithComponent(PlayerComponent.class);
+        for (Entity room : ecs.getEntitiesWithComponent(ViewportComponent.class)) {
+            for (Entity player : players) {
+                ecs.getComponent(player, PlayerComponent.class).forget(room.getId());
+            }
+        }
+    }
+
+    public ViewState getViewState() {
+        DockingComponent docking = ecs.getComponent(ecs.createEntity("docking"), DockingComponent.class);
+        return docking == null || docking.inSpace ? ViewState.IN_SPACE : ViewState.DOCKED;
+    }
+
+    /**
+     * Fill in the {view} placeholder of a room description
+     */
+    public String render(String roomId, String template) {
+        if (!template.contains(VIEW)) {
+            return template;
+        }
+        checkCache();
+        CachedView cached = rendered.get(roomId);
+        if (cached != null && cached.template.equals(template)) {
+            return cached.text;
+        }
+
+        String view = "";
+        Sightline sightline = sightlineFor(roomId);
+        if (sightline != null) {
+            view = sightline.phrase + describeOutside(sightline, sightline.firstViewport);
+        }
+        String text = template.replace(VIEW, view);
+        rendered.put(roomId, new CachedView(template, text));
+        return text;
+    }
+
+    /**
+     * Describe the view through one of a room's viewports, or null if the room has no such viewport
+     */
+    public String describeViewport(String roomId, String viewportName) {
+        Sightline sightline = sightlineFor(roomId);
+        if (sightline == null || !sightline.closeUps.containsKey(viewportName)) {
+            return null;
+        }
+        return sightline.closeUps.get(viewportName) + describeOutside(sightline, viewportName);
+    }
+
+    private Sightline sightlineFor(String roomId) {
+        if (sightlines == null) {
+            rebuildSightlines();
+        }
+        Sightline[] byState = sightlines.get(roomId);
+        return byState != null ? byState[getViewState().ordinal()] : null;
+    }
+
+    private void checkCache() {
+        ViewState state = getViewState();
+        int outsideVersion = ecs.getOccupancy().version(OUTSIDE);
+        if (state != cachedState || outsideVersion != cachedOutsideVersion) {
+            rendered.clear();
+            cachedState = state;
+            cachedOutsideVersion = outsideVersion;
+        }
+    }
+
+    private Sightline traceSightline(ViewportComponent viewports, ViewState state) {
+        StringBuilder phrase = new StringBuilder();
+        Map<String, String> closeUps = new HashMap<>();
+        double light = 0.0;
+        String firstViewport = null;
+        for (ViewportComponent.Viewport viewport : viewports.getViewports()) {
+            if (firstViewport == null) {
+                firstViewport = viewport.name;
+            }
+            Landmark seen = null;
+            for (Landmark landmark : landmarks) {
+                if (landmark.state == state && landmark.bearings.contains(viewport.facing) && viewport.frames(landmark.name)) {
+                    seen = landmark;
+                    break;
+                }
+            }
+            if (seen == null) {
+                closeUps.put(viewport.name, "Beyond the " + viewport.name + " there is only the black between the stars.");
+                continue;
+            }
+            if (phrase.length() > 0) {
+                phrase.append(' ');
+            }
+            phrase.append(viewport.getPhrase(seen.name));
+            closeUps.put(viewport.name, viewport.getCloseUp(seen.name));
+            light = Math.max(light, seen.light);
+        }
+        return new Sightline(phrase.toString(), closeUps, Math.max(STARLIGHT, light), firstViewport);
+    }
+
+    // Anything outside the hull that is lit well enough to be made out
+    private String describeOutside(Sightline sightline, String viewportName) {
+        List<String> visible = new ArrayList<>();
+        ecs.getOccupancy().forEachOccupant(OUTSIDE, index -> {
+            Entity entity = ecs.getEntityAt(index);
+            LightComponent own = ecs.getComponent(entity, LightComponent.class);
+            double light = Math.max(sightline.ambientLight, own != null ? own.intensity : 0.0);
+            if (light >= VISIBLE_LIGHT) {
+                visible.add(entity.getId());
+            }
+        });
+        if (visible.isEmpty()) {
+            return "";
+        }
+        return " Through the " + viewportName + " you can make out " + String.join(", ", visible) + ".";
+    }
+
+    private static class Landmark {
+        final ViewState state;
+        final String name;
+        final double light;
+        final Set<String> bearings;
+
+        Landmark(ViewState state, String name, double light, String... bearings) {
+            this.state = state;
+            this.name = name;
+            this.light = light;
+            this.bearings = new HashSet<>(Arrays.asList(bearings));
+        }
+    }
+
+    private static class Sightline {
+        final String phrase;
+        final Map<String, String> closeUps;
+        final double ambientLight;
+        final String firstViewport;
+
+        Sightline(String phrase, Map<String, String> closeUps, double ambientLight, String firstViewport) {
+            this.phrase = phrase;
+            this.closeUps = closeUps;
+            this.ambientLight = ambientLight;
+            this.firstViewport = firstViewport;
+        }
+    }
+
+    private static class CachedView {
+        final String template;
+        final String text;
+
+        CachedView(String template, String text) {
+            this.template = template;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * COMPONENT class for wearable items in the ECS pattern
+ * 
+ * This component lives on an item entity and declares which equipment slot
+ * the item occupies when worn and what effects wearing it grants. Effects are
+ * stored as a bit set so equipment can combine and test them cheaply.
+ */
+public class WearableComponent implements Component {
+    public final EquipmentComponent.EquipmentSlot slot;
+    public final int effects;
+    
+    public WearableComponent(EquipmentComponent.EquipmentSlot slot, Effect... effects) {
+        this.slot = slot;
+        int flags = 0;
+        for (Effect effect : effects) {
+            flags |= effect.bit();
+        }
+        this.effects = flags;
+    }
+    
+    public boolean hasEffect(Effect effect) {
+        return (effects & effect.bit()) != 0;
+    }
+    
+    public enum Effect {
+        VACUUM_RATED,
+        OXYGEN_SUPPLY,
+        TOOL_CLASS;
+        
+        public int bit() {
+            return 1 << ordinal();
+        }
+    }
+}
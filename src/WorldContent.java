@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Editable world content: room descriptions, exits and item descriptions
+ *
+ * The content file is plain text made of sections:
+ *
+ *   [room Ship Locker]
+ *   short: A cramped locker room for gear.
+ *   long: The ship locker is a utilitarian space crammed with EVA suits and tools.
+ *   exit port: Hall
+ *
+ *   [item wrench]
+ *   default: The grease-caked wrench is hefty.
+ *   in Engine: The hefty wrench rests near the reactor.
+ *
+ * Blank lines and lines starting with '#' are ignored. A template can be
+ * captured from a running world, written out, parsed back and diffed
+ * against another template to find just the records that changed.
+ */
+public class WorldContent {
+    private final Map<String, RoomRecord> rooms;
+    private final Map<String, ItemRecord> items;
+
+    public WorldContent() {
+        rooms = new LinkedHashMap<>();
+        items = new LinkedHashMap<>();
+    }
+
+    /**
+     * Capture the current content of a world
+     */
+    public static WorldContent fromWorld(ECS ecs) {
+        WorldContent content = new WorldContent();
+        for (Entity room : ecs.getEntitiesWithComponent(RoomComponent.class)) {
+            DescriptionComponent desc = ecs.getComponent(room, DescriptionComponent.class);
+            ExitsComponent exits = ecs.getComponent(room, ExitsComponent.class);
+            RoomRecord record = new RoomRecord(
+                desc != null ? desc.shortDesc : "",
+                desc != null ? desc.longDesc : "");
+            if (exits != null) {
+                for (String direction : exits.getDirections()) {
+                    record.exits.put(direction, exits.getExit(direction));
+                }
+            }
+            content.rooms.put(room.getId(), record);
+        }
+        for (Entity item : ecs.getEntitiesWithComponent(ItemDescriptionComponent.class)) {
+            ItemDescriptionComponent desc = ecs.getComponent(item, ItemDescriptionComponent.class);
+            ItemRecord record = new ItemRecord(desc.getDefaultDescription());
+            record.contexts.putAll(desc.getContextDescriptions());
+            content.items.put(item.getId(), record);
+        }
+        return content;
+    }
+
+    public static WorldContent parse(Path file) throws IOException {
+        WorldContent content = new WorldContent();
+        RoomRecord room = null;
+        ItemRecord item = null;
+        int lineNumber = 0;
+        for (String raw : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("[room ") && line.endsWith("]")) {
+                room = new RoomRecord("", "");
+                item = null;
+                content.rooms.put(line.substring(6, line.length() - 1).trim(), room);
+                continue;
+            }
+            if (line.startsWith("[item ") && line.endsWith("]")) {
+                item = new ItemRecord("");
+                room = null;
+                content.items.put(line.substring(6, line.length() - 1).trim(), item);
+                continue;
+            }
+
+            int colon = line.indexOf(':');
+            if (colon < 0 || (room == null && item == null)) {
+                throw new IOException(file + ":" + lineNumber + ": expected 'key: value' inside a section");
+            }
+            String key = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (room != null) {
+                if (key.equals("short")) {
+                    room.shortDesc = value;
+                } else if (key.equals("long")) {
+                    room.longDesc = value;
+                } else if (key.startsWith("exit ")) {
+                    room.exits.put(key.substring(5).trim(), value);
+                } else {
+                    throw new IOException(file + ":" + lineNumber + ": unknown room key '" + key + "'");
+                }
+            } else {
+                if (key.equals("default")) {
+                    item.defaultDesc = value;
+                } else if (key.startsWith("in ")) {
+                    item.contexts.put(key.substring(3).trim(), value);
+                } else {
+                    throw new IOException(file + ":" + lineNumber + ": unknown item key '" + key + "'");
+                }
+            }
+        }
+        return content;
+    }
+
+    public void write(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, RoomRecord> entry : rooms.entrySet()) {
+            RoomRecord room = entry.getValue();
+            lines.add("[room " + entry.getKey() + "]");
+            lines.add("short: " + room.shortDesc);
+            lines.add("long: " + room.longDesc);
+            for (Map.Entry<String, String> exit : room.exits.entrySet()) {
+                lines.add("exit " + exit.getKey() + ": " + exit.getValue());
+            }
+            lines.add("");
+        }
+        for (Map.Entry<String, ItemRecord> entry : items.entrySet()) {
+            ItemRecord item = entry.getValue();
+            lines.add("[item " + entry.getKey() + "]");
+            lines.add("default: " + item.defaultDesc);
+            for (Map.Entry<String, String> context : item.contexts.entrySet()) {
+                lines.add("in " + context.getKey() + ": " + context.getValue());
+            }
+            lines.add("");
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Record, into a command buffer, the component replacements that turn a
+     * world loaded from this template into one matching the newer template.
+     * Only records that differ are touched, and nothing is removed: rooms or
+     * items missing from the newer template are left alone.
+     *
+     * @return the number of records that changed
+     */
+    public int diff(WorldContent newer, ECS ecs, CommandBuffer buffer) {
+        int changed = 0;
+        for (Map.Entry<String, RoomRecord> entry : newer.rooms.entrySet()) {
+            RoomRecord before = rooms.get(entry.getKey());
+            RoomRecord after = entry.getValue();
+            Entity room = ecs.createEntity(entry.getKey());
+
+            if (before == null || !before.shortDesc.equals(after.shortDesc) || !before.longDesc.equals(after.longDesc)) {
+                buffer.removeComponent(room, DescriptionComponent.class);
+                buffer.addComponent(room, new DescriptionComponent(after.shortDesc, after.longDesc));
+                changed++;
+            }
+            if (before == null || !before.exits.equals(after.exits)) {
+                ExitsComponent exits = new ExitsComponent();
+                after.exits.forEach(exits::addExit);
+                buffer.removeComponent(room, ExitsComponent.class);
+                buffer.addComponent(room, exits);
+                changed++;
+            }
+            if (before == null) {
+                // Whether the room already has items is only safe to ask at the sync point
+                buffer.addComponent(room, new RoomComponent(entry.getKey()));
+                buffer.addComponentIfAbsent(room, new ItemsComponent());
+                buffer.addComponentIfAbsent(room, new FixedItemsComponent());
+            }
+        }
+        for (Map.Entry<String, ItemRecord> entry : newer.items.entrySet()) {
+            ItemRecord before = items.get(entry.getKey());
+            ItemRecord after = entry.getValue();
+            if (before == null || !before.equals(after)) {
+                Entity item = ecs.createEntity(entry.getKey());
+                ItemDescriptionComponent replacement = new ItemDescriptionComponent(after.defaultDesc);
+                after.contexts.forEach(replacement::addContextDescription);
+                buffer.removeComponent(item, ItemDescriptionComponent.class);
+                buffer.addComponent(item, replacement);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private static class RoomRecord {
+        String shortDesc;
+        String longDesc;
+        final Map<String, String> exits = new LinkedHashMap<>();
+
+        RoomRecord(String shortDesc, String longDesc) {
+            this.shortDesc = shortDesc;
+            this.longDesc = longDesc;
+        }
+    }
+
+    private static class ItemRecord {
+        String defaultDesc;
+        final Map<String, String> contexts = new LinkedHashMap<>();
+
+        ItemRecord(String defaultDesc) {
+            this.defaultDesc = defaultDesc;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ItemRecord)) return false;
+            ItemRecord other = (ItemRecord) obj;
+            return defaultDesc.equals(other.defaultDesc) && contexts.equals(other.contexts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(defaultDesc, contexts);
+        }
+    }
+}
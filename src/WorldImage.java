@@ -0,0 +1,268 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact on-disk image of a world, stored as its difference from a base world
+ *
+ * Sessions all start from the same content, and an idle session has usually
+ * changed only a little of it (where the player stands, what they carry,
+ * which rooms they have seen). So an image records only what differs from
+ * a freshly initialized base world, down to individual fields: entities
+ * dropped, entities added, components removed, and for each changed or
+ * added component the fields that differ, encoded with DeltaCodec.
+ * Restoring applies the image to another freshly initialized world.
+ *
+ * A changed component is rebuilt either through a constructor taking all of
+ * its fields (value components such as PositionComponent) or by copying the
+ * base component and writing the changed fields into the copy. Fields of
+ * types DeltaCodec does not replicate (viewport lists, for example) always
+ * come from the base world; they are content, not session state.
+ *
+ * The ship motion simulation is saved with the components, since docking
+ * progress lives there rather than in a component.
+ *
+ * Layout: magic, version, then records until END:
+ *   ENTITY id         following records apply to this entity
+ *   DROP id           the entity is gone
+ *   SET type mask values
+ *   UNSET type
+ * A type is a varint; the first use of each is followed by the class name,
+ * field count and field names, which are checked against the running code.
+ */
+public final class WorldImage {
+    private static final int MAGIC = 0x57494d47; // "WIMG"
+    private static final int VERSION = 1;
+
+    private static final byte RECORD_END = 0;
+    private static final byte RECORD_ENTITY = 1;
+    private static final byte RECORD_DROP = 2;
+    private static final byte RECORD_SET = 3;
+    private static final byte RECORD_UNSET = 4;
+
+    private static final DeltaCodec.Registry SCHEMAS = new DeltaCodec.Registry();
+
+    private WorldImage() {
+    }
+
+    /**
+     * Write how a world differs from the base world it started as. Throws
+     * IllegalStateException if the world holds a component that could not be
+     * rebuilt from an image, in which case whatever was written is unusable.
+     */
+    public static void write(ECS world, ECS base, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        Map<Class<? extends Component>, Integer> typeIds = new HashMap<>();
+        Set<String> live = new HashSet<>();
+
+        int limit = world.getEntityIndexLimit();
+        for (int index = 0; index < limit; index++) {
+            Entity entity = world.getEntityAt(index);
+            if (entity == null) continue;
+            live.add(entity.getId());
+            Map<Class<? extends Component>, Component> current = byType(world.getComponents(entity));
+            Map<Class<? extends Component>, Component> original = byType(base.getComponents(entity));
+            boolean named = false;
+
+            for (Map.Entry<Class<? extends Component>, Component> entry : current.entrySet()) {
+                Class<? extends Component> type = entry.getKey();
+                DeltaCodec.Schema schema = SCHEMAS.schemaFor(type);
+                Object[] values = schema.capture(entry.getValue());
+                Component before = original.get(type);
+                long mask = DeltaCodec.changedFields(before != null ? schema.capture(before) : null, values);
+                if (before != null && mask == 0) continue;
+                checkRebuildable(schema, entry.getValue(), before != null);
+                if (!named) {
+                    out.writeByte(RECORD_ENTITY);
+                    out.writeUTF(entity.getId());
+                    named = true;
+                }
+                out.writeByte(RECORD_SET);
+                writeType(out, schema, type, typeIds);
+                DeltaCodec.writeFields(out, schema, mask, values);
+            }
+            for (Class<? extends Component> type : original.keySet()) {
+                if (current.containsKey(type)) continue;
+                if (!named) {
+                    out.writeByte(RECORD_ENTITY);
+                    out.writeUTF(entity.getId());
+                    named = true;
+                }
+                out.writeByte(RECORD_UNSET);
+                writeType(out, SCHEMAS.schemaFor(type), type, typeIds);
+            }
+        }
+
+        int baseLimit = base.getEntityIndexLimit();
+        for (int index = 0; index < baseLimit; index++) {
+            Entity entity = base.getEntityAt(index);
+            if (entity != null && !live.contains(entity.getId())) {
+                out.writeByte(RECORD_DROP);
+                out.writeUTF(entity.getId());
+            }
+        }
+        out.writeByte(RECORD_END);
+
+        ShipMotionSystem motion = world.getSystem(ShipMotionSystem.class);
+        out.writeBoolean(motion != null);
+        if (motion != null) {
+            motion.writeState(out);
+        }
+    }
+
+    /**
+     * Apply an image to a freshly initialized world built from the same base content
+     */
+    public static void read(DataInputStream in, ECS world) throws IOException {
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a world image, or from an incompatible version");
+        }
+        Map<Integer, DeltaCodec.Schema> schemas = new HashMap<>();
+        Map<Integer, Class<? extends Component>> types = new HashMap<>();
+        Entity entity = null;
+        while (true) {
+            byte record = in.readByte();
+            if (record == RECORD_END) break;
+            switch (record) {
+                case RECORD_ENTITY:
+                    entity = world.createEntity(in.readUTF());
+                    break;
+                case RECORD_DROP:
+                    world.destroyEntity(world.createEntity(in.readUTF()));
+                    break;
+                case RECORD_SET: {
+                    int typeId = readType(in, schemas, types);
+                    restoreComponent(in, world, entity, schemas.get(typeId), types.get(typeId));
+                    break;
+                }
+                case RECORD_UNSET: {
+                    Class<? extends Component> type = types.get(readType(in, schemas, types));
+                    if (type == PositionComponent.class) {
+                        world.getOccupancy().leave(entity);
+                    }
+                    world.removeComponent(entity, type);
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown record type " + record);
+            }
+        }
+
+        if (in.readBoolean()) {
+            ShipMotionSystem motion = world.getSystem(ShipMotionSystem.class);
+            if (motion == null) {
+                throw new IOException("Image has ship motion but the world has no ShipMotionSystem");
+            }
+            motion.readState(in);
+        }
+    }
+
+    private static void restoreComponent(DataInputStream in, ECS world, Entity entity,
+                                         DeltaCodec.Schema schema, Class<? extends Component> type) throws IOException {
+        if (entity == null) {
+            throw new IOException("Component record before any entity");
+        }
+        Component existing = world.getComponent(entity, type);
+        Object[] values = existing != null ? schema.capture(existing) : new Object[schema.fieldCount()];
+        DeltaCodec.readFields(in, schema, values);
+
+        Component restored = schema.instantiate(values);
+        if (restored == null) {
+            Component prototype = existing != null ? existing : anyInstance(world, type);
+            restored = prototype != null ? prototype.copy() : null;
+            if (restored == null || restored == prototype) {
+                throw new IOException("Cannot rebuild " + type.getName());
+            }
+            schema.apply(restored, values);
+        }
+        world.addComponent(entity, restored);
+        if (restored instanceof PositionComponent) {
+            world.getOccupancy().enter(entity, ((PositionComponent) restored).room);
+        }
+    }
+
+    // A component can be rebuilt from a value constructor, or by copying a
+    // prototype; a component new to its entity has no base to take
+    // unreplicated fields from, so all of its fields must be replicated
+    private static void checkRebuildable(DeltaCodec.Schema schema, Component component, boolean hasBase) {
+        if (schema.hasValueConstructor()) {
+            return;
+        }
+        if (component.copy() == component) {
+            throw new IllegalStateException(schema.typeName + " has neither a value constructor nor copy()");
+        }
+        if (!hasBase && !schema.isComplete()) {
+            throw new IllegalStateException(schema.typeName + " was added at runtime but has fields images cannot hold");
+        }
+    }
+
+    private static Component anyInstance(ECS world, Class<? extends Component> type) {
+        Collection<Entity> holders = world.getEntitiesWithComponent(type);
+        return holders.isEmpty() ? null : world.getComponent(holders.iterator().next(), type);
+    }
+
+    private static Map<Class<? extends Component>, Component> byType(List<Component> components) {
+        Map<Class<? extends Component>, Component> result = new HashMap<>();
+        for (Component component : components) {
+            result.put(component.getClass(), component);
+        }
+        return result;
+    }
+
+    private static void writeType(DataOutputStream out, DeltaCodec.Schema schema, Class<? extends Component> type,
+                                  Map<Class<? extends Component>, Integer> typeIds) throws IOException {
+        Integer id = typeIds.get(type);
+        if (id != null) {
+            DeltaCodec.writeVarLong(out, id);
+            return;
+        }
+        id = typeIds.size();
+        typeIds.put(type, id);
+        DeltaCodec.writeVarLong(out, id);
+        out.writeUTF(type.getName());
+        List<String> names = schema.fieldNames();
+        DeltaCodec.writeVarLong(out, names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static int readType(DataInputStream in, Map<Integer, DeltaCodec.Schema> schemas,
+                                Map<Integer, Class<? extends Component>> types) throws IOException {
+        int id = (int) DeltaCodec.readVarLong(in);
+        if (schemas.containsKey(id)) {
+            return id;
+        }
+        if (id != schemas.size()) {
+            throw new IOException("Component type " + id + " used before it was described");
+        }
+        String className = in.readUTF();
+        Class<? extends Component> type;
+        try {
+            type = Class.forName(className).asSubclass(Component.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unknown component type " + className, e);
+        }
+        DeltaCodec.Schema schema = SCHEMAS.schemaFor(type);
+        int count = (int) DeltaCodec.readVarLong(in);
+        List<String> expected = schema.fieldNames();
+        boolean matches = count == expected.size();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            matches &= i < expected.size() && expected.get(i).equals(name);
+        }
+        if (!matches) {
+            throw new IOException("Fields of " + className + " changed since the image was written");
+        }
+        schemas.put(id, schema);
+        types.put(id, type);
+        return id;
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Thrown when a change would take a world past its entity or component cap
+ * (see ECS.setLimits). The change is not applied.
+ */
+public class WorldLimitException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    public WorldLimitException(String message) {
+        super(message);
+    }
+}
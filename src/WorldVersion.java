@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One published, immutable version of a world's components
+ *
+ * Obtained by pinning through WorldVersions.pin() and given back with
+ * close() (or WorldVersions.release). While pinned it can be read from any
+ * thread and never changes, however far the live world moves on. Entities
+ * and components are stored in pages of WorldVersions.PAGE_SIZE entity
+ * indices; pages the world did not touch are shared with older versions.
+ * Room occupancy is captured along with the pages (see WorldVersions).
+ */
+public final class WorldVersion implements AutoCloseable {
+    private final WorldVersions owner;
+    private final long epoch;
+    private final int entityCount;
+    private Entity[][] entityPages;
+    private Map<Class<? extends Component>, Component[][]> componentPages;
+    private long[] globalMasks;
+    private Map<String, int[]> occupants;
+    // Number of readers holding this version, or -1 once it has been reclaimed
+    private final AtomicInteger pins;
+
+    WorldVersion(WorldVersions owner, long epoch, int entityCount, Entity[][] entityPages,
+                 Map<Class<? extends Component>, Component[][]> componentPages,
+                 long[] globalMasks, Map<String, int[]> occupants) {
+        this.owner = owner;
+        this.epoch = epoch;
+        this.entityCount = entityCount;
+        this.entityPages = entityPages;
+        this.componentPages = componentPages;
+        this.globalMasks = globalMasks;
+        this.occupants = occupants;
+        this.pins = new AtomicInteger();
+    }
+
+    /**
+     * The world tick this version was published at
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Get an entity's component as it was at this version, or null if it had none
+     */
+    public <T extends Component> T getComponent(Entity entity, Class<T> componentClass) {
+        Component[][] pages = componentPages.get(componentClass);
+        int index = indexOf(entity);
+        if (pages == null || index < 0) {
+            return null;
+        }
+        Component[] page = pages[index >>> WorldVersions.PAGE_BITS];
+        return page != null ? componentClass.cast(page[index & WorldVersions.PAGE_MASK]) : null;
+    }
+
+    public boolean hasComponent(Entity entity, Class<? extends Component> componentClass) {
+        return getComponent(entity, componentClass) != null;
+    }
+
+    /**
+     * Get every entity that had a component of the given type at this version
+     */
+    public List<Entity> getEntitiesWithComponent(Class<? extends Component> componentClass) {
+        Component[][] pages = componentPages.get(componentClass);
+        if (pages == null) {
+            return Collections.emptyList();
+        }
+        List<Entity> result = new ArrayList<>();
+        for (int p = 0; p < pages.length; p++) {
+            Component[] page = pages[p];
+            if (page == null) continue;
+            for (int slot = 0; slot < WorldVersions.PAGE_SIZE; slot++) {
+                if (page[slot] != null) {
+                    result.add(entityPages[p][slot]);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    @Override
+    public void close() {
+        owner.release(this);
+    }
+
+    // The live registry usually still knows the index; if the entity has
+    // since been destroyed or its index reused, search this version's table
+    int indexOf(Entity entity) {
+        int index = owner.liveIndexOf(entity);
+        if (index >= 0 && index < entityPages.length * WorldVersions.PAGE_SIZE) {
+            Entity[] page = entityPages[index >>> WorldVersions.PAGE_BITS];
+            if (page != null && entity.equals(page[index & WorldVersions.PAGE_MASK])) {
+                return index;
+            }
+        }
+        for (int p = 0; p < entityPages.length; p++) {
+            Entity[] page = entityPages[p];
+            if (page == null) continue;
+            for (int slot = 0; slot < WorldVersions.PAGE_SIZE; slot++) {
+                if (entity.equals(page[slot])) {
+                    return (p << WorldVersions.PAGE_BITS) | slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One past the highest entity index this version covers
+     */
+    int capacity() {
+        return entityPages.length * WorldVersions.PAGE_SIZE;
+    }
+
+    Entity entityAt(int index) {
+        Entity[] page = entityPages[index >>> WorldVersions.PAGE_BITS];
+        return page != null ? page[index & WorldVersions.PAGE_MASK] : null;
+    }
+
+    Component componentAt(Class<? extends Component> componentClass, int index) {
+        Component[][] pages = componentPages.get(componentClass);
+        if (pages == null) {
+            return null;
+        }
+        Component[] page = pages[index >>> WorldVersions.PAGE_BITS];
+        return page != null ? page[index & WorldVersions.PAGE_MASK] : null;
+    }
+
+    /**
+     * Indices of the entities in a room's occupancy at this version
+     */
+    int[] occupantsOf(String roomId) {
+        int[] indices = occupants.get(roomId);
+        return indices != null ? indices : new int[0];
+    }
+
+    /**
+     * Indices of entities with neither a RoomComponent nor a PositionComponent.
+     * A page is PAGE_SIZE (64) indices, so each page's mask is one word of the set.
+     */
+    BitSet globals() {
+        return BitSet.valueOf(globalMasks);
+    }
+
+    boolean tryPin() {
+        int current;
+        do {
+            current = pins.get();
+            if (current < 0) {
+                return false;
+            }
+        } while (!pins.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    int unpin() {
+        return pins.decrementAndGet();
+    }
+
+    /**
+     * Drop this version's page references if nobody holds it. Pages still
+     * shared with newer versions stay alive through them.
+     */
+    boolean tryReclaim() {
+        if (!pins.compareAndSet(0, -1)) {
+            return false;
+        }
+        entityPages = null;
+        componentPages = null;
+        globalMasks = null;
+        occupants = null;
+        return true;
+    }
+
+    Entity[][] entityPages() {
+        return entityPages;
+    }
+
+    Map<Class<? extends Component>, Component[][]> componentPages() {
+        return componentPages;
+    }
+}
@@ -0,0 +1,256 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Multi-version read snapshots of a world for observers
+ *
+ * The session thread publishes a new WorldVersion at each sync point.
+ * Readers on other threads (dashboards, spectators, the autosaver) pin the
+ * latest version, read it for as long as they like, and release it; they
+ * never take a lock the session thread waits on, and the session thread
+ * never waits for them.
+ *
+ * Publishing is copy-on-write by page. Entity indices are grouped into pages
+ * of PAGE_SIZE, and any access that could change an entity's components
+ * (adding, removing, or fetching one for possible in-place mutation) marks
+ * its page dirty. Only dirty pages are copied, using Component.copy(); the
+ * rest are shared with the previous version. A superseded version is
+ * reclaimed as soon as its last reader releases it.
+ *
+ * Each version also carries the room occupancy index as it stood, and for
+ * every page a bit mask of its global entities (those with neither a
+ * RoomComponent nor a PositionComponent), so readers can find what is in
+ * a room without scanning every entity. The occupancy is shared until
+ * someone enters or leaves a room, and masks of clean pages like the pages.
+ */
+public class WorldVersions {
+    static final int PAGE_BITS = 6;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final EntityRegistry registry;
+    private final ComponentManager components;
+    private final RoomOccupancyIndex occupancy;
+    private final AtomicReference<WorldVersion> current;
+    private final ConcurrentLinkedQueue<WorldVersion> superseded;
+    private volatile AtomicLongArray dirtyPages;
+    private volatile boolean allDirty;
+    private Entity[][] lastEntityPages;
+    private Map<Class<? extends Component>, Component[][]> lastComponentPages;
+    private long[] lastGlobalMasks;
+    private Map<String, int[]> lastOccupants;
+    private long epoch;
+    private long pagesCopied;
+    private final AtomicLong reclaimed;
+
+    WorldVersions(EntityRegistry registry, ComponentManager components, RoomOccupancyIndex occupancy) {
+        this.registry = registry;
+        this.components = components;
+        this.occupancy = occupancy;
+        this.current = new AtomicReference<>();
+        this.superseded = new ConcurrentLinkedQueue<>();
+        this.reclaimed = new AtomicLong();
+        this.dirtyPages = new AtomicLongArray(1);
+        this.allDirty = true;
+        this.lastEntityPages = new Entity[0][];
+        this.lastComponentPages = new HashMap<>();
+        this.lastGlobalMasks = new long[0];
+        this.lastOccupants = new HashMap<>();
+    }
+
+    /**
+     * Note that an entity's components may have changed since the last publish
+     */
+    void markDirty(int index) {
+        if (index < 0) return;
+        int page = index >>> PAGE_BITS;
+        int word = page >>> 6;
+        long bit = 1L << page;
+        AtomicLongArray bits = dirtyPages;
+        if (word >= bits.length()) {
+            growDirtyPages(word);
+            return;
+        }
+        if ((bits.get(word) & bit) == 0) {
+            bits.getAndAccumulate(word, bit, (a, b) -> a | b);
+        }
+    }
+
+    // Marks landing in the old array during the swap could be lost, so the
+    // next publish copies everything instead of trusting the bits
+    private synchronized void growDirtyPages(int word) {
+        if (word >= dirtyPages.length()) {
+            dirtyPages = new AtomicLongArray(Math.max(word + 1, dirtyPages.length() * 2));
+        }
+        allDirty = true;
+    }
+
+    /**
+     * Publish the world's current state as the newest version. Must be called
+     * on the session thread at a sync point (ECS.update does this).
+     */
+    public WorldVersion publish() {
+        int entityCount = registry.size();
+        int pageCount = (entityCount + PAGE_MASK) >>> PAGE_BITS;
+        boolean copyAll = allDirty;
+        allDirty = false;
+        AtomicLongArray bits = dirtyPages;
+        long[] marks = new long[bits.length()];
+        for (int w = 0; w < marks.length; w++) {
+            marks[w] = bits.getAndSet(w, 0L);
+        }
+
+        boolean[] dirty = new boolean[pageCount];
+        for (int p = 0; p < pageCount; p++) {
+            boolean marked = (p >>> 6) < marks.length && (marks[p >>> 6] & (1L << p)) != 0;
+            dirty[p] = copyAll || marked || p >= lastEntityPages.length;
+        }
+
+        Entity[][] entityPages = new Entity[pageCount][];
+        for (int p = 0; p < pageCount; p++) {
+            if (!dirty[p]) {
+                entityPages[p] = lastEntityPages[p];
+                continue;
+            }
+            Entity[] page = new Entity[PAGE_SIZE];
+            int base = p << PAGE_BITS;
+            for (int slot = 0; slot < PAGE_SIZE && base + slot < entityCount; slot++) {
+                page[slot] = registry.entityAt(base + slot);
+            }
+            entityPages[p] = page;
+        }
+
+        Map<Class<? extends Component>, Component[][]> componentPages = new HashMap<>();
+        for (Class<? extends Component> type : components.getComponentTypes()) {
+            Component[][] previous = lastComponentPages.get(type);
+            Component[][] pages = new Component[pageCount][];
+            for (int p = 0; p < pageCount; p++) {
+                if (!dirty[p]) {
+                    pages[p] = previous != null && p < previous.length ? previous[p] : null;
+                    continue;
+                }
+                pages[p] = copyPage(type, entityPages[p]);
+                pagesCopied++;
+            }
+            componentPages.put(type, pages);
+        }
+
+        long[] globalMasks = new long[pageCount];
+        Component[][] roomPages = componentPages.get(RoomComponent.class);
+        Component[][] positionPages = componentPages.get(PositionComponent.class);
+        for (int p = 0; p < pageCount; p++) {
+            if (!dirty[p]) {
+                globalMasks[p] = lastGlobalMasks[p];
+                continue;
+            }
+            Component[] rooms = roomPages != null ? roomPages[p] : null;
+            Component[] positions = positionPages != null ? positionPages[p] : null;
+            for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                if (entityPages[p][slot] != null && (rooms == null || rooms[slot] == null)
+                        && (positions == null || positions[slot] == null)) {
+                    globalMasks[p] |= 1L << slot;
+                }
+            }
+        }
+
+        List<String> changedRooms = new ArrayList<>();
+        occupancy.drainChangedRooms(changedRooms::add);
+        Map<String, int[]> occupants = lastOccupants;
+        if (!changedRooms.isEmpty()) {
+            occupants = new HashMap<>(lastOccupants);
+            for (String roomId : changedRooms) {
+                occupants.put(roomId, occupancy.occupantIndices(roomId));
+            }
+        }
+
+        lastEntityPages = entityPages;
+        lastComponentPages = componentPages;
+        lastGlobalMasks = globalMasks;
+        lastOccupants = occupants;
+        WorldVersion version = new WorldVersion(this, ++epoch, registry.liveCount(), entityPages, componentPages,
+            globalMasks, occupants);
+        WorldVersion old = current.getAndSet(version);
+        if (old != null) {
+            superseded.add(old);
+        }
+        reclaim();
+        return version;
+    }
+
+    private Component[] copyPage(Class<? extends Component> type, Entity[] entities) {
+        Component[] page = null;
+        for (int slot = 0; slot < PAGE_SIZE; slot++) {
+            Entity entity = entities[slot];
+            if (entity == null) continue;
+            Component component = components.getComponent(entity, type);
+            if (component == null) continue;
+            if (page == null) {
+                page = new Component[PAGE_SIZE];
+            }
+            page[slot] = component.copy();
+        }
+        return page;
+    }
+
+    /**
+     * Pin the newest version for reading, or return null if nothing has been
+     * published yet. Every pin must be matched by a release (or close()).
+     */
+    public WorldVersion pin() {
+        while (true) {
+            WorldVersion version = current.get();
+            if (version == null || version.tryPin()) {
+                return version;
+            }
+            // Reclaimed between the read and the pin; a newer one is current
+        }
+    }
+
+    public void release(WorldVersion version) {
+        if (version.unpin() == 0 && version != current.get()) {
+            reclaim();
+        }
+    }
+
+    public WorldVersion getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Versions that have been superseded but are still pinned by a reader
+     */
+    public int getRetainedCount() {
+        return superseded.size();
+    }
+
+    public long getReclaimedCount() {
+        return reclaimed.get();
+    }
+
+    public long getPagesCopied() {
+        return pagesCopied;
+    }
+
+    int liveIndexOf(Entity entity) {
+        return registry.indexOf(entity);
+    }
+
+    // Lock-free: whichever thread wins a version's pin count CAS reclaims it
+    private void reclaim() {
+        Iterator<WorldVersion> it = superseded.iterator();
+        while (it.hasNext()) {
+            WorldVersion version = it.next();
+            if (version.tryReclaim()) {
+                it.remove();
+                reclaimed.incrementAndGet();
+            }
+        }
+    }
+}